@@ -0,0 +1,145 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector4d;
+
+/**
+ * Benchmarks of BHTree construction and of BHTree.select() with a pick
+ * ray and with a view frustum shaped pick polytope.  The leaves are
+ * geometry atoms of shapes with random bounds inside a cube; no universe
+ * is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+public class BHTreeBenchmark {
+
+    // Edge length of the cube holding the leaves
+    static final double WORLD_SIZE = 1000.0;
+
+    @Param({"1000", "100000"})
+    public int leafCount;
+
+    private BHNode[] leaves;
+    private BHTree tree;
+    private PickShape pickRay;
+    private PickShape pickFrustum;
+    private final UnorderList hits = new UnorderList(BHNode.class);
+
+    @Setup
+    public void setup() {
+	leaves = createLeaves(leafCount, 42L);
+	tree = new BHTree(leaves.clone());
+
+	pickRay = new PickRay(new Point3d(0.0, 0.0, 0.0),
+			      new Vector3d(1.0, 1.0, 1.0));
+
+	// A 90 degree frustum looking down -z from the center of the
+	// front face of the cube, cut at a quarter of the depth
+	double c = WORLD_SIZE / 2.0;
+	Vector4d[] planes = new Vector4d[] {
+	    new Vector4d( 1.0, 0.0, 1.0, -c - WORLD_SIZE),
+	    new Vector4d(-1.0, 0.0, 1.0,  c - WORLD_SIZE),
+	    new Vector4d( 0.0, 1.0, 1.0, -c - WORLD_SIZE),
+	    new Vector4d( 0.0,-1.0, 1.0,  c - WORLD_SIZE),
+	    new Vector4d( 0.0, 0.0, 1.0, -WORLD_SIZE),
+	    new Vector4d( 0.0, 0.0,-1.0,  WORLD_SIZE * 0.75),
+	};
+	for (int i = 0; i < planes.length; i++) {
+	    double len = Math.sqrt(planes[i].x * planes[i].x +
+				   planes[i].y * planes[i].y +
+				   planes[i].z * planes[i].z);
+	    planes[i].scale(1.0 / len);
+	}
+	pickFrustum = new PickBounds(new BoundingPolytope(planes));
+    }
+
+    /**
+     * Creates count BHTree leaves for pickable geometry atoms of size 1
+     * to 10 placed randomly in the world cube.
+     */
+    static BHNode[] createLeaves(int count, long seed) {
+	Random random = new Random(seed);
+	BHNode[] nodes = new BHNode[count];
+	for (int i = 0; i < count; i++) {
+	    double x = random.nextDouble() * WORLD_SIZE;
+	    double y = random.nextDouble() * WORLD_SIZE;
+	    double z = random.nextDouble() * WORLD_SIZE;
+	    double size = 1.0 + random.nextDouble() * 9.0;
+
+	    Shape3DRetained shape = new Shape3DRetained();
+	    shape.switchState = new SwitchState(false);
+	    shape.vwcBounds = new BoundingBox(new Point3d(x, y, z),
+					      new Point3d(x + size, y + size,
+							  z + size));
+	    GeometryAtom atom = new GeometryAtom();
+	    atom.source = shape;
+	    nodes[i] = new BHLeafNode(atom);
+	}
+	return nodes;
+    }
+
+    @Benchmark
+    public BHTree build() {
+	return new BHTree(leaves.clone());
+    }
+
+    @Benchmark
+    public int selectPickRay() {
+	hits.clear();
+	tree.select(pickRay, hits);
+	return hits.size();
+    }
+
+    @Benchmark
+    public int selectFrustum() {
+	hits.clear();
+	tree.select(pickFrustum, hits);
+	return hits.size();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of update cycles of a scene with many behaviors spread over
+ * a large area while the ViewPlatform moves across it, so that behaviors
+ * are activated and deactivated every frame.  It is run by
+ * VirtualUniverse.step() in a headless JVM on the NOOP pipeline, with
+ * and without the scheduling region index (-Dj3d.behaviorRegionIndex).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true", "-Xmx4g"})
+public class BehaviorSchedulingBenchmark {
+
+    @Param({"10000", "100000"})
+    public int behaviorCount;
+
+    @Param({"false", "true"})
+    public boolean behaviorRegionIndex;
+
+    private static final double SPACING = 10.0;
+    private static final double REGION_RADIUS = 5.0;
+    private static final float ACTIVATION_RADIUS = 60.0f;
+
+    private VirtualUniverse universe;
+    private TransformGroup viewTransformGroup;
+    private final Transform3D viewTransform = new Transform3D();
+    private final Vector3d viewTranslation = new Vector3d();
+    private double extent;
+    private int frame;
+
+    // Waits for a post that never comes, like most behaviors of a large
+    // scene that only run when something happens near them
+    static class IdleBehavior extends Behavior {
+	private WakeupCondition condition;
+
+	@Override
+	public void initialize() {
+	    condition = new WakeupOnBehaviorPost(null, 1);
+	    wakeupOn(condition);
+	}
+
+	@Override
+	public void processStimulus(Enumeration criteria) {
+	    wakeupOn(condition);
+	}
+    }
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.behaviorRegionIndex = behaviorRegionIndex;
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	BranchGroup scene = new BranchGroup();
+	int side = (int) Math.ceil(Math.sqrt(behaviorCount));
+	extent = side * SPACING;
+	for (int i = 0; i < behaviorCount; i++) {
+	    IdleBehavior behavior = new IdleBehavior();
+	    behavior.setSchedulingBounds(
+		new BoundingSphere(new Point3d((i % side) * SPACING,
+					       (i / side) * SPACING, 0.0),
+				   REGION_RADIUS));
+	    scene.addChild(behavior);
+	}
+
+	viewTransformGroup = new TransformGroup();
+	viewTransformGroup.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	ViewPlatform viewPlatform = new ViewPlatform();
+	viewPlatform.setActivationRadius(ACTIVATION_RADIUS);
+	viewTransformGroup.addChild(viewPlatform);
+	scene.addChild(viewTransformGroup);
+
+	// Behaviors are only scheduled near an active ViewPlatform; there
+	// is no Canvas3D to activate the View, so mark it active directly
+	View view = new View();
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	view.attachViewPlatform(viewPlatform);
+	locale.addBranchGraph(scene);
+	view.active = true;
+	((ViewPlatformRetained) viewPlatform.retained).reEvaluateView();
+
+	// Process the insertion and activate the behaviors before measuring
+	for (int i = 0; i < 4; i++) {
+	    VirtualUniverse.step();
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void movingViewStep() {
+	frame++;
+	viewTranslation.x = extent * (0.5 + 0.5 * Math.sin(frame * 0.013));
+	viewTranslation.y = extent * (0.5 + 0.5 * Math.cos(frame * 0.007));
+	viewTransform.setTranslation(viewTranslation);
+	viewTransformGroup.setTransform(viewTransform);
+	VirtualUniverse.step();
+    }
+}
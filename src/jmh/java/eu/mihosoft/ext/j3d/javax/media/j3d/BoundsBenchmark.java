@@ -0,0 +1,111 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3f;
+
+/**
+ * Benchmark of the computation of the bounding box of a point array of
+ * ten million vertices, by copy, by reference to a float array and by
+ * reference to a Point3f array, with and without BoundsKernel
+ * (-Dj3d.parallelBounds).  The fork/join scheduler is enabled so that the
+ * kernel may use every processor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true",
+				  "-Dj3d.forkJoinScheduler=true", "-Xmx4g"})
+public class BoundsBenchmark {
+
+    @Param({"10000000"})
+    public int vertexCount;
+
+    @Param({"copy", "refFloat", "refPoint3f"})
+    public String layout;
+
+    @Param({"false", "true"})
+    public boolean parallelBounds;
+
+    private GeometryArrayRetained geometry;
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.parallelBounds = parallelBounds;
+
+	Random random = new Random(1);
+	float[] coords = new float[3 * vertexCount];
+	for (int i = 0; i < coords.length; i++) {
+	    coords[i] = random.nextFloat();
+	}
+
+	PointArray points;
+	if (layout.equals("copy")) {
+	    points = new PointArray(vertexCount, GeometryArray.COORDINATES);
+	    points.setCoordinates(0, coords);
+	} else if (layout.equals("refFloat")) {
+	    points = new PointArray(vertexCount, GeometryArray.COORDINATES |
+				    GeometryArray.BY_REFERENCE);
+	    points.setCoordRefFloat(coords);
+	} else {
+	    Point3f[] p = new Point3f[vertexCount];
+	    for (int i = 0; i < vertexCount; i++) {
+		p[i] = new Point3f(coords[3*i], coords[3*i+1], coords[3*i+2]);
+	    }
+	    points = new PointArray(vertexCount, GeometryArray.COORDINATES |
+				    GeometryArray.BY_REFERENCE);
+	    points.setCoordRef3f(p);
+	}
+	geometry = (GeometryArrayRetained) points.retained;
+    }
+
+    @Benchmark
+    public BoundingBox computeBounds() {
+	synchronized (geometry.geoBounds) {
+	    geometry.boundsDirty = true;
+	    geometry.computeBoundingBox();
+	}
+	return geometry.geoBounds;
+    }
+}
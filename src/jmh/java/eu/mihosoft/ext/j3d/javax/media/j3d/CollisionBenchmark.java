@@ -0,0 +1,182 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of update cycles of a grid of static shapes, each armed by a
+ * behavior waiting for WakeupOnCollisionEntry, Exit or Movement, while a
+ * few shapes move across the grid.  It is run by VirtualUniverse.step()
+ * in a headless JVM on the NOOP pipeline, with and without the collision
+ * broadphase (-Dj3d.collisionBroadphase).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class CollisionBenchmark {
+
+    @Param({"1000", "10000"})
+    public int sensorCount;
+
+    @Param({"false", "true"})
+    public boolean collisionBroadphase;
+
+    private static final int MOVER_COUNT = 8;
+    private static final double SPACING = 3.0;
+
+    private VirtualUniverse universe;
+    private TransformGroup[] movers;
+    private final Transform3D moverTransform = new Transform3D();
+    private final Vector3d moverTranslation = new Vector3d();
+    private double extent;
+    private int frame;
+
+    // Counts the collision events of a shape
+    static class Sensor extends Behavior {
+	private final Shape3D shape;
+	private WakeupCondition condition;
+	int events;
+
+	Sensor(Shape3D shape) {
+	    this.shape = shape;
+	}
+
+	@Override
+	public void initialize() {
+	    condition = new WakeupOr(new WakeupCriterion[] {
+		new WakeupOnCollisionEntry(shape),
+		new WakeupOnCollisionExit(shape),
+		new WakeupOnCollisionMovement(shape)
+	    });
+	    wakeupOn(condition);
+	}
+
+	@Override
+	public void processStimulus(Enumeration criteria) {
+	    while (criteria.hasMoreElements()) {
+		criteria.nextElement();
+		events++;
+	    }
+	    wakeupOn(condition);
+	}
+    }
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.collisionBroadphase = collisionBroadphase;
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	BranchGroup scene = new BranchGroup();
+	BoundingSphere schedulingBounds =
+	    new BoundingSphere(new Point3d(), Double.POSITIVE_INFINITY);
+	int side = (int) Math.ceil(Math.sqrt(sensorCount));
+	extent = side * SPACING;
+	TriangleArray sensorBox =
+	    SyntheticScene.createBox(0.5f, GeometryArray.COORDINATES);
+	Transform3D t = new Transform3D();
+	for (int i = 0; i < sensorCount; i++) {
+	    t.setTranslation(new Vector3d((i % side) * SPACING,
+					  (i / side) * SPACING, 0.0));
+	    TransformGroup tg = new TransformGroup(t);
+	    Shape3D shape = new Shape3D(sensorBox);
+	    Sensor sensor = new Sensor(shape);
+	    sensor.setSchedulingBounds(schedulingBounds);
+	    tg.addChild(shape);
+	    tg.addChild(sensor);
+	    scene.addChild(tg);
+	}
+
+	TriangleArray moverBox =
+	    SyntheticScene.createBox(0.7f, GeometryArray.COORDINATES);
+	movers = new TransformGroup[MOVER_COUNT];
+	for (int i = 0; i < MOVER_COUNT; i++) {
+	    movers[i] = new TransformGroup();
+	    movers[i].setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	    movers[i].addChild(new Shape3D(moverBox));
+	    scene.addChild(movers[i]);
+	}
+
+	// Behaviors are only scheduled near an active ViewPlatform; there
+	// is no Canvas3D to activate the View, so mark it active directly
+	ViewPlatform viewPlatform = new ViewPlatform();
+	viewPlatform.setActivationRadius(Float.MAX_VALUE);
+	scene.addChild(viewPlatform);
+	View view = new View();
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	view.attachViewPlatform(viewPlatform);
+	locale.addBranchGraph(scene);
+	view.active = true;
+	((ViewPlatformRetained) viewPlatform.retained).reEvaluateView();
+
+	// Process the insertion and arm the behaviors before measuring
+	for (int i = 0; i < 4; i++) {
+	    VirtualUniverse.step();
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void movingStep() {
+	frame++;
+	for (int i = 0; i < MOVER_COUNT; i++) {
+	    double phase = frame * 0.05 + i;
+	    moverTranslation.x = extent * (0.5 + 0.5 * Math.sin(phase * 0.37 + i));
+	    moverTranslation.y = extent * (0.5 + 0.5 * Math.cos(phase * 0.23 + 2 * i));
+	    moverTransform.setTranslation(moverTranslation);
+	    movers[i].setTransform(moverTransform);
+	}
+	VirtualUniverse.step();
+    }
+}
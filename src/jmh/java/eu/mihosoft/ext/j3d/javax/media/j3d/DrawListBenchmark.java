@@ -0,0 +1,228 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the traversal of the opaque bins of a RenderBin, walking
+ * the linked bin hierarchy or the flat DrawList, and of the update of the
+ * DrawList after a part of the TextureBins moved to other ShaderBins.
+ * There is no Canvas3D in a headless JVM, so the traversals only visit
+ * the TextureBins instead of rendering them; the bins are empty and
+ * linked directly rather than through RenderAtoms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.drawList=true",
+				  "-Djava.awt.headless=true"})
+public class DrawListBenchmark {
+
+    @Param({"1000", "10000"})
+    public int textureBinCount;
+
+    // Percentage of the TextureBins moved by each update
+    @Param({"1"})
+    public int churnPercent;
+
+    private static final int LIGHT_BINS = 4;
+    private static final int ENV_SETS = 4;
+    private static final int ATTRIBUTE_BINS = 16;
+    private static final int SHADER_BINS = 2;
+    private static final int TEXTURES = 8;
+
+    private VirtualUniverse universe;
+    private RenderBin renderBin;
+    private DrawList drawList;
+    private ShaderBin[] shaderBins;
+    private TextureBin[] textureBins;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	View view = new View();
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	renderBin = new RenderBin(universe, view);
+	drawList = new DrawList(renderBin);
+
+	TextureUnitStateRetained[][] textureStates =
+	    new TextureUnitStateRetained[TEXTURES][];
+	for (int i = 0; i < TEXTURES; i++) {
+	    TextureUnitStateRetained state = new TextureUnitStateRetained();
+	    state.texture = new Texture2DRetained();
+	    textureStates[i] = new TextureUnitStateRetained[] {state};
+	}
+
+	// Build the bins the way the RenderBin links them, with the last
+	// bin of each list at its head
+	shaderBins = new ShaderBin[LIGHT_BINS * ENV_SETS * ATTRIBUTE_BINS *
+				   SHADER_BINS];
+	int s = 0;
+	for (int l = 0; l < LIGHT_BINS; l++) {
+	    LightBin lb = new LightBin(VirtualUniverse.mc.maxLights,
+				       renderBin, true);
+	    lb.next = renderBin.opaqueBin;
+	    renderBin.opaqueBin = lb;
+	    for (int e = 0; e < ENV_SETS; e++) {
+		EnvironmentSet es =
+		    new EnvironmentSet(null, null, null, null, renderBin);
+		es.lightBin = lb;
+		es.next = lb.environmentSetList;
+		lb.environmentSetList = es;
+		for (int a = 0; a < ATTRIBUTE_BINS; a++) {
+		    AttributeBin ab = new AttributeBin(null, null, renderBin);
+		    ab.environmentSet = es;
+		    ab.next = es.attributeBinList;
+		    es.attributeBinList = ab;
+		    for (int i = 0; i < SHADER_BINS; i++) {
+			ShaderBin sb = new ShaderBin(null, renderBin);
+			sb.attributeBin = ab;
+			sb.next = ab.shaderBinList;
+			ab.shaderBinList = sb;
+			shaderBins[s++] = sb;
+		    }
+		}
+	    }
+	}
+
+	textureBins = new TextureBin[textureBinCount];
+	for (int i = 0; i < textureBinCount; i++) {
+	    TextureBin tb = new TextureBin(textureStates[i % TEXTURES],
+					   null, renderBin);
+	    textureBins[i] = tb;
+	    link(tb, shaderBins[random.nextInt(shaderBins.length)]);
+	}
+	drawList.update();
+    }
+
+    @TearDown
+    public void tearDown() {
+	drawList.clear();
+    }
+
+    private void link(TextureBin tb, ShaderBin sb) {
+	tb.shaderBin = sb;
+	tb.attributeBin = sb.attributeBin;
+	tb.environmentSet = sb.attributeBin.environmentSet;
+	tb.prev = null;
+	tb.next = sb.textureBinList;
+	if (sb.textureBinList != null) {
+	    sb.textureBinList.prev = tb;
+	}
+	sb.textureBinList = tb;
+	drawList.add(tb);
+    }
+
+    private void unlink(TextureBin tb) {
+	ShaderBin sb = tb.shaderBin;
+	if (tb.prev == null) {
+	    sb.textureBinList = tb.next;
+	} else {
+	    tb.prev.next = tb.next;
+	}
+	if (tb.next != null) {
+	    tb.next.prev = tb.prev;
+	}
+	tb.shaderBin = null;
+	tb.prev = null;
+	tb.next = null;
+	drawList.invalidate();
+    }
+
+    @Benchmark
+    public int traverseHierarchy() {
+	int count = 0;
+	for (LightBin lb = renderBin.opaqueBin; lb != null; lb = lb.next) {
+	    for (EnvironmentSet es = lb.environmentSetList; es != null;
+		 es = es.next) {
+		for (AttributeBin ab = es.attributeBinList; ab != null;
+		     ab = ab.next) {
+		    for (ShaderBin sb = ab.shaderBinList; sb != null;
+			 sb = sb.next) {
+			for (TextureBin tb = sb.textureBinList; tb != null;
+			     tb = tb.next) {
+			    count += tb.numRenderMolecules + 1;
+			}
+		    }
+		}
+	    }
+	}
+	return count;
+    }
+
+    @Benchmark
+    public int traverseDrawList() {
+	int count = 0;
+	AttributeBin ab = null;
+	ShaderBin sb = null;
+	TextureBin[] bins = drawList.bins;
+	for (int i = 0, n = drawList.size; i < n; i++) {
+	    TextureBin tb = bins[i];
+	    if (tb.attributeBin != ab) {
+		ab = tb.attributeBin;
+		sb = null;
+	    }
+	    if (tb.shaderBin != sb) {
+		sb = tb.shaderBin;
+	    }
+	    count += tb.numRenderMolecules + 1;
+	}
+	return count;
+    }
+
+    @Benchmark
+    public int churnUpdate() {
+	int moved = Math.max(1, textureBinCount * churnPercent / 100);
+	for (int i = 0; i < moved; i++) {
+	    TextureBin tb = textureBins[random.nextInt(textureBinCount)];
+	    unlink(tb);
+	    link(tb, shaderBins[random.nextInt(shaderBins.length)]);
+	}
+	drawList.update();
+	return drawList.size;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of complete frames of a synthetic scene on the NOOP
+ * pipeline, so that the time measured is spent in the structures, the
+ * culling and the render bin rather than in a graphics driver.  A frame
+ * is rendered into an off-screen canvas; the moving variant also changes
+ * the transform above all shapes before each frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Xmx8g"})
+public class FrameBenchmark {
+
+    static final int WIDTH = 640;
+    static final int HEIGHT = 480;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int shapeCount;
+
+    private VirtualUniverse universe;
+    private Canvas3D canvas;
+    private TransformGroup sceneRoot;
+    private final Transform3D sceneTransform = new Transform3D();
+    private final Vector3d sceneTranslation = new Vector3d();
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	BranchGroup scene = SyntheticScene.createScene(shapeCount);
+	sceneRoot = SyntheticScene.getSceneRoot(scene);
+
+	// Look at the scene from the front, far enough to see all of it
+	double extent = Math.cbrt(shapeCount) * SyntheticScene.SPACING;
+	ViewPlatform vp = new ViewPlatform();
+	Transform3D vpTransform = new Transform3D();
+	vpTransform.lookAt(new Point3d(extent / 2.0, extent / 2.0, 2.0 * extent),
+			   new Point3d(extent / 2.0, extent / 2.0, -extent / 2.0),
+			   new Vector3d(0.0, 1.0, 0.0));
+	vpTransform.invert();
+	TransformGroup vpGroup = new TransformGroup(vpTransform);
+	vpGroup.addChild(vp);
+	BranchGroup viewBranch = new BranchGroup();
+	viewBranch.addChild(vpGroup);
+
+	GraphicsConfiguration config = GraphicsEnvironment.
+	    getLocalGraphicsEnvironment().getDefaultScreenDevice().
+	    getBestConfiguration(new GraphicsConfigTemplate3D());
+	canvas = new Canvas3D(config, true);
+	Screen3D screen = canvas.getScreen3D();
+	screen.setSize(WIDTH, HEIGHT);
+	screen.setPhysicalScreenWidth(0.0254 / 90.0 * WIDTH);
+	screen.setPhysicalScreenHeight(0.0254 / 90.0 * HEIGHT);
+	canvas.setOffScreenBuffer(new ImageComponent2D(ImageComponent.FORMAT_RGBA,
+		new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB)));
+
+	View view = new View();
+	view.setBackClipDistance(4.0 * extent);
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	view.attachViewPlatform(vp);
+	view.addCanvas3D(canvas);
+
+	locale.addBranchGraph(scene);
+	locale.addBranchGraph(viewBranch);
+
+	// Let the scene become visible before measuring
+	renderFrame();
+	renderFrame();
+    }
+
+    @TearDown
+    public void tearDown() {
+	canvas.getView().removeCanvas3D(canvas);
+	universe.removeAllLocales();
+    }
+
+    private void renderFrame() {
+	canvas.renderOffScreenBuffer();
+	canvas.waitForOffScreenRendering();
+    }
+
+    @Benchmark
+    public void staticFrame() {
+	renderFrame();
+    }
+
+    @Benchmark
+    public void movingFrame() {
+	sceneTranslation.x = (sceneTranslation.x + 0.01) % 1.0;
+	sceneTransform.setTranslation(sceneTranslation);
+	sceneRoot.setTransform(sceneTransform);
+	renderFrame();
+    }
+}
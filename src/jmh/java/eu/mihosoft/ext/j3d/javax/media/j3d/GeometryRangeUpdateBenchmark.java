@@ -0,0 +1,138 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the update of a few thousand vertices of a live point
+ * array of a million vertices, by copy through setCoordinates() and by
+ * reference through updateData() with a vertex range, followed by an
+ * update cycle.  It is run by VirtualUniverse.step() in a headless JVM on
+ * the NOOP pipeline, with and without the chunked bounds
+ * (-Dj3d.geometryDirtyRanges).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class GeometryRangeUpdateBenchmark {
+
+    @Param({"1000000"})
+    public int vertexCount;
+
+    @Param({"2000"})
+    public int changedCount;
+
+    @Param({"false", "true"})
+    public boolean geometryDirtyRanges;
+
+    private VirtualUniverse universe;
+    private PointArray copyPoints;
+    private PointArray refPoints;
+    private float[] refCoords;
+    private float[] changedCoords;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.geometryDirtyRanges = geometryDirtyRanges;
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	float[] coords = new float[3 * vertexCount];
+	for (int i = 0; i < coords.length; i++) {
+	    coords[i] = random.nextFloat();
+	}
+	copyPoints = new PointArray(vertexCount, GeometryArray.COORDINATES);
+	copyPoints.setCoordinates(0, coords);
+	copyPoints.setCapability(GeometryArray.ALLOW_COORDINATE_WRITE);
+
+	refCoords = coords.clone();
+	refPoints = new PointArray(vertexCount, GeometryArray.COORDINATES |
+				   GeometryArray.BY_REFERENCE);
+	refPoints.setCoordRefFloat(refCoords);
+	refPoints.setCapability(GeometryArray.ALLOW_REF_DATA_WRITE);
+
+	changedCoords = new float[3 * changedCount];
+
+	BranchGroup scene = new BranchGroup();
+	scene.addChild(new Shape3D(copyPoints));
+	scene.addChild(new Shape3D(refPoints));
+	locale.addBranchGraph(scene);
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    private int nextIndex() {
+	for (int i = 0; i < changedCoords.length; i++) {
+	    changedCoords[i] = random.nextFloat();
+	}
+	return random.nextInt(vertexCount - changedCount);
+    }
+
+    @Benchmark
+    public void copySetCoordinates() {
+	copyPoints.setCoordinates(nextIndex(), changedCoords);
+	VirtualUniverse.step();
+    }
+
+    @Benchmark
+    public void refUpdateRange() {
+	final int index = nextIndex();
+	refPoints.updateData(new GeometryUpdater() {
+		@Override
+		public void updateData(Geometry geometry) {
+		    System.arraycopy(changedCoords, 0, refCoords, 3 * index,
+				     changedCoords.length);
+		}
+	    }, index, changedCount);
+	VirtualUniverse.step();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of coordinate updates of live geometry, by copy through
+ * setCoordinates() and by reference through updateData().  Both include
+ * the bounds computation and the messages sent to the structures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+public class GeometryUpdateBenchmark {
+
+    @Param({"1000", "100000"})
+    public int vertexCount;
+
+    private VirtualUniverse universe;
+    private TriangleArray byCopy;
+    private TriangleArray byReference;
+    private float[] coords;
+    private float[] refCoords;
+    private float offset = 0.0f;
+
+    private final GeometryUpdater updater = new GeometryUpdater() {
+	@Override
+	public void updateData(Geometry geometry) {
+	    float[] c = refCoords;
+	    for (int i = 0; i < c.length; i += 3) {
+		c[i] = coords[i] + offset;
+	    }
+	}
+    };
+
+    @Setup
+    public void setup() {
+	// a whole number of triangles
+	int count = vertexCount - vertexCount % 3;
+	coords = new float[count * 3];
+	for (int i = 0; i < coords.length; i++) {
+	    coords[i] = (float) ((i * 7919) % 1000);
+	}
+	refCoords = coords.clone();
+
+	byCopy = new TriangleArray(count, GeometryArray.COORDINATES);
+	byCopy.setCapability(GeometryArray.ALLOW_COORDINATE_WRITE);
+	byCopy.setCoordinates(0, coords);
+
+	byReference = new TriangleArray(count, GeometryArray.COORDINATES |
+				    GeometryArray.BY_REFERENCE);
+	byReference.setCapability(GeometryArray.ALLOW_REF_DATA_WRITE);
+	byReference.setCoordRefFloat(refCoords);
+
+	BranchGroup scene = new BranchGroup();
+	scene.addChild(new Shape3D(byCopy));
+	scene.addChild(new Shape3D(byReference));
+
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	locale.addBranchGraph(scene);
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void updateByCopy() {
+	offset += 1.0f;
+	coords[0] = offset;
+	byCopy.setCoordinates(0, coords);
+    }
+
+    @Benchmark
+    public void updateByReference() {
+	offset += 1.0f;
+	byReference.updateData(updater);
+    }
+}
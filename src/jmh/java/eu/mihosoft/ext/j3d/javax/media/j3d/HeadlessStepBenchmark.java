@@ -0,0 +1,100 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of update cycles of a synthetic scene run by
+ * VirtualUniverse.step() in a headless JVM on the NOOP pipeline.  Unlike
+ * FrameBenchmark this needs no display and no View; the time measured is
+ * spent in the structure updates only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true", "-Xmx8g"})
+public class HeadlessStepBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int shapeCount;
+
+    private VirtualUniverse universe;
+    private TransformGroup sceneRoot;
+    private final Transform3D sceneTransform = new Transform3D();
+    private final Vector3d sceneTranslation = new Vector3d();
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	BranchGroup scene = SyntheticScene.createScene(shapeCount);
+	sceneRoot = SyntheticScene.getSceneRoot(scene);
+	locale.addBranchGraph(scene);
+
+	// Process the insertion of the scene before measuring
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void staticStep() {
+	VirtualUniverse.step();
+    }
+
+    @Benchmark
+    public void movingStep() {
+	sceneTranslation.x = (sceneTranslation.x + 0.01) % 1.0;
+	sceneTransform.setTranslation(sceneTranslation);
+	sceneRoot.setTransform(sceneTransform);
+	VirtualUniverse.step();
+    }
+}
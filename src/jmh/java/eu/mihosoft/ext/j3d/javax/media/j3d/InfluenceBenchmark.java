@@ -0,0 +1,156 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of the resolution of the lights and fogs of RenderAtoms by
+ * the RenderingEnvironmentStructure for a scene of point lights and fogs
+ * with small influencing bounds, with and without the influencing bounds
+ * index (-Dj3d.influenceIndex).  The RenderAtoms are resolved directly,
+ * as the RenderBin does when a shape is inserted, in a headless JVM on
+ * the NOOP pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class InfluenceBenchmark {
+
+    @Param({"200", "2000"})
+    public int lightCount;
+
+    @Param({"false", "true"})
+    public boolean influenceIndex;
+
+    private static final int ATOM_COUNT = 1000;
+    private static final double EXTENT = 200.0;
+
+    private VirtualUniverse universe;
+    private RenderingEnvironmentStructure structure;
+    private RenderAtom[] atoms;
+    private TransformGroup mover;
+    private final Transform3D moverTransform = new Transform3D();
+    private final Vector3d moverTranslation = new Vector3d();
+    private int frame;
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.influenceIndex = influenceIndex;
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	// An eighth of the lights and fogs move in movingResolve()
+	BranchGroup scene = new BranchGroup();
+	mover = new TransformGroup();
+	mover.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	scene.addChild(mover);
+	Random random = new Random(1);
+	for (int i = 0; i < lightCount; i++) {
+	    Group parent = (i % 8 == 0) ? (Group) mover : (Group) scene;
+	    Point3d center = new Point3d(random.nextDouble() * EXTENT,
+					 random.nextDouble() * EXTENT,
+					 random.nextDouble() * EXTENT);
+	    PointLight light = new PointLight();
+	    light.setInfluencingBounds(new BoundingSphere(center, 10.0));
+	    parent.addChild(light);
+	    if (i % 10 == 0) {
+		ExponentialFog fog = new ExponentialFog();
+		fog.setInfluencingBounds(new BoundingSphere(center, 15.0));
+		parent.addChild(fog);
+	    }
+	}
+	locale.addBranchGraph(scene);
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+	structure = universe.renderingEnvironmentStructure;
+
+	atoms = new RenderAtom[ATOM_COUNT];
+	Shape3DRetained source = new Shape3DRetained();
+	for (int i = 0; i < ATOM_COUNT; i++) {
+	    double x = random.nextDouble() * EXTENT;
+	    double y = random.nextDouble() * EXTENT;
+	    double z = random.nextDouble() * EXTENT;
+	    atoms[i] = new RenderAtom();
+	    atoms[i].geometryAtom = new GeometryAtom();
+	    atoms[i].geometryAtom.source = source;
+	    atoms[i].localeVwcBounds = new BoundingBox(new Point3d(x, y, z),
+						       new Point3d(x + 2.0, y + 2.0, z + 2.0));
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public int resolve() {
+	int count = 0;
+	for (int i = 0; i < ATOM_COUNT; i++) {
+	    RenderAtom ra = atoms[i];
+	    ra.lights = structure.getInfluencingLights(ra, null);
+	    count += ra.lights.length;
+	    if (structure.getInfluencingFog(ra, null) != null) {
+		count++;
+	    }
+	}
+	return count;
+    }
+
+    @Benchmark
+    public int movingResolve() {
+	frame++;
+	moverTranslation.x = 20.0 * Math.sin(frame * 0.05);
+	moverTransform.setTranslation(moverTranslation);
+	mover.setTransform(moverTransform);
+	VirtualUniverse.step();
+	return resolve();
+    }
+}
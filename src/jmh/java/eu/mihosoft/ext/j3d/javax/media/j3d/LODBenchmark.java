@@ -0,0 +1,184 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3f;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of update cycles of a grid of LOD nodes, each switching three
+ * levels of detail, while the ViewPlatform moves over the grid.  It is
+ * run by VirtualUniverse.step() in a headless JVM on the NOOP pipeline,
+ * where there is no Canvas3D and thus no RenderBin and no elapsed
+ * frames.  The levels are either selected by DistanceLOD behaviors, whose
+ * processStimulus() is called after each update the way the
+ * BehaviorScheduler would call it, or by the LODStage for
+ * ScreenSpaceErrorLOD nodes, which is run on a box ahead of the viewer
+ * after each update the way the RenderBin would run it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class LODBenchmark {
+
+    @Param({"1000", "10000"})
+    public int lodCount;
+
+    @Param({"distance", "screenSpace"})
+    public String lodType;
+
+    private static final double SPACING = 4.0;
+
+    // Pixels per unit length at unit distance of an 800 pixel wide
+    // canvas with the default field of view
+    private static final double PIXELS_PER_UNIT =
+	800.0 / (2.0 * Math.tan(Math.PI / 8.0));
+
+    private VirtualUniverse universe;
+    private LODStage lodStage;
+    private DistanceLOD[] distanceLODs;
+    private TransformGroup viewTransformGroup;
+    private final Transform3D viewTransform = new Transform3D();
+    private final Vector3d viewTranslation = new Vector3d();
+    private final Point3d eye = new Point3d();
+    private final BoundingBox frustumBBox = new BoundingBox();
+    private double extent;
+    private int frame;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	BranchGroup scene = new BranchGroup();
+	BoundingSphere schedulingBounds =
+	    new BoundingSphere(new Point3d(), Double.POSITIVE_INFINITY);
+	int side = (int) Math.ceil(Math.sqrt(lodCount));
+	extent = side * SPACING;
+	boolean distance = lodType.equals("distance");
+	distanceLODs = new DistanceLOD[distance ? lodCount : 0];
+	Transform3D t = new Transform3D();
+	for (int i = 0; i < lodCount; i++) {
+	    t.setTranslation(new Vector3d((i % side) * SPACING, 0.0,
+					  (i / side) * SPACING));
+	    TransformGroup tg = new TransformGroup(t);
+	    Switch sw = new Switch(0);
+	    sw.setCapability(Switch.ALLOW_SWITCH_WRITE);
+	    for (int k = 0; k < 3; k++) {
+		sw.addChild(new Shape3D());
+	    }
+	    LOD lod;
+	    if (distance) {
+		lod = distanceLODs[i] = new DistanceLOD(new float[] {20.0f, 80.0f});
+	    } else {
+		lod = new ScreenSpaceErrorLOD(new float[] {0.0f, 0.02f, 0.1f},
+					      new Point3f(), 1.0f);
+	    }
+	    lod.addSwitch(sw);
+	    lod.setSchedulingBounds(schedulingBounds);
+	    tg.addChild(sw);
+	    tg.addChild(lod);
+	    scene.addChild(tg);
+	}
+
+	// Behaviors are only scheduled near an active ViewPlatform; there
+	// is no Canvas3D to activate the View, so mark it active directly
+	viewTransformGroup = new TransformGroup();
+	viewTransformGroup.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	ViewPlatform viewPlatform = new ViewPlatform();
+	viewPlatform.setActivationRadius(Float.MAX_VALUE);
+	viewTransformGroup.addChild(viewPlatform);
+	scene.addChild(viewTransformGroup);
+	View view = new View();
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	view.attachViewPlatform(viewPlatform);
+	locale.addBranchGraph(scene);
+	view.active = true;
+	((ViewPlatformRetained) viewPlatform.retained).reEvaluateView();
+	universe.currentView = view;
+	lodStage = universe.behaviorStructure.lodStage;
+
+	// Process the insertion and arm the behaviors before measuring
+	for (int i = 0; i < 4; i++) {
+	    VirtualUniverse.step();
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void movingStep() {
+	frame++;
+	viewTranslation.x = extent * (0.5 + 0.5 * Math.sin(frame * 0.01));
+	viewTranslation.y = 2.0;
+	viewTranslation.z = extent * (0.5 + 0.5 * Math.cos(frame * 0.013));
+	viewTransform.setTranslation(viewTranslation);
+	viewTransformGroup.setTransform(viewTransform);
+	VirtualUniverse.step();
+
+	for (int i = 0; i < distanceLODs.length; i++) {
+	    BehaviorRetained behav = (BehaviorRetained) distanceLODs[i].retained;
+	    behav.inCallback = true;
+	    distanceLODs[i].processStimulus(null);
+	    behav.inCallback = false;
+	}
+
+	if (lodStage.size() > 0) {
+	    // Cull to a box of a quarter of the grid ahead of the viewer,
+	    // as the RenderBin of the view would
+	    eye.set(viewTranslation);
+	    frustumBBox.setLower(eye.x - extent / 8.0, -10.0, eye.z - extent / 4.0);
+	    frustumBBox.setUpper(eye.x + extent / 8.0, 10.0, eye.z);
+	    lodStage.select(PIXELS_PER_UNIT, eye, frustumBBox, null);
+	}
+    }
+}
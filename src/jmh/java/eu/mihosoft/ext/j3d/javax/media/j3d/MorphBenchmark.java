@@ -0,0 +1,142 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the weight changes of a live Morph node whose targets are
+ * by-reference triangle arrays with coordinates and normals, with and
+ * without the MorphBlender (-Dj3d.morphBlending).  Three targets have a
+ * non-zero weight at a time, as in facial animation.  sameWeights sets the
+ * weights of the previous frame again.  It is run by VirtualUniverse.step()
+ * in a headless JVM on the NOOP pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class MorphBenchmark {
+
+    @Param({"5000", "50000"})
+    public int triangleCount;
+
+    @Param({"8", "64"})
+    public int targetCount;
+
+    @Param({"false", "true"})
+    public boolean morphBlending;
+
+    private VirtualUniverse universe;
+    private Morph morph;
+    private double[] weights;
+    private int frame;
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.morphBlending = morphBlending;
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+
+	int vertexCount = 3 * triangleCount;
+	GeometryArray[] targets = new GeometryArray[targetCount];
+	for (int t = 0; t < targetCount; t++) {
+	    float[] coords = new float[3 * vertexCount];
+	    float[] normals = new float[3 * vertexCount];
+	    for (int i = 0; i < coords.length; i++) {
+		coords[i] = (float) Math.sin(i * 0.001 + t);
+		normals[i] = (float) Math.cos(i * 0.001 + t);
+	    }
+	    TriangleArray target =
+		new TriangleArray(vertexCount, GeometryArray.COORDINATES |
+				  GeometryArray.NORMALS |
+				  GeometryArray.BY_REFERENCE);
+	    target.setCoordRefFloat(coords);
+	    target.setNormalRefFloat(normals);
+	    targets[t] = target;
+	}
+	morph = new Morph(targets);
+	morph.setCapability(Morph.ALLOW_WEIGHTS_WRITE);
+	weights = new double[targetCount];
+
+	BranchGroup scene = new BranchGroup();
+	scene.addChild(morph);
+	locale.addBranchGraph(scene);
+
+	// Process the insertion of the scene before measuring
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    // Sets the weights of three consecutive targets
+    private void setWeights(int first) {
+	double phase = 0.1 * frame;
+	double w0 = 0.5 + 0.25 * Math.sin(phase);
+	double w1 = 0.25 + 0.125 * Math.cos(phase);
+	for (int t = 0; t < targetCount; t++) {
+	    weights[t] = 0.0;
+	}
+	weights[first % targetCount] = w0;
+	weights[(first + 1) % targetCount] = w1;
+	weights[(first + 2) % targetCount] = 1.0 - w0 - w1;
+	morph.setWeights(weights);
+    }
+
+    @Benchmark
+    public void animatedWeights() {
+	frame++;
+	setWeights(frame / 10);
+	VirtualUniverse.step();
+    }
+
+    @Benchmark
+    public void sameWeights() {
+	setWeights(frame / 10);
+	VirtualUniverse.step();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of closest geometry picks of a batch of rays cast through a
+ * synthetic scene, once with one Locale.pickClosest() call per ray and
+ * once with Locale.pickClosestBatch().  The rays of a batch start on one
+ * side of the scene and fan out slowly, like the beams of a sensor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Dj3d.forkJoinScheduler=true",
+				  "-Djava.awt.headless=true"})
+public class PickBatchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int shapeCount;
+
+    @Param({"50000"})
+    public int rayCount;
+
+    private VirtualUniverse universe;
+    private Locale locale;
+    private PickShape[] rays;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	locale = new Locale(universe);
+
+	BranchGroup scene = SyntheticScene.createScene(shapeCount);
+	TransformGroup root = SyntheticScene.getSceneRoot(scene);
+	Geometry box = null;
+	for (int i = 0; i < root.numChildren(); i++) {
+	    Group cell = (Group) root.getChild(i);
+	    for (int j = 0; j < cell.numChildren(); j++) {
+		Shape3D shape = (Shape3D) ((Group) cell.getChild(j)).getChild(0);
+		shape.setCapability(Shape3D.ALLOW_GEOMETRY_READ);
+		box = shape.getGeometry();
+	    }
+	}
+	box.setCapability(Geometry.ALLOW_INTERSECT);
+	box.setCapability(GeometryArray.ALLOW_COORDINATE_READ);
+	box.setCapability(GeometryArray.ALLOW_COUNT_READ);
+	box.setCapability(GeometryArray.ALLOW_FORMAT_READ);
+	locale.addBranchGraph(scene);
+
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+
+	// Rays from a grid of origins on the -x side of the scene
+	double size = Math.ceil(Math.cbrt(shapeCount)) * SyntheticScene.SPACING;
+	int side = (int) Math.ceil(Math.sqrt(rayCount));
+	Random random = new Random(42L);
+	rays = new PickShape[rayCount];
+	for (int i = 0; i < rayCount; i++) {
+	    double u = (double) (i % side) / side;
+	    double v = (double) (i / side) / side;
+	    rays[i] = new PickRay(new Point3d(-10.0, u * size, -v * size),
+				  new Vector3d(1.0,
+					       (random.nextDouble() - 0.5) * 0.1,
+					       (random.nextDouble() - 0.5) * 0.1));
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public int pickClosest() {
+	int hits = 0;
+	for (int i = 0; i < rays.length; i++) {
+	    if (locale.pickClosest(PickInfo.PICK_GEOMETRY,
+				   PickInfo.NODE | PickInfo.CLOSEST_DISTANCE,
+				   rays[i]) != null) {
+		hits++;
+	    }
+	}
+	return hits;
+    }
+
+    @Benchmark
+    public int pickClosestBatch() {
+	return locale.pickClosestBatch(PickInfo.PICK_GEOMETRY, rays).getNumHits();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmark of GEOMETRY-level picks of a single large terrain mesh, with
+ * and without the cached PrimitiveBHTree (-Dj3d.pickBHTree).  Each
+ * invocation casts a batch of rays, or of thin cylinders, from above the
+ * mesh at random points of it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Dj3d.manualStep=true",
+				  "-Djava.awt.headless=true"})
+public class PickGeometryBenchmark {
+
+    // Cells per side of the mesh; two triangles per cell
+    @Param({"300", "1000"})
+    public int gridSize;
+
+    @Param({"false", "true"})
+    public boolean pickBHTree;
+
+    private static final int PICK_COUNT = 100;
+
+    private VirtualUniverse universe;
+    private Locale locale;
+    private PickShape[] rays;
+    private PickShape[] cylinders;
+
+    @Setup
+    public void setup() {
+	VirtualUniverse.mc.pickBHTree = pickBHTree;
+	universe = new VirtualUniverse();
+	locale = new Locale(universe);
+
+	int side = gridSize + 1;
+	float[] coords = new float[3 * side * side];
+	for (int y = 0, k = 0; y < side; y++) {
+	    for (int x = 0; x < side; x++) {
+		coords[k++] = x;
+		coords[k++] = y;
+		coords[k++] = (float) (Math.sin(x * 0.05) * Math.cos(y * 0.07) * 5.0);
+	    }
+	}
+	int[] indices = new int[6 * gridSize * gridSize];
+	for (int y = 0, k = 0; y < gridSize; y++) {
+	    for (int x = 0; x < gridSize; x++) {
+		int v = y * side + x;
+		indices[k++] = v;
+		indices[k++] = v + 1;
+		indices[k++] = v + side + 1;
+		indices[k++] = v;
+		indices[k++] = v + side + 1;
+		indices[k++] = v + side;
+	    }
+	}
+	IndexedTriangleArray mesh =
+	    new IndexedTriangleArray(side * side, GeometryArray.COORDINATES,
+				     indices.length);
+	mesh.setCoordinates(0, coords);
+	mesh.setCoordinateIndices(0, indices);
+	mesh.setCapability(Geometry.ALLOW_INTERSECT);
+
+	Shape3D shape = new Shape3D(mesh);
+	shape.setPickable(true);
+	BranchGroup scene = new BranchGroup();
+	scene.addChild(shape);
+	locale.addBranchGraph(scene);
+
+	VirtualUniverse.step();
+	VirtualUniverse.step();
+
+	Random random = new Random(42L);
+	rays = new PickShape[PICK_COUNT];
+	cylinders = new PickShape[PICK_COUNT];
+	for (int i = 0; i < PICK_COUNT; i++) {
+	    Point3d origin = new Point3d(random.nextDouble() * gridSize,
+					 random.nextDouble() * gridSize, 20.0);
+	    Vector3d direction = new Vector3d((random.nextDouble() - 0.5) * 0.2,
+					      (random.nextDouble() - 0.5) * 0.2,
+					      -1.0);
+	    rays[i] = new PickRay(origin, direction);
+	    cylinders[i] = new PickCylinderRay(origin, direction, 0.25);
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    private int pickClosest(PickShape[] shapes) {
+	int hits = 0;
+	for (int i = 0; i < shapes.length; i++) {
+	    if (locale.pickClosest(PickInfo.PICK_GEOMETRY,
+				   PickInfo.NODE | PickInfo.CLOSEST_INTERSECTION_POINT,
+				   shapes[i]) != null) {
+		hits++;
+	    }
+	}
+	return hits;
+    }
+
+    @Benchmark
+    public int pickRays() {
+	return pickClosest(rays);
+    }
+
+    @Benchmark
+    public int pickCylinders() {
+	return pickClosest(cylinders);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Builds the synthetic scenes used by the benchmarks: a grid of boxes,
+ * each with its own TransformGroup, grouped in cells of up to CELL_SIZE
+ * shapes under a common TransformGroup.
+ */
+class SyntheticScene {
+
+    // Number of shapes under one cell TransformGroup
+    static final int CELL_SIZE = 1000;
+
+    // Distance between neighbouring shapes
+    static final double SPACING = 2.0;
+
+    private SyntheticScene() {
+    }
+
+    /**
+     * Creates a box of the given edge length as a TriangleArray with
+     * 36 vertices.
+     */
+    static TriangleArray createBox(float size, int vertexFormat) {
+	float[] coords = createBoxCoordinates(size);
+	TriangleArray box = new TriangleArray(coords.length / 3, vertexFormat);
+	if ((vertexFormat & GeometryArray.BY_REFERENCE) != 0) {
+	    box.setCoordRefFloat(coords);
+	} else {
+	    box.setCoordinates(0, coords);
+	}
+	return box;
+    }
+
+    static float[] createBoxCoordinates(float size) {
+	float s = size / 2.0f;
+	float[][] corners = {
+	    {-s, -s, -s}, { s, -s, -s}, { s,  s, -s}, {-s,  s, -s},
+	    {-s, -s,  s}, { s, -s,  s}, { s,  s,  s}, {-s,  s,  s},
+	};
+	int[] faces = {
+	    0, 2, 1,  0, 3, 2,	// back
+	    4, 5, 6,  4, 6, 7,	// front
+	    0, 1, 5,  0, 5, 4,	// bottom
+	    3, 6, 2,  3, 7, 6,	// top
+	    0, 4, 7,  0, 7, 3,	// left
+	    1, 2, 6,  1, 6, 5,	// right
+	};
+	float[] coords = new float[faces.length * 3];
+	for (int i = 0; i < faces.length; i++) {
+	    System.arraycopy(corners[faces[i]], 0, coords, i * 3, 3);
+	}
+	return coords;
+    }
+
+    /**
+     * Creates a scene of shapeCount boxes sharing one geometry.  The
+     * returned BranchGroup holds a single TransformGroup whose transform
+     * may be written, so that the whole scene can be moved.
+     */
+    static BranchGroup createScene(int shapeCount) {
+	Geometry box = createBox(1.0f, GeometryArray.COORDINATES);
+	Appearance app = new Appearance();
+
+	int side = (int) Math.ceil(Math.cbrt(shapeCount));
+	BranchGroup scene = new BranchGroup();
+	scene.setCapability(BranchGroup.ALLOW_DETACH);
+	TransformGroup root = new TransformGroup();
+	root.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	scene.addChild(root);
+
+	Transform3D t = new Transform3D();
+	Vector3d v = new Vector3d();
+	TransformGroup cell = null;
+	for (int i = 0; i < shapeCount; i++) {
+	    if (i % CELL_SIZE == 0) {
+		cell = new TransformGroup();
+		root.addChild(cell);
+	    }
+	    int x = i % side;
+	    int y = (i / side) % side;
+	    int z = i / (side * side);
+	    v.set(x * SPACING, y * SPACING, -z * SPACING);
+	    t.setTranslation(v);
+	    TransformGroup tg = new TransformGroup(t);
+	    tg.addChild(new Shape3D(box, app));
+	    cell.addChild(tg);
+	}
+	return scene;
+    }
+
+    /**
+     * Returns the movable TransformGroup of a scene created by
+     * createScene().
+     */
+    static TransformGroup getSceneRoot(BranchGroup scene) {
+	return (TransformGroup) scene.getChild(0);
+    }
+}
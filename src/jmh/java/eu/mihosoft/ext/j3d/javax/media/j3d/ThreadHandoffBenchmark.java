@@ -0,0 +1,104 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the latency of a handoff between two threads through
+ * MasterControl.threadWait() and MasterControl.threadSignal(), as used
+ * when a thread waits for a Java 3D thread to finish its work.  One
+ * operation is a round trip to a partner thread and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+public class ThreadHandoffBenchmark {
+
+    private volatile long request = 0L;
+    private volatile long response = 0L;
+
+    // The partner waits on requestKey, the benchmark thread on responseKey
+    private final Object requestKey = new Object();
+    private final Object responseKey = new Object();
+    private volatile boolean running;
+    private Thread partner;
+
+    @Setup
+    public void setup() {
+	running = true;
+	partner = new Thread("ThreadHandoffBenchmark-Partner") {
+	    @Override
+	    public void run() {
+		while (running) {
+		    long r = request;
+		    if (r != response) {
+			response = r;
+			MasterControl.threadSignal(responseKey);
+		    } else {
+			MasterControl.threadWait(requestKey);
+		    }
+		}
+	    }
+	};
+	partner.setDaemon(true);
+	partner.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+	running = false;
+	MasterControl.threadSignal(requestKey);
+	partner.join();
+    }
+
+    @Benchmark
+    public long roundTrip() {
+	long r = request + 1;
+	request = r;
+	MasterControl.threadSignal(requestKey);
+	while (response != r) {
+	    MasterControl.threadWait(responseKey);
+	}
+	return r;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Matrix4d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Quat4d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+
+/**
+ * Benchmarks of the Transform3D operations used when transforms are
+ * propagated through the scene graph, for each kind of matrix that
+ * occurs in practice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Transform3DBenchmark {
+
+    @Param({"IDENTITY", "TRANSLATION", "SCALE", "RIGID", "UNIFORM_SCALE",
+	    "AFFINE", "TRANSLATION_RIGID", "PROJECTIVE"})
+    public String kind;
+
+    private Transform3D t1;
+    private Transform3D t2;
+    private Transform3D result;
+
+    @Setup
+    public void setup() {
+	t1 = createTransform(kind, 1);
+	t2 = createTransform(kind, 2);
+	result = new Transform3D();
+    }
+
+    static Transform3D createTransform(String kind, int seed) {
+	Transform3D t = new Transform3D();
+	Quat4d rot = new Quat4d(0.1 * seed, 0.2, 0.3 * seed, 0.9);
+	rot.normalize();
+	Vector3d trans = new Vector3d(seed, 2.0 * seed, -3.0 * seed);
+
+	// TRANSLATION_RIGID: a translated parent over a rigid child
+	if (kind.equals("TRANSLATION_RIGID")) {
+	    kind = (seed == 1) ? "TRANSLATION" : "RIGID";
+	}
+
+	if (kind.equals("TRANSLATION")) {
+	    t.setTranslation(trans);
+	} else if (kind.equals("SCALE")) {
+	    t.setScale(new Vector3d(1.5, 0.5 * seed, 2.0));
+	    t.setTranslation(trans);
+	} else if (kind.equals("RIGID")) {
+	    t.set(rot, trans, 1.0);
+	} else if (kind.equals("UNIFORM_SCALE")) {
+	    t.set(rot, trans, 2.5);
+	} else if (kind.equals("AFFINE")) {
+	    t.set(new Matrix4d(1.5, 0.2, 0.0, trans.x,
+			       0.1, 0.8, 0.3, trans.y,
+			       0.0, 0.4, 2.0, trans.z,
+			       0.0, 0.0, 0.0, 1.0));
+	} else if (kind.equals("PROJECTIVE")) {
+	    t.set(new Matrix4d(1.5, 0.2, 0.0, trans.x,
+			       0.1, 0.8, 0.3, trans.y,
+			       0.0, 0.4, 2.0, trans.z,
+			       0.0, 0.0, -1.0, 0.0));
+	} else if (!kind.equals("IDENTITY")) {
+	    throw new IllegalArgumentException(kind);
+	}
+	return t;
+    }
+
+    @Benchmark
+    public Transform3D mul() {
+	result.mul(t1, t2);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D mulInPlace() {
+	result.set(t1);
+	result.mul(t2);
+	return result;
+    }
+
+    @Benchmark
+    public int mulAndClassify() {
+	result.mul(t1, t2);
+	return result.getBestType();
+    }
+
+    @Benchmark
+    public Transform3D invert() {
+	result.invert(t1);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D normalize() {
+	result.set(t1);
+	result.normalize();
+	return result;
+    }
+}
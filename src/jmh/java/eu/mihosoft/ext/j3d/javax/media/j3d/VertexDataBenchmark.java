@@ -0,0 +1,137 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the vertex data handed to the pipeline for a frame of by-copy
+ * triangle arrays with coordinates, normals and colors, with and without
+ * the off-heap copies of the VertexBufferPool (setOffHeapVertexData()).
+ * Without them the data is copied into a temporary direct buffer for each
+ * draw, as JoglPipeline does for Java arrays; there is no GL context in
+ * this benchmark, so the draw calls themselves are not measured.  Run with
+ * -prof gc to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+public class VertexDataBenchmark {
+
+    @Param({"1000"})
+    public int geometryCount;
+
+    @Param({"3000"})
+    public int vertexCount;
+
+    @Param({"false", "true"})
+    public boolean offHeapVertexData;
+
+    private GeometryArrayRetained[] geometries;
+    private TriangleArray[] arrays;
+    private FloatBuffer temp;
+    private final float[] coordinate = new float[3];
+    private int frame;
+
+    @Setup
+    public void setup() {
+	geometries = new GeometryArrayRetained[geometryCount];
+	arrays = new TriangleArray[geometryCount];
+	float[] coords = new float[3 * vertexCount];
+	for (int i = 0; i < coords.length; i++) {
+	    coords[i] = i * 0.001f;
+	}
+	for (int i = 0; i < geometryCount; i++) {
+	    arrays[i] = new TriangleArray(vertexCount,
+					  GeometryArray.COORDINATES |
+					  GeometryArray.NORMALS |
+					  GeometryArray.COLOR_3);
+	    arrays[i].setOffHeapVertexData(offHeapVertexData);
+	    arrays[i].setCoordinates(0, coords);
+	    geometries[i] = (GeometryArrayRetained) arrays[i].retained;
+	}
+	temp = ByteBuffer.allocateDirect(4 * geometries[0].vertexData.length).
+	    order(ByteOrder.nativeOrder()).asFloatBuffer();
+	drawFrame();
+    }
+
+    // Returns the vertex data of each geometry the way the by-copy draw
+    // path of the pipeline gets it
+    private float drawFrame() {
+	float sum = 0.0f;
+	for (int i = 0; i < geometries.length; i++) {
+	    GeometryArrayRetained geo = geometries[i];
+	    FloatBuffer buffer;
+	    synchronized (geo) {
+		buffer = geo.getOffHeapVertexData(geo.dirtyFlag);
+		geo.dirtyFlag = 0;
+	    }
+	    if (buffer == null) {
+		temp.rewind();
+		temp.put(geo.vertexData);
+		temp.rewind();
+		buffer = temp;
+	    }
+	    sum += buffer.get(i);
+	}
+	return sum;
+    }
+
+    @Benchmark
+    public float staticFrame() {
+	return drawFrame();
+    }
+
+    @Benchmark
+    public float animatedFrame() {
+	// One vertex of a tenth of the geometries changes each frame
+	frame++;
+	coordinate[0] = frame;
+	for (int i = frame % 10; i < arrays.length; i += 10) {
+	    arrays[i].setCoordinate(frame % vertexCount, coordinate);
+	}
+	return drawFrame();
+    }
+}
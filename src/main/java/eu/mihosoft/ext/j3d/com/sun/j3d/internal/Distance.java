@@ -315,7 +315,7 @@ public class Distance {
       }
       else {
 	// same direction vectors
-	E = segdir.dot (diff);//-Dot(seg.m,diff);
+	E = -segdir.dot (diff);//-Dot(seg.m,diff);
 	t = 1;
 	tmp = B+D;
 	if (tmp >= 0) {
@@ -57,6 +57,11 @@ class AttributeBin extends Object implements ObjectUpdate {
     AttributeBin next = null;
     AttributeBin prev = null;
 
+    /**
+     * The id of this AttributeBin in the sort keys of the DrawList
+     */
+    int drawListId = 0;
+
     /**
      * The list of ShaderBins in this AttributeBin
      */
@@ -34,6 +34,10 @@ class BHInternalNode extends BHNode {
     BHNode rChild;
     BHNode lChild;
 
+    // Surface area of bHull when this subtree was last built by the
+    // BHSAHBuilder, or when it was first refit; -1 if not known yet
+    double buildArea = -1.0;
+
     BHInternalNode() {
 	super();
 	nodeType = BH_TYPE_INTERNAL;
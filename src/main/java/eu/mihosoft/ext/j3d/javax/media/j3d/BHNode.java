@@ -42,6 +42,12 @@ abstract class BHNode {
     BoundingBox bHull = null;
     boolean mark;
 
+    // Coherent culling state: the frustum plane that rejected this node
+    // last, and the BHTree cull generation in which this node was found
+    // fully inside the frustum (0 if it wasn't)
+    byte cullPlane;
+    int cullGeneration;
+
     BHNode () {
 	this.parent = null;
 	mark = false;
@@ -96,6 +102,18 @@ abstract class BHNode {
 
     }
 
+    // surface area of a bounding hull, used as the cost estimate of
+    // visiting a node by the SAH builder and the refit of BHTree
+    static double surfaceArea(BoundingBox bHull) {
+	if ((bHull == null) || bHull.boundsIsEmpty) {
+	    return 0.0;
+	}
+	double dx = bHull.upper.x - bHull.lower.x;
+	double dy = bHull.upper.y - bHull.lower.y;
+	double dz = bHull.upper.z - bHull.lower.z;
+	return 2.0 * (dx*dy + dy*dz + dz*dx);
+    }
+
     // returns true iff the bHull is completely inside this
     // bounding hull i.e.  bHull values are strictly less
     // than or equal to all this.bHull values
@@ -268,6 +286,18 @@ abstract class BHNode {
 	return ( (float)sumOfDepths / (float)numberOfLeaves );
     }
 
+    // sum of the surface areas of the internal nodes, the expected
+    // cost of a query relative to the surface area of the root
+    double computeSumOfAreas() {
+	if ( this.nodeType == BHNode.BH_TYPE_LEAF ) {
+	    return 0.0;
+	} else {
+	    return (((BHInternalNode)this).rChild.computeSumOfAreas() +
+		    ((BHInternalNode)this).lChild.computeSumOfAreas() +
+		    surfaceArea(bHull));
+	}
+    }
+
     int computeSumOfDepths ( int currentDepth ) {
 	if ( this.nodeType == BHNode.BH_TYPE_LEAF ) {
 	    return ( currentDepth );
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BHSAHBuilder builds a BHTree (sub)tree with the surface area
+ * heuristic: each set of nodes is split where the estimated cost of
+ * traversing both halves, the surface area of each half times the
+ * number of nodes in it, is the lowest.  Split candidates are taken
+ * from BIN_COUNT bins along the longest axis of the bounds of the node
+ * centers.  Large subtrees are built concurrently on the pool of the
+ * J3dForkJoinScheduler when it is enabled.
+ *
+ * The nodes to cluster may be leaf nodes or whole subtrees; the built
+ * tree is binary and has the input nodes as its leaves.  Note that the
+ * input array is reordered.
+ */
+
+class BHSAHBuilder {
+
+    // Number of split candidates per axis
+    static final int BIN_COUNT = 16;
+
+    // Subtrees with at least this many nodes are built in parallel
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private final BHNode[] nodes;
+
+    // Bounding hull of each node as lower x, y, z, upper x, y, z, and
+    // its center; kept in the same order as nodes while they are
+    // partitioned.  Empty hulls are stored inverted, so they don't
+    // grow any bounds.
+    private final double[] boxes;
+    private final double[] centers;
+
+    BHSAHBuilder(BHNode[] bhArr) {
+	nodes = bhArr;
+	boxes = new double[bhArr.length * 6];
+	centers = new double[bhArr.length * 3];
+
+	for (int i = 0; i < bhArr.length; i++) {
+	    BoundingBox b;
+
+	    bhArr[i].computeBoundingHull();
+	    b = bhArr[i].bHull;
+	    if ((b == null) || b.boundsIsEmpty) {
+		emptyBounds(boxes, i);
+	    } else {
+		boxes[6*i]     = b.lower.x;
+		boxes[6*i + 1] = b.lower.y;
+		boxes[6*i + 2] = b.lower.z;
+		boxes[6*i + 3] = b.upper.x;
+		boxes[6*i + 4] = b.upper.y;
+		boxes[6*i + 5] = b.upper.z;
+	    }
+	    for (int k = 0; k < 3; k++) {
+		centers[3*i + k] = (boxes[6*i + k] + boxes[6*i + 3 + k]) * 0.5;
+	    }
+	}
+    }
+
+    /**
+     * Builds the tree of all nodes below parent, which must not be
+     * one of the nodes.  There must be at least two nodes.
+     */
+    void build(BHInternalNode parent) {
+	if (J3dForkJoinScheduler.isEnabled() &&
+	    (nodes.length >= PARALLEL_THRESHOLD)) {
+	    BuildAction action = new BuildAction(parent, 0, nodes.length);
+	    if (ForkJoinTask.inForkJoinPool()) {
+		action.invoke();
+	    } else {
+		J3dForkJoinScheduler.getPool().invoke(action);
+	    }
+	} else {
+	    build(parent, 0, nodes.length, new Bins(), false);
+	}
+    }
+
+    // Builds nodes[start, end) below parent, end - start >= 2
+    private void build(BHInternalNode parent, int start, int end,
+		       Bins bins, boolean fork) {
+	int mid = split(start, end, bins);
+	BHInternalNode lNode = null;
+	BHInternalNode rNode = null;
+
+	if (mid - start == 1) {
+	    parent.lChild = nodes[start];
+	} else {
+	    lNode = new BHInternalNode();
+	    parent.lChild = lNode;
+	}
+	parent.lChild.setParent(parent);
+
+	if (end - mid == 1) {
+	    parent.rChild = nodes[mid];
+	} else {
+	    rNode = new BHInternalNode();
+	    parent.rChild = rNode;
+	}
+	parent.rChild.setParent(parent);
+
+	if (fork && (lNode != null) && (rNode != null)) {
+	    ForkJoinTask.invokeAll(new BuildAction(lNode, start, mid),
+				   new BuildAction(rNode, mid, end));
+	} else {
+	    if (lNode != null) {
+		build(lNode, start, mid, bins, fork);
+	    }
+	    if (rNode != null) {
+		build(rNode, mid, end, bins, fork);
+	    }
+	}
+
+	parent.combineBHull(parent.rChild, parent.lChild);
+	parent.buildArea = BHNode.surfaceArea(parent.bHull);
+    }
+
+    /**
+     * Partitions nodes[start, end) at the lowest cost split and returns
+     * the index of the first node of the upper half.  Falls back to the
+     * middle when the centers cannot be separated.
+     */
+    private int split(int start, int end, Bins bins) {
+	int count = end - start;
+	int i, axis;
+
+	if (count == 2) {
+	    return start + 1;
+	}
+
+	double[] cMin = bins.cMin;
+	double[] cMax = bins.cMax;
+	for (axis = 0; axis < 3; axis++) {
+	    cMin[axis] = Double.MAX_VALUE;
+	    cMax[axis] = -Double.MAX_VALUE;
+	}
+	for (i = start; i < end; i++) {
+	    for (axis = 0; axis < 3; axis++) {
+		double c = centers[3*i + axis];
+		if (c < cMin[axis]) cMin[axis] = c;
+		if (c > cMax[axis]) cMax[axis] = c;
+	    }
+	}
+
+	// Split along the axis with the longest extent of the centers
+	axis = -1;
+	double extent = 0.0;
+	for (i = 0; i < 3; i++) {
+	    double e = cMax[i] - cMin[i];
+	    if ((e > extent) && !Double.isInfinite(e)) {
+		extent = e;
+		axis = i;
+	    }
+	}
+	if (axis == -1) {
+	    return start + (count >> 1);
+	}
+	double min = cMin[axis];
+	double scale = BIN_COUNT / extent;
+
+	int[] binCount = bins.count;
+	double[] binBounds = bins.bounds;
+	for (i = 0; i < BIN_COUNT; i++) {
+	    binCount[i] = 0;
+	    emptyBounds(binBounds, i);
+	}
+	for (i = start; i < end; i++) {
+	    int b = bin(centers[3*i + axis], min, scale);
+	    binCount[b]++;
+	    growBounds(binBounds, b, boxes, i);
+	}
+
+	// Sweep from the right, then evaluate each split from the left
+	double[] rightArea = bins.rightArea;
+	double[] acc = bins.acc;
+	emptyBounds(acc, 0);
+	for (i = BIN_COUNT - 1; i > 0; i--) {
+	    growBounds(acc, 0, binBounds, i);
+	    rightArea[i] = boundsArea(acc);
+	}
+
+	double bestCost = Double.POSITIVE_INFINITY;
+	int bestBin = -1;
+	int leftCount = 0;
+	emptyBounds(acc, 0);
+	for (i = 1; i < BIN_COUNT; i++) {
+	    growBounds(acc, 0, binBounds, i - 1);
+	    leftCount += binCount[i - 1];
+	    int rightCount = count - leftCount;
+	    if ((leftCount == 0) || (rightCount == 0)) {
+		continue;
+	    }
+	    double cost = boundsArea(acc) * leftCount +
+			  rightArea[i] * rightCount;
+	    if (cost < bestCost) {
+		bestCost = cost;
+		bestBin = i;
+	    }
+	}
+
+	if (bestBin == -1) {
+	    return start + (count >> 1);
+	}
+
+	// Partition in place, lower bins first
+	int lo = start;
+	int hi = end - 1;
+	while (lo <= hi) {
+	    if (bin(centers[3*lo + axis], min, scale) < bestBin) {
+		lo++;
+	    } else {
+		swap(lo, hi);
+		hi--;
+	    }
+	}
+
+	if ((lo == start) || (lo == end)) {
+	    return start + (count >> 1);
+	}
+	return lo;
+    }
+
+    private static int bin(double c, double min, double scale) {
+	int b = (int) ((c - min) * scale);
+	if (b < 0) {
+	    return 0;
+	}
+	if (b >= BIN_COUNT) {
+	    return BIN_COUNT - 1;
+	}
+	return b;
+    }
+
+    private void swap(int i, int j) {
+	BHNode n = nodes[i];
+	nodes[i] = nodes[j];
+	nodes[j] = n;
+
+	double t;
+	for (int k = 0; k < 3; k++) {
+	    t = centers[3*i + k];
+	    centers[3*i + k] = centers[3*j + k];
+	    centers[3*j + k] = t;
+	}
+	for (int k = 0; k < 6; k++) {
+	    t = boxes[6*i + k];
+	    boxes[6*i + k] = boxes[6*j + k];
+	    boxes[6*j + k] = t;
+	}
+    }
+
+    // Bounds are kept as lower x, y, z, upper x, y, z in a double array
+
+    private static void emptyBounds(double[] b, int i) {
+	b[6*i] = b[6*i + 1] = b[6*i + 2] = Double.POSITIVE_INFINITY;
+	b[6*i + 3] = b[6*i + 4] = b[6*i + 5] = Double.NEGATIVE_INFINITY;
+    }
+
+    private static void growBounds(double[] b, int i, double[] box, int j) {
+	for (int k = 0; k < 3; k++) {
+	    if (box[6*j + k] < b[6*i + k])         b[6*i + k]     = box[6*j + k];
+	    if (box[6*j + 3 + k] > b[6*i + 3 + k]) b[6*i + 3 + k] = box[6*j + 3 + k];
+	}
+    }
+
+    private static double boundsArea(double[] b) {
+	double dx = b[3] - b[0];
+	double dy = b[4] - b[1];
+	double dz = b[5] - b[2];
+	if (!(dx >= 0.0) || !(dy >= 0.0) || !(dz >= 0.0)) {
+	    return 0.0;
+	}
+	return 2.0 * (dx*dy + dy*dz + dz*dx);
+    }
+
+    // Scratch arrays of split(), one set per building thread
+    static class Bins {
+	final int[] count = new int[BIN_COUNT];
+	final double[] bounds = new double[BIN_COUNT * 6];
+	final double[] rightArea = new double[BIN_COUNT];
+	final double[] acc = new double[6];
+	final double[] cMin = new double[3];
+	final double[] cMax = new double[3];
+    }
+
+    class BuildAction extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	private final BHInternalNode parent;
+	private final int start;
+	private final int end;
+
+	BuildAction(BHInternalNode parent, int start, int end) {
+	    this.parent = parent;
+	    this.start = start;
+	    this.end = end;
+	}
+
+	@Override
+	protected void compute() {
+	    build(parent, start, end, new Bins(),
+		  (end - start) >= PARALLEL_THRESHOLD);
+	}
+    }
+}
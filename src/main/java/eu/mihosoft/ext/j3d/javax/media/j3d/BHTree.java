@@ -27,9 +27,11 @@
 package eu.mihosoft.ext.j3d.javax.media.j3d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Vector;
 
 import eu.mihosoft.ext.j3d.javax.vecmath.Point4d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector4d;
 
 class BHTree  {
 
@@ -55,6 +57,39 @@ class BHTree  {
     static final int INCR_DEPTH_BOUND = 5;
     int  depthUpperBound = DEPTH_UPPER_BOUND;
 
+    // A subtree is rebuilt when the surface area of its root grew by
+    // more than this factor since it was built (sahBHTree only).
+    static final double REBUILD_AREA_FACTOR = 2.0;
+
+    // The whole tree is rebuilt when its SAH cost grew by more than
+    // this factor since it was built (sahBHTree only).
+    static final double REBUILD_COST_FACTOR = 1.5;
+
+    // Internal nodes whose bounds degraded during the last refit
+    private ArrayList<BHInternalNode> degradedNodes =
+	new ArrayList<BHInternalNode>();
+
+    // Marked internal nodes collected by delete() to update sumOfAreas
+    private ArrayList<BHInternalNode> deletePath =
+	new ArrayList<BHInternalNode>();
+
+    // Sum of the surface areas of the internal nodes, kept up to date
+    // by the refit, and the SAH cost of the tree when it was built;
+    // -1 when unknown
+    private double sumOfAreas = -1.0;
+    private double buildCost = -1.0;
+
+    // Coherent culling state (coherentCulling only): the planes, as
+    // (x, y, z, w) quadruples, the tree was last culled against and the
+    // RenderBin that did it.  A node whose cullGeneration equals the
+    // tree's was fully inside those planes; the generation is advanced
+    // whenever the planes, the RenderBin or the tree structure change.
+    private double[] cullPlanes = new double[4 * BHNode.NUMBER_OF_PLANES];
+    private double[] newCullPlanes = new double[4 * BHNode.NUMBER_OF_PLANES];
+    private RenderBin cullOwner = null;
+    private int cullGeneration = 1;
+    private boolean cullReset = true;
+
     BHTree() {
 	locale = null;
 	root = null;
@@ -99,6 +134,24 @@ class BHTree  {
 	    return;
 	}
 
+	if (VirtualUniverse.mc.sahBHTree) {
+	    if (sumOfAreas < 0.0) {
+		new BHSAHBuilder(bhArr).build(root);
+		return;
+	    }
+	    // Only root and the internal nodes above bhArr are new.
+	    sumOfAreas -= BHNode.surfaceArea(root.bHull);
+	    for (int i = 0; i < bhArr.length; i++) {
+		bhArr[i].mark = true;
+	    }
+	    new BHSAHBuilder(bhArr).build(root);
+	    sumOfAreas += sumOfClusterAreas(root);
+	    for (int i = 0; i < bhArr.length; i++) {
+		bhArr[i].mark = false;
+	    }
+	    return;
+	}
+
 	int centerValuesIndex[] = new int[bhArr.length];
 	float centerValues[][] = computeCenterValues(bhArr, centerValuesIndex);
 
@@ -106,6 +159,32 @@ class BHTree  {
 
     }
 
+    // Sum of the surface areas of the internal nodes between bh and the
+    // marked nodes below it.
+    private double sumOfClusterAreas(BHNode bh) {
+	if (bh.mark || (bh.nodeType == BHNode.BH_TYPE_LEAF)) {
+	    return 0.0;
+	}
+	BHInternalNode node = (BHInternalNode) bh;
+	return (BHNode.surfaceArea(node.bHull) +
+		sumOfClusterAreas(node.rChild) +
+		sumOfClusterAreas(node.lChild));
+    }
+
+    // Collects the marked internal nodes below bh into deletePath and
+    // removes their surface areas from sumOfAreas.
+    private void collectDeletePath(BHNode bh) {
+	if ((bh == null) || !bh.mark ||
+	    (bh.nodeType == BHNode.BH_TYPE_LEAF)) {
+	    return;
+	}
+	BHInternalNode node = (BHInternalNode) bh;
+	sumOfAreas -= BHNode.surfaceArea(node.bHull);
+	deletePath.add(node);
+	collectDeletePath(node.rChild);
+	collectDeletePath(node.lChild);
+    }
+
     // bhArr can only contains BHLeafNode.
 
     void boundsChanged(BHNode bhArr[], int size) {
@@ -113,18 +192,145 @@ class BHTree  {
 	markParentChain(bhArr, size);
 
 	// Compute phase.
-	root.updateMarkedBoundingHull();
+	if (VirtualUniverse.mc.sahBHTree) {
+	    if (sumOfAreas < 0.0) {
+		sumOfAreas = root.computeSumOfAreas();
+	    }
+	    refitMarked(root);
+	    if (!checkTreeQuality()) {
+		rebuildDegradedNodes();
+	    }
+	    degradedNodes.clear();
+	} else {
+	    root.updateMarkedBoundingHull();
+	}
+    }
+
+    // Same as updateMarkedBoundingHull(), but also collects the internal
+    // nodes whose surface area grew by more than REBUILD_AREA_FACTOR.
+    private void refitMarked(BHNode bh) {
+	if (!bh.mark) {
+	    return;
+	}
+	if (bh.nodeType == BHNode.BH_TYPE_LEAF) {
+	    bh.updateMarkedBoundingHull();
+	    return;
+	}
+
+	BHInternalNode node = (BHInternalNode) bh;
+	double area = BHNode.surfaceArea(node.bHull);
+
+	refitMarked(node.rChild);
+	refitMarked(node.lChild);
+	node.computeBoundingHull();
+	node.mark = false;
+
+	sumOfAreas -= area;
+	area = BHNode.surfaceArea(node.bHull);
+	sumOfAreas += area;
+	if (node.buildArea < 0.0) {
+	    node.buildArea = area;
+	} else if ((area > node.buildArea * REBUILD_AREA_FACTOR) &&
+		   ((node.rChild.nodeType == BHNode.BH_TYPE_INTERNAL) ||
+		    (node.lChild.nodeType == BHNode.BH_TYPE_INTERNAL))) {
+	    // A node with two leaves can't be clustered any better
+	    degradedNodes.add(node);
+	}
+    }
+
+    // Rebuilds the whole tree and returns true if its SAH cost, see
+    // gatherTreeStatistics(), grew too much since the last build; this
+    // happens when the leaves move across the whole tree.
+    private boolean checkTreeQuality() {
+	double rootArea = BHNode.surfaceArea(root.bHull);
+
+	if ((root.nodeType != BHNode.BH_TYPE_INTERNAL) || !(rootArea > 0.0)) {
+	    return false;
+	}
+
+	double cost = sumOfAreas / rootArea;
+	if (buildCost < 0.0) {
+	    buildCost = cost;
+	} else if (cost > buildCost * REBUILD_COST_FACTOR) {
+	    reConstructTree(root.countNumberOfLeaves());
+	    return true;
+	}
+	return false;
+    }
+
+    // Rebuilds the topmost of the degraded nodes found by refitMarked();
+    // the others are part of the rebuilt subtrees.
+    private void rebuildDegradedNodes() {
+	int i, size = degradedNodes.size();
+
+	if (size == 0) {
+	    return;
+	}
+
+	boolean stats = FrameStatisticsCollector.isCollecting();
+	long startTime = stats ? System.nanoTime() : 0L;
+
+	// All marks are clear after the refit, so use them to flag
+	// the degraded nodes.
+	for (i = 0; i < size; i++) {
+	    degradedNodes.get(i).mark = true;
+	}
+
+	// The nodes were added children first, so each node is checked
+	// after its degraded ancestors; drop the nodes below another one.
+	for (i = size - 1; i >= 0; i--) {
+	    BHInternalNode node = degradedNodes.get(i);
+	    BHNode p = node.parent;
+	    while ((p != null) && !p.mark) {
+		p = p.parent;
+	    }
+	    if (p != null) {
+		node.mark = false;
+		degradedNodes.set(i, null);
+	    }
+	}
+
+	for (i = 0; i < size; i++) {
+	    BHInternalNode node = degradedNodes.get(i);
+	    if (node == null) {
+		continue;
+	    }
+	    node.mark = false;
+	    sumOfAreas -= node.computeSumOfAreas();
+	    BHNode leaves[] = new BHNode[node.countNumberOfLeaves()];
+	    int index[] = new int[1];
+	    node.destroyTree(leaves, index);
+	    // The bounds of the subtree don't change, so neither do
+	    // those of its ancestors.
+	    new BHSAHBuilder(leaves).build(node);
+	    sumOfAreas += node.computeSumOfAreas();
+	}
+
+	if (stats) {
+	    VirtualUniverse.mc.recordTime(FrameStatistics.Type.BHTREE_BUILD,
+					  System.nanoTime() - startTime);
+	}
     }
 
 
     // Return true if bhTree's root in encompass by frustumBBox and nothing changed.
-    boolean getVisibleBHTrees(RenderBin rBin, ArrayList bhTrees,
-			      BoundingBox frustumBBox, long referenceTime,
-			      boolean stateChanged, int visibilityPolicy,
+    boolean getVisibleBHTrees(RenderBin rBin, ArrayList<BHNode> bhTrees,
+			      BoundingBox frustumBBox, Vector4d[] frustumPlanes,
+			      long referenceTime, boolean stateChanged,
+			      boolean coherent, int visibilityPolicy,
 			      boolean singleLocale) {
 
 	int i, j, size;
 
+	if (VirtualUniverse.mc.coherentCulling) {
+	    if ((frustumBBox == null) || (root == null)) {
+		return false;
+	    }
+	    return getVisibleBHTrees(rBin, bhTrees, frustumBBox, frustumPlanes,
+				     referenceTime, coherent && !stateChanged,
+				     visibilityPolicy);
+	}
+
 	if ((frustumBBox != null) && (root != null)) {
 
 	    boolean inSide = aEncompassB(frustumBBox, root.bHull);
@@ -163,7 +369,7 @@ class BHTree  {
 	return false;
     }
 
-    private void select(RenderBin rBin, ArrayList bhTrees, BoundingBox frustumBBox,
+    private void select(RenderBin rBin, ArrayList<BHNode> bhTrees, BoundingBox frustumBBox,
 			BHNode bh, long referenceTime, int visibilityPolicy,
 			boolean inSide) {
 
@@ -216,6 +422,157 @@ class BHTree  {
 	}
     }
 
+    // Coherent version of getVisibleBHTrees().  Culls against
+    // frustumPlanes, or against the faces of frustumBBox when there are
+    // none.  Children only test the planes their parent straddles, and
+    // subtrees found fully inside are skipped in later calls as long as
+    // the planes are the same, coherent is true and nothing below them
+    // changed.  Returns true if the whole tree was skipped that way.
+    private boolean getVisibleBHTrees(RenderBin rBin, ArrayList<BHNode> bhTrees,
+				      BoundingBox frustumBBox,
+				      Vector4d[] frustumPlanes,
+				      long referenceTime, boolean coherent,
+				      int visibilityPolicy) {
+
+	boolean samePlanes = setCullPlanes(frustumBBox, frustumPlanes);
+	if (!samePlanes || !coherent || cullReset || (cullOwner != rBin)) {
+	    cullGeneration++;
+	    if (cullGeneration <= 0) {
+		cullGeneration = 1;
+	    }
+	    cullOwner = rBin;
+	    cullReset = false;
+	}
+
+	if (root.cullGeneration == cullGeneration) {
+	    bhTrees.add(root);
+	    return true;
+	}
+
+	select(rBin, bhTrees, root, referenceTime, visibilityPolicy,
+	       (1 << BHNode.NUMBER_OF_PLANES) - 1);
+	return false;
+    }
+
+    // Loads the cull planes, returns true if they are the same as
+    // the ones of the previous call.
+    private boolean setCullPlanes(BoundingBox frustumBBox,
+				  Vector4d[] frustumPlanes) {
+	double[] p = newCullPlanes;
+
+	if (frustumPlanes != null) {
+	    for (int i = 0, k = 0; i < BHNode.NUMBER_OF_PLANES; i++, k += 4) {
+		Vector4d plane = frustumPlanes[i];
+		p[k] = plane.x;
+		p[k+1] = plane.y;
+		p[k+2] = plane.z;
+		p[k+3] = plane.w;
+	    }
+	} else {
+	    // x >= lower.x, x <= upper.x, and likewise for y and z
+	    Arrays.fill(p, 0.0);
+	    p[0] =  1.0;  p[3]  = -frustumBBox.lower.x;
+	    p[4] = -1.0;  p[7]  =  frustumBBox.upper.x;
+	    p[9] =  1.0;  p[11] = -frustumBBox.lower.y;
+	    p[13] = -1.0; p[15] =  frustumBBox.upper.y;
+	    p[18] =  1.0; p[19] = -frustumBBox.lower.z;
+	    p[22] = -1.0; p[23] =  frustumBBox.upper.z;
+	}
+
+	boolean same = Arrays.equals(p, cullPlanes);
+	newCullPlanes = cullPlanes;
+	cullPlanes = p;
+	return same;
+    }
+
+    // Tests bHull against the cull planes in mask.  Returns -1 if it is
+    // outside one of them, else mask with the planes it is fully inside
+    // cleared.  The plane that last rejected the node is tried first.
+    private int cullPlanes(BHNode bh, int mask) {
+	BoundingBox bHull = bh.bHull;
+	double[] p = cullPlanes;
+	int first = bh.cullPlane;
+	int i = first;
+
+	do {
+	    int bit = 1 << i;
+	    if ((mask & bit) != 0) {
+		int k = i << 2;
+		double a = p[k], b = p[k+1], c = p[k+2];
+		// corners of bHull farthest along and against the normal
+		double far = p[k+3] +
+		    a * ((a >= 0.0) ? bHull.upper.x : bHull.lower.x) +
+		    b * ((b >= 0.0) ? bHull.upper.y : bHull.lower.y) +
+		    c * ((c >= 0.0) ? bHull.upper.z : bHull.lower.z);
+		if (far < 0.0) {
+		    bh.cullPlane = (byte) i;
+		    return -1;
+		}
+		double near = p[k+3] +
+		    a * ((a >= 0.0) ? bHull.lower.x : bHull.upper.x) +
+		    b * ((b >= 0.0) ? bHull.lower.y : bHull.upper.y) +
+		    c * ((c >= 0.0) ? bHull.lower.z : bHull.upper.z);
+		if (near >= 0.0) {
+		    mask &= ~bit;
+		}
+	    }
+	    if (++i == BHNode.NUMBER_OF_PLANES) {
+		i = 0;
+	    }
+	} while (i != first);
+
+	return mask;
+    }
+
+    private void select(RenderBin rBin, ArrayList<BHNode> bhTrees, BHNode bh,
+			long referenceTime, int visibilityPolicy, int mask) {
+
+	if ((bh == null) || (bh.bHull.isEmpty())) {
+	    return;
+	}
+
+	boolean inSide = (mask == 0);
+
+	switch(bh.nodeType) {
+	case BHNode.BH_TYPE_LEAF:
+	    if((((BHLeafNode) bh).leafIF instanceof GeometryAtom) &&
+	       (((BHLeafNode) bh).isEnable(visibilityPolicy)) &&
+	       ((inSide) || (cullPlanes(bh, mask) >= 0))) {
+
+		// do render atom setup.
+		rBin.processGeometryAtom((GeometryAtom)
+					 (((BHLeafNode)bh).leafIF),
+					 referenceTime);
+		if(!inSide) {
+		    bhTrees.add(bh);
+		}
+	    }
+	    break;
+	case BHNode.BH_TYPE_INTERNAL:
+	    if (!inSide) {
+		mask = cullPlanes(bh, mask);
+		if (mask < 0) {
+		    return;
+		}
+		if (mask == 0) {
+		    bhTrees.add(bh);
+		}
+	    }
+	    if (mask == 0) {
+		if (bh.cullGeneration == cullGeneration) {
+		    // fully inside the same planes before, and unchanged
+		    return;
+		}
+		bh.cullGeneration = cullGeneration;
+	    }
+	    select(rBin, bhTrees, ((BHInternalNode)bh).getRightChild(),
+		   referenceTime, visibilityPolicy, mask);
+	    select(rBin, bhTrees, ((BHInternalNode)bh).getLeftChild(),
+		   referenceTime, visibilityPolicy, mask);
+	    break;
+	}
+    }
+
     // returns true iff the bBox is completely inside aBox
     // i.e.  bBoxl values are strictly less than or equal to all aBox values.
     static boolean aEncompassB(BoundingBox aBox, BoundingBox bBox) {
@@ -575,6 +932,66 @@ class BHTree  {
 	}
     }
 
+    /**
+     * Packet version of select(PickShape, UnorderList) used by batched
+     * picking.  All the pick shapes of the packet are tested against a
+     * node together, and only the shapes that hit it descend into its
+     * children.
+     */
+    void select(BatchPicker.Packet packet) {
+
+	if (root == null)
+	    return;
+
+	int[] active = packet.getActive(0);
+	int count = packet.initActive(active);
+	if (count > 0) {
+	    doSelect(packet, root, active, count, 1);
+	}
+    }
+
+
+    private void doSelect(BatchPicker.Packet packet, BHNode bh,
+			  int[] active, int count, int depth) {
+
+	if ((bh == null) || (bh.bHull.isEmpty())) {
+	    return;
+	}
+
+	switch(bh.nodeType) {
+	case BHNode.BH_TYPE_LEAF:
+	    if (((BHLeafNode)(bh)).isEnable() &&
+		(((BHLeafNode) bh).leafIF instanceof GeometryAtom) &&
+		 ((GeometryAtom) (((BHLeafNode)
+				   bh).leafIF)).source.isPickable) {
+		GeometryAtom ga = (GeometryAtom) ((BHLeafNode) bh).leafIF;
+		for (int i = 0; i < count; i++) {
+		    packet.addCandidate(active[i], ga, bh.bHull);
+		}
+	    }
+	    break;
+	case BHNode.BH_TYPE_INTERNAL:
+	    int[] hits = packet.getActive(depth);
+	    int numHits = 0;
+	    for (int i = 0; i < count; i++) {
+		if (packet.intersect(active[i], bh.bHull)) {
+		    hits[numHits++] = active[i];
+		}
+	    }
+	    if (numHits > 0) {
+		BHNode first = ((BHInternalNode)bh).getRightChild();
+		BHNode second = ((BHInternalNode)bh).getLeftChild();
+		if (packet.isLeftFirst(hits[0], second, first)) {
+		    first = second;
+		    second = ((BHInternalNode)bh).getRightChild();
+		}
+		doSelect(packet, first, hits, numHits, depth + 1);
+		doSelect(packet, second, hits, numHits, depth + 1);
+	    }
+	    break;
+	}
+    }
+
     BHNode selectAny(PickShape pickShape) {
 
 	if((pickShape == null)||(root == null))
@@ -625,6 +1042,8 @@ class BHTree  {
     private void create(BHNode bhArr[]) {
 	int i;
 
+	cullReset = true;
+
 	if(bhArr == null) {
 	    root = null;
 	    return;
@@ -632,25 +1051,39 @@ class BHTree  {
 
 	if(bhArr.length == 1) {
 	    bhArr[0].computeBoundingHull();
-	    root = (BHNode)bhArr[0];
+	    root = bhArr[0];
 	    return;
 	}
 
-	int centerValuesIndex[] = new int[bhArr.length];
-	float centerValues[][] = computeCenterValues(bhArr, centerValuesIndex);
-
-	/*
-	  System.err.println("Length of array is " +  bhArr.length);
-	  for(int kk=0; kk<bhArr.length;kk++) {
-	  System.err.println("( " + centerValues[kk][0] + ", " +
-	  centerValues[kk][1] + ", " + centerValues[kk][2] + " )");
-	  }
-	  */
+	boolean stats = FrameStatisticsCollector.isCollecting();
+	long startTime = stats ? System.nanoTime() : 0L;
 
 	root = new BHInternalNode();
-	constructTree((BHInternalNode) root, bhArr, centerValues,
-		      centerValuesIndex);
 
+	if (VirtualUniverse.mc.sahBHTree) {
+	    new BHSAHBuilder(bhArr).build((BHInternalNode) root);
+	    sumOfAreas = root.computeSumOfAreas();
+	    buildCost = computeSAHCost();
+	} else {
+	    int centerValuesIndex[] = new int[bhArr.length];
+	    float centerValues[][] = computeCenterValues(bhArr, centerValuesIndex);
+
+	    /*
+	      System.err.println("Length of array is " +  bhArr.length);
+	      for(int kk=0; kk<bhArr.length;kk++) {
+	      System.err.println("( " + centerValues[kk][0] + ", " +
+	      centerValues[kk][1] + ", " + centerValues[kk][2] + " )");
+	      }
+	    */
+
+	    constructTree((BHInternalNode) root, bhArr, centerValues,
+			  centerValuesIndex);
+	}
+
+	if (stats) {
+	    VirtualUniverse.mc.recordTime(FrameStatistics.Type.BHTREE_BUILD,
+					  System.nanoTime() - startTime);
+	}
 
 	if(J3dDebug.devPhase && J3dDebug.debug)
 	    gatherTreeStatistics();
@@ -701,6 +1134,8 @@ class BHTree  {
 	    insertStructure.clear();
 	}
 
+	double rootArea = BHNode.surfaceArea(root.bHull);
+
 	for (int i=0; i<size; i++) {
 	    // test if its inside the 'root' element
 	    if ( root.isInside(bhArr[i].bHull) ) {
@@ -713,7 +1148,12 @@ class BHTree  {
 	    }
 	}
 
+	if (sumOfAreas >= 0.0) {
+	    sumOfAreas += BHNode.surfaceArea(root.bHull) - rootArea;
+	}
+	// cluster() updates sumOfAreas for the reclustered nodes
 	insertStructure.updateBoundingTree(this);
+	cullReset = true;
 	// System.err.println("BHTree - Inserting ...");
 
         // Issue 353: clear temporary insertStructure so we don't leak.
@@ -777,9 +1217,11 @@ class BHTree  {
 	for(int i=0; i<size; i++) {
 	    node = nArr[i];
 	    node.mark = true;
+	    node.cullGeneration = 0;
 	    while((node.parent != null) && (node.parent.mark == false)) {
 		node = node.parent;
 		node.mark = true;
+		node.cullGeneration = 0;
 	    }
 	}
     }
@@ -787,9 +1229,11 @@ class BHTree  {
     // mark all elements of the node and its parent as needing updating
     private void markParentChain(BHNode node) {
 	node.mark = true;
+	node.cullGeneration = 0;
 	while((node.parent != null) && (node.parent.mark == false)) {
 	    node = node.parent;
 	    node.mark = true;
+	    node.cullGeneration = 0;
 	}
     }
 
@@ -828,8 +1272,23 @@ class BHTree  {
 
 	}
 
+	if (sumOfAreas >= 0.0) {
+	    collectDeletePath(root);
+	}
+
 	root = root.deleteAndUpdateMarkedNodes();
 
+	// The marked internal nodes that are still in the tree had
+	// their mark cleared and their bounds recomputed.
+	for (int i = deletePath.size() - 1; i >= 0; i--) {
+	    BHInternalNode pathNode = deletePath.get(i);
+	    if (!pathNode.mark) {
+		sumOfAreas += BHNode.surfaceArea(pathNode.bHull);
+	    }
+	}
+	deletePath.clear();
+	cullReset = true;
+
 	if(J3dDebug.devPhase)
 	    if (root == null) {
 		J3dDebug.doDebug(J3dDebug.bHTree, J3dDebug.LEVEL_4,
@@ -1105,12 +1564,24 @@ class BHTree  {
 
     }
 
+    // The SAH cost of the tree: the sum of the surface areas of the
+    // internal nodes relative to that of the root, which is the expected
+    // number of internal nodes visited by a query
+    double computeSAHCost() {
+	double rootArea = BHNode.surfaceArea(root.bHull);
+	if (!(rootArea > 0.0)) {
+	    return 0.0;
+	}
+	return root.computeSumOfAreas() / rootArea;
+    }
+
     void gatherTreeStatistics() {
 
 	int leafCount = root.countNumberOfLeaves();
 	int internalCount = root.countNumberOfInternals();
 	int maxDepth = root.computeMaxDepth(0);
 	float averageDepth = root.computeAverageLeafDepth ( leafCount, 0);
+	double sahCost = computeSAHCost();
 
 
 	System.err.println("Statistics for tree = " + this);
@@ -1120,6 +1591,7 @@ class BHTree  {
 	System.err.println("Number of Internal Nodes = " + internalCount );
 	System.err.println("Maximum Leaf depth = " + maxDepth );
 	System.err.println("Average Leaf depth = " + averageDepth );
+	System.err.println("SAH cost (internal areas / root area) = " + sahCost );
 	System.err.println("root.bHull = " + root.bHull);
 	// printTree(root);
 
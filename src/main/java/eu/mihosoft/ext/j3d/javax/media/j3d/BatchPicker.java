@@ -0,0 +1,727 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point4d;
+
+/**
+ * The BatchPicker runs one call of Locale.pickAllBatch() or
+ * Locale.pickClosestBatch().
+ *
+ * The pick shapes are split into packets of consecutive shapes.  Each
+ * packet walks the BHTree of the locale once, testing all of its
+ * shapes against a node together, and collects the (shape, atom) pairs
+ * whose bounds intersect.  The nodes of those atoms are then resolved
+ * once for the whole batch under the scene graph lock, and finally each
+ * packet tests its pairs against the geometry and fills its part of the
+ * result buffers.  The traversal and the geometry tests of the packets
+ * run through J3dForkJoinScheduler.parallelFor().
+ *
+ * Rays and segments use a slab test against the bounds of internal
+ * BHTree nodes.  For pickClosestBatch() they visit the nearer child of a
+ * node first and test the geometry of an atom as soon as its leaf is
+ * reached, so that nodes and atoms whose bounds are farther away than
+ * the closest hit found so far are skipped.  Only the atoms of compiled
+ * and oriented shapes are left for the later geometry pass.
+ */
+
+class BatchPicker {
+
+    // Number of pick shapes that traverse the BHTree together
+    static final int PACKET_SIZE = 64;
+
+    // Relative slack of the slab test, so that rounding never rejects
+    // bounds that the exact test of the leaves would accept
+    private static final double SLAB_EPSILON = 1.0e-9;
+
+    // Ray data per shape: origin, direction, parametric end, length of
+    // the direction and inverse of the direction
+    private static final int RAY_STRIDE = 11;
+
+    // Inverse of a zero direction component; large enough to put the
+    // slab at infinity, small enough to never give infinity times zero
+    private static final double ZERO_INVERSE = 1.0e300;
+
+    private final int mode;
+    private final boolean closest;
+    private final PickShape[] pickShapes;
+    private final int numShapes;
+
+    private final boolean[] isRay;
+    private final double[] rays;
+
+    private final Packet[] packets;
+
+    // The nodes that can be hit, one run of consecutive targets per atom
+    // (several for a compiled Shape3D).  Text3D atoms of the same node
+    // share a run, which is flagged shared.
+    private Node[] targetNodes = new Node[64];
+    private int[] targetRuns = new int[64];
+    private boolean[] targetShared = new boolean[64];
+    private Transform3D[] targetLocalToVworld = new Transform3D[64];
+    private Transform3D[] targetVworldToLocal = new Transform3D[64];
+    private int numTargets = 0;
+
+    BatchPicker(int mode, boolean closest, PickShape[] pickShapes) {
+	this.mode = mode;
+	this.closest = closest;
+	this.pickShapes = pickShapes;
+	numShapes = pickShapes.length;
+
+	isRay = new boolean[numShapes];
+	rays = new double[numShapes * RAY_STRIDE];
+	for (int i = 0; i < numShapes; i++) {
+	    int o = i * RAY_STRIDE;
+	    if (pickShapes[i] instanceof PickRay) {
+		PickRay ray = (PickRay) pickShapes[i];
+		isRay[i] = true;
+		rays[o]   = ray.origin.x;
+		rays[o+1] = ray.origin.y;
+		rays[o+2] = ray.origin.z;
+		rays[o+3] = ray.direction.x;
+		rays[o+4] = ray.direction.y;
+		rays[o+5] = ray.direction.z;
+		rays[o+6] = Double.POSITIVE_INFINITY;
+	    } else if (pickShapes[i] instanceof PickSegment) {
+		PickSegment segment = (PickSegment) pickShapes[i];
+		isRay[i] = true;
+		rays[o]   = segment.start.x;
+		rays[o+1] = segment.start.y;
+		rays[o+2] = segment.start.z;
+		rays[o+3] = segment.end.x - segment.start.x;
+		rays[o+4] = segment.end.y - segment.start.y;
+		rays[o+5] = segment.end.z - segment.start.z;
+		rays[o+6] = 1.0;
+	    } else {
+		continue;
+	    }
+	    rays[o+7] = Math.sqrt(rays[o+3] * rays[o+3] +
+				  rays[o+4] * rays[o+4] +
+				  rays[o+5] * rays[o+5]);
+	    for (int k = 0; k < 3; k++) {
+		rays[o+8+k] = (rays[o+3+k] != 0.0) ? 1.0 / rays[o+3+k] :
+		    ZERO_INVERSE;
+	    }
+	}
+
+	packets = new Packet[(numShapes + PACKET_SIZE - 1) / PACKET_SIZE];
+	for (int i = 0; i < packets.length; i++) {
+	    packets[i] = new Packet(i * PACKET_SIZE,
+				    Math.min(numShapes, (i + 1) * PACKET_SIZE));
+	}
+    }
+
+    /**
+     * Runs the pick against the given locale.
+     */
+    PickBatchResult pick(Locale locale) {
+	locale.universe.geometryStructure.pickBatch(locale, this);
+
+	int numCandidates = 0;
+	for (int i = 0; i < packets.length; i++) {
+	    numCandidates += packets[i].numCandidates + packets[i].numBest;
+	}
+	if (numCandidates > 0) {
+	    resolveTargets(locale);
+	    J3dForkJoinScheduler.parallelFor(packets.length, 1,
+					     new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int i = start; i < end; i++) {
+			packets[i].intersect();
+		    }
+		}
+	    });
+	}
+	return getResult();
+    }
+
+    /**
+     * Walks the given BHTree with all packets.  Called by
+     * GeometryStructure with its read lock held.
+     */
+    void select(final BHTree bhTree) {
+	J3dForkJoinScheduler.parallelFor(packets.length, 1,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		for (int i = start; i < end; i++) {
+		    bhTree.select(packets[i]);
+		}
+	    }
+	});
+    }
+
+    // Maps the atoms of all candidates to their targets
+    private void resolveTargets(Locale locale) {
+	IdentityHashMap<Object, Integer> runs =
+	    new IdentityHashMap<Object, Integer>();
+
+	synchronized (locale.universe.sceneGraphLock) {
+	    for (int p = 0; p < packets.length; p++) {
+		Packet packet = packets[p];
+		for (int c = 0; c < packet.numCandidates; c++) {
+		    packet.candTargets[c] = resolve(packet.candAtoms[c], runs);
+		}
+		for (int i = 0; i < packet.bestAtoms.length; i++) {
+		    if (packet.bestAtoms[i] != null) {
+			packet.bestTargets[i] = resolve(packet.bestAtoms[i], runs);
+		    }
+		}
+	    }
+	}
+    }
+
+    // Returns the first target of the atom, or -1 if it has none
+    private int resolve(GeometryAtom ga, IdentityHashMap<Object, Integer> runs) {
+	NodeRetained srcNode = ga.source.sourceNode;
+	if (srcNode == null) {
+	    // The node is just detached from its branch
+	    return -1;
+	}
+
+	// Different atoms of a Text3D are reported once
+	boolean shared = isText3D(srcNode);
+	Object key = shared ? (Object) srcNode : (Object) ga;
+	Integer run = runs.get(key);
+	if (run == null) {
+	    run = Integer.valueOf(addTargets(ga, srcNode, shared));
+	    runs.put(key, run);
+	}
+	return run.intValue();
+    }
+
+    private static boolean isText3D(NodeRetained srcNode) {
+	if (!(srcNode instanceof Shape3DRetained)) {
+	    return false;
+	}
+	Shape3DRetained s3dR = (Shape3DRetained) srcNode;
+	for (int i = 0; i < s3dR.geometryList.size(); i++) {
+	    GeometryRetained geomR = s3dR.geometryList.get(i);
+	    if (geomR != null) {
+		return geomR instanceof Text3DRetained;
+	    }
+	}
+	return false;
+    }
+
+    private int addTargets(GeometryAtom ga, NodeRetained srcNode,
+			   boolean shared) {
+	int first = numTargets;
+	if (srcNode instanceof Shape3DCompileRetained) {
+	    Object[] srcList = ((Shape3DCompileRetained) srcNode).srcList;
+	    for (int i = 0; i < srcList.length; i++) {
+		addTarget((Node) srcList[i], ga, shared);
+	    }
+	} else {
+	    addTarget((Node) srcNode.source, ga, shared);
+	}
+	if (numTargets > first) {
+	    targetRuns[first] = numTargets - first;
+	}
+	return (numTargets > first) ? first : -1;
+    }
+
+    private void addTarget(Node node, GeometryAtom ga, boolean shared) {
+	if (numTargets == targetNodes.length) {
+	    int size = numTargets * 2;
+	    targetNodes = Arrays.copyOf(targetNodes, size);
+	    targetRuns = Arrays.copyOf(targetRuns, size);
+	    targetShared = Arrays.copyOf(targetShared, size);
+	    targetLocalToVworld = Arrays.copyOf(targetLocalToVworld, size);
+	    targetVworldToLocal = Arrays.copyOf(targetVworldToLocal, size);
+	}
+
+	if (mode == PickInfo.PICK_GEOMETRY) {
+	    PickInfo.checkGeometryCapabilities(node);
+
+	    Transform3D localToVworld =
+		new Transform3D(ga.source.getCurrentLocalToVworld());
+	    if (node.retained instanceof OrientedShape3DRetained) {
+		OrientedShape3DRetained os = (OrientedShape3DRetained) node.retained;
+		localToVworld.mul(os.getOrientedTransform(os.getPrimaryViewIdx()));
+	    }
+	    Transform3D vworldToLocal = new Transform3D();
+	    vworldToLocal.invert(localToVworld);
+	    targetLocalToVworld[numTargets] = localToVworld;
+	    targetVworldToLocal[numTargets] = vworldToLocal;
+	}
+
+	targetNodes[numTargets] = node;
+	targetRuns[numTargets] = 1;
+	targetShared[numTargets] = shared;
+	numTargets++;
+    }
+
+    // Concatenates the hits of the packets, keeping only the targets
+    // that were hit in the node table
+    private PickBatchResult getResult() {
+	int[] offsets = new int[numShapes + 1];
+	int numHits = 0;
+	for (int p = 0; p < packets.length; p++) {
+	    Packet packet = packets[p];
+	    for (int i = packet.start; i < packet.end; i++) {
+		offsets[i] = numHits;
+		numHits += packet.hitCounts[i - packet.start];
+	    }
+	}
+	offsets[numShapes] = numHits;
+
+	int[] nodeIndices = new int[numHits];
+	double[] distances = new double[numHits];
+	for (int p = 0; p < packets.length; p++) {
+	    Packet packet = packets[p];
+	    int offset = offsets[packet.start];
+	    System.arraycopy(packet.hitTargets, 0, nodeIndices, offset,
+			     packet.numHits);
+	    System.arraycopy(packet.hitDistances, 0, distances, offset,
+			     packet.numHits);
+	}
+
+	int[] remap = new int[numTargets];
+	Arrays.fill(remap, -1);
+	int numNodes = 0;
+	for (int i = 0; i < numHits; i++) {
+	    int t = nodeIndices[i];
+	    if (remap[t] < 0) {
+		remap[t] = numNodes++;
+	    }
+	    nodeIndices[i] = remap[t];
+	}
+	Node[] nodes = new Node[numNodes];
+	for (int t = 0; t < numTargets; t++) {
+	    if (remap[t] >= 0) {
+		nodes[remap[t]] = targetNodes[t];
+	    }
+	}
+
+	return new PickBatchResult(offsets, nodeIndices, distances, nodes);
+    }
+
+    /**
+     * A packet of consecutive pick shapes, with its candidates and hits.
+     * Each packet is only used by one thread at a time.
+     */
+    class Packet {
+	final int start;
+	final int end;
+
+	// Active shape lists of the BHTree traversal, per depth
+	private int[][] active = new int[16][];
+	private final Point4d pickPos = new Point4d();
+
+	// (shape, atom) pairs whose bounds intersect, with the distance
+	// at which a ray or segment enters the bounds, the distance
+	// reported by the bounds test and the first target of the atom
+	int numCandidates = 0;
+	private int[] candShapes = new int[16];
+	GeometryAtom[] candAtoms = new GeometryAtom[16];
+	private double[] candEntries = new double[16];
+	private double[] candDistances = new double[16];
+	int[] candTargets = new int[16];
+
+	// Closest hit of each shape found during the traversal, with its
+	// atom and the first target of that atom
+	private final double[] best;
+	final GeometryAtom[] bestAtoms;
+	final int[] bestTargets;
+	int numBest = 0;
+
+	// Local to vworld transform and its inverse of the atoms whose
+	// geometry was tested during the traversal
+	private final IdentityHashMap<GeometryAtom, Transform3D[]> transforms =
+	    new IdentityHashMap<GeometryAtom, Transform3D[]>();
+	private final PickInfo pickInfo = new PickInfo();
+
+	// Hits, ordered by shape
+	final int[] hitCounts;
+	int numHits = 0;
+	int[] hitTargets = new int[16];
+	double[] hitDistances = new double[16];
+
+	Packet(int start, int end) {
+	    this.start = start;
+	    this.end = end;
+	    hitCounts = new int[end - start];
+	    best = new double[end - start];
+	    Arrays.fill(best, Double.POSITIVE_INFINITY);
+	    bestAtoms = new GeometryAtom[end - start];
+	    bestTargets = new int[end - start];
+	    Arrays.fill(bestTargets, -1);
+	}
+
+	int[] getActive(int depth) {
+	    if (depth >= active.length) {
+		active = Arrays.copyOf(active, depth * 2);
+	    }
+	    if (active[depth] == null) {
+		active[depth] = new int[end - start];
+	    }
+	    return active[depth];
+	}
+
+	// Fills active with the shapes of this packet and returns their count
+	int initActive(int[] active) {
+	    int count = 0;
+	    for (int i = start; i < end; i++) {
+		if (pickShapes[i] != null) {
+		    active[count++] = i;
+		}
+	    }
+	    return count;
+	}
+
+	/**
+	 * Returns true if shape may intersect the bounds of an internal
+	 * BHTree node.
+	 */
+	boolean intersect(int shape, BoundingBox bounds) {
+	    if (isRay[shape]) {
+		double entry = entry(shape, bounds);
+		return (entry >= 0.0) &&
+		    (entry * rays[shape * RAY_STRIDE + 7] <= best[shape - start]);
+	    }
+	    return pickShapes[shape].intersect(bounds, pickPos);
+	}
+
+	/**
+	 * Returns true if the children of an internal BHTree node should
+	 * be visited left first, that is if the center of left lies before
+	 * the center of right along the first active shape of a closest
+	 * pick.
+	 */
+	boolean isLeftFirst(int shape, BHNode left, BHNode right) {
+	    if (!closest || !isRay[shape] || (left == null) || (right == null)) {
+		return false;
+	    }
+	    int o = shape * RAY_STRIDE;
+	    BoundingBox l = left.bHull;
+	    BoundingBox r = right.bHull;
+	    double dl = (l.lower.x + l.upper.x) * rays[o+3] +
+		(l.lower.y + l.upper.y) * rays[o+4] +
+		(l.lower.z + l.upper.z) * rays[o+5];
+	    double dr = (r.lower.x + r.upper.x) * rays[o+3] +
+		(r.lower.y + r.upper.y) * rays[o+4] +
+		(r.lower.z + r.upper.z) * rays[o+5];
+	    return dl < dr;
+	}
+
+	/**
+	 * Adds ga as candidate of shape if shape intersects its bounds.
+	 */
+	void addCandidate(int shape, GeometryAtom ga, BoundingBox bounds) {
+	    if (!pickShapes[shape].intersect(bounds, pickPos)) {
+		return;
+	    }
+
+	    double entry = 0.0;
+	    if (isRay[shape]) {
+		entry = entry(shape, bounds);
+		entry = (entry > 0.0) ? entry * rays[shape * RAY_STRIDE + 7] : 0.0;
+
+		if (closest && isDirect(ga)) {
+		    int i = shape - start;
+		    if (entry > best[i]) {
+			return;
+		    }
+		    double distance = (mode == PickInfo.PICK_GEOMETRY) ?
+			intersect(shape, ga) : pickPos.w;
+		    if (distance < best[i]) {
+			if (bestAtoms[i] == null) {
+			    numBest++;
+			}
+			best[i] = distance;
+			bestAtoms[i] = ga;
+		    }
+		    return;
+		}
+	    }
+
+	    if (numCandidates == candShapes.length) {
+		int size = numCandidates * 2;
+		candShapes = Arrays.copyOf(candShapes, size);
+		candAtoms = Arrays.copyOf(candAtoms, size);
+		candEntries = Arrays.copyOf(candEntries, size);
+		candDistances = Arrays.copyOf(candDistances, size);
+		candTargets = Arrays.copyOf(candTargets, size);
+	    }
+	    candShapes[numCandidates] = shape;
+	    candAtoms[numCandidates] = ga;
+	    candEntries[numCandidates] = entry;
+	    candDistances[numCandidates] = pickPos.w;
+	    numCandidates++;
+	}
+
+	// Returns true if the geometry of ga can be tested during the
+	// traversal; compiled and oriented shapes are tested by node later
+	private boolean isDirect(GeometryAtom ga) {
+	    NodeRetained srcNode = ga.source.sourceNode;
+	    return (srcNode != null) &&
+		((mode != PickInfo.PICK_GEOMETRY) ||
+		 (!(srcNode instanceof Shape3DCompileRetained) &&
+		  !(ga.source instanceof OrientedShape3DRetained)));
+	}
+
+	// Returns the distance of the closest intersection of the ray or
+	// segment shape with the geometry of ga, or infinity if there is
+	// none.  The mirror Shape3D of the atom shares the geometry list
+	// of its node, or holds the morphed geometry of a Morph.
+	private double intersect(int shape, GeometryAtom ga) {
+	    Transform3D[] t = transforms.get(ga);
+	    if (t == null) {
+		PickInfo.checkGeometryCapabilities((Node) ga.source.sourceNode.source);
+		t = new Transform3D[2];
+		t[0] = new Transform3D(ga.source.getCurrentLocalToVworld());
+		t[1] = new Transform3D();
+		t[1].invert(t[0]);
+		transforms.put(ga, t);
+	    }
+	    if (ga.source.intersect(pickInfo, pickShapes[shape],
+				    PickInfo.CLOSEST_DISTANCE, t[0], t[1])) {
+		return pickInfo.getClosestDistance();
+	    }
+	    return Double.POSITIVE_INFINITY;
+	}
+
+	// Returns the parameter at which the ray or segment shape enters
+	// bounds, clamped to 0, or -1 if it misses
+	private double entry(int shape, BoundingBox bounds) {
+	    if (bounds.boundsIsInfinite) {
+		return 0.0;
+	    }
+
+	    int o = shape * RAY_STRIDE;
+	    double tnear = 0.0;
+	    double tfar = rays[o+6];
+	    double t1, t2, t;
+
+	    t1 = (bounds.lower.x - rays[o]) * rays[o+8];
+	    t2 = (bounds.upper.x - rays[o]) * rays[o+8];
+	    if (t1 > t2) { t = t1; t1 = t2; t2 = t; }
+	    if (t1 > tnear) tnear = t1;
+	    if (t2 < tfar) tfar = t2;
+
+	    t1 = (bounds.lower.y - rays[o+1]) * rays[o+9];
+	    t2 = (bounds.upper.y - rays[o+1]) * rays[o+9];
+	    if (t1 > t2) { t = t1; t1 = t2; t2 = t; }
+	    if (t1 > tnear) tnear = t1;
+	    if (t2 < tfar) tfar = t2;
+
+	    t1 = (bounds.lower.z - rays[o+2]) * rays[o+10];
+	    t2 = (bounds.upper.z - rays[o+2]) * rays[o+10];
+	    if (t1 > t2) { t = t1; t1 = t2; t2 = t; }
+	    if (t1 > tnear) tnear = t1;
+	    if (t2 < tfar) tfar = t2;
+
+	    double slack = SLAB_EPSILON * (tnear + 1.0);
+	    if (tnear > tfar + slack) {
+		return -1.0;
+	    }
+	    return Math.max(tnear - slack, 0.0);
+	}
+
+	/**
+	 * Tests the candidates against the geometry of their targets and
+	 * records the hits of each shape, closest first.
+	 */
+	void intersect() {
+	    // Order the candidates by shape, then by entry distance
+	    int[] first = new int[end - start + 1];
+	    for (int c = 0; c < numCandidates; c++) {
+		first[candShapes[c] - start + 1]++;
+	    }
+	    for (int i = 1; i < first.length; i++) {
+		first[i] += first[i - 1];
+	    }
+	    int[] order = new int[numCandidates];
+	    int[] next = Arrays.copyOf(first, first.length);
+	    for (int c = 0; c < numCandidates; c++) {
+		order[next[candShapes[c] - start]++] = c;
+	    }
+
+	    int[] shared = new int[4];
+
+	    for (int i = 0; i < end - start; i++) {
+		int shape = start + i;
+		int from = first[i];
+		int to = first[i + 1];
+		sort(order, candEntries, from, to - 1);
+
+		// Closest mode only ever keeps the nearest hit, so rays and
+		// segments can stop at the first candidate whose bounds
+		// are farther away than that hit
+		boolean prune = closest && isRay[shape];
+		int bestTarget = bestTargets[i];
+		double best = (bestTarget >= 0) ?
+		    this.best[i] : Double.POSITIVE_INFINITY;
+		int numShared = 0;
+		int hitStart = numHits;
+
+		for (int k = from; k < to; k++) {
+		    int c = order[k];
+		    if (prune && (candEntries[c] > best)) {
+			break;
+		    }
+		    int run = candTargets[c];
+		    if (run < 0) {
+			continue;
+		    }
+		    for (int t = run; t < run + targetRuns[run]; t++) {
+			if (targetShared[t]) {
+			    boolean seen = false;
+			    for (int j = 0; j < numShared; j++) {
+				if (shared[j] == t) {
+				    seen = true;
+				    break;
+				}
+			    }
+			    if (seen) {
+				continue;
+			    }
+			    if (numShared == shared.length) {
+				shared = Arrays.copyOf(shared, numShared * 2);
+			    }
+			    shared[numShared++] = t;
+			}
+
+			double distance = candDistances[c];
+			if (mode == PickInfo.PICK_GEOMETRY) {
+			    distance = intersect(shape, t, distance);
+			    if (Double.isNaN(distance)) {
+				continue;
+			    }
+			}
+
+			if (!closest) {
+			    addHit(t, distance);
+			} else if (distance < best) {
+			    best = distance;
+			    bestTarget = t;
+			}
+		    }
+		}
+
+		if (bestTarget >= 0) {
+		    addHit(bestTarget, best);
+		} else if (numHits - hitStart > 1) {
+		    sortHits(hitStart, numHits - 1);
+		}
+		hitCounts[i] = numHits - hitStart;
+	    }
+	}
+
+	// Returns the distance of the closest intersection of shape with
+	// the geometry of target t, or NaN if there is none
+	private double intersect(int shape, int t, double boundsDistance) {
+	    Node node = targetNodes[t];
+	    PickShape pickShape = pickShapes[shape];
+	    int flags = isRay[shape] ? PickInfo.CLOSEST_DISTANCE : 0;
+	    boolean hit;
+
+	    if (node instanceof Shape3D) {
+		hit = ((Shape3DRetained) node.retained).intersect(pickInfo,
+				pickShape, flags, targetLocalToVworld[t],
+				targetVworldToLocal[t]);
+	    } else if (node.retained instanceof MorphRetained) {
+		pickInfo.setLocalToVWorldRef(targetLocalToVworld[t]);
+		hit = ((MorphRetained) node.retained).intersect(pickInfo,
+				pickShape, flags);
+	    } else {
+		hit = true;
+	    }
+
+	    if (!hit) {
+		return Double.NaN;
+	    }
+	    return (flags != 0) ? pickInfo.getClosestDistance() : boundsDistance;
+	}
+
+	private void addHit(int target, double distance) {
+	    if (numHits == hitTargets.length) {
+		hitTargets = Arrays.copyOf(hitTargets, numHits * 2);
+		hitDistances = Arrays.copyOf(hitDistances, numHits * 2);
+	    }
+	    hitTargets[numHits] = target;
+	    hitDistances[numHits] = distance;
+	    numHits++;
+	}
+
+	// Sorts the hits in [l, r] by distance
+	private void sortHits(int l, int r) {
+	    int[] order = new int[r - l + 1];
+	    for (int i = 0; i < order.length; i++) {
+		order[i] = l + i;
+	    }
+	    sort(order, hitDistances, 0, order.length - 1);
+
+	    int[] targets = new int[order.length];
+	    double[] distances = new double[order.length];
+	    for (int i = 0; i < order.length; i++) {
+		targets[i] = hitTargets[order[i]];
+		distances[i] = hitDistances[order[i]];
+	    }
+	    System.arraycopy(targets, 0, hitTargets, l, order.length);
+	    System.arraycopy(distances, 0, hitDistances, l, order.length);
+	}
+    }
+
+    // Sorts the indices in order[l..r] by key
+    private static void sort(int[] order, double[] key, int l, int r) {
+	if (r - l < 8) {
+	    for (int i = l + 1; i <= r; i++) {
+		int o = order[i];
+		int j = i;
+		for (; (j > l) && (key[order[j - 1]] > key[o]); j--) {
+		    order[j] = order[j - 1];
+		}
+		order[j] = o;
+	    }
+	    return;
+	}
+
+	int i = l;
+	int j = r;
+	double k = key[order[(l + r) >>> 1]];
+	do {
+	    while (key[order[i]] < k) i++;
+	    while (k < key[order[j]]) j--;
+	    if (i <= j) {
+		int o = order[i];
+		order[i] = order[j];
+		order[j] = o;
+		i++;
+		j--;
+	    }
+	} while (i <= j);
+
+	if (l < j) sort(order, key, l, j);
+	if (i < r) sort(order, key, i, r);
+    }
+}
@@ -26,7 +26,6 @@
 
 package eu.mihosoft.ext.j3d.javax.media.j3d;
 
-import java.util.logging.Level;
 
 class BehaviorScheduler extends J3dThread {
 
@@ -89,7 +88,7 @@ class BehaviorScheduler extends J3dThread {
 	stopCount = 2;
 	VirtualUniverse.mc.sendRunMessage(univ, J3dThread.BEHAVIOR_SCHEDULER);
 	while (!userStop ) {
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(this);
 	}
 	synchronized (intervalTimeLock) {
 	    intervalTime[0] = lastStartTime;
@@ -110,6 +109,7 @@ class BehaviorScheduler extends J3dThread {
 	active = false;
 	if (stopCount >= 0) {
 	    userStop = true;
+	    MasterControl.threadSignal(this);
 	}
     }
 
@@ -136,6 +136,9 @@ class BehaviorScheduler extends J3dThread {
 	    }
 	}
 
+	// Set the levels the RenderBin selected for the ScreenSpaceErrorLOD
+	// nodes
+	behaviorStructure.lodStage.applyLevels();
 
 	for (interval = 0;
 	     interval < BehaviorRetained.NUM_SCHEDULING_INTERVALS;
@@ -226,8 +229,8 @@ class BehaviorScheduler extends J3dThread {
 	behaviorStructure.handleBehaviorPost();
 	lastStopTime = J3dClock.currentTimeMillis();
 
-        if (MasterControl.isStatsLoggable(Level.FINE)) {
-            VirtualUniverse.mc.recordTime(MasterControl.TimeType.BEHAVIOR, (lastStopTime-lastStartTime)*1000000);
+        if (FrameStatisticsCollector.isCollecting()) {
+            VirtualUniverse.mc.recordTime(FrameStatistics.Type.BEHAVIOR, (lastStopTime-lastStartTime)*1000000);
         }
     }
 
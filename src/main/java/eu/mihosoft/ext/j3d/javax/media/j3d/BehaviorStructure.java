@@ -31,6 +31,7 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
@@ -111,6 +112,17 @@ class BehaviorStructure extends J3dStructure {
     // Temporary array for processTransformChanged()
     UnorderList transformViewPlatformList = new UnorderList(ViewPlatformRetained.class);
 
+    // The behaviors by their transformed scheduling region, null unless
+    // MasterControl.behaviorRegionIndex is set
+    BoundsGrid<BehaviorRetained> regionIndex = null;
+
+    // Temporary array for the behaviors selected from regionIndex
+    ArrayList<BehaviorRetained> regionCandidates = new ArrayList<BehaviorRetained>();
+
+    // The live ScreenSpaceErrorLOD nodes, whose levels are selected by
+    // the RenderBin of the primary view
+    LODStage lodStage;
+
 
     // The number of active wakeup condition in wakeupOnElapsedFrames
     int activeWakeupOnFrameCount = 0;
@@ -158,6 +170,8 @@ class BehaviorStructure extends J3dStructure {
     BehaviorStructure(VirtualUniverse u) {
 	super(u, J3dThread.UPDATE_BEHAVIOR);
 
+	lodStage = new LODStage(u);
+
 	for (int i=BehaviorRetained.NUM_SCHEDULING_INTERVALS-1;
 	     i >= 0; i--) {
 	    processList[i] = new UnorderList(BehaviorRetained.class);
@@ -190,6 +204,9 @@ class BehaviorStructure extends J3dStructure {
 							  WakeupOnViewPlatformEntry.COND_IN_BS_LIST, u);
 	wakeupOnViewPlatformExit = new WakeupIndexedList(WakeupOnViewPlatformExit.class,
 							 WakeupOnViewPlatformExit.COND_IN_BS_LIST, u);
+	if (VirtualUniverse.mc.behaviorRegionIndex) {
+	    regionIndex = new BoundsGrid<BehaviorRetained>();
+	}
 	wakeupOnSensorEntry = new WakeupIndexedList(WakeupOnSensorEntry.class,
 						    WakeupOnSensorEntry.COND_IN_BS_LIST, u);
 	wakeupOnSensorExit = new WakeupIndexedList(WakeupOnSensorExit.class,
@@ -344,6 +361,9 @@ class BehaviorStructure extends J3dStructure {
 
 	    if (node instanceof BehaviorRetained) {
 		pendingBehaviors.add(node);
+		if (((BehaviorRetained) node).source instanceof ScreenSpaceErrorLOD) {
+		    lodStage.add((ScreenSpaceErrorLOD) ((BehaviorRetained) node).source);
+		}
 	    }
 	    else if (node instanceof ViewPlatformRetained) {
 		addViewPlatform((ViewPlatformRetained) node);
@@ -364,6 +384,7 @@ class BehaviorStructure extends J3dStructure {
 		behav.conditionSet = true;
 		behaviors.add(behav);
 		behav.updateTransformRegion();
+		addToRegionIndex(behav);
 		addToScheduleList(behav);
 	    }
 	}
@@ -384,8 +405,12 @@ class BehaviorStructure extends J3dStructure {
 	// re-evaulate all behaviors to see if we need to put
 	// more behaviors in scheduleList
 
-	for (i=behaviors.arraySize()-1; i>=0; i--) {
-	    addToScheduleList(behavArr[i]);
+	if (regionIndex != null) {
+	    addNearViewPlatforms();
+	} else {
+	    for (i=behaviors.arraySize()-1; i>=0; i--) {
+		addToScheduleList(behavArr[i]);
+	    }
 	}
 
 	// handle ViewPlatform Entry
@@ -585,6 +610,12 @@ class BehaviorStructure extends J3dStructure {
 
     void removeBehavior(BehaviorRetained behav) {
 	behaviors.remove(behav);
+	if (regionIndex != null) {
+	    regionIndex.remove(behav);
+	}
+	if (behav.source instanceof ScreenSpaceErrorLOD) {
+	    lodStage.remove((ScreenSpaceErrorLOD) behav.source);
+	}
 
 	if ((behav.wakeupCondition != null) &&
 	    (behav.wakeupCondition.behav != null)) {
@@ -1115,6 +1146,12 @@ class BehaviorStructure extends J3dStructure {
 
     // assume behav.updateTransformRegion() invoke before
     final void processBehaviorTransform(BehaviorRetained behav) {
+	updateRegionIndex(behav);
+
+	if (behav.source instanceof ScreenSpaceErrorLOD) {
+	    lodStage.boundsChanged((ScreenSpaceErrorLOD) behav.source);
+	}
+
 	if ((behav.wakeupMask & BehaviorRetained.WAKEUP_VP_ENTRY) != 0) {
 	    updateVPEntryTransformRegion(behav);
 	}
@@ -1143,17 +1180,31 @@ class BehaviorStructure extends J3dStructure {
 	    return;
 	}
 
-	BehaviorRetained behavArr[] = (BehaviorRetained []) behaviors.toArray(false);
-
-	// re-evaulate all behaviors affected by this vp
-	for (i=behaviors.arraySize()-1; i>=0; i--) {
-	    behav = behavArr[i];
-	    if (behav.active) {
+	if (regionIndex != null) {
+	    // Only the active behaviors can be deactivated and only the
+	    // behaviors near a ViewPlatform can be activated
+	    BehaviorRetained scheduleArr[] = (BehaviorRetained [])
+		scheduleList.toArray(false);
+	    for (i=scheduleList.arraySize()-1; i>=0; i--) {
+		behav = scheduleArr[i];
 		if (!intersectVPRegion(behav.transformedRegion)) {
 		    removeFromScheduleList(behav);
 		}
-	    } else {
-		addToScheduleList(behav);
+	    }
+	    addNearViewPlatforms();
+	} else {
+	    BehaviorRetained behavArr[] = (BehaviorRetained []) behaviors.toArray(false);
+
+	    // re-evaulate all behaviors affected by this vp
+	    for (i=behaviors.arraySize()-1; i>=0; i--) {
+		behav = behavArr[i];
+		if (behav.active) {
+		    if (!intersectVPRegion(behav.transformedRegion)) {
+			removeFromScheduleList(behav);
+		    }
+		} else {
+		    addToScheduleList(behav);
+		}
 	    }
 	}
 
@@ -1535,6 +1586,53 @@ Sensor sensorIntersect(Bounds behregion) {
 	}
     }
 
+    /**
+     * Updates the entry of the behavior in regionIndex after its
+     * transformedRegion changed, unless the behavior is not active.
+     */
+    final void updateRegionIndex(BehaviorRetained behav) {
+	if ((regionIndex != null) && regionIndex.contains(behav)) {
+	    addToRegionIndex(behav);
+	}
+    }
+
+    /**
+     * Adds the behavior to regionIndex, or updates its entry.
+     */
+    final void addToRegionIndex(BehaviorRetained behav) {
+	if (regionIndex == null) {
+	    return;
+	}
+	if (behav.boundingLeaf != null) {
+	    // The region is shared with the bounding leaf, which updates
+	    // it in place
+	    regionIndex.updateUnbounded(behav);
+	} else {
+	    regionIndex.update(behav, behav.transformedRegion);
+	}
+    }
+
+    /**
+     * Tries to add the behaviors of regionIndex whose region may
+     * intersect the scheduling region of an active ViewPlatform to the
+     * scheduleList.
+     */
+    final void addNearViewPlatforms() {
+	ViewPlatformRetained vpLists[] = (ViewPlatformRetained [])
+	                                    viewPlatforms.toArray(false);
+
+	for (int i=viewPlatforms.arraySize()-1; i>=0; i--) {
+	    ViewPlatformRetained vp = vpLists[i];
+	    if (vp.isActiveViewPlatform()) {
+		regionIndex.select(vp.schedSphere, regionCandidates);
+	    }
+	}
+	for (int i=regionCandidates.size()-1; i>=0; i--) {
+	    addToScheduleList(regionCandidates.get(i));
+	}
+	regionCandidates.clear();
+    }
+
     final void removeFromScheduleList(BehaviorRetained behav) {
 	if (behav.active) {
 	    if ((behav.wakeupMask &
@@ -1656,6 +1754,10 @@ Sensor sensorIntersect(Bounds behregion) {
     @Override
     void cleanup() {
 	behaviors.clear();
+	if (regionIndex != null) {
+	    regionIndex.clear();
+	}
+	lodStage.clear();
 	viewPlatforms.clear();
 	scheduleList.clear();
 	boundsEntryList.clear();
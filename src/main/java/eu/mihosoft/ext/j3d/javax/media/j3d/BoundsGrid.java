@@ -0,0 +1,361 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A BoundsGrid is a uniform hash grid of objects by the bounding box of
+ * their bounds, used to find the objects whose bounds may intersect a
+ * region without testing all of them.
+ *
+ * Objects with infinite bounds, or with bounds spanning too many cells,
+ * are kept in a list that is tested against every region.  Objects
+ * added with updateUnbounded() are returned for every region.  The cell
+ * size is the mean extent of the bounds, and the grid is rebuilt when
+ * the number of objects doubles or drops to a quarter.
+ *
+ * A BoundsGrid is not synchronized.
+ */
+
+class BoundsGrid<T> {
+
+    // Bounds spanning more cells than this per axis are not put into the
+    // cells but into the list of large entries
+    private static final int MAX_CELLS_PER_AXIS = 8;
+
+    // Cell index range; bounds outside of it are large entries as well
+    private static final int MAX_CELL_INDEX = (1 << 20) - 1;
+
+    private static class Entry<T> {
+	final T object;
+	final BoundingBox box = new BoundingBox((Bounds) null);
+
+	// True if the entry is returned for every region; box is not used
+	boolean unbounded = false;
+
+	// Index in the list of large entries, or -1
+	int largeIndex = -1;
+
+	// Cells of the entry if inCells is true
+	boolean inCells = false;
+	int x0, y0, z0, x1, y1, z1;
+
+	// Last select() the entry was returned by
+	int stamp = 0;
+
+	Entry(T object) {
+	    this.object = object;
+	}
+    }
+
+    private final IdentityHashMap<T, Entry<T>> entries =
+	new IdentityHashMap<T, Entry<T>>();
+    private final HashMap<Long, ArrayList<Entry<T>>> cells =
+	new HashMap<Long, ArrayList<Entry<T>>>();
+    private final ArrayList<Entry<T>> large = new ArrayList<Entry<T>>();
+
+    // Edge length of the cells, 0 if the grid has to be rebuilt before
+    // the next select(), and the number of entries it was sized for
+    private double cellSize = 0.0;
+    private int sizedCount = 0;
+
+    private int stamp = 0;
+    private final BoundingBox tmpBox = new BoundingBox((Bounds) null);
+
+    /**
+     * Adds the object, or moves it if it is already in the grid.  An
+     * object with null or empty bounds stays in the grid but intersects
+     * no region.
+     */
+    void update(T object, Bounds bounds) {
+	tmpBox.set(bounds);
+	Entry<T> e = entries.get(object);
+	if (e == null) {
+	    e = new Entry<T>(object);
+	    entries.put(object, e);
+	} else if (!e.unbounded && tmpBox.equals(e.box) &&
+		   (tmpBox.boundsIsInfinite == e.box.boundsIsInfinite)) {
+	    return;
+	} else {
+	    unlink(e);
+	}
+	e.unbounded = false;
+	e.box.set(tmpBox);
+	link(e);
+    }
+
+    /**
+     * Adds the object, or moves it if it is already in the grid, so that
+     * it is returned for every region.  This is used for objects whose
+     * bounds may change without update() being called.
+     */
+    void updateUnbounded(T object) {
+	Entry<T> e = entries.get(object);
+	if (e == null) {
+	    e = new Entry<T>(object);
+	    entries.put(object, e);
+	} else if (e.unbounded) {
+	    return;
+	} else {
+	    unlink(e);
+	}
+	e.unbounded = true;
+	link(e);
+    }
+
+    /**
+     * Removes the object from the grid.
+     */
+    void remove(T object) {
+	Entry<T> e = entries.remove(object);
+	if (e != null) {
+	    unlink(e);
+	}
+    }
+
+    /**
+     * Returns true if the object was added and not removed since.
+     */
+    boolean contains(T object) {
+	return entries.containsKey(object);
+    }
+
+    /**
+     * Removes all objects from the grid.
+     */
+    void clear() {
+	entries.clear();
+	cells.clear();
+	large.clear();
+	cellSize = 0.0;
+	sizedCount = 0;
+    }
+
+    int size() {
+	return entries.size();
+    }
+
+    /**
+     * Adds the objects whose bounding box intersects the bounding box of
+     * the region to the list, each once.  The caller still has to test
+     * the bounds of the objects against the region.
+     */
+    void select(Bounds region, ArrayList<T> list) {
+	int n = entries.size();
+	if ((n == 0) || (region == null) || region.isEmpty()) {
+	    return;
+	}
+	if ((cellSize == 0.0) || (n > 2 * sizedCount) || (4 * n < sizedCount)) {
+	    rebuild();
+	}
+
+	BoundingBox box = tmpBox;
+	box.set(region);
+	if (++stamp == 0) {
+	    for (Entry<T> e : entries.values()) {
+		e.stamp = 0;
+	    }
+	    stamp = 1;
+	}
+
+	for (int i = large.size() - 1; i >= 0; i--) {
+	    Entry<T> e = large.get(i);
+	    if (e.unbounded || overlaps(e.box, box)) {
+		e.stamp = stamp;
+		list.add(e.object);
+	    }
+	}
+
+	int x0 = cell(box.lower.x), y0 = cell(box.lower.y), z0 = cell(box.lower.z);
+	int x1 = cell(box.upper.x), y1 = cell(box.upper.y), z1 = cell(box.upper.z);
+	if (box.boundsIsInfinite ||
+	    (x0 == Integer.MIN_VALUE) || (y0 == Integer.MIN_VALUE) ||
+	    (z0 == Integer.MIN_VALUE) || (x1 == Integer.MIN_VALUE) ||
+	    (y1 == Integer.MIN_VALUE) || (z1 == Integer.MIN_VALUE) ||
+	    ((long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1) > n)) {
+	    // Visiting the cells costs more than testing every entry
+	    for (Entry<T> e : entries.values()) {
+		if ((e.stamp != stamp) && (e.unbounded || overlaps(e.box, box))) {
+		    e.stamp = stamp;
+		    list.add(e.object);
+		}
+	    }
+	    return;
+	}
+
+	for (int x = x0; x <= x1; x++) {
+	    for (int y = y0; y <= y1; y++) {
+		for (int z = z0; z <= z1; z++) {
+		    ArrayList<Entry<T>> c = cells.get(key(x, y, z));
+		    if (c == null) {
+			continue;
+		    }
+		    for (int i = c.size() - 1; i >= 0; i--) {
+			Entry<T> e = c.get(i);
+			if ((e.stamp != stamp) && overlaps(e.box, box)) {
+			    e.stamp = stamp;
+			    list.add(e.object);
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    // Sizes the cells to the mean extent of the finite bounds and puts
+    // all entries into the grid again
+    private void rebuild() {
+	double sum = 0.0;
+	int count = 0;
+	for (Entry<T> e : entries.values()) {
+	    if (!e.unbounded && !e.box.boundsIsEmpty &&
+		!e.box.boundsIsInfinite) {
+		BoundingBox b = e.box;
+		sum += Math.max(b.upper.x - b.lower.x,
+				Math.max(b.upper.y - b.lower.y,
+					 b.upper.z - b.lower.z));
+		count++;
+	    }
+	}
+	double size = (count > 0 ? sum / count : 1.0);
+	if (!(size > 0.0) || Double.isInfinite(size)) {
+	    size = 1.0;
+	}
+
+	cells.clear();
+	large.clear();
+	cellSize = size;
+	sizedCount = entries.size();
+	for (Entry<T> e : entries.values()) {
+	    e.inCells = false;
+	    e.largeIndex = -1;
+	    link(e);
+	}
+    }
+
+    private void link(Entry<T> e) {
+	if (cellSize == 0.0) {
+	    // rebuild() links it
+	    return;
+	}
+	BoundingBox b = e.box;
+	if (!e.unbounded && b.boundsIsEmpty) {
+	    // Intersects no region
+	    return;
+	}
+	int x0 = cell(b.lower.x), y0 = cell(b.lower.y), z0 = cell(b.lower.z);
+	int x1 = cell(b.upper.x), y1 = cell(b.upper.y), z1 = cell(b.upper.z);
+	if (e.unbounded || b.boundsIsInfinite ||
+	    (x0 == Integer.MIN_VALUE) || (y0 == Integer.MIN_VALUE) ||
+	    (z0 == Integer.MIN_VALUE) || (x1 == Integer.MIN_VALUE) ||
+	    (y1 == Integer.MIN_VALUE) || (z1 == Integer.MIN_VALUE) ||
+	    (x1 - x0 >= MAX_CELLS_PER_AXIS) || (y1 - y0 >= MAX_CELLS_PER_AXIS) ||
+	    (z1 - z0 >= MAX_CELLS_PER_AXIS)) {
+	    e.largeIndex = large.size();
+	    large.add(e);
+	    return;
+	}
+	e.x0 = x0; e.y0 = y0; e.z0 = z0;
+	e.x1 = x1; e.y1 = y1; e.z1 = z1;
+	for (int x = x0; x <= x1; x++) {
+	    for (int y = y0; y <= y1; y++) {
+		for (int z = z0; z <= z1; z++) {
+		    Long k = key(x, y, z);
+		    ArrayList<Entry<T>> c = cells.get(k);
+		    if (c == null) {
+			c = new ArrayList<Entry<T>>(4);
+			cells.put(k, c);
+		    }
+		    c.add(e);
+		}
+	    }
+	}
+	e.inCells = true;
+    }
+
+    private void unlink(Entry<T> e) {
+	if (e.largeIndex >= 0) {
+	    // Move the last entry into its place
+	    Entry<T> last = large.remove(large.size() - 1);
+	    if (last != e) {
+		large.set(e.largeIndex, last);
+		last.largeIndex = e.largeIndex;
+	    }
+	    e.largeIndex = -1;
+	}
+	if (!e.inCells) {
+	    return;
+	}
+	for (int x = e.x0; x <= e.x1; x++) {
+	    for (int y = e.y0; y <= e.y1; y++) {
+		for (int z = e.z0; z <= e.z1; z++) {
+		    Long k = key(x, y, z);
+		    ArrayList<Entry<T>> c = cells.get(k);
+		    if (c != null) {
+			c.remove(e);
+			if (c.isEmpty()) {
+			    cells.remove(k);
+			}
+		    }
+		}
+	    }
+	}
+	e.inCells = false;
+    }
+
+    // Cell index of a coordinate, or Integer.MIN_VALUE if it is out of
+    // the range of the grid
+    private int cell(double v) {
+	double c = Math.floor(v / cellSize);
+	if (!((c >= -MAX_CELL_INDEX) && (c <= MAX_CELL_INDEX))) {
+	    return Integer.MIN_VALUE;
+	}
+	return (int) c;
+    }
+
+    private static Long key(int x, int y, int z) {
+	return Long.valueOf(((long) (x & 0x1FFFFF) << 42) |
+			    ((long) (y & 0x1FFFFF) << 21) |
+			    (long) (z & 0x1FFFFF));
+    }
+
+    private static boolean overlaps(BoundingBox a, BoundingBox b) {
+	if (a.boundsIsEmpty || b.boundsIsEmpty) {
+	    return false;
+	}
+	if (a.boundsIsInfinite || b.boundsIsInfinite) {
+	    return true;
+	}
+	return ((a.lower.x <= b.upper.x) && (b.lower.x <= a.upper.x) &&
+		(a.lower.y <= b.upper.y) && (b.lower.y <= a.upper.y) &&
+		(a.lower.z <= b.upper.z) && (b.lower.z <= a.upper.z));
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3f;
+
+/**
+ * Computes the bounding box of the coordinates of a large GeometryArray.
+ * The vertices are split into tasks of GRAIN vertices that are run on the
+ * J3dForkJoinScheduler pool when it is enabled.  Each task scans the two
+ * halves of its range at once, with branch-free min/max updates, so that
+ * the loop carries two independent chains of comparisons.
+ *
+ * The result is the same as the one of the serial loops of
+ * GeometryArrayRetained: every accumulator starts with the first vertex,
+ * a value only replaces a bound if it is strictly smaller or greater, and
+ * the partial bounds are combined in the order of the vertices.  So NaN
+ * values are ignored unless the first vertex has one, and of two equal
+ * bounds (0.0 and -0.0) the first one is kept.
+ *
+ * The vertex i of a coordinate array starts at base + i * stride, and the
+ * vertex i of a point array is at base + i.  count must be at least 1.
+ */
+
+class BoundsKernel {
+
+    // Geometries with fewer vertices are scanned by the serial loops
+    static final int MIN_VERTEX_COUNT = 1024;
+
+    // Number of vertices scanned by one task
+    static final int GRAIN = 1 << 16;
+
+    static void compute(final float[] data, final int base, final int stride,
+			final int count, BoundingBox box) {
+	final double[] r = seed(data[base], data[base+1], data[base+2], count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, stride, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    static void compute(final double[] data, final int base, final int stride,
+			final int count, BoundingBox box) {
+	final double[] r = seed(data[base], data[base+1], data[base+2], count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, stride, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    static void compute(final FloatBuffer data, final int base,
+			final int stride, final int count, BoundingBox box) {
+	final double[] r = seed(data.get(base), data.get(base+1),
+				data.get(base+2), count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, stride, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    static void compute(final DoubleBuffer data, final int base,
+			final int stride, final int count, BoundingBox box) {
+	final double[] r = seed(data.get(base), data.get(base+1),
+				data.get(base+2), count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, stride, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    static void compute(final Point3f[] data, final int base,
+			final int count, BoundingBox box) {
+	Point3f p = data[base];
+	final double[] r = seed(p.x, p.y, p.z, count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    static void compute(final Point3d[] data, final int base,
+			final int count, BoundingBox box) {
+	Point3d p = data[base];
+	final double[] r = seed(p.x, p.y, p.z, count);
+	J3dForkJoinScheduler.parallelFor(r.length / 6, 1,
+	    new J3dForkJoinScheduler.RangeTask() {
+		@Override
+		public void run(int start, int end) {
+		    for (int t = start; t < end; t++) {
+			scan(data, base, t * GRAIN,
+			     Math.min(count, (t + 1) * GRAIN), r, 6 * t);
+		    }
+		}
+	    });
+	setBounds(r, box);
+    }
+
+    // Returns the lower and upper bounds of each task, all set to the
+    // first vertex
+    private static double[] seed(double x, double y, double z, int count) {
+	int numTasks = (count + GRAIN - 1) / GRAIN;
+	double[] r = new double[6 * numTasks];
+	for (int k = 0; k < r.length; k += 6) {
+	    r[k] = x;
+	    r[k+1] = y;
+	    r[k+2] = z;
+	    r[k+3] = x;
+	    r[k+4] = y;
+	    r[k+5] = z;
+	}
+	return r;
+    }
+
+    // Combines the bounds of the tasks in order
+    private static void setBounds(double[] r, BoundingBox box) {
+	double xmin = r[0], ymin = r[1], zmin = r[2];
+	double xmax = r[3], ymax = r[4], zmax = r[5];
+	for (int k = 6; k < r.length; k += 6) {
+	    if (r[k] < xmin) xmin = r[k];
+	    if (r[k+1] < ymin) ymin = r[k+1];
+	    if (r[k+2] < zmin) zmin = r[k+2];
+	    if (r[k+3] > xmax) xmax = r[k+3];
+	    if (r[k+4] > ymax) ymax = r[k+4];
+	    if (r[k+5] > zmax) zmax = r[k+5];
+	}
+	box.setUpper(xmax, ymax, zmax);
+	box.setLower(xmin, ymin, zmin);
+    }
+
+    // Scans the vertices from start to end - 1 into the bounds r[k] to
+    // r[k+5].  Lane a scans the first half of the range and lane b the
+    // second half, with the last vertex of an odd count.
+    private static void scan(float[] d, int base, int stride,
+			     int start, int end, double[] r, int k) {
+	// The bounds of float coordinates are floats
+	float ax0 = (float) r[k], ay0 = (float) r[k+1], az0 = (float) r[k+2];
+	float ax1 = (float) r[k+3], ay1 = (float) r[k+4], az1 = (float) r[k+5];
+	float bx0 = ax0, by0 = ay0, bz0 = az0;
+	float bx1 = ax1, by1 = ay1, bz1 = az1;
+	float x, y, z;
+
+	int half = (end - start) >> 1;
+	int i = base + start * stride;
+	int j = i + half * stride;
+	for (int n = 0; n < half; n++, i += stride, j += stride) {
+	    x = d[i];
+	    y = d[i+1];
+	    z = d[i+2];
+	    ax0 = (x < ax0 ? x : ax0);
+	    ax1 = (x > ax1 ? x : ax1);
+	    ay0 = (y < ay0 ? y : ay0);
+	    ay1 = (y > ay1 ? y : ay1);
+	    az0 = (z < az0 ? z : az0);
+	    az1 = (z > az1 ? z : az1);
+	    x = d[j];
+	    y = d[j+1];
+	    z = d[j+2];
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    x = d[j];
+	    y = d[j+1];
+	    z = d[j+2];
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+
+    private static void scan(double[] d, int base, int stride,
+			     int start, int end, double[] r, int k) {
+	double ax0 = r[k], ay0 = r[k+1], az0 = r[k+2];
+	double ax1 = r[k+3], ay1 = r[k+4], az1 = r[k+5];
+	double bx0 = ax0, by0 = ay0, bz0 = az0;
+	double bx1 = ax1, by1 = ay1, bz1 = az1;
+	double x, y, z;
+
+	int half = (end - start) >> 1;
+	int i = base + start * stride;
+	int j = i + half * stride;
+	for (int n = 0; n < half; n++, i += stride, j += stride) {
+	    x = d[i];
+	    y = d[i+1];
+	    z = d[i+2];
+	    ax0 = (x < ax0 ? x : ax0);
+	    ax1 = (x > ax1 ? x : ax1);
+	    ay0 = (y < ay0 ? y : ay0);
+	    ay1 = (y > ay1 ? y : ay1);
+	    az0 = (z < az0 ? z : az0);
+	    az1 = (z > az1 ? z : az1);
+	    x = d[j];
+	    y = d[j+1];
+	    z = d[j+2];
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    x = d[j];
+	    y = d[j+1];
+	    z = d[j+2];
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+
+    private static void scan(FloatBuffer d, int base, int stride,
+			     int start, int end, double[] r, int k) {
+	float ax0 = (float) r[k], ay0 = (float) r[k+1], az0 = (float) r[k+2];
+	float ax1 = (float) r[k+3], ay1 = (float) r[k+4], az1 = (float) r[k+5];
+	float bx0 = ax0, by0 = ay0, bz0 = az0;
+	float bx1 = ax1, by1 = ay1, bz1 = az1;
+	float x, y, z;
+
+	int half = (end - start) >> 1;
+	int i = base + start * stride;
+	int j = i + half * stride;
+	for (int n = 0; n < half; n++, i += stride, j += stride) {
+	    x = d.get(i);
+	    y = d.get(i+1);
+	    z = d.get(i+2);
+	    ax0 = (x < ax0 ? x : ax0);
+	    ax1 = (x > ax1 ? x : ax1);
+	    ay0 = (y < ay0 ? y : ay0);
+	    ay1 = (y > ay1 ? y : ay1);
+	    az0 = (z < az0 ? z : az0);
+	    az1 = (z > az1 ? z : az1);
+	    x = d.get(j);
+	    y = d.get(j+1);
+	    z = d.get(j+2);
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    x = d.get(j);
+	    y = d.get(j+1);
+	    z = d.get(j+2);
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+
+    private static void scan(DoubleBuffer d, int base, int stride,
+			     int start, int end, double[] r, int k) {
+	double ax0 = r[k], ay0 = r[k+1], az0 = r[k+2];
+	double ax1 = r[k+3], ay1 = r[k+4], az1 = r[k+5];
+	double bx0 = ax0, by0 = ay0, bz0 = az0;
+	double bx1 = ax1, by1 = ay1, bz1 = az1;
+	double x, y, z;
+
+	int half = (end - start) >> 1;
+	int i = base + start * stride;
+	int j = i + half * stride;
+	for (int n = 0; n < half; n++, i += stride, j += stride) {
+	    x = d.get(i);
+	    y = d.get(i+1);
+	    z = d.get(i+2);
+	    ax0 = (x < ax0 ? x : ax0);
+	    ax1 = (x > ax1 ? x : ax1);
+	    ay0 = (y < ay0 ? y : ay0);
+	    ay1 = (y > ay1 ? y : ay1);
+	    az0 = (z < az0 ? z : az0);
+	    az1 = (z > az1 ? z : az1);
+	    x = d.get(j);
+	    y = d.get(j+1);
+	    z = d.get(j+2);
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    x = d.get(j);
+	    y = d.get(j+1);
+	    z = d.get(j+2);
+	    bx0 = (x < bx0 ? x : bx0);
+	    bx1 = (x > bx1 ? x : bx1);
+	    by0 = (y < by0 ? y : by0);
+	    by1 = (y > by1 ? y : by1);
+	    bz0 = (z < bz0 ? z : bz0);
+	    bz1 = (z > bz1 ? z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+
+    private static void scan(Point3f[] d, int base,
+			     int start, int end, double[] r, int k) {
+	float ax0 = (float) r[k], ay0 = (float) r[k+1], az0 = (float) r[k+2];
+	float ax1 = (float) r[k+3], ay1 = (float) r[k+4], az1 = (float) r[k+5];
+	float bx0 = ax0, by0 = ay0, bz0 = az0;
+	float bx1 = ax1, by1 = ay1, bz1 = az1;
+	Point3f p;
+
+	int half = (end - start) >> 1;
+	int i = base + start;
+	int j = i + half;
+	for (int n = 0; n < half; n++, i++, j++) {
+	    p = d[i];
+	    ax0 = (p.x < ax0 ? p.x : ax0);
+	    ax1 = (p.x > ax1 ? p.x : ax1);
+	    ay0 = (p.y < ay0 ? p.y : ay0);
+	    ay1 = (p.y > ay1 ? p.y : ay1);
+	    az0 = (p.z < az0 ? p.z : az0);
+	    az1 = (p.z > az1 ? p.z : az1);
+	    p = d[j];
+	    bx0 = (p.x < bx0 ? p.x : bx0);
+	    bx1 = (p.x > bx1 ? p.x : bx1);
+	    by0 = (p.y < by0 ? p.y : by0);
+	    by1 = (p.y > by1 ? p.y : by1);
+	    bz0 = (p.z < bz0 ? p.z : bz0);
+	    bz1 = (p.z > bz1 ? p.z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    p = d[j];
+	    bx0 = (p.x < bx0 ? p.x : bx0);
+	    bx1 = (p.x > bx1 ? p.x : bx1);
+	    by0 = (p.y < by0 ? p.y : by0);
+	    by1 = (p.y > by1 ? p.y : by1);
+	    bz0 = (p.z < bz0 ? p.z : bz0);
+	    bz1 = (p.z > bz1 ? p.z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+
+    private static void scan(Point3d[] d, int base,
+			     int start, int end, double[] r, int k) {
+	double ax0 = r[k], ay0 = r[k+1], az0 = r[k+2];
+	double ax1 = r[k+3], ay1 = r[k+4], az1 = r[k+5];
+	double bx0 = ax0, by0 = ay0, bz0 = az0;
+	double bx1 = ax1, by1 = ay1, bz1 = az1;
+	Point3d p;
+
+	int half = (end - start) >> 1;
+	int i = base + start;
+	int j = i + half;
+	for (int n = 0; n < half; n++, i++, j++) {
+	    p = d[i];
+	    ax0 = (p.x < ax0 ? p.x : ax0);
+	    ax1 = (p.x > ax1 ? p.x : ax1);
+	    ay0 = (p.y < ay0 ? p.y : ay0);
+	    ay1 = (p.y > ay1 ? p.y : ay1);
+	    az0 = (p.z < az0 ? p.z : az0);
+	    az1 = (p.z > az1 ? p.z : az1);
+	    p = d[j];
+	    bx0 = (p.x < bx0 ? p.x : bx0);
+	    bx1 = (p.x > bx1 ? p.x : bx1);
+	    by0 = (p.y < by0 ? p.y : by0);
+	    by1 = (p.y > by1 ? p.y : by1);
+	    bz0 = (p.z < bz0 ? p.z : bz0);
+	    bz1 = (p.z > bz1 ? p.z : bz1);
+	}
+	if (((end - start) & 1) != 0) {
+	    p = d[j];
+	    bx0 = (p.x < bx0 ? p.x : bx0);
+	    bx1 = (p.x > bx1 ? p.x : bx1);
+	    by0 = (p.y < by0 ? p.y : by0);
+	    by1 = (p.y > by1 ? p.y : by1);
+	    bz0 = (p.z < bz0 ? p.z : bz0);
+	    bz1 = (p.z > bz1 ? p.z : bz1);
+	}
+
+	r[k] = (bx0 < ax0 ? bx0 : ax0);
+	r[k+1] = (by0 < ay0 ? by0 : ay0);
+	r[k+2] = (bz0 < az0 ? bz0 : az0);
+	r[k+3] = (bx1 > ax1 ? bx1 : ax1);
+	r[k+4] = (by1 > ay1 ? by1 : ay1);
+	r[k+5] = (bz1 > az1 ? bz1 : az1);
+    }
+}
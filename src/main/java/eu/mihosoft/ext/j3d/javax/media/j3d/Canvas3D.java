@@ -1279,7 +1279,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 	    if (rdr != null) {
 		VirtualUniverse.mc.postRequest(MasterControl.STOP_RENDERER, rdr);
 		while (!rdr.userStop) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(VirtualUniverse.mc);
 		}
 	    }
 	}
@@ -1350,7 +1350,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
             // (and this is a more robust fix)
             VirtualUniverse.mc.postRequest(MasterControl.START_RENDERER, rdr);
             while (rdr.userStop) {
-                MasterControl.threadYield();
+                MasterControl.threadWait(VirtualUniverse.mc);
             }
 	}
     }
@@ -1387,7 +1387,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 	    if (rdr != null) {
 		VirtualUniverse.mc.postRequest(MasterControl.STOP_RENDERER, rdr);
 		while (!rdr.userStop) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(VirtualUniverse.mc);
 		}
 	    }
 	}
@@ -1457,7 +1457,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
             // Issue 84: Send a message to MC to restart renderer
             VirtualUniverse.mc.postRequest(MasterControl.START_RENDERER, rdr);
             while (rdr.userStop) {
-                MasterControl.threadYield();
+                MasterControl.threadWait(VirtualUniverse.mc);
             }
 	}
 
@@ -2134,10 +2134,24 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
         }
 
         while (offScreenRendering) {
-            MasterControl.threadYield();
+            MasterControl.threadWait(this);
         }
     }
 
+    // Called by the Renderer when an off-screen rendering is finished
+    // or dropped; wakes up the threads in waitForOffScreenRendering()
+    void offScreenRenderingDone() {
+        offScreenRendering = false;
+        MasterControl.threadSignal(this);
+    }
+
+    // Called by the Renderer when an off-screen buffer has been created
+    // or destroyed; wakes up the thread waiting for it
+    void offScreenBufferDone() {
+        offScreenBufferPending = false;
+        MasterControl.threadSignal(this);
+    }
+
 
     /**
      * Sets the location of this off-screen Canvas3D.  The location is
@@ -4036,7 +4050,7 @@ public Point getLocationOnScreen() {
 	while (offScreenBufferPending) {
             // Issue 364: create master control thread if needed
             VirtualUniverse.mc.createMasterControlThread();
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(this);
 	}
     }
 
@@ -4061,7 +4075,7 @@ public Point getLocationOnScreen() {
         while (offScreenBufferPending) {
             // Issue 364: create master control thread if needed
             VirtualUniverse.mc.createMasterControlThread();
-            MasterControl.threadYield();
+            MasterControl.threadWait(this);
         }
     }
 
@@ -4096,7 +4110,7 @@ public Point getLocationOnScreen() {
 	    if (!(currentThread instanceof BehaviorScheduler) &&
 		!(currentThread instanceof Renderer)) {
 		while (ctxTimeStamp != 0) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(this);
 		}
             }
 	    ctx = null;
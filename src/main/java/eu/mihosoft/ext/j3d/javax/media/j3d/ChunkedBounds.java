@@ -0,0 +1,256 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3f;
+
+/**
+ * The bounding box of the coordinates of a GeometryArray, kept as the
+ * bounds of chunks of CHUNK_SIZE vertices in the leaves of a complete
+ * binary tree.  When only some vertex ranges of the coordinates change,
+ * only the chunks of these ranges are scanned again and the bounds of
+ * their ancestors combined, instead of scanning every vertex.
+ *
+ * The tree is only valid for the layout it was built for: the same data
+ * array, first vertex, vertex count, stride and offset.  The owner must
+ * report every change of the coordinates, or build the tree again.
+ */
+
+class ChunkedBounds {
+
+    static final int CHUNK_SIZE = 1024;
+
+    // Geometries with fewer vertices are scanned in full
+    static final int MIN_VERTEX_COUNT = 4 * CHUNK_SIZE;
+
+    // Number of chunks scanned by one task of a parallel build
+    private static final int BUILD_GRAIN = 64;
+
+    // Kinds of coordinate data
+    static final int FLOAT = 0;		// float[], with stride and offset
+    static final int DOUBLE = 1;	// double[] of x, y, z
+    static final int POINT3F = 2;	// Point3f[]
+    static final int POINT3D = 3;	// Point3d[]
+
+    // Layout of the coordinates
+    private Object data = null;
+    private int kind, first, count, stride, offset;
+
+    // Lower x, y, z and upper x, y, z of each node of the tree.  The
+    // root is node 1 and the chunks are the nodes numLeaves and up.
+    private double[] tree = null;
+    private int numChunks;
+    private int numLeaves;
+
+    /**
+     * Sets the layout of the coordinates.  The tree is dropped if the
+     * layout changed.
+     */
+    void setLayout(Object data, int kind, int first, int count,
+		   int stride, int offset) {
+	if ((data == this.data) && (kind == this.kind) &&
+	    (first == this.first) && (count == this.count) &&
+	    (stride == this.stride) && (offset == this.offset)) {
+	    return;
+	}
+	this.data = data;
+	this.kind = kind;
+	this.first = first;
+	this.count = count;
+	this.stride = stride;
+	this.offset = offset;
+	tree = null;
+    }
+
+    /**
+     * Returns true if the tree was built for the current layout.
+     */
+    boolean isBuilt() {
+	return tree != null;
+    }
+
+    void invalidate() {
+	tree = null;
+    }
+
+    /**
+     * Builds the tree for the current layout and sets the bounding box.
+     */
+    void build(BoundingBox box) {
+	numChunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	numLeaves = Integer.highestOneBit(Math.max(numChunks, 1));
+	if (numLeaves < numChunks) {
+	    numLeaves <<= 1;
+	}
+	tree = new double[12 * numLeaves];
+	if (VirtualUniverse.mc.parallelBounds) {
+	    // The chunks are written to separate leaves
+	    J3dForkJoinScheduler.parallelFor(numLeaves, BUILD_GRAIN,
+		new J3dForkJoinScheduler.RangeTask() {
+		    @Override
+		    public void run(int start, int end) {
+			for (int c = start; c < end; c++) {
+			    computeChunk(c);
+			}
+		    }
+		});
+	} else {
+	    for (int c = 0; c < numLeaves; c++) {
+		computeChunk(c);
+	    }
+	}
+	for (int n = numLeaves - 1; n >= 1; n--) {
+	    combine(n);
+	}
+	getBounds(box);
+    }
+
+    /**
+     * Scans again the chunks of the changed vertex ranges, given as
+     * indices of the data, and sets the bounding box.
+     */
+    void update(VertexRangeSet changed, BoundingBox box) {
+	int end = first + count;
+	for (int r = 0; r < changed.size(); r++) {
+	    int s = Math.max(changed.getStart(r), first);
+	    int e = Math.min(changed.getEnd(r), end);
+	    if (s >= e) {
+		continue;
+	    }
+	    int lastChunk = (e - 1 - first) / CHUNK_SIZE;
+	    for (int c = (s - first) / CHUNK_SIZE; c <= lastChunk; c++) {
+		computeChunk(c);
+		for (int n = (numLeaves + c) >> 1; n >= 1; n >>= 1) {
+		    combine(n);
+		}
+	    }
+	}
+	getBounds(box);
+    }
+
+    private void getBounds(BoundingBox box) {
+	double[] t = tree;
+	box.setLower(t[6], t[7], t[8]);
+	box.setUpper(t[9], t[10], t[11]);
+    }
+
+    // Sets the bounds of node n to the union of the bounds of its children
+    private void combine(int n) {
+	double[] t = tree;
+	int i = 6 * n, a = 12 * n, b = a + 6;
+	t[i] = (t[b] < t[a] ? t[b] : t[a]);
+	t[i+1] = (t[b+1] < t[a+1] ? t[b+1] : t[a+1]);
+	t[i+2] = (t[b+2] < t[a+2] ? t[b+2] : t[a+2]);
+	t[i+3] = (t[b+3] > t[a+3] ? t[b+3] : t[a+3]);
+	t[i+4] = (t[b+4] > t[a+4] ? t[b+4] : t[a+4]);
+	t[i+5] = (t[b+5] > t[a+5] ? t[b+5] : t[a+5]);
+    }
+
+    // Scans the vertices of chunk c
+    private void computeChunk(int c) {
+	double xmin = Double.POSITIVE_INFINITY;
+	double ymin = Double.POSITIVE_INFINITY;
+	double zmin = Double.POSITIVE_INFINITY;
+	double xmax = Double.NEGATIVE_INFINITY;
+	double ymax = Double.NEGATIVE_INFINITY;
+	double zmax = Double.NEGATIVE_INFINITY;
+	double x, y, z;
+
+	int start = first + c * CHUNK_SIZE;
+	int end = Math.min(start + CHUNK_SIZE, first + count);
+	switch (kind) {
+	case FLOAT: {
+	    float[] d = (float[]) data;
+	    for (int i = start, j = start * stride + offset; i < end;
+		 i++, j += stride) {
+		x = d[j];
+		y = d[j+1];
+		z = d[j+2];
+		if (x < xmin) xmin = x;
+		if (x > xmax) xmax = x;
+		if (y < ymin) ymin = y;
+		if (y > ymax) ymax = y;
+		if (z < zmin) zmin = z;
+		if (z > zmax) zmax = z;
+	    }
+	    break;
+	}
+	case DOUBLE: {
+	    double[] d = (double[]) data;
+	    for (int i = start, j = 3 * start; i < end; i++, j += 3) {
+		x = d[j];
+		y = d[j+1];
+		z = d[j+2];
+		if (x < xmin) xmin = x;
+		if (x > xmax) xmax = x;
+		if (y < ymin) ymin = y;
+		if (y > ymax) ymax = y;
+		if (z < zmin) zmin = z;
+		if (z > zmax) zmax = z;
+	    }
+	    break;
+	}
+	case POINT3F: {
+	    Point3f[] d = (Point3f[]) data;
+	    for (int i = start; i < end; i++) {
+		Point3f p = d[i];
+		if (p.x < xmin) xmin = p.x;
+		if (p.x > xmax) xmax = p.x;
+		if (p.y < ymin) ymin = p.y;
+		if (p.y > ymax) ymax = p.y;
+		if (p.z < zmin) zmin = p.z;
+		if (p.z > zmax) zmax = p.z;
+	    }
+	    break;
+	}
+	case POINT3D: {
+	    Point3d[] d = (Point3d[]) data;
+	    for (int i = start; i < end; i++) {
+		Point3d p = d[i];
+		if (p.x < xmin) xmin = p.x;
+		if (p.x > xmax) xmax = p.x;
+		if (p.y < ymin) ymin = p.y;
+		if (p.y > ymax) ymax = p.y;
+		if (p.z < zmin) zmin = p.z;
+		if (p.z > zmax) zmax = p.z;
+	    }
+	    break;
+	}
+	}
+
+	int k = 6 * (numLeaves + c);
+	double[] t = tree;
+	t[k] = xmin;
+	t[k+1] = ymin;
+	t[k+2] = zmin;
+	t[k+3] = xmax;
+	t[k+4] = ymax;
+	t[k+5] = zmax;
+    }
+}
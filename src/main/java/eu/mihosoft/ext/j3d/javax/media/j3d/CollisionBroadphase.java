@@ -0,0 +1,284 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+/**
+ * The CollisionBroadphase decides which WakeupOnCollisionEntry, Exit and
+ * Movement conditions GeometryStructure.processCollisionDetection() has
+ * to test again with collide().
+ *
+ * The result of collide() for a condition can only change if the region
+ * it tests (the bounds of its arming node, bounding leaf or geometry
+ * atoms) or one of its geometry atoms changed, if a BHTree leaf whose
+ * collision bounds now intersect that region changed, or if the leaf it
+ * hit last time changed.  The
+ * GeometryStructure reports the leaves that were inserted, removed,
+ * moved or changed since the last detection.  The conditions are kept
+ * in a BoundsGrid by the bounding box of their region, so that
+ * each changed leaf only looks at the conditions in the cells it
+ * overlaps.  All other conditions keep their state, which is what
+ * collide() would have confirmed.
+ *
+ * Switch and collidable changes do not change any bounds, so they make
+ * every condition dirty.
+ *
+ * This class is only used by the GeometryStructure thread, except for
+ * invalidateAll().
+ */
+
+class CollisionBroadphase {
+
+    private static class Entry {
+	final BoundingBox region = new BoundingBox((Bounds) null);
+	boolean hasRegion = false;
+	boolean dirty = true;
+	BHLeafInterface lastHit = null;
+	long frame;
+    }
+
+    private final IdentityHashMap<WakeupCriterion, Entry> entries =
+	new IdentityHashMap<WakeupCriterion, Entry>();
+
+    // Entries with a region, by the bounding box of the region
+    private final BoundsGrid<Entry> grid = new BoundsGrid<Entry>();
+
+    // Temporary list for the entries selected from the grid
+    private final ArrayList<Entry> selected = new ArrayList<Entry>();
+
+    // Leaves changed since the last detection
+    private final IdentityHashMap<BHLeafInterface, BHLeafInterface> changed =
+	new IdentityHashMap<BHLeafInterface, BHLeafInterface>();
+
+    private volatile boolean allDirty = true;
+    private long frame = 0;
+    private int touched = 0;
+
+    private final BoundingBox tmpBox = new BoundingBox((Bounds) null);
+
+    /**
+     * Marks a BHTree leaf as inserted, removed or changed.
+     */
+    void leafChanged(BHLeafInterface leaf) {
+	changed.put(leaf, leaf);
+    }
+
+    /**
+     * Makes every condition dirty at the next detection.
+     */
+    void invalidateAll() {
+	allDirty = true;
+    }
+
+    /**
+     * Starts a detection pass: marks the conditions whose region
+     * intersects the collision bounds of a changed leaf.  If all is true,
+     * every condition is tested in this pass.
+     */
+    void begin(boolean all) {
+	frame++;
+	touched = 0;
+	if (all || allDirty) {
+	    allDirty = false;
+	    for (Entry e : entries.values()) {
+		e.dirty = true;
+	    }
+	    return;
+	}
+	if (changed.isEmpty() || (grid.size() == 0)) {
+	    return;
+	}
+
+	for (BHLeafInterface leaf : changed.keySet()) {
+	    if (!getLeafBox(leaf, tmpBox)) {
+		continue;
+	    }
+	    grid.select(tmpBox, selected);
+	    for (int i = selected.size() - 1; i >= 0; i--) {
+		selected.get(i).dirty = true;
+	    }
+	    selected.clear();
+	}
+    }
+
+    /**
+     * Returns true if collide() has to be called for the condition,
+     * whose arguments to collide() are given.  The region of the
+     * condition is updated here, so updateCollisionBounds() must have
+     * been called before.
+     */
+    boolean needsUpdate(WakeupCriterion cond, UnorderList geomAtoms,
+			Bounds bound, BoundingLeafRetained boundingLeaf,
+			NodeRetained armingNode) {
+	Entry e = entries.get(cond);
+	if (e == null) {
+	    e = new Entry();
+	    entries.put(cond, e);
+	}
+	e.frame = frame;
+	touched++;
+
+	boolean hasRegion = getRegion(geomAtoms, bound, boundingLeaf,
+				      armingNode, tmpBox);
+	if (hasRegion != e.hasRegion ||
+	    (hasRegion && !tmpBox.equals(e.region))) {
+	    e.hasRegion = hasRegion;
+	    if (hasRegion) {
+		e.region.set(tmpBox);
+		grid.update(e, e.region);
+	    } else {
+		grid.remove(e);
+	    }
+	    e.dirty = true;
+	}
+
+	if (!e.dirty && e.lastHit != null && changed.containsKey(e.lastHit)) {
+	    e.dirty = true;
+	}
+	if (!e.dirty && geomAtoms != null && !changed.isEmpty()) {
+	    // USE_GEOMETRY tests the geometry and transform of the atoms,
+	    // which may change without changing their bounds
+	    Object[] atoms = geomAtoms.toArray(false);
+	    for (int i = geomAtoms.arraySize() - 1; i >= 0; i--) {
+		if (changed.containsKey(atoms[i])) {
+		    e.dirty = true;
+		    break;
+		}
+	    }
+	}
+	return e.dirty;
+    }
+
+    /**
+     * Records the result of collide() for a condition.
+     */
+    void collided(WakeupCriterion cond, BHLeafInterface target) {
+	Entry e = entries.get(cond);
+	if (e != null) {
+	    e.lastHit = target;
+	    e.dirty = false;
+	}
+    }
+
+    /**
+     * Ends a detection pass: forgets the changed leaves and the
+     * conditions that are no longer armed.
+     */
+    void end() {
+	changed.clear();
+
+	if (entries.size() > touched) {
+	    Iterator<Entry> it = entries.values().iterator();
+	    while (it.hasNext()) {
+		Entry e = it.next();
+		if (e.frame != frame) {
+		    grid.remove(e);
+		    it.remove();
+		}
+	    }
+	}
+    }
+
+    /**
+     * Drops all conditions.
+     */
+    void clear() {
+	entries.clear();
+	grid.clear();
+	changed.clear();
+	allDirty = true;
+    }
+
+    // Box of the bounds a leaf is tested with by BHTree.selectAny()
+    private static boolean getLeafBox(BHLeafInterface leaf, BoundingBox box) {
+	Bounds b;
+	if (leaf instanceof GeometryAtom) {
+	    Shape3DRetained source = ((GeometryAtom) leaf).source;
+	    if (source == null) {
+		return false;
+	    }
+	    b = source.collisionVwcBound;
+	    if (b == null) {
+		b = source.vwcBounds;
+	    }
+	} else {
+	    GroupRetained group = (GroupRetained) leaf;
+	    b = (group.bhLeafNode != null ? group.bhLeafNode.bHull :
+		 group.collisionVwcBounds);
+	}
+	if (b == null) {
+	    return false;
+	}
+	box.set(b);
+	return !box.boundsIsEmpty;
+    }
+
+    // Box of everything collide() tests for the given arguments; returns
+    // false if collide() returns null for them
+    private static boolean getRegion(UnorderList geomAtoms, Bounds bound,
+				     BoundingLeafRetained boundingLeaf,
+				     NodeRetained armingNode, BoundingBox box) {
+	if (geomAtoms != null) {
+	    Object[] atoms = geomAtoms.toArray(false);
+	    int size = geomAtoms.arraySize();
+	    if (size == 0) {
+		return false;
+	    }
+	    if ((bound != null) && (armingNode instanceof GroupRetained)) {
+		box.set(bound);
+		for (int i = 0; i < size; i++) {
+		    Bounds b = ((GeometryAtom) atoms[i]).source.collisionVwcBound;
+		    if (b != null) {
+			box.combine(b);
+		    }
+		}
+		return true;
+	    }
+	    Bounds b = ((GeometryAtom) atoms[0]).source.collisionVwcBound;
+	    if (b == null) {
+		return false;
+	    }
+	    box.set(b);
+	    return true;
+	}
+	if (bound == null) {
+	    if (boundingLeaf == null) {
+		return false;
+	    }
+	    bound = boundingLeaf.transformedRegion;
+	}
+	if (bound == null) {
+	    return false;
+	}
+	box.set(bound);
+	return true;
+    }
+}
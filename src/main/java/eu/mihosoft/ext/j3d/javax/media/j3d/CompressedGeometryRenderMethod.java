@@ -59,8 +59,9 @@ class CompressedGeometryRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.occluded &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
 		    renderCompressedGeo(ra, rm, cv);
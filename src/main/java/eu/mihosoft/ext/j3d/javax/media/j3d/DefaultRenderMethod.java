@@ -55,8 +55,9 @@ class DefaultRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.occluded &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.raIsVisible = true;
 		    cv.updateState(dirtyBits);
 		    ra.geometry().execute(cv, ra.renderAtom, rm.isNonUniformScale,
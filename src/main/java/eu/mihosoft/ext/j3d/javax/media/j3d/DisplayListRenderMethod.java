@@ -90,7 +90,8 @@ class DisplayListRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!r.renderAtom.occluded &&
+		    r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
 		    cv.callDisplayList(cv.ctx,
@@ -136,7 +137,8 @@ class DisplayListRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!r.renderAtom.occluded &&
+		    r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
 		    cv.callDisplayList(cv.ctx, r.renderAtom.dlistIds[r.index],
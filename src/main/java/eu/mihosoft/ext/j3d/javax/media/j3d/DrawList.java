@@ -0,0 +1,421 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The DrawList is the flat list of the opaque TextureBins of a RenderBin,
+ * enabled by the -Dj3d.drawList property.  It is rendered instead of the
+ * LightBin list of the RenderBin, so that the opaque pass is a single
+ * loop over an array instead of a walk of the linked bin hierarchy.
+ *
+ * Each TextureBin has a 64-bit sort key made of the ids of its LightBin,
+ * EnvironmentSet, AttributeBin and ShaderBin and of the texture in its
+ * first texture unit, from the most to the least significant bits.  The
+ * list is kept sorted by key, so the TextureBins of a bin are contiguous
+ * and the state of each bin is set once, as in the hierarchy.
+ *
+ * The list is only updated in RenderBin.updateObject(), and only when
+ * TextureBins were added or removed or their texture changed.  The ids
+ * of the bins don't change while they live, so the removed TextureBins
+ * are dropped from the sorted list, and the added ones are radix sorted
+ * and merged into it.  When the ids of a level run out, all the bins are
+ * numbered again in the order of the list.
+ *
+ * The insertion of RenderAtoms is still done by the bin hierarchy, which
+ * also provides the state of the bins.  If there are too many bins for
+ * the ids, render() returns false and the RenderBin walks the hierarchy.
+ */
+
+class DrawList {
+
+    // Bits of the ids of the LightBins, EnvironmentSets, AttributeBins,
+    // ShaderBins and textures in the sort keys.  The texture ids may be
+    // shared by several textures, which only costs some texture binds.
+    private static final int LIGHT_BIN_BITS = 8;
+    private static final int ENV_SET_BITS = 12;
+    private static final int ATTR_BIN_BITS = 16;
+    private static final int SHADER_BIN_BITS = 16;
+    private static final int TEXTURE_BITS = 12;
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    // States of a TextureBin in TextureBin.drawListId
+    static final int ADDED = 1;
+    static final int LISTED = 2;
+
+    // The last texture id, shared by all the DrawLists
+    private static int lastTextureId = 0;
+
+    private final RenderBin renderBin;
+
+    // The TextureBins sorted by key, and their keys
+    TextureBin[] bins = new TextureBin[0];
+    long[] keys = new long[0];
+    int size = 0;
+
+    // Buffers of the sort
+    private TextureBin[] binsTmp = new TextureBin[0];
+    private long[] keysTmp = new long[0];
+    private final int[] counts = new int[RADIX];
+
+    // The TextureBins added since the last update()
+    private final ArrayList<TextureBin> added = new ArrayList<TextureBin>();
+
+    // The last ids of the bins of each level
+    private int lastLightBinId = 0;
+    private int lastEnvSetId = 0;
+    private int lastAttrBinId = 0;
+    private int lastShaderBinId = 0;
+
+    private boolean dirty = false;
+
+    // Cleared when there are too many bins for the ids
+    private boolean valid = true;
+
+    // Number of update() calls that numbered all the bins again
+    int numRenumbers = 0;
+
+    DrawList(RenderBin renderBin) {
+	this.renderBin = renderBin;
+    }
+
+    /**
+     * Adds a TextureBin which was inserted in its ShaderBin, or whose
+     * texture changed.
+     */
+    void add(TextureBin tb) {
+	tb.drawListId = ADDED;
+	added.add(tb);
+	dirty = true;
+    }
+
+    /**
+     * Reports that a TextureBin was removed.
+     */
+    void invalidate() {
+	dirty = true;
+    }
+
+    void clear() {
+	clearIds();
+	Arrays.fill(bins, 0, size, null);
+	size = 0;
+	added.clear();
+	dirty = false;
+	valid = true;
+    }
+
+    // Clears the ids of the bins of the list
+    private void clearIds() {
+	for (int i = 0; i < size; i++) {
+	    TextureBin tb = bins[i];
+	    if (tb.shaderBin == null) {
+		continue;
+	    }
+	    tb.environmentSet.lightBin.drawListId = 0;
+	    tb.environmentSet.drawListId = 0;
+	    tb.attributeBin.drawListId = 0;
+	    tb.shaderBin.drawListId = 0;
+	}
+	lastLightBinId = 0;
+	lastEnvSetId = 0;
+	lastAttrBinId = 0;
+	lastShaderBinId = 0;
+    }
+
+    // Returns true if the TextureBin is in an opaque LightBin of the
+    // RenderBin
+    private static boolean isLive(TextureBin tb) {
+	if ((tb.shaderBin == null) || (tb.attributeBin == null) ||
+	    (tb.environmentSet == null)) {
+	    return false;
+	}
+	LightBin lb = tb.environmentSet.lightBin;
+	return ((lb != null) && (lb.orderedCollection == null) &&
+		(lb.geometryBackground == null));
+    }
+
+    private static int getTextureId(TextureBin tb) {
+	if ((tb.texUnitState == null) || (tb.texUnitState.length == 0) ||
+	    (tb.texUnitState[0] == null)) {
+	    return 0;
+	}
+	TextureRetained texture = tb.texUnitState[0].texture;
+	if (texture == null) {
+	    return 0;
+	}
+	if (texture.drawListId == 0) {
+	    lastTextureId = (lastTextureId + 1) & ((1 << TEXTURE_BITS) - 1);
+	    if (lastTextureId == 0) {
+		lastTextureId = 1;
+	    }
+	    texture.drawListId = lastTextureId;
+	}
+	return texture.drawListId;
+    }
+
+    // Returns the sort key of the TextureBin, giving ids to its bins that
+    // have none.  Returns -1 if the ids of a level ran out.
+    private long getKey(TextureBin tb) {
+	EnvironmentSet es = tb.environmentSet;
+	LightBin lb = es.lightBin;
+	AttributeBin ab = tb.attributeBin;
+	ShaderBin sb = tb.shaderBin;
+	if (lb.drawListId == 0) {
+	    if (lastLightBinId == (1 << LIGHT_BIN_BITS) - 1) {
+		return -1;
+	    }
+	    lb.drawListId = ++lastLightBinId;
+	}
+	if (es.drawListId == 0) {
+	    if (lastEnvSetId == (1 << ENV_SET_BITS) - 1) {
+		return -1;
+	    }
+	    es.drawListId = ++lastEnvSetId;
+	}
+	if (ab.drawListId == 0) {
+	    if (lastAttrBinId == (1 << ATTR_BIN_BITS) - 1) {
+		return -1;
+	    }
+	    ab.drawListId = ++lastAttrBinId;
+	}
+	if (sb.drawListId == 0) {
+	    if (lastShaderBinId == (1 << SHADER_BIN_BITS) - 1) {
+		return -1;
+	    }
+	    sb.drawListId = ++lastShaderBinId;
+	}
+	long key = lb.drawListId;
+	key = (key << ENV_SET_BITS) | es.drawListId;
+	key = (key << ATTR_BIN_BITS) | ab.drawListId;
+	key = (key << SHADER_BIN_BITS) | sb.drawListId;
+	key = (key << TEXTURE_BITS) | getTextureId(tb);
+	return key;
+    }
+
+    /**
+     * Updates the list after the bins were changed.
+     */
+    void update() {
+	if (!dirty) {
+	    return;
+	}
+	dirty = false;
+
+	int n = size + added.size();
+	if (bins.length < n) {
+	    int length = Math.max(n, 2 * bins.length);
+	    bins = Arrays.copyOf(bins, length);
+	    keys = Arrays.copyOf(keys, length);
+	    binsTmp = new TextureBin[length];
+	    keysTmp = new long[length];
+	}
+
+	// Drop the removed TextureBins and those added again, keeping
+	// the rest sorted
+	int m = 0;
+	int i;
+	for (i = 0; i < size; i++) {
+	    TextureBin tb = bins[i];
+	    if ((tb.drawListId == LISTED) && (tb.shaderBin != null)) {
+		bins[m] = tb;
+		keys[m++] = keys[i];
+	    }
+	}
+	int sorted = m;
+
+	// Append the added TextureBins, skipping the duplicates
+	boolean renumber = !valid;
+	for (i = 0; i < added.size(); i++) {
+	    TextureBin tb = added.get(i);
+	    if ((tb.drawListId == ADDED) && isLive(tb)) {
+		tb.drawListId = LISTED;
+		long key = (renumber ? 0 : getKey(tb));
+		if (key == -1) {
+		    renumber = true;
+		}
+		bins[m] = tb;
+		keys[m++] = key;
+	    }
+	}
+	if (m < size) {
+	    Arrays.fill(bins, m, size, null);
+	}
+	added.clear();
+	size = m;
+
+	if (renumber) {
+	    renumber();
+	    return;
+	}
+	if (sorted < m) {
+	    sort(sorted, m);
+	    merge(sorted, m);
+	}
+    }
+
+    // Numbers all the bins again in the order of the list and sorts it
+    private void renumber() {
+	numRenumbers++;
+	clearIds();
+	valid = true;
+	for (int i = 0; i < size; i++) {
+	    keys[i] = getKey(bins[i]);
+	    if (keys[i] == -1) {
+		valid = false;
+		return;
+	    }
+	}
+	sort(0, size);
+    }
+
+    // Stable LSD radix sort of the keys and bins from start to end,
+    // skipping the digits that are the same in all keys
+    private void sort(int start, int end) {
+	long[] k = keys, kTmp = keysTmp;
+	TextureBin[] b = bins, bTmp = binsTmp;
+	int[] c = counts;
+
+	for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+	    Arrays.fill(c, 0);
+	    for (int i = start; i < end; i++) {
+		c[(int) (k[i] >>> shift) & (RADIX - 1)]++;
+	    }
+	    if (c[(int) (k[start] >>> shift) & (RADIX - 1)] == end - start) {
+		continue;
+	    }
+	    int sum = start;
+	    for (int d = 0; d < RADIX; d++) {
+		int count = c[d];
+		c[d] = sum;
+		sum += count;
+	    }
+	    for (int i = start; i < end; i++) {
+		int pos = c[(int) (k[i] >>> shift) & (RADIX - 1)]++;
+		kTmp[pos] = k[i];
+		bTmp[pos] = b[i];
+	    }
+	    System.arraycopy(kTmp, start, k, start, end - start);
+	    System.arraycopy(bTmp, start, b, start, end - start);
+	}
+	Arrays.fill(bTmp, start, end, null);
+    }
+
+    // Merges the sorted runs 0 to mid and mid to end
+    private void merge(int mid, int end) {
+	long[] k = keys, kTmp = keysTmp;
+	TextureBin[] b = bins, bTmp = binsTmp;
+	int i = 0, j = mid, pos = 0;
+
+	while ((i < mid) && (j < end)) {
+	    if (Long.compareUnsigned(k[j], k[i]) < 0) {
+		kTmp[pos] = k[j];
+		bTmp[pos++] = b[j++];
+	    } else {
+		kTmp[pos] = k[i];
+		bTmp[pos++] = b[i++];
+	    }
+	}
+	if (i < mid) {
+	    System.arraycopy(k, i, kTmp, pos, mid - i);
+	    System.arraycopy(b, i, bTmp, pos, mid - i);
+	}
+	if (j < end) {
+	    System.arraycopy(k, j, kTmp, pos, end - j);
+	    System.arraycopy(b, j, bTmp, pos, end - j);
+	}
+
+	keys = kTmp;
+	keysTmp = k;
+	bins = bTmp;
+	binsTmp = b;
+	Arrays.fill(binsTmp, 0, end, null);
+    }
+
+    /**
+     * Renders the opaque TextureBins, setting the state of their bins
+     * in the same way as the render() methods of the bins.  Returns
+     * false if the list can't be used, in which case the caller renders
+     * the bin hierarchy.
+     */
+    boolean render(Canvas3D cv) {
+	if (!valid) {
+	    return false;
+	}
+
+	int visibilityPolicy = renderBin.view.viewCache.visibilityPolicy;
+	LightBin lb = null;
+	EnvironmentSet es = null;
+	AttributeBin ab = null;
+	ShaderBin sb = null;
+	boolean visible = true;
+
+	TextureBin[] b = bins;
+	for (int i = 0, n = size; i < n; i++) {
+	    TextureBin tb = b[i];
+	    if (tb.opaqueRMList == null) {
+		continue;
+	    }
+
+	    if (tb.attributeBin != ab) {
+		if (tb.environmentSet != es) {
+		    es = tb.environmentSet;
+		    if (es.lightBin != lb) {
+			lb = es.lightBin;
+			cv.setStateToUpdate(Canvas3D.LIGHTBIN_BIT, lb);
+		    }
+		    cv.setStateToUpdate(Canvas3D.ENVIRONMENTSET_BIT, es);
+		}
+		ab = tb.attributeBin;
+		boolean abVisible = (ab.definingRenderingAttributes == null ||
+				     ab.definingRenderingAttributes.visible);
+		visible = !((visibilityPolicy == View.VISIBILITY_DRAW_VISIBLE &&
+			     !abVisible) ||
+			    (visibilityPolicy == View.VISIBILITY_DRAW_INVISIBLE &&
+			     abVisible));
+		if (visible) {
+		    cv.setStateToUpdate(Canvas3D.ATTRIBUTEBIN_BIT, ab);
+		}
+		sb = null;
+	    }
+	    if (!visible) {
+		continue;
+	    }
+	    if (tb.shaderBin != sb) {
+		sb = tb.shaderBin;
+		cv.setStateToUpdate(Canvas3D.SHADERBIN_BIT, sb);
+	    }
+	    tb.render(cv);
+	}
+	return true;
+    }
+}
@@ -67,6 +67,11 @@ ArrayList<LightRetained> ambLights = new ArrayList<LightRetained>();
      */
     LightBin lightBin = null;
 
+    /**
+     * The id of this EnvironmentSet in the sort keys of the DrawList
+     */
+    int drawListId = 0;
+
     /**
      * The bitmask of light slots that need to be enabled for this
      */
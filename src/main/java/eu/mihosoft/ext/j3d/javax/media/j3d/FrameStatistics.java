@@ -0,0 +1,309 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+/**
+ * FrameStatistics is a snapshot of the runtime statistics that Java 3D
+ * collects while rendering.  Each snapshot covers a reporting interval
+ * of a number of frames; it holds, for every {@link Type}, the number of
+ * timed calls, their total and maximum duration and a latency histogram.
+ * For the structure update types it also holds the depth of the message
+ * queue of the structure.
+ * <p>
+ * The histogram of a type has {@link #NUM_BUCKETS} buckets; bucket
+ * <code>i</code> counts the calls that took less than
+ * 2<sup><code>i</code></sup> and at least 2<sup><code>i-1</code></sup>
+ * nanoseconds.  The last bucket also counts all longer calls.
+ * <p>
+ * Statistics are collected when the <code>j3d.frameStatistics</code>
+ * property is set to true, when a {@link FrameStatisticsListener} is
+ * registered, or when the <code>j3d.stats</code> logger is set to
+ * <code>INFO</code> or lower.
+ *
+ * @see VirtualUniverse#addFrameStatisticsListener
+ * @see FrameStatisticsMXBean
+ */
+public class FrameStatistics extends Object {
+
+    /**
+     * The code segments for which Java 3D collects statistics.
+     */
+    public static enum Type {
+	/**
+	 * Time between two consecutive buffer swaps of a canvas.
+	 */
+	TOTAL_FRAME,
+	/**
+	 * One rendering pass of a renderer for a canvas.
+	 */
+	RENDER,
+	/**
+	 * One pass of the behavior scheduler.
+	 */
+	BEHAVIOR,
+	/**
+	 * Message processing of the rendering attributes structure.
+	 */
+	RENDERING_ATTRIBUTES_STRUCTURE,
+	/**
+	 * Message processing of the transform structure.
+	 */
+	TRANSFORM_STRUCTURE,
+	/**
+	 * Message processing of the geometry structure.
+	 */
+	GEOMETRY_STRUCTURE,
+	/**
+	 * Message processing of the behavior structure.
+	 */
+	BEHAVIOR_STRUCTURE,
+	/**
+	 * Message processing of the rendering environment structure.
+	 */
+	RENDERING_ENVIRONMENT_STRUCTURE,
+	/**
+	 * Message processing of the sound structure.
+	 */
+	SOUND_STRUCTURE,
+	/**
+	 * Message processing of the render bin.
+	 */
+	RENDER_BIN,
+	/**
+	 * Message processing of the sound scheduler.
+	 */
+	SOUND_SCHEDULER,
+	/**
+	 * Construction of a bounding hierarchy tree.
+	 */
+	BHTREE_BUILD,
+	/**
+	 * Compaction of the render bin.
+	 */
+	RENDER_BIN_COMPACTION
+    }
+
+    /**
+     * The number of buckets of each latency histogram.
+     */
+    public static final int NUM_BUCKETS = 40;
+
+    private final long frameNumber;
+    private final int frameCount;
+    private final long[] counts;
+    private final long[] totalTimes;
+    private final long[] maxTimes;
+    private final long[][] histograms;
+    private final int[] queueDepths;
+    private final int[] maxQueueDepths;
+
+    /**
+     * Constructs a snapshot; the arrays are owned by the new object.
+     */
+    FrameStatistics(long frameNumber, int frameCount,
+		    long[] counts, long[] totalTimes, long[] maxTimes,
+		    long[][] histograms, int[] queueDepths,
+		    int[] maxQueueDepths) {
+	this.frameNumber = frameNumber;
+	this.frameCount = frameCount;
+	this.counts = counts;
+	this.totalTimes = totalTimes;
+	this.maxTimes = maxTimes;
+	this.histograms = histograms;
+	this.queueDepths = queueDepths;
+	this.maxQueueDepths = maxQueueDepths;
+    }
+
+    /**
+     * Retrieves the number of the last frame of this snapshot, counted
+     * from the start of Java 3D.
+     *
+     * @return the frame number
+     */
+    public long getFrameNumber() {
+	return frameNumber;
+    }
+
+    /**
+     * Retrieves the number of frames covered by this snapshot.
+     *
+     * @return the number of frames in the reporting interval
+     */
+    public int getFrameCount() {
+	return frameCount;
+    }
+
+    /**
+     * Retrieves the number of timed calls of the specified type.
+     *
+     * @param type the statistics type
+     * @return the number of calls in the reporting interval
+     */
+    public long getCount(Type type) {
+	return counts[type.ordinal()];
+    }
+
+    /**
+     * Retrieves the total time of the calls of the specified type.
+     *
+     * @param type the statistics type
+     * @return the total time in nanoseconds
+     */
+    public long getTotalTime(Type type) {
+	return totalTimes[type.ordinal()];
+    }
+
+    /**
+     * Retrieves the mean time per call of the specified type.
+     *
+     * @param type the statistics type
+     * @return the mean time in nanoseconds, or 0 if there was no call
+     */
+    public double getMeanTime(Type type) {
+	int idx = type.ordinal();
+	if (counts[idx] == 0) {
+	    return 0.0;
+	}
+	return (double)totalTimes[idx] / (double)counts[idx];
+    }
+
+    /**
+     * Retrieves the longest call of the specified type.
+     *
+     * @param type the statistics type
+     * @return the maximum time in nanoseconds
+     */
+    public long getMaxTime(Type type) {
+	return maxTimes[type.ordinal()];
+    }
+
+    /**
+     * Estimates a percentile of the call times of the specified type from
+     * its histogram.  The value returned is the upper bound of the
+     * histogram bucket holding the percentile, clamped to the maximum
+     * time.
+     *
+     * @param type the statistics type
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated time in nanoseconds, or 0 if there was no call
+     *
+     * @exception IllegalArgumentException if percentile is less than 0
+     * or greater than 100
+     */
+    public long getTimePercentile(Type type, double percentile) {
+	if (percentile < 0.0 || percentile > 100.0) {
+	    throw new IllegalArgumentException("percentile = " + percentile);
+	}
+
+	int idx = type.ordinal();
+	long[] hist = histograms[idx];
+	long total = 0;
+	for (int i = 0; i < hist.length; i++) {
+	    total += hist[i];
+	}
+	if (total == 0) {
+	    return 0L;
+	}
+
+	long rank = (long)Math.ceil(percentile / 100.0 * total);
+	long sum = 0;
+	for (int i = 0; i < hist.length; i++) {
+	    sum += hist[i];
+	    if (sum >= rank && hist[i] > 0) {
+		return Math.min(1L << i, maxTimes[idx]);
+	    }
+	}
+	return maxTimes[idx];
+    }
+
+    /**
+     * Retrieves a copy of the latency histogram of the specified type.
+     *
+     * @param type the statistics type
+     * @return an array of length {@link #NUM_BUCKETS} holding the number
+     * of calls per bucket
+     */
+    public long[] getHistogram(Type type) {
+	return histograms[type.ordinal()].clone();
+    }
+
+    /**
+     * Retrieves the number of messages that the structure of the
+     * specified type had to process the last time it ran.
+     *
+     * @param type the statistics type
+     * @return the queue depth, or 0 if the type is not a structure
+     */
+    public int getQueueDepth(Type type) {
+	return queueDepths[type.ordinal()];
+    }
+
+    /**
+     * Retrieves the largest number of messages that the structure of the
+     * specified type had to process at once in the reporting interval.
+     *
+     * @param type the statistics type
+     * @return the maximum queue depth, or 0 if the type is not a structure
+     */
+    public int getMaxQueueDepth(Type type) {
+	return maxQueueDepths[type.ordinal()];
+    }
+
+    /**
+     * Returns a string representation of this snapshot, listing the
+     * mean time per call of each type that has been timed.
+     */
+    @Override
+    public String toString() {
+	StringBuilder strBuf = new StringBuilder();
+	strBuf.append("----------------------------------------------\n").
+	    append("    Frame Number = ").
+	    append(frameNumber).
+	    append("\n");
+	Type[] types = Type.values();
+	for (int i = 0; i < types.length; i++) {
+	    if (counts[i] == 0 && maxQueueDepths[i] == 0) {
+		continue;
+	    }
+	    strBuf.append("    ").
+		append(types[i]).
+		append(" [").
+		append(counts[i]).
+		append("] = ").
+		append(getMeanTime(types[i]) / 1000000.0).
+		append(" msec per call, max = ").
+		append(maxTimes[i] / 1000000.0).
+		append(" msec");
+	    if (maxQueueDepths[i] > 0) {
+		strBuf.append(", max queue depth = ").
+		    append(maxQueueDepths[i]);
+	    }
+	    strBuf.append("\n");
+	}
+	return strBuf.toString();
+    }
+}
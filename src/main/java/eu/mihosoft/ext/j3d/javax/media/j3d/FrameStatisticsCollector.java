@@ -0,0 +1,390 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The FrameStatisticsCollector gathers the runtime statistics of Java 3D.
+ * Recording is lock-free so that any thread may record a time or a queue
+ * depth; the MasterControl thread closes a reporting interval every
+ * reportInterval frames, builds a FrameStatistics snapshot from the
+ * counters and hands it to the stats logger and the listeners.
+ *
+ * An instance of this class is the FrameStatisticsMXBean registered with
+ * the platform MBean server; all its state is static.
+ */
+
+class FrameStatisticsCollector implements FrameStatisticsMXBean {
+
+    private static final FrameStatistics.Type[] TYPES =
+	FrameStatistics.Type.values();
+    private static final int NUM_TYPES = TYPES.length;
+    private static final int NUM_BUCKETS = FrameStatistics.NUM_BUCKETS;
+
+    // Set by the j3d.frameStatistics property or through JMX
+    private static volatile boolean enabled = false;
+
+    // Set when a FrameStatisticsListener is registered
+    private static volatile boolean listenersPresent = false;
+
+    // Cached MasterControl.isStatsLoggable(Level.INFO), see
+    // updateStatsLoggable()
+    private static volatile boolean statsLoggable = false;
+
+    // Set when any of the above is set
+    private static volatile boolean collecting = false;
+
+    private static volatile int reportInterval = 10;
+
+    // Counters, written by any thread
+    private static final LongAdder[] counts = new LongAdder[NUM_TYPES];
+    private static final LongAdder[] times = new LongAdder[NUM_TYPES];
+    private static final AtomicLongArray maxTimes =
+	new AtomicLongArray(NUM_TYPES);
+    private static final AtomicLongArray histograms =
+	new AtomicLongArray(NUM_TYPES * NUM_BUCKETS);
+    private static final AtomicIntegerArray queueDepths =
+	new AtomicIntegerArray(NUM_TYPES);
+    private static final AtomicIntegerArray maxQueueDepths =
+	new AtomicIntegerArray(NUM_TYPES);
+
+    static {
+	for (int i = 0; i < NUM_TYPES; i++) {
+	    counts[i] = new LongAdder();
+	    times[i] = new LongAdder();
+	}
+    }
+
+    // Values at the end of the previous interval, only accessed by
+    // the MasterControl thread
+    private static final long[] lastCounts = new long[NUM_TYPES];
+    private static final long[] lastTimes = new long[NUM_TYPES];
+    private static final long[] lastHistograms = new long[NUM_TYPES * NUM_BUCKETS];
+    private static long frameNumber = 0L;
+    private static int frameTick = 0;
+
+    // The snapshot of the last completed interval
+    private static volatile FrameStatistics lastStatistics = null;
+
+    private static boolean mbeanRegistered = false;
+
+    /**
+     * Returns true if statistics should be recorded.
+     */
+    static boolean isCollecting() {
+	return collecting;
+    }
+
+    static void setCollecting(boolean enable) {
+	enabled = enable;
+	updateCollecting();
+    }
+
+    static void setListenersPresent(boolean present) {
+	listenersPresent = present;
+	updateCollecting();
+    }
+
+    /**
+     * Reads the level of the stats logger again.  Called when the
+     * loggers are initialized and then periodically by the MasterControl
+     * thread, since the level may be changed through the LogManager at
+     * any time.
+     */
+    static void updateStatsLoggable() {
+	statsLoggable = MasterControl.isStatsLoggable(Level.INFO);
+	updateCollecting();
+    }
+
+    private static void updateCollecting() {
+	collecting = enabled || listenersPresent || statsLoggable;
+    }
+
+    /**
+     * Records the duration of one call of the given type.
+     */
+    static void recordTime(FrameStatistics.Type type, long deltaTime) {
+	int idx = type.ordinal();
+	counts[idx].increment();
+	times[idx].add(deltaTime);
+
+	long max;
+	while (deltaTime > (max = maxTimes.get(idx))) {
+	    if (maxTimes.compareAndSet(idx, max, deltaTime)) {
+		break;
+	    }
+	}
+
+	histograms.incrementAndGet(idx * NUM_BUCKETS + bucket(deltaTime));
+    }
+
+    /**
+     * Records the number of messages a structure has to process.
+     */
+    static void recordQueueDepth(FrameStatistics.Type type, int depth) {
+	int idx = type.ordinal();
+	queueDepths.set(idx, depth);
+
+	int max;
+	while (depth > (max = maxQueueDepths.get(idx))) {
+	    if (maxQueueDepths.compareAndSet(idx, max, depth)) {
+		break;
+	    }
+	}
+    }
+
+    /**
+     * Returns the statistics type of the structure with the given
+     * thread type, or null if there is none.
+     */
+    static FrameStatistics.Type structureType(int threadType) {
+	switch (threadType) {
+	case J3dThread.UPDATE_RENDERING_ATTRIBUTES:
+	    return FrameStatistics.Type.RENDERING_ATTRIBUTES_STRUCTURE;
+	case J3dThread.UPDATE_TRANSFORM:
+	    return FrameStatistics.Type.TRANSFORM_STRUCTURE;
+	case J3dThread.UPDATE_GEOMETRY:
+	    return FrameStatistics.Type.GEOMETRY_STRUCTURE;
+	case J3dThread.UPDATE_BEHAVIOR:
+	    return FrameStatistics.Type.BEHAVIOR_STRUCTURE;
+	case J3dThread.UPDATE_RENDERING_ENVIRONMENT:
+	    return FrameStatistics.Type.RENDERING_ENVIRONMENT_STRUCTURE;
+	case J3dThread.UPDATE_SOUND:
+	    return FrameStatistics.Type.SOUND_STRUCTURE;
+	case J3dThread.UPDATE_RENDER:
+	    return FrameStatistics.Type.RENDER_BIN;
+	case J3dThread.SOUND_SCHEDULER:
+	    return FrameStatistics.Type.SOUND_SCHEDULER;
+	default:
+	    return null;
+	}
+    }
+
+    // Histogram bucket i holds times in [2^(i-1), 2^i) nanoseconds
+    private static int bucket(long deltaTime) {
+	if (deltaTime <= 0) {
+	    return 0;
+	}
+	return Math.min(64 - Long.numberOfLeadingZeros(deltaTime),
+			NUM_BUCKETS - 1);
+    }
+
+    /**
+     * Called by the MasterControl thread when all threads of a frame
+     * are done.  Closes the reporting interval every reportInterval
+     * frames.
+     */
+    static void frameDone() {
+	++frameNumber;
+	if (++frameTick < reportInterval) {
+	    return;
+	}
+
+	long[] c = new long[NUM_TYPES];
+	long[] t = new long[NUM_TYPES];
+	long[] m = new long[NUM_TYPES];
+	long[][] h = new long[NUM_TYPES][NUM_BUCKETS];
+	int[] q = new int[NUM_TYPES];
+	int[] mq = new int[NUM_TYPES];
+
+	for (int i = 0; i < NUM_TYPES; i++) {
+	    long count = counts[i].sum();
+	    long time = times[i].sum();
+	    c[i] = count - lastCounts[i];
+	    t[i] = time - lastTimes[i];
+	    lastCounts[i] = count;
+	    lastTimes[i] = time;
+	    m[i] = maxTimes.getAndSet(i, 0L);
+	    q[i] = queueDepths.get(i);
+	    mq[i] = maxQueueDepths.getAndSet(i, 0);
+
+	    for (int j = 0, k = i * NUM_BUCKETS; j < NUM_BUCKETS; j++, k++) {
+		long n = histograms.get(k);
+		h[i][j] = n - lastHistograms[k];
+		lastHistograms[k] = n;
+	    }
+	}
+
+	FrameStatistics stats = new FrameStatistics(frameNumber, frameTick,
+						    c, t, m, h, q, mq);
+	lastStatistics = stats;
+	frameTick = 0;
+
+	if (statsLoggable) {
+	    MasterControl.getStatsLogger().info(stats.toString());
+	}
+
+	if (listenersPresent) {
+	    J3dNotification n = new J3dNotification();
+	    n.type = J3dNotification.FRAME_STATISTICS;
+	    n.args[0] = stats;
+	    VirtualUniverse.mc.sendNotification(n);
+	}
+    }
+
+    /**
+     * Registers the FrameStatisticsMXBean with the platform MBean server.
+     */
+    static synchronized void registerMBean() {
+	if (mbeanRegistered) {
+	    return;
+	}
+	try {
+	    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	    server.registerMBean(new FrameStatisticsCollector(),
+				 new ObjectName(OBJECT_NAME));
+	    mbeanRegistered = true;
+	} catch (JMException e) {
+	    MasterControl.getCoreLogger().log(Level.WARNING,
+		    "Unable to register " + OBJECT_NAME, e);
+	} catch (SecurityException e) {
+	    MasterControl.getCoreLogger().log(Level.WARNING,
+		    "Unable to register " + OBJECT_NAME, e);
+	}
+    }
+
+    // FrameStatisticsMXBean methods
+
+    @Override
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+	setCollecting(enabled);
+    }
+
+    @Override
+    public int getReportInterval() {
+	return reportInterval;
+    }
+
+    @Override
+    public void setReportInterval(int frames) {
+	if (frames < 1) {
+	    throw new IllegalArgumentException("frames = " + frames);
+	}
+	reportInterval = frames;
+    }
+
+    @Override
+    public long getFrameNumber() {
+	FrameStatistics stats = lastStatistics;
+	return (stats == null) ? 0L : stats.getFrameNumber();
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+	Map<String, Long> map = new LinkedHashMap<String, Long>();
+	FrameStatistics stats = lastStatistics;
+	if (stats != null) {
+	    for (int i = 0; i < NUM_TYPES; i++) {
+		map.put(TYPES[i].name(), stats.getCount(TYPES[i]));
+	    }
+	}
+	return map;
+    }
+
+    @Override
+    public Map<String, Double> getMeanTimes() {
+	Map<String, Double> map = new LinkedHashMap<String, Double>();
+	FrameStatistics stats = lastStatistics;
+	if (stats != null) {
+	    for (int i = 0; i < NUM_TYPES; i++) {
+		map.put(TYPES[i].name(), stats.getMeanTime(TYPES[i]));
+	    }
+	}
+	return map;
+    }
+
+    @Override
+    public Map<String, Long> getMaxTimes() {
+	Map<String, Long> map = new LinkedHashMap<String, Long>();
+	FrameStatistics stats = lastStatistics;
+	if (stats != null) {
+	    for (int i = 0; i < NUM_TYPES; i++) {
+		map.put(TYPES[i].name(), stats.getMaxTime(TYPES[i]));
+	    }
+	}
+	return map;
+    }
+
+    @Override
+    public Map<String, Long> getP99Times() {
+	Map<String, Long> map = new LinkedHashMap<String, Long>();
+	FrameStatistics stats = lastStatistics;
+	if (stats != null) {
+	    for (int i = 0; i < NUM_TYPES; i++) {
+		map.put(TYPES[i].name(),
+			stats.getTimePercentile(TYPES[i], 99.0));
+	    }
+	}
+	return map;
+    }
+
+    @Override
+    public Map<String, Integer> getMaxQueueDepths() {
+	Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+	FrameStatistics stats = lastStatistics;
+	if (stats != null) {
+	    for (int i = 0; i < NUM_TYPES; i++) {
+		if (structureTypeOf(TYPES[i])) {
+		    map.put(TYPES[i].name(), stats.getMaxQueueDepth(TYPES[i]));
+		}
+	    }
+	}
+	return map;
+    }
+
+    private static boolean structureTypeOf(FrameStatistics.Type type) {
+	switch (type) {
+	case RENDERING_ATTRIBUTES_STRUCTURE:
+	case TRANSFORM_STRUCTURE:
+	case GEOMETRY_STRUCTURE:
+	case BEHAVIOR_STRUCTURE:
+	case RENDERING_ENVIRONMENT_STRUCTURE:
+	case SOUND_STRUCTURE:
+	case RENDER_BIN:
+	case SOUND_SCHEDULER:
+	    return true;
+	default:
+	    return false;
+	}
+    }
+}
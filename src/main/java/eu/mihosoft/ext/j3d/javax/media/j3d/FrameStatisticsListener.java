@@ -26,31 +26,18 @@
 
 package eu.mihosoft.ext.j3d.javax.media.j3d;
 
-class IntegerFreeList extends MemoryFreeList {
-
-    int count = 0;
-
-    // default the initial count to 1
-    IntegerFreeList() {
-	super("java.lang.Integer");
-    }
-
-    // sets up an initial count and an initial capacity for the freelist
-    IntegerFreeList(int initialCount, int initCapacity) {
-	super("java.lang.Integer", initCapacity);
-	count = initialCount;
-    }
-
-    @Override
-    synchronized Object getObject() {
-	if (size > 0) return super.removeLastElement();
-	else return new Integer(++count);
-    }
-
-    @Override
-    public synchronized void clear() {
-	super.clear();
-	count = 0;
-    }
-
+/**
+ * Listener interface for monitoring Java 3D runtime statistics.
+ *
+ * @see VirtualUniverse#addFrameStatisticsListener
+ */
+public interface FrameStatisticsListener {
+    /**
+     * Invoked at the end of each reporting interval with the statistics
+     * of the frames in that interval.  The listeners are called
+     * asynchronously from a separate notification thread.
+     *
+     * @param statistics the statistics of the reporting interval.
+     */
+    public void statisticsUpdated(FrameStatistics statistics);
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Map;
+
+/**
+ * Management interface for Java 3D runtime statistics.  When the
+ * <code>j3d.frameStatistics</code> property is set to true, an instance
+ * is registered with the platform MBean server under the name
+ * {@link #OBJECT_NAME}.  All values are those of the last completed
+ * reporting interval, keyed by the name of the {@link FrameStatistics.Type}.
+ */
+public interface FrameStatisticsMXBean {
+    /**
+     * The object name under which the MXBean is registered.
+     */
+    public static final String OBJECT_NAME =
+	"eu.mihosoft.ext.j3d:type=FrameStatistics";
+
+    /**
+     * Retrieves whether statistics are collected.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Enables or disables the collection of statistics.
+     */
+    public void setEnabled(boolean enabled);
+
+    /**
+     * Retrieves the number of frames in a reporting interval.
+     */
+    public int getReportInterval();
+
+    /**
+     * Sets the number of frames in a reporting interval.
+     */
+    public void setReportInterval(int frames);
+
+    /**
+     * Retrieves the number of the last frame of the last interval.
+     */
+    public long getFrameNumber();
+
+    /**
+     * Retrieves the number of timed calls per type.
+     */
+    public Map<String, Long> getCounts();
+
+    /**
+     * Retrieves the mean time per call in nanoseconds per type.
+     */
+    public Map<String, Double> getMeanTimes();
+
+    /**
+     * Retrieves the maximum time per call in nanoseconds per type.
+     */
+    public Map<String, Long> getMaxTimes();
+
+    /**
+     * Retrieves the estimated 99th percentile of the time per call in
+     * nanoseconds per type.
+     */
+    public Map<String, Long> getP99Times();
+
+    /**
+     * Retrieves the maximum message queue depth per structure type.
+     */
+    public Map<String, Integer> getMaxQueueDepths();
+}
@@ -1025,6 +1025,53 @@ public abstract class GeometryArray extends Geometry {
     }
 
 
+    /**
+     * Updates geometry array data in the same way as
+     * <code>updateData(GeometryUpdater)</code>, where the updater
+     * only changes the coordinates of the <code>vertexCount</code>
+     * vertices starting at <code>index</code>.  Java 3D may then update
+     * the bounds of this geometry from the changed vertices only, which
+     * is much faster when a few vertices of a large geometry change.
+     * The coordinates that the updater sets through the
+     * <code>setCoordinate</code> methods are changed as well.
+     * <p>
+     * The result is undefined if the updater changes the coordinates of
+     * other vertices.
+     *
+     * @param updater object whose updateData callback method will be
+     * called to update the data referenced by this GeometryArray.
+     * @param index the index of the first vertex whose coordinates are
+     * changed by the updater
+     * @param vertexCount the number of vertices whose coordinates are
+     * changed by the updater
+     * @exception CapabilityNotSetException if the appropriate capability
+     * is not set, the vertex data mode is <code>BY_REFERENCE</code>, and this
+     * object is part of a live or compiled scene graph
+     * @exception IllegalArgumentException if <code>index</code> or
+     * <code>vertexCount</code> is negative, or if
+     * <code>index + vertexCount</code> is greater than the vertex count
+     * of this GeometryArray
+     */
+    public void updateData(GeometryUpdater updater, int index,
+			   int vertexCount) {
+	GeometryArrayRetained geo = (GeometryArrayRetained)this.retained;
+	int format = geo.vertexFormat;
+	if ((format & BY_REFERENCE) != 0 &&
+	    isLiveOrCompiled() &&
+	    !this.getCapability(ALLOW_REF_DATA_WRITE)) {
+
+	    throw new CapabilityNotSetException(J3dI18N.getString("GeometryArray81"));
+	}
+
+	if (index < 0 || vertexCount < 0 ||
+	    index + vertexCount > geo.vertexCount) {
+	    throw new IllegalArgumentException(J3dI18N.getString("GeometryArray139"));
+	}
+
+	geo.updateData(updater, index, vertexCount);
+    }
+
+
     /**
      * Sets the valid vertex count for this GeometryArray object.
      * This count specifies the number of vertices actually used in
@@ -1105,6 +1152,49 @@ public abstract class GeometryArray extends Geometry {
     }
 
 
+    /**
+     * Sets whether the vertex data of this by-copy GeometryArray is also
+     * kept in a direct buffer outside of the Java heap.  When enabled,
+     * the renderer draws the geometry from that buffer instead of copying
+     * its vertex data into a temporary buffer for every draw, which
+     * removes the per-frame copy and the garbage it creates.
+     * <p>
+     * This is a trade of memory for speed: the vertex data stays in the
+     * Java heap as well, since picking, bounds computation and the
+     * <code>get</code> methods read it there, and the direct buffer is
+     * rounded up to a power of two floats.  While the geometry is live,
+     * it thus uses between one and two times the size of its vertex data
+     * in direct memory, in addition to the heap.  The buffers come from a
+     * pool bounded by the <code>j3d.offHeapPoolSize</code> property (in
+     * megabytes) and go back to it when the geometry is no longer live.
+     * <p>
+     * This mode has no effect when the vertex data mode is
+     * <code>BY_REFERENCE</code>.  It is disabled by default.
+     *
+     * @param enable true to keep an off-heap copy of the vertex data
+     * @exception RestrictedAccessException if this object is part of a
+     * live or compiled scene graph
+     */
+    public void setOffHeapVertexData(boolean enable) {
+	if (isLiveOrCompiled())
+	    throw new RestrictedAccessException(J3dI18N.getString("GeometryArray140"));
+
+	((GeometryArrayRetained)this.retained).setOffHeapVertexData(enable);
+    }
+
+
+    /**
+     * Returns whether the vertex data of this GeometryArray is also kept
+     * in a direct buffer outside of the Java heap.
+     * @return true if the off-heap vertex data mode is enabled
+     *
+     * @see #setOffHeapVertexData
+     */
+    public boolean getOffHeapVertexData() {
+	return ((GeometryArrayRetained)this.retained).offHeapEnabled;
+    }
+
+
     /**
      * Copies all node information from <code>originalNodeComponent</code>
      * into the current node.  This method is called from the
@@ -1137,6 +1227,7 @@ public abstract class GeometryArray extends Geometry {
             System.arraycopy(src.vertexData, 0, dst.vertexData, 0,
                     src.vertexData.length);
             dst.setInitialVertexIndex(src.getInitialVertexIndex());
+            dst.setOffHeapVertexData(src.offHeapEnabled);
 
         } else {
             dst.setInitialCoordIndex(src.getInitialCoordIndex());
@@ -358,6 +358,34 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
     IndexedGeometryArrayRetained cloneSourceArray = null;
 
+    // PrimitiveBHTree used by the picking intersect routines, built
+    // lazily, and the stamp that is advanced whenever the data it was
+    // built from may have changed
+    private volatile PrimitiveBHTree pickTree = null;
+    private volatile int pickTreeStamp = 0;
+
+    // Bounds of the chunks of the coordinates of a large geometry, used
+    // when the j3d.geometryDirtyRanges property is set, and the ranges
+    // of the coordinates set while the updater of updateData() runs
+    private ChunkedBounds chunkedBounds = null;
+    private VertexRangeSet updaterRanges = null;
+
+    // Range of the coordinates set by setCoordinate(s), reused by
+    // processCoordsChanged(int, int) under the geoBounds lock
+    private VertexRangeSet coordRanges = null;
+
+    // Set by setUpdaterBounds() when the updater of updateData() already
+    // computed the bounds of the coordinates it set
+    private boolean updaterBoundsSet = false;
+
+    // Set by GeometryArray.setOffHeapVertexData(), and the off-heap copy
+    // of vertexData drawn by the pipeline in that mode, the array it was
+    // copied from, and the changes of the vertex data that it misses
+    boolean offHeapEnabled = false;
+    private VertexBufferPool.Handle offHeapVertexData = null;
+    private float[] offHeapSource = null;
+    int offHeapDirty = VERTEX_CHANGED;
+
     static final double EPS = 1.0e-13;
 
     GeometryArrayRetained() {
@@ -411,9 +439,113 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
 	if (this.refCount <= 0) {
 	    isShared = false;
+	    invalidatePickTree();
+	    synchronized (this) {
+		releaseOffHeapVertexData();
+	    }
+	}
+    }
+
+    /**
+     * Enables or disables the off-heap copy of vertexData.  Only called
+     * while this geometry is neither live nor compiled.
+     */
+    synchronized void setOffHeapVertexData(boolean enable) {
+	offHeapEnabled = enable;
+	if (!enable) {
+	    releaseOffHeapVertexData();
 	}
     }
 
+    /**
+     * Returns the off-heap copy of vertexData, copying vertexData first if
+     * the changes given by the dirty flags cdirty or earlier ones were not
+     * copied yet, or null if the pipeline has to draw vertexData itself.
+     * The copy is returned as a duplicate with its own position, since the
+     * renderers of several screens may draw this geometry at once.
+     * Called while holding the lock of this geometry.
+     */
+    FloatBuffer getOffHeapVertexData(int cdirty) {
+	if (!offHeapEnabled || (vertexData == null)) {
+	    releaseOffHeapVertexData();
+	    return null;
+	}
+
+	int dirty = offHeapDirty | cdirty;
+	if ((offHeapVertexData == null) || (offHeapSource != vertexData) ||
+	    (offHeapVertexData.buffer.limit() != vertexData.length)) {
+	    releaseOffHeapVertexData();
+	    offHeapVertexData = VertexBufferPool.acquire(this, vertexData.length);
+	    if (offHeapVertexData == null) {
+		return null;
+	    }
+	    offHeapSource = vertexData;
+	    dirty = VERTEX_CHANGED;
+	}
+
+	FloatBuffer buffer = offHeapVertexData.buffer;
+	if ((dirty & VERTEX_CHANGED) != 0) {
+	    buffer.rewind();
+	    buffer.put(vertexData);
+	    buffer.rewind();
+	}
+	offHeapDirty = 0;
+	return buffer.duplicate();
+    }
+
+    /**
+     * Returns the off-heap copy of vertexData to the VertexBufferPool.
+     * Called while holding the lock of this geometry.
+     */
+    void releaseOffHeapVertexData() {
+	if (offHeapVertexData != null) {
+	    VertexBufferPool.release(offHeapVertexData);
+	    offHeapVertexData = null;
+	    offHeapSource = null;
+	    offHeapDirty = VERTEX_CHANGED;
+	}
+    }
+
+    /**
+     * Drops the cached PrimitiveBHTree; called when the coordinates,
+     * the indices or the valid range of the geometry may have changed.
+     */
+    void invalidatePickTree() {
+	pickTreeStamp++;
+	pickTree = null;
+    }
+
+    /**
+     * Returns the cursor over the primitives that the picking intersect
+     * routines have to test for the pick shape, in local coordinates.
+     * The primitives start at the positions first, first + primSize, ...
+     * below end, and their vertices are read at those positions, or at
+     * their coordinate indices if coordIndices is not null.  Unless the
+     * j3d.pickBHTree property is set and the geometry has enough
+     * primitives, every primitive is tested.
+     */
+    PrimitiveBHTree.Cursor getPickCursor(PickShape pickShape, int first,
+					 int end, int primSize,
+					 int[] coordIndices) {
+	if (!VirtualUniverse.mc.pickBHTree ||
+	    !PrimitiveBHTree.culls(pickShape) ||
+	    (end - first) / primSize < VirtualUniverse.mc.pickBHTreeThreshold) {
+	    return PrimitiveBHTree.ALL;
+	}
+
+	// Read the stamp before the data, so that a tree built while the
+	// data changes is never used after that change
+	int stamp = pickTreeStamp;
+	PrimitiveBHTree tree = pickTree;
+	if (tree == null || tree.stamp != stamp ||
+	    !tree.covers(first, end, primSize)) {
+	    tree = PrimitiveBHTree.build(this, stamp, first, end, primSize,
+					 coordIndices);
+	    pickTree = tree;
+	}
+	return tree.select(pickShape);
+    }
+
     @Override
     void computeBoundingBox() {
 
@@ -426,6 +558,18 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             }
         }
 
+	synchronized(geoBounds) {
+	    if (setChunkedBoundsLayout()) {
+		if ((computeGeoBounds == 0) && (refCount > 0)) {
+		    chunkedBounds.invalidate();
+		} else if (boundsDirty) {
+		    chunkedBounds.build(geoBounds);
+		    boundsDirty = false;
+		}
+		return;
+	    }
+	}
+
 	if ((vertexFormat & GeometryArray.BY_REFERENCE) == 0) {
 	    // by copy
 	    computeBoundingBox(initialVertexIndex, vertexData);
@@ -463,6 +607,8 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
     // NullGeometry is true only for byRef case
     void processCoordsChanged(boolean nullGeo) {
 
+	invalidatePickTree();
+
 	/*
 	  System.err.println("processCoordsChanged : nullGeo " + nullGeo);
 	  System.err.println("Before :processCoordsChanged : geoBounds ");
@@ -473,6 +619,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 		geoBounds.setLower(-1.0, -1.0, -1.0);
 		geoBounds.setUpper(1.0, 1.0, 1.0);
 		boundsDirty = false;
+		chunkedBounds = null;
 	    }
 	    synchronized(centroid) {
 		recompCentroid = false;
@@ -498,6 +645,166 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
     }
 
+    /**
+     * Same as processCoordsChanged(false) for a change of the coordinates
+     * of the vertices from index to index + count - 1.
+     */
+    void processCoordsChanged(int index, int count) {
+	if (!VirtualUniverse.mc.geometryDirtyRanges) {
+	    processCoordsChanged(false);
+	    return;
+	}
+
+	invalidatePickTree();
+
+	synchronized(centroid) {
+	    recompCentroid = true;
+	}
+
+	synchronized(geoBounds) {
+	    if (coordRanges == null) {
+		coordRanges = new VertexRangeSet();
+	    }
+	    coordRanges.add(index, count);
+	    updateChunkedBounds(coordRanges);
+	    coordRanges.clear();
+	}
+    }
+
+    /**
+     * Same as processCoordsChanged(false) for a change of the coordinates
+     * of the vertices in the given ranges.  If the bounds were up to date
+     * before the change and the geometry has chunked bounds, only the
+     * chunks of these ranges are scanned.
+     */
+    void processCoordsChanged(VertexRangeSet changed) {
+
+	invalidatePickTree();
+
+	synchronized(centroid) {
+	    recompCentroid = true;
+	}
+
+	synchronized(geoBounds) {
+	    updateChunkedBounds(changed);
+	}
+    }
+
+    // Updates geoBounds after a change of the coordinates in the given
+    // ranges; the caller holds the geoBounds lock
+    private void updateChunkedBounds(VertexRangeSet changed) {
+	// Bounds that are already dirty may miss other changes
+	if (!boundsDirty && (chunkedBounds != null) &&
+	    ((computeGeoBounds != 0) || (refCount <= 0)) &&
+	    setChunkedBoundsLayout() && chunkedBounds.isBuilt()) {
+	    if (VirtualUniverse.mc.cacheAutoComputedBounds) {
+		for (ArrayList<Shape3DRetained> users : userLists) {
+		    for (Shape3DRetained shape : users)
+			shape.dirtyBoundsCache();
+		}
+	    }
+	    chunkedBounds.update(changed, geoBounds);
+	} else {
+	    boundsDirty = true;
+	    computeBoundingBox();
+	}
+    }
+
+    /**
+     * Same as processCoordsChanged(false) when setUpdaterBounds() already
+     * set geoBounds to the bounds of the changed coordinates.
+     */
+    private void processBoundsSet() {
+
+	invalidatePickTree();
+
+	synchronized(centroid) {
+	    recompCentroid = true;
+	}
+
+	if (VirtualUniverse.mc.cacheAutoComputedBounds) {
+	    for (ArrayList<Shape3DRetained> users : userLists) {
+		for (Shape3DRetained shape : users)
+		    shape.dirtyBoundsCache();
+	    }
+	}
+    }
+
+    /**
+     * Sets the bounds of the coordinates while the updater of updateData()
+     * runs, if the updater computed them along with the coordinates, so
+     * that updateData() does not compute them again.
+     */
+    void setUpdaterBounds(double xmin, double ymin, double zmin,
+			  double xmax, double ymax, double zmax) {
+	synchronized(geoBounds) {
+	    geoBounds.setUpper(xmax, ymax, zmax);
+	    geoBounds.setLower(xmin, ymin, zmin);
+	    boundsDirty = false;
+	    if (chunkedBounds != null) {
+		chunkedBounds.invalidate();
+	    }
+	}
+	updaterBoundsSet = inUpdater;
+    }
+
+    /**
+     * Sets the layout of the coordinates in chunkedBounds.  Returns false,
+     * dropping chunkedBounds, if the bounds of this geometry are not
+     * computed by chunks.
+     */
+    private boolean setChunkedBoundsLayout() {
+	if (!VirtualUniverse.mc.geometryDirtyRanges ||
+	    (validVertexCount < ChunkedBounds.MIN_VERTEX_COUNT) ||
+	    ((vertexFormat & GeometryArray.USE_NIO_BUFFER) != 0)) {
+	    chunkedBounds = null;
+	    return false;
+	}
+
+	Object data = null;
+	int kind = ChunkedBounds.FLOAT;
+	int first = 0;
+	int dataStride = 3;
+	int dataOffset = 0;
+	if ((vertexFormat & GeometryArray.BY_REFERENCE) == 0) {
+	    data = vertexData;
+	    first = initialVertexIndex;
+	    dataStride = stride;
+	    dataOffset = coordinateOffset;
+	} else if ((vertexFormat & GeometryArray.INTERLEAVED) != 0) {
+	    data = interLeavedVertexData;
+	    first = initialCoordIndex;
+	    dataStride = stride;
+	    dataOffset = coordinateOffset;
+	} else if (initialCoordIndex == 0) {
+	    // The by reference coordinates are scanned from 0 to
+	    // validVertexCount - 1 only if initialCoordIndex is 0
+	    if ((vertexType & PF) != 0) {
+		data = floatRefCoords;
+	    } else if ((vertexType & P3F) != 0) {
+		data = p3fRefCoords;
+		kind = ChunkedBounds.POINT3F;
+	    } else if ((vertexType & P3D) != 0) {
+		data = p3dRefCoords;
+		kind = ChunkedBounds.POINT3D;
+	    } else if ((vertexType & PD) != 0) {
+		data = doubleRefCoords;
+		kind = ChunkedBounds.DOUBLE;
+	    }
+	}
+	if (data == null) {
+	    chunkedBounds = null;
+	    return false;
+	}
+
+	if (chunkedBounds == null) {
+	    chunkedBounds = new ChunkedBounds();
+	}
+	chunkedBounds.setLayout(data, kind, first, validVertexCount,
+				dataStride, dataOffset);
+	return true;
+    }
+
 
     void computeBoundingBox(int vIndex, float[] vdata) {
 	int i, offset;
@@ -518,6 +825,14 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(vdata, vIndex * stride + coordinateOffset,
+				     stride, validVertexCount, geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 	    // Initial offset
 	    offset = vIndex * stride+coordinateOffset;
 	    // Compute the bounding box
@@ -569,6 +884,14 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(vdata, vIndex * stride + coordinateOffset,
+				     stride, validVertexCount, geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 	    // Initial offset
 	    offset = vIndex * stride+coordinateOffset;
 	    // Compute the bounding box
@@ -616,6 +939,16 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(buffer, initialCoordIndex, 3,
+				     Math.max((3 * validVertexCount -
+					       initialCoordIndex + 2) / 3, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 	    sIndex = initialCoordIndex;
 	    int maxIndex = 3*validVertexCount;
 
@@ -665,6 +998,16 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(buffer, initialCoordIndex, 3,
+				     Math.max((3 * validVertexCount -
+					       initialCoordIndex + 2) / 3, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 
 	    sIndex = initialCoordIndex;
 	    int maxIndex = 3*validVertexCount;
@@ -714,6 +1057,18 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		// Same vertices as the loop below, from initialCoordIndex
+		// to the last one that starts before 3 * validVertexCount
+		BoundsKernel.compute(coords, initialCoordIndex, 3,
+				     Math.max((3 * validVertexCount -
+					       initialCoordIndex + 2) / 3, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 	    sIndex = initialCoordIndex;
 	    int maxIndex = 3*validVertexCount;
 
@@ -765,6 +1120,16 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(coords, initialCoordIndex, 3,
+				     Math.max((3 * validVertexCount -
+					       initialCoordIndex + 2) / 3, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 
 	    sIndex = initialCoordIndex;
 	    int maxIndex = 3*validVertexCount;
@@ -815,6 +1180,15 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(coords, initialCoordIndex,
+				     Math.max(validVertexCount - initialCoordIndex, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 
 
 	// Compute the bounding box
@@ -855,6 +1229,15 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    if (!boundsDirty)
 		return;
 
+	    if (VirtualUniverse.mc.parallelBounds &&
+		(validVertexCount >= BoundsKernel.MIN_VERTEX_COUNT)) {
+		BoundsKernel.compute(coords, initialCoordIndex,
+				     Math.max(validVertexCount - initialCoordIndex, 1),
+				     geoBounds);
+		boundsDirty = false;
+		return;
+	    }
+
 
 	// Compute the bounding box
 	    xmin = xmax = coords[initialCoordIndex].x;
@@ -2203,6 +2586,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
         // Check for by-copy case
 	if ((vertexFormat & GeometryArray.BY_REFERENCE) == 0) {
             float[] vdata;
+	    FloatBuffer vbuffer = null;
 
 	    synchronized (this) {
 		cdirty = dirtyFlag;
@@ -2226,6 +2610,13 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 			cdirty |= COLOR_CHANGED;
 		    }
 		}
+		// The alpha updated copy of vertexData is drawn as is
+		if (vdata == vertexData) {
+		    vbuffer = getOffHeapVertexData(cdirty);
+		    if (vbuffer != null) {
+			vdata = null;
+		    }
+		}
 		// geomLock is get in MasterControl when
 		// RenderBin render the geometry. So it is safe
 		// just to set the dirty flag here
@@ -2244,7 +2635,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
                     texCoordSetMapOffset,
 		    cv.numActiveTexUnit,
                     vertexAttrCount, vertexAttrSizes,
-                    vdata, null,
+                    vdata, vbuffer, null,
                     cdirty);
 	}
 
@@ -2290,7 +2681,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 			texCoordSetMapOffset,
 			cv.numActiveTexUnit,
                         vertexAttrCount, vertexAttrSizes,
-                        interLeavedVertexData, cdata,
+                        interLeavedVertexData, null, cdata,
 			cdirty);
 
 	    } // end of interleaved case
@@ -3444,6 +3835,8 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	J3dMessage[] m;
 	int i, j, k, numShapeMessages, numMorphMessages;
 
+	invalidatePickTree();
+
 	synchronized(liveStateLock) {
 	    if (source != null && source.isLive()) {
 		// System.err.println("In GeometryArrayRetained - ");
@@ -3546,6 +3939,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
         if (isLive) {
             geomLock.unLock();
         }
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, 1);
+	}
         if (inUpdater || (source == null)) {
             return;
         }
@@ -3555,7 +3951,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, 1);
 	sendDataChangedMessage(true);
 
     }
@@ -3581,6 +3977,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             geomLock.unLock();
 	}
 
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, 1);
+	}
         if (inUpdater || (source == null)) {
 	    return;
 	}
@@ -3590,7 +3989,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, 1);
 	sendDataChangedMessage(true);
     }
 
@@ -3614,6 +4013,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
 	}
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, 1);
+	}
         if (inUpdater || (source == null)) {
 	    return;
 	}
@@ -3623,7 +4025,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, 1);
 	sendDataChangedMessage(true);
     }
 
@@ -3646,6 +4048,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
 	}
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, 1);
+	}
 	if (inUpdater || source == null ) {
 	    return;
 	}
@@ -3654,7 +4059,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    return;
 	}
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, 1);
 	sendDataChangedMessage(true);
     }
 
@@ -3683,6 +4088,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
 	}
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, (num + 2) / 3);
+	}
 	if (inUpdater ||source == null ) {
 	    return;
 	}
@@ -3692,7 +4100,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, (num + 2) / 3);
 
 	sendDataChangedMessage(true);
 
@@ -3724,6 +4132,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             geomLock.unLock();
 	}
 
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, (num + 2) / 3);
+	}
 	if (inUpdater ||source == null ) {
 	    return;
 	}
@@ -3733,7 +4144,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, (num + 2) / 3);
 
 	sendDataChangedMessage(true);
     }
@@ -3763,6 +4174,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             geomLock.unLock();
 	}
 
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, num);
+	}
 	if (inUpdater ||source == null ) {
 	    return;
 	}
@@ -3772,7 +4186,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, num);
 
 	sendDataChangedMessage(true);
 
@@ -3803,6 +4217,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             geomLock.unLock();
         }
 
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, num);
+	}
         if (inUpdater ||source == null ) {
 	    return;
 	}
@@ -3812,7 +4229,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, num);
 
 	sendDataChangedMessage(true);
     }
@@ -3844,6 +4261,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
 	}
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, length);
+	}
 	if (inUpdater ||source == null ) {
 	    return;
 	}
@@ -3853,7 +4273,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, length);
 
 	sendDataChangedMessage(true);
     }
@@ -3886,6 +4306,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
 	}
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, length);
+	}
         if (inUpdater || (source == null)) {
 	    return;
 	}
@@ -3896,7 +4319,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, length);
 
 	sendDataChangedMessage(true);
     }
@@ -3930,6 +4353,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
             geomLock.unLock();
         }
 
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, length);
+	}
         if (inUpdater || (source == null)) {
 	    return;
 	}
@@ -3940,7 +4366,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, length);
 
 	sendDataChangedMessage(true);
     }
@@ -3973,6 +4399,9 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	if(isLive) {
             geomLock.unLock();
         }
+	if (inUpdater && (updaterRanges != null)) {
+	    updaterRanges.add(index, length);
+	}
         if (inUpdater || (source == null)) {
 	    return;
 	}
@@ -3982,7 +4411,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	}
 
 	// Compute geo's bounds
-	processCoordsChanged(false);
+	processCoordsChanged(index, length);
 
 	sendDataChangedMessage(true);
     }
@@ -5378,6 +5807,14 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	    }
     }
 
+    /**
+     * Returns the factor by which the alpha of the by-copy colors is
+     * scaled in vertexData.
+     */
+    float getLastAlpha() {
+	return lastAlpha[0];
+    }
+
     /**
      * Gets the color associated with the vertex at
      * the specified index.
@@ -6017,15 +6454,56 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
      * Updates geometry array data.
      */
     void updateData(GeometryUpdater updater) {
+	updateData(updater, -1, 0);
+    }
+
+    /**
+     * Same as updateData(updater), where the updater only changes the
+     * coordinates of the vertices from index to index + count - 1, or of
+     * any vertex if index is -1.  The ranges of the coordinates that the
+     * updater sets by copy are added to this range, so that the bounds
+     * are only computed again for the vertices that changed.
+     */
+    void updateData(GeometryUpdater updater, int index, int count) {
 	boolean nullGeo = false;
+	VertexRangeSet changed = null;
 
  	// Add yourself to obtain the geometry lock
  	// and Thread.currentThread().sleep until you get the lock
  	geomLock.getLock();
 
+	if (VirtualUniverse.mc.geometryDirtyRanges) {
+	    changed = new VertexRangeSet();
+	    updaterRanges = changed;
+	}
+	Object p3fRef = p3fRefCoords;
+	Object p3dRef = p3dRefCoords;
+	int validCount = validVertexCount;
+	int initialIndex = initialCoordIndex;
+
+	updaterBoundsSet = false;
 	inUpdater = true;
 	updater.updateData((Geometry)source);
 	inUpdater = false;
+	updaterRanges = null;
+	boolean boundsSet = updaterBoundsSet;
+	updaterBoundsSet = false;
+	invalidatePickTree();
+
+	if (changed != null) {
+	    if (index >= 0) {
+		changed.add(index, count);
+	    } else if ((vertexFormat & GeometryArray.BY_REFERENCE) != 0) {
+		// The referenced data may have changed anywhere
+		changed.clear();
+	    }
+	}
+	// Only the changed ranges of the referenced Point3f or Point3d
+	// coordinates need to be copied into the mirror coordinates
+	boolean copyChanged = (changed != null) && !changed.isEmpty() &&
+	    (p3fRef == p3fRefCoords) && (p3dRef == p3dRefCoords) &&
+	    (validCount == validVertexCount) &&
+	    (initialIndex == initialCoordIndex);
 	if ((vertexFormat & GeometryArray.BY_REFERENCE) != 0) {
 	    if((vertexFormat & GeometryArray.USE_NIO_BUFFER) != 0) {
 		// XXXX: handle the nio buffer
@@ -6049,7 +6527,11 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 			nullGeo = (interLeavedVertexData == null);
 		    }
 		    else {
-			setupMirrorVertexPointer(vertexType & VERTEX_DEFINED);
+			if (copyChanged) {
+			    copyMirrorVertexRanges(changed);
+			} else {
+			    setupMirrorVertexPointer(vertexType & VERTEX_DEFINED);
+			}
 			setupMirrorColorPointer((vertexType & COLOR_DEFINED), false);
 			setupMirrorNormalPointer(vertexType & NORMAL_DEFINED);
 			setupMirrorTexCoordPointer(texCoordType);
@@ -6079,11 +6561,51 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	geomLock.unLock();
 
 	if (source != null && source.isLive()) {
-	    processCoordsChanged(nullGeo);
+	    if (!nullGeo && boundsSet) {
+		processBoundsSet();
+	    } else if (!nullGeo && (changed != null) && !changed.isEmpty()) {
+		processCoordsChanged(changed);
+	    } else {
+		processCoordsChanged(nullGeo);
+	    }
 	    sendDataChangedMessage(true);
 	}
     }
 
+    /**
+     * Copies the changed ranges of the referenced Point3f or Point3d
+     * coordinates into the mirror coordinates, which setupMirrorVertexPointer()
+     * already allocated and filled.
+     */
+    private void copyMirrorVertexRanges(VertexRangeSet changed) {
+	int vType = vertexType & VERTEX_DEFINED;
+	if (((vType == P3F) && (p3fRefCoords != null) &&
+	     ((mirrorVertexAllocated & PF) != 0)) ||
+	    ((vType == P3D) && (p3dRefCoords != null) &&
+	     ((mirrorVertexAllocated & PD) != 0))) {
+	    for (int r = 0; r < changed.size(); r++) {
+		int start = Math.max(changed.getStart(r), initialCoordIndex);
+		int end = Math.min(changed.getEnd(r), validVertexCount);
+		int index = start * 3;
+		if (vType == P3F) {
+		    for (int i = start; i < end; i++) {
+			mirrorFloatRefCoords[index++] = p3fRefCoords[i].x;
+			mirrorFloatRefCoords[index++] = p3fRefCoords[i].y;
+			mirrorFloatRefCoords[index++] = p3fRefCoords[i].z;
+		    }
+		} else {
+		    for (int i = start; i < end; i++) {
+			mirrorDoubleRefCoords[index++] = p3dRefCoords[i].x;
+			mirrorDoubleRefCoords[index++] = p3dRefCoords[i].y;
+			mirrorDoubleRefCoords[index++] = p3dRefCoords[i].z;
+		    }
+		}
+	    }
+	} else {
+	    setupMirrorVertexPointer(vType);
+	}
+    }
+
     boolean intersectBoundingBox( Point3d coordinates[],
 				  BoundingBox box,
 				  double dist[],
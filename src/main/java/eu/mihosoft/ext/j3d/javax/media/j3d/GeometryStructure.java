@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector4d;
 
 
 /**
@@ -83,6 +84,15 @@ class GeometryStructure extends J3dStructure {
     private int bhNodeCount, bhNodeMax;
     private int bhNodeBlockSize = 50;
 
+    // The hit lists of pickAll(), shared by the picking threads
+    private static final ObjectPool<UnorderList> hitLists =
+	new ObjectPool<UnorderList>("PickHitList", 4, 16) {
+	    @Override
+	    UnorderList create() {
+		return new UnorderList(BHNode.class);
+	    }
+	};
+
     // Support for multi-locale.
     private Vector3d localeTrans = new Vector3d();
 
@@ -104,6 +114,10 @@ class GeometryStructure extends J3dStructure {
 
     private boolean transformMsg = false;
 
+    // Dirty tracking of the WakeupOnCollision conditions, null unless
+    // MasterControl.collisionBroadphase is set
+    CollisionBroadphase broadphase = null;
+
     /**
      *  Constructor.
      */
@@ -128,6 +142,9 @@ class GeometryStructure extends J3dStructure {
 						      WakeupOnCollisionExit.COND_IN_GS_LIST, u);
 	wakeupOnCollisionMovement = new WakeupIndexedList(WakeupOnCollisionMovement.class,
 							  WakeupOnCollisionMovement.COND_IN_GS_LIST, u);
+	if (VirtualUniverse.mc.collisionBroadphase) {
+	    broadphase = new CollisionBroadphase();
+	}
     }
 
     @Override
@@ -147,6 +164,9 @@ class GeometryStructure extends J3dStructure {
 		    break;
 		case J3dMessage.SWITCH_CHANGED:
 		    processSwitchChanged(m);
+		    if (broadphase != null) {
+			broadphase.invalidateAll();
+		    }
 		    // may need to process dirty switched-on transform
 		    if (universe.transformStructure.getLazyUpdate()) {
 			transformMsg = true;
@@ -293,6 +313,16 @@ class GeometryStructure extends J3dStructure {
 	bhNodeCount++;
     }
 
+    // Reports the leaves in bhNodeArr to the collision broadphase
+    private void markBhNodeArrChanged() {
+	if (broadphase == null) {
+	    return;
+	}
+	for (int i = 0; i < bhNodeCount; i++) {
+	    broadphase.leafChanged(((BHLeafNode) bhNodeArr[i]).leafIF);
+	}
+    }
+
     private void processVisibleChanged(Object valueObj, GeometryAtom[] gaArr) {
 	boolean visible = true;  // Default is true.
 	int i, treeIndex;
@@ -358,6 +388,7 @@ class GeometryStructure extends J3dStructure {
 	int idx = getOrAddBHTreeIndex(((BHLeafNode)bhNodeArr[0]).getLocale());
 	BHTree currTree = bhTreeArr[idx];
 	currTree.insert(bhNodeArr, bhNodeCount);
+	markBhNodeArrChanged();
 
 	// Issue 353: must clear array after we are done with it
 	clearBhNodeArr();
@@ -448,6 +479,7 @@ class GeometryStructure extends J3dStructure {
 	}
 	BHTree currTree = bhTreeArr[index];
 	currTree.delete(bhNodeArr, bhNodeCount);
+	markBhNodeArrChanged();
 
 	// Issue 353: must clear array after we are done with it
 	clearBhNodeArr();
@@ -505,6 +537,7 @@ class GeometryStructure extends J3dStructure {
 	if (index >= 0) {
 	    bhTreeArr[index].boundsChanged(bhNodeArr, bhNodeCount);
 	}
+	markBhNodeArrChanged();
 
         // Issue 353: must clear array after we are done with it
         clearBhNodeArr();
@@ -569,6 +602,7 @@ class GeometryStructure extends J3dStructure {
 	    bhTreeArr[index].boundsChanged(bhNodeArr, bhNodeCount);
 
 	}
+	markBhNodeArrChanged();
 
         // Issue 353: must clear array after we are done with it
         clearBhNodeArr();
@@ -579,11 +613,14 @@ class GeometryStructure extends J3dStructure {
     // sub-trees.
     // bhTrees mustn't be null.
     // Return true if bhTree's root in encompass by frustumBBox.
+    // frustumPlanes may be null; they and coherent are only used for
+    // coherent culling.
 
     boolean getVisibleBHTrees(RenderBin rBin,
 			      BoundingBox frustumBBox,
+			      Vector4d[] frustumPlanes,
 			      Locale locale, long referenceTime,
-			      boolean stateChanged,
+			      boolean stateChanged, boolean coherent,
 			      int visibilityPolicy) {
 
 	int i, j;
@@ -595,7 +632,7 @@ class GeometryStructure extends J3dStructure {
         // Issue 353: create a new array list each time rather than passing it
         // in. This will not generate too much garbage, since we only call
         // this once per frame and it is very short-lived.
-	ArrayList bhTrees = new ArrayList();
+	ArrayList<BHNode> bhTrees = new ArrayList<BHNode>();
 	if (bhTreeCount == 1) {
 	    // For debugging only.
 	    if (J3dDebug.devPhase) {
@@ -610,8 +647,10 @@ class GeometryStructure extends J3dStructure {
 	    // One locale case - Lets make the simple case fast.
 	    synchronized(visLock) {
 		unviInFB = bhTreeArr[0].getVisibleBHTrees(rBin, bhTrees, frustumBBox,
+							  frustumPlanes,
 							  referenceTime,
 							  stateChanged,
+							  coherent,
 							  visibilityPolicy, true);
 	    }
 	}
@@ -626,6 +665,13 @@ class GeometryStructure extends J3dStructure {
 				 " view's locale is " + locale + "\n");
 
 	    BoundingBox localeFrustumBBox = new BoundingBox();
+	    Vector4d[] localeFrustumPlanes = null;
+	    if (frustumPlanes != null) {
+		localeFrustumPlanes = new Vector4d[frustumPlanes.length];
+		for (i = 0; i < frustumPlanes.length; i++) {
+		    localeFrustumPlanes[i] = new Vector4d();
+		}
+	    }
 
 	    synchronized(visLock) {
 
@@ -654,15 +700,34 @@ class GeometryStructure extends J3dStructure {
 			localeFrustumBBox.upper.x = frustumBBox.upper.x + localeTrans.x;
 			localeFrustumBBox.upper.y = frustumBBox.upper.y + localeTrans.y;
 			localeFrustumBBox.upper.z = frustumBBox.upper.z + localeTrans.z;
+
+			// A plane n.p + w >= 0 moves along with it.
+			if (frustumPlanes != null) {
+			    for (i = 0; i < frustumPlanes.length; i++) {
+				Vector4d plane = frustumPlanes[i];
+				localeFrustumPlanes[i].set(plane.x, plane.y, plane.z,
+							   plane.w -
+							   plane.x * localeTrans.x -
+							   plane.y * localeTrans.y -
+							   plane.z * localeTrans.z);
+			    }
+			}
 		    }
 		    else {
 			frustumBBox.copy(localeFrustumBBox);
+			if (frustumPlanes != null) {
+			    for (i = 0; i < frustumPlanes.length; i++) {
+				localeFrustumPlanes[i].set(frustumPlanes[i]);
+			    }
+			}
 		    }
 
 		    if(!(bhTreeArr[j].getVisibleBHTrees(rBin, bhTrees,
 							localeFrustumBBox,
+							localeFrustumPlanes,
 							referenceTime,
 							stateChanged,
+							coherent,
 							visibilityPolicy,
 							false))) {
 			unviInFB = false;
@@ -678,8 +743,6 @@ class GeometryStructure extends J3dStructure {
     GeometryAtom[] pickAll(Locale locale, PickShape shape) {
 
 	int i;
- 	UnorderList hitList = new UnorderList(BHNode.class);
-	hitList.clear();
 
 	lock.readLock();
 
@@ -689,24 +752,44 @@ class GeometryStructure extends J3dStructure {
 	    return null;
 	}
 
+ 	UnorderList hitList = hitLists.get();
 	bhTreeArr[i].select(shape, hitList);
 	lock.readUnlock();
 
 	int size = hitList.size();
 
-	if (size < 1)
-	    return null;
-
-	BHNode[] hitArr = (BHNode []) hitList.toArray(false);
+	GeometryAtom[] geometryAtoms = null;
+	if (size > 0) {
+	    BHNode[] hitArr = (BHNode []) hitList.toArray(false);
 
-	GeometryAtom[] geometryAtoms = new GeometryAtom[size];
-	for (i=0; i<size; i++) {
-	    geometryAtoms[i] = (GeometryAtom)(((BHLeafNode)hitArr[i]).leafIF);
+	    geometryAtoms = new GeometryAtom[size];
+	    for (i=0; i<size; i++) {
+		geometryAtoms[i] = (GeometryAtom)(((BHLeafNode)hitArr[i]).leafIF);
+	    }
 	}
 
+	hitList.clear();
+	hitLists.put(hitList);
 	return geometryAtoms;
     }
 
+    /**
+     * Runs the BHTree traversal of a batched pick.  The read lock is
+     * held while the packets of the batch are traversed in parallel.
+     */
+    void pickBatch(Locale locale, BatchPicker picker) {
+
+	lock.readLock();
+	try {
+	    int i = getBHTreeIndex(locale);
+	    if (i >= 0) {
+		picker.select(bhTreeArr[i]);
+	    }
+	} finally {
+	    lock.readUnlock();
+	}
+    }
+
     GeometryAtom pickAny(Locale locale, PickShape shape) {
 
 	int i;
@@ -887,6 +970,10 @@ class GeometryStructure extends J3dStructure {
 	int i, idx;
 	BHLeafInterface target;
 
+	if (broadphase != null) {
+	    broadphase.begin(reEvaluateWakeupCollisionGAs);
+	}
+
 	// handle WakeupOnCollisionEntry
 	WakeupOnCollisionEntry wentry;
 	WakeupOnCollisionEntry wentryArr[] = (WakeupOnCollisionEntry [])
@@ -895,6 +982,12 @@ class GeometryStructure extends J3dStructure {
 	for (i = wakeupOnCollisionEntry.arraySize()-1; i >=0; i--) {
 	    wentry = wentryArr[i];
 	    wentry.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    if ((broadphase != null) &&
+		!broadphase.needsUpdate(wentry, wentry.geometryAtoms,
+					wentry.vwcBounds, wentry.boundingLeaf,
+					wentry.armingNode)) {
+		continue;
+	    }
 	    target = collide(wentry.behav.locale,
 			     wentry.accuracyMode,
 			     wentry.geometryAtoms,
@@ -902,6 +995,9 @@ class GeometryStructure extends J3dStructure {
 			     wentry.boundingLeaf,
 			     wentry.armingNode,
 			     null);
+	    if (broadphase != null) {
+		broadphase.collided(wentry, target);
+	    }
 	    idx = collideEntryList.indexOf(wentry);
 
 	    if (target != null) {
@@ -926,6 +1022,12 @@ class GeometryStructure extends J3dStructure {
 	for (i = wakeupOnCollisionMovement.arraySize()-1; i >=0; i--) {
 	    wmove = wmoveArr[i];
 	    wmove.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    if ((broadphase != null) &&
+		!broadphase.needsUpdate(wmove, wmove.geometryAtoms,
+					wmove.vwcBounds, wmove.boundingLeaf,
+					wmove.armingNode)) {
+		continue;
+	    }
 	    target = collide(wmove.behav.locale,
 			     wmove.accuracyMode,
 			     wmove.geometryAtoms,
@@ -933,6 +1035,9 @@ class GeometryStructure extends J3dStructure {
 			     wmove.boundingLeaf,
 			     wmove.armingNode,
 			     wmove);
+	    if (broadphase != null) {
+		broadphase.collided(wmove, target);
+	    }
 	    idx = collideMovementList.indexOf(wmove);
 	    if (target != null) {
 		if (idx < 0) {
@@ -962,6 +1067,12 @@ class GeometryStructure extends J3dStructure {
 	for (i = wakeupOnCollisionExit.arraySize()-1; i >=0; i--) {
 	    wexit = wexitArr[i];
 	    wexit.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    if ((broadphase != null) &&
+		!broadphase.needsUpdate(wexit, wexit.geometryAtoms,
+					wexit.vwcBounds, wexit.boundingLeaf,
+					wexit.armingNode)) {
+		continue;
+	    }
 	    target = collide(wexit.behav.locale,
 			     wexit.accuracyMode,
 			     wexit.geometryAtoms,
@@ -969,6 +1080,9 @@ class GeometryStructure extends J3dStructure {
 			     wexit.boundingLeaf,
 			     wexit.armingNode,
 			     null);
+	    if (broadphase != null) {
+		broadphase.collided(wexit, target);
+	    }
 	    idx = collideExitList.indexOf(wexit);
 	    if (target != null) {
 		if (idx < 0) {
@@ -983,6 +1097,9 @@ class GeometryStructure extends J3dStructure {
 	    }
 	}
 
+	if (broadphase != null) {
+	    broadphase.end();
+	}
     }
 
 
@@ -1186,5 +1303,8 @@ class GeometryStructure extends J3dStructure {
 	wakeupOnCollisionEntry.clear();
 	wakeupOnCollisionExit.clear();
 	wakeupOnCollisionMovement.clear();
+	if (broadphase != null) {
+	    broadphase.clear();
+	}
     }
 }
@@ -2234,14 +2234,14 @@ public int numSounds() {
 	    readRasterReady = false;
             sendRenderMessage(false, GraphicsContext3D.READ_RASTER, raster, null);
 	    while (!readRasterReady) {
-		MasterControl.threadYield();
+		MasterControl.threadWait(this);
 	    }
         } else {
 	    // call from user thread
 	    readRasterReady = false;
             sendRenderMessage(true, GraphicsContext3D.READ_RASTER, raster, null);
 	    while (!readRasterReady) {
-		MasterControl.threadYield();
+		MasterControl.threadWait(this);
 	    }
         }
     }
@@ -2249,6 +2249,7 @@ public int numSounds() {
     void doReadRaster(Raster raster) {
         if (!canvas3d.firstPaintCalled) {
             readRasterReady = true;
+            MasterControl.threadSignal(this);
             return;
         }
 
@@ -2374,6 +2375,7 @@ public int numSounds() {
                         intBuffer, rasterSize.width, rasterSize.height);
         }
         readRasterReady = true;
+        MasterControl.threadSignal(this);
     }
 
     /**
@@ -3007,7 +3009,7 @@ public int numSounds() {
 	while (!canvas3d.view.inRenderThreadData) {
 	    // wait until the renderer thread data in added in
 	    // MC:RenderThreadData array ready to receive message
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(VirtualUniverse.mc);
 	}
 
         canvas3d.screen.renderer.rendererStructure.addMessage(renderMessage);
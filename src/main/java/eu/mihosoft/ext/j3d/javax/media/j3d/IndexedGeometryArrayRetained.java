@@ -1177,6 +1177,7 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
 	if ((vertexFormat & GeometryArray.USE_NIO_BUFFER) == 0) {
 	    if ((vertexFormat & GeometryArray.BY_REFERENCE) == 0) {
 		float[] vdata;
+		FloatBuffer vbuffer = null;
 		//	    System.err.println("by-copy");
 		synchronized (this) {
 		    cdirty = dirtyFlag;
@@ -1200,6 +1201,13 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
 			    cdirty |= COLOR_CHANGED;
 			}
 		    }
+		    // The alpha updated copy of vertexData is drawn as is
+		    if (vdata == vertexData) {
+			vbuffer = getOffHeapVertexData(cdirty);
+			if (vbuffer != null) {
+			    vdata = null;
+			}
+		    }
 		    // geomLock is get in MasterControl when
 		    // RenderBin render the geometry. So it is safe
 		    // just to set the dirty flag here
@@ -1220,7 +1228,7 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
                         (texCoordSetMap == null) ? 0 : texCoordSetMap.length,
                         texCoordSetMapOffset,
                         cv.numActiveTexUnit,
-                        vdata, null,
+                        vdata, vbuffer, null,
                         cdirty, indexCoord);
 
 
@@ -1265,7 +1273,7 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
                         (texCoordSetMap == null) ? 0 : texCoordSetMap.length,
                         texCoordSetMapOffset,
                         cv.numActiveTexUnit,
-                        interLeavedVertexData, cdata,
+                        interLeavedVertexData, null, cdata,
                         cdirty, indexCoord);
 	    }  //end of interleaved
 	    else {
@@ -1578,6 +1586,7 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
 		    // geomLock is get in MasterControl when
 		    // RenderBin render the geometry. So it is safe
 		    // just to set the dirty flag here
+		    offHeapDirty |= dirtyFlag;
 		    dirtyFlag = 0;
 		}
 
@@ -60,11 +60,14 @@ class IndexedQuadArrayRetained extends IndexedGeometryArrayRetained {
         pnts[2] = new Point3d();
 	pnts[3] = new Point3d();
 
+	PrimitiveBHTree.Cursor cursor =
+	    getPickCursor(pickShape, i, loopStopIndex, 4, indexCoord);
+
 	switch (pickShape.getPickType()) {
 	case PickShape.PICKRAY:
 	    PickRay pickRay= (PickRay) pickShape;
 
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -93,7 +96,7 @@ class IndexedQuadArrayRetained extends IndexedGeometryArrayRetained {
 	case PickShape.PICKSEGMENT:
 	    PickSegment pickSegment = (PickSegment) pickShape;
 
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -209,7 +212,7 @@ class IndexedQuadArrayRetained extends IndexedGeometryArrayRetained {
 	    break;
 	case PickShape.PICKCYLINDER:
 	    PickCylinder pickCylinder= (PickCylinder) pickShape;
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -237,7 +240,7 @@ class IndexedQuadArrayRetained extends IndexedGeometryArrayRetained {
 	    break;
 	case PickShape.PICKCONE:
 	    PickCone pickCone= (PickCone) pickShape;
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -59,11 +59,14 @@ class IndexedTriangleArrayRetained extends IndexedGeometryArrayRetained {
 	pnts[1] = new Point3d();
 	pnts[2] = new Point3d();
 
+	PrimitiveBHTree.Cursor cursor =
+	    getPickCursor(pickShape, i, loopStopIndex, 3, indexCoord);
+
 	switch (pickShape.getPickType()) {
 	case PickShape.PICKRAY:
 	    PickRay pickRay= (PickRay) pickShape;
 
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -91,7 +94,7 @@ class IndexedTriangleArrayRetained extends IndexedGeometryArrayRetained {
 	    break;
 	case PickShape.PICKSEGMENT:
 	    PickSegment pickSegment = (PickSegment) pickShape;
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -211,7 +214,7 @@ class IndexedTriangleArrayRetained extends IndexedGeometryArrayRetained {
 	    break;
 	case PickShape.PICKCYLINDER:
 	    PickCylinder pickCylinder= (PickCylinder) pickShape;
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -241,7 +244,7 @@ class IndexedTriangleArrayRetained extends IndexedGeometryArrayRetained {
 	case PickShape.PICKCONE:
 	    PickCone pickCone= (PickCone) pickShape;
 
-	    while (i < loopStopIndex) {
+	    while ((i = cursor.next(i)) < loopStopIndex) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = indexCoord[i];
                     getVertexData(indexCoord[i++], pnts[j]);
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An InfluenceIndex keeps the influencing regions of the nodes of the
+ * lists of the RenderingEnvironmentStructure in BoundsGrids, one per list,
+ * and selects the nodes of a list whose region may intersect the bounds
+ * of a RenderAtom.  The selected nodes are in the order of the list, so
+ * that the result of the tests done by the caller does not change.
+ *
+ * The index of a list is brought up to date by the first select() after
+ * the stamp of the structure changed, which only moves the nodes whose
+ * region changed.  The caller must synchronize the calls.
+ */
+
+abstract class InfluenceIndex<T> {
+
+    // Lists up to this size are scanned by the caller
+    static final int MIN_INDEXED_SIZE = 32;
+
+    // The query box is enlarged by this to cover the tolerance of the
+    // intersect() methods of the bounds
+    private static final double PAD = 1.0e-5;
+
+    private static class ListIndex<T> {
+	final BoundsGrid<T> grid = new BoundsGrid<T>();
+
+	// Position of each node in the list
+	final IdentityHashMap<T, Integer> order =
+	    new IdentityHashMap<T, Integer>();
+
+	// Stamp of the structure the index was brought up to date with,
+	// and the generation it was last used in
+	int stamp;
+	int used;
+    }
+
+    private final IdentityHashMap<ArrayList<T>, ListIndex<T>> indices =
+	new IdentityHashMap<ArrayList<T>, ListIndex<T>>();
+
+    // Incremented whenever a new stamp is seen
+    private int lastStamp = 0;
+    private int generation = 0;
+
+    private final ArrayList<T> candidates = new ArrayList<T>();
+    private int[] positions = new int[16];
+    private final BoundingBox queryBox = new BoundingBox((Bounds) null);
+
+    /**
+     * Returns the influencing region of the node.
+     */
+    abstract Bounds getRegion(T node);
+
+    /**
+     * Returns the nodes of the list whose region may intersect the
+     * bounds, in the order of the list, or the list itself if it is too
+     * short to be indexed.  The returned list is only valid until the
+     * next call.  The stamp must change whenever the list or the region
+     * of one of its nodes may have changed.
+     */
+    ArrayList<T> select(ArrayList<T> list, Bounds bounds, int stamp) {
+	if (list.size() <= MIN_INDEXED_SIZE) {
+	    return list;
+	}
+
+	if (stamp != lastStamp) {
+	    lastStamp = stamp;
+	    generation++;
+	    // Drop the indices of lists no longer queried, such as the
+	    // lists of removed views
+	    Iterator<ListIndex<T>> it = indices.values().iterator();
+	    while (it.hasNext()) {
+		if (it.next().used < generation - 1) {
+		    it.remove();
+		}
+	    }
+	}
+
+	ListIndex<T> index = indices.get(list);
+	if (index == null) {
+	    index = new ListIndex<T>();
+	    index.stamp = stamp - 1;
+	    indices.put(list, index);
+	}
+	index.used = generation;
+	if (index.stamp != stamp) {
+	    refresh(index, list);
+	    index.stamp = stamp;
+	}
+
+	candidates.clear();
+	if ((bounds == null) || bounds.isEmpty()) {
+	    return candidates;
+	}
+	queryBox.set(bounds);
+	queryBox.setLower(queryBox.lower.x - pad(queryBox.lower.x),
+			  queryBox.lower.y - pad(queryBox.lower.y),
+			  queryBox.lower.z - pad(queryBox.lower.z));
+	queryBox.setUpper(queryBox.upper.x + pad(queryBox.upper.x),
+			  queryBox.upper.y + pad(queryBox.upper.y),
+			  queryBox.upper.z + pad(queryBox.upper.z));
+	index.grid.select(queryBox, candidates);
+
+	// Put the candidates back into the order of the list
+	int n = candidates.size();
+	if (n > 1) {
+	    if (positions.length < n) {
+		positions = new int[Math.max(n, 2 * positions.length)];
+	    }
+	    for (int i = 0; i < n; i++) {
+		positions[i] = index.order.get(candidates.get(i)).intValue();
+	    }
+	    Arrays.sort(positions, 0, n);
+	    for (int i = 0; i < n; i++) {
+		candidates.set(i, list.get(positions[i]));
+	    }
+	}
+	return candidates;
+    }
+
+    // Moves the nodes whose region changed and removes the nodes which
+    // are no longer in the list
+    private void refresh(ListIndex<T> index, ArrayList<T> list) {
+	int size = list.size();
+	for (int i = 0; i < size; i++) {
+	    T node = list.get(i);
+	    index.order.put(node, Integer.valueOf(i));
+	    index.grid.update(node, getRegion(node));
+	}
+	if (index.order.size() > size) {
+	    Iterator<Map.Entry<T, Integer>> it = index.order.entrySet().iterator();
+	    while (it.hasNext()) {
+		Map.Entry<T, Integer> e = it.next();
+		int i = e.getValue().intValue();
+		if ((i >= size) || (list.get(i) != e.getKey())) {
+		    index.grid.remove(e.getKey());
+		    it.remove();
+		}
+	    }
+	}
+    }
+
+    private static double pad(double v) {
+	return PAD + Math.abs(v) * 1.0e-12;
+    }
+
+    /**
+     * Removes all indices.
+     */
+    void clear() {
+	indices.clear();
+	candidates.clear();
+    }
+}
@@ -64,8 +64,8 @@ class InputDeviceBlockingThread extends Thread {
 	// Since this thread is blocking, this thread should not be
 	// taking an inordinate amount of CPU time.  Note that the
 	// yield() call should not be necessary (and may be ineffective),
-	// but we can't call MasterControl.threadYield() because it will
-	// sleep for at least a millisecond.
+	// but we can't call MasterControl.threadWait() because it may
+	// block for up to a millisecond.
 	while (running) {
 	    while (!stop) {
 		device.pollAndProcessInput();
@@ -143,6 +143,7 @@ final class J3DGraphics2DImpl extends J3DGraphics2D {
 
 	    // should be the last flag to set
 	    initCtx = true;
+	    MasterControl.threadSignal(this);
 	}
     }
 
@@ -175,7 +176,7 @@ final class J3DGraphics2DImpl extends J3DGraphics2D {
 			// wait until Renderer init() this context
 
 			while (!initCtx) {
-			    MasterControl.threadYield();
+			    MasterControl.threadWait(this);
 			}
 		    } else {
 			return;
@@ -347,7 +348,7 @@ final class J3DGraphics2DImpl extends J3DGraphics2D {
         while (!canvas3d.view.inRenderThreadData) {
             // wait until the renderer thread data in added in
             // MC:RenderThreadData array ready to receive message
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(VirtualUniverse.mc);
         }
 
         canvas3d.screen.renderer.rendererStructure.addMessage(renderMessage);
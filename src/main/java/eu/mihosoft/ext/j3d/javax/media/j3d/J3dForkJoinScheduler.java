@@ -0,0 +1,204 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The J3dForkJoinScheduler runs structure update work on a shared
+ * work-stealing pool instead of the dedicated StructureUpdateThreads.
+ * It is enabled by the -Dj3d.forkJoinScheduler property.
+ *
+ * MasterControl still computes the per-frame run list and its
+ * WAIT_ALL_THREADS barriers, so each frame is a layered dependency
+ * graph of J3dThreadData tasks: all update threads between two barriers
+ * are independent and are submitted to the pool together, and
+ * MasterControl waits for the THREAD_DONE of the whole layer before
+ * submitting the next one.  Only threads classified as UPDATE_THREAD
+ * are run this way; the Renderer, BehaviorScheduler and other work
+ * threads keep their own Java threads since their callers rely on
+ * Thread.currentThread().
+ *
+ * Structures may also use parallelFor() to split large batches of
+ * independent work into subtasks on the same pool.
+ */
+
+class J3dForkJoinScheduler {
+
+    /**
+     * The body of a parallelFor() loop.  It is called with disjoint
+     * [start, end) ranges, possibly concurrently.
+     */
+    interface RangeTask {
+	void run(int start, int end);
+    }
+
+    // The shared pool, created when first used
+    private static ForkJoinPool pool = null;
+
+    // Parallelism of the pool, set by MasterControl
+    private static int parallelism =
+	Runtime.getRuntime().availableProcessors();
+
+    // Flag that indicates whether structure work may be forked
+    private static volatile boolean enabled = false;
+
+    /**
+     * Called by MasterControl to turn the scheduler on and to set
+     * the number of worker threads of the pool.
+     */
+    static synchronized void setEnabled(boolean enable, int threadLimit) {
+	enabled = enable;
+	if (pool == null && threadLimit > 0) {
+	    parallelism = threadLimit;
+	}
+    }
+
+    static boolean isEnabled() {
+	return enabled;
+    }
+
+    static synchronized ForkJoinPool getPool() {
+	if (pool == null) {
+	    pool = new ForkJoinPool(parallelism, new WorkerThreadFactory(),
+				    null, false);
+	}
+	return pool;
+    }
+
+    /**
+     * Runs one iteration of the given update thread on the pool. The
+     * task reports THREAD_DONE to MasterControl exactly like the update
+     * thread would have done from its own run loop.
+     */
+    static void runThread(J3dThreadData threadData, long referenceTime) {
+	getPool().execute(new ThreadTask(threadData.thread,
+					 (Object[]) threadData.threadArgs,
+					 referenceTime));
+    }
+
+    /**
+     * Runs task over [0, size), splitting the range into subtasks of
+     * at least grain elements when the scheduler is enabled.  Returns
+     * when the whole range has been processed.
+     */
+    static void parallelFor(int size, int grain, RangeTask task) {
+	if (size <= 0) {
+	    return;
+	}
+	if (!enabled || size <= grain || parallelism < 2) {
+	    task.run(0, size);
+	    return;
+	}
+
+	RangeAction action = new RangeAction(task, 0, size, Math.max(grain, 1));
+	if (ForkJoinTask.inForkJoinPool()) {
+	    action.invoke();
+	} else {
+	    getPool().invoke(action);
+	}
+    }
+
+    static class ThreadTask extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	private final J3dThread thread;
+	private final Object[] args;
+	private final long referenceTime;
+
+	ThreadTask(J3dThread thread, Object[] args, long referenceTime) {
+	    this.thread = thread;
+	    this.args = args;
+	    this.referenceTime = referenceTime;
+	}
+
+	@Override
+	protected void compute() {
+	    try {
+		thread.args = args;
+		thread.referenceTime = referenceTime;
+		thread.doWork(referenceTime);
+	    } catch (RuntimeException e) {
+		// Report the failure to the handler that would have seen it
+		// if the update thread had run the work itself.  The task is
+		// started with execute(), so nothing joins it and a rethrow
+		// would only be swallowed by the pool.
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	    } catch (Error e) {
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	    } finally {
+		MasterControl.threadSignal(thread);
+		VirtualUniverse.mc.runMonitor(MasterControl.THREAD_DONE, null,
+					      null, null, thread);
+	    }
+	}
+    }
+
+    static class RangeAction extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	private final RangeTask task;
+	private final int start;
+	private final int end;
+	private final int grain;
+
+	RangeAction(RangeTask task, int start, int end, int grain) {
+	    this.task = task;
+	    this.start = start;
+	    this.end = end;
+	    this.grain = grain;
+	}
+
+	@Override
+	protected void compute() {
+	    if (end - start <= grain) {
+		task.run(start, end);
+	    } else {
+		int mid = (start + end) >>> 1;
+		invokeAll(new RangeAction(task, start, mid, grain),
+			  new RangeAction(task, mid, end, grain));
+	    }
+	}
+    }
+
+    static class WorkerThreadFactory
+	implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+	private int numInstances = 0;
+
+	@Override
+	public synchronized ForkJoinWorkerThread newThread(ForkJoinPool p) {
+	    ForkJoinWorkerThread t = new ForkJoinWorkerThread(p) {};
+	    t.setName("J3D-ForkJoinWorker-" + (++numInstances));
+	    t.setDaemon(true);
+	    return t;
+	}
+    }
+}
@@ -144,12 +144,59 @@ class J3dMessage extends Object {
 
     Object[] args = new Object[MAX_ARGS];
 
+    /**
+     * This flag is true if this message was obtained from the
+     * message pool and goes back to it once its reference count
+     * drops to 0.
+     */
+    private boolean recycle = false;
+
+    /**
+     * A transform that stays with this message when it is recycled, so
+     * that a pooled TRANSFORM_CHANGED message can carry a copy of the
+     * new transform without allocating one.
+     */
+    private Transform3D transform = null;
+
+    // The pool of the messages returned by getMessage()
+    private static final ObjectPool<J3dMessage> pool =
+	new ObjectPool<J3dMessage>("J3dMessage", 64, 4096) {
+	    @Override
+	    J3dMessage create() {
+		return new J3dMessage();
+	    }
+	};
+
     /**
      * This constructor does nothing
      */
     J3dMessage() {
     }
 
+    /**
+     * Returns a message from the message pool.  Such a message is put back
+     * in the pool as soon as the last structure has consumed it, so
+     * it must only be used for message types whose consumers do not keep
+     * a reference to the message or read its arguments after calling
+     * decRefcount(), and it must not be touched by the sender once it
+     * has been passed to MasterControl.processMessage().
+     */
+    static J3dMessage getMessage() {
+	J3dMessage m = pool.get();
+	m.recycle = true;
+	return m;
+    }
+
+    /**
+     * Returns the transform of this message, allocating it on first use.
+     */
+    final Transform3D getTransform() {
+	if (transform == null) {
+	    transform = new Transform3D();
+	}
+	return transform;
+    }
+
     final synchronized void clear() {
 	// System.err.println("J3dMessage : " + this );
 	view = null;
@@ -171,14 +218,29 @@ class J3dMessage extends Object {
 
     /**
      * This decrements the reference count for this message.  If it goes
-     * to 0, the message is put on the MasterControl freelist.
+     * to 0, the message is freed.
      */
     final synchronized void decRefcount() {
 	if (--refcount == 0) {
-	    clear();
+	    free();
         }
     }
 
+    /**
+     * This clears the message and, if it came from the message pool,
+     * returns it to the pool.
+     */
+    final synchronized void free() {
+	clear();
+	if (recycle) {
+	    recycle = false;
+	    time = -1;
+	    threads = 0;
+	    type = -1;
+	    pool.put(this);
+	}
+    }
+
     final synchronized int getRefcount() {
 	return refcount;
     }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The J3dMessageQueue is the message list of a J3dStructure.  It is a
+ * bounded multi-producer, single-consumer ring buffer: any number of
+ * threads may add messages without locking, while only the thread
+ * processing the structure removes them.
+ *
+ * Each slot carries a sequence number telling producers and the
+ * consumer whether the slot is free or holds a published message.
+ * When the ring is full, messages spill into an overflow list, and all
+ * following messages go there too until the consumer has drained it,
+ * so the order in which the messages were added is kept.
+ *
+ * Note that only the queue itself is lock-free, the producers are not:
+ * MasterControl.processMessage() still assigns the message time and adds
+ * the message to all its target structures under the timeLock, and
+ * sendMessage() holds the lock of the message while doing so.  This
+ * keeps the messages of every queue in time order, and makes a message
+ * visible to all its structures in the same frame, which poll() relies
+ * on when it stops at the first message later than the frame's time
+ * snapshot.  What the ring removes is the lock the consumer took on
+ * every add and remove.
+ */
+
+class J3dMessageQueue {
+
+    // Default number of slots in the ring, must be a power of two
+    static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicReferenceArray<J3dMessage> slots;
+    private final AtomicLongArray sequence;
+
+    // Next slot to be claimed by a producer
+    private final AtomicLong tail = new AtomicLong(0);
+
+    // Next slot to be read by the consumer
+    private volatile long head = 0;
+
+    // Messages that did not fit into the ring, and the index of the next
+    // one to be read, guarded by overflowList.  The list is only cleared
+    // once it has been read entirely, so that reading does not shift it.
+    private final ArrayList<J3dMessage> overflowList = new ArrayList<J3dMessage>();
+    private int overflowHead = 0;
+    private volatile boolean overflow = false;
+
+    J3dMessageQueue() {
+	this(DEFAULT_CAPACITY);
+    }
+
+    J3dMessageQueue(int initialCapacity) {
+	int cap = 1;
+	while (cap < initialCapacity) {
+	    cap <<= 1;
+	}
+	capacity = cap;
+	mask = cap - 1;
+	slots = new AtomicReferenceArray<J3dMessage>(cap);
+	sequence = new AtomicLongArray(cap);
+	for (int i = 0; i < cap; i++) {
+	    sequence.set(i, i);
+	}
+    }
+
+    /**
+     * Adds a message at the end of the queue.  May be called by any thread.
+     */
+    final void add(J3dMessage message) {
+	if (!overflow && offer(message)) {
+	    return;
+	}
+	synchronized (overflowList) {
+	    // the consumer may have drained the overflow list meanwhile
+	    if (!overflow && offer(message)) {
+		return;
+	    }
+	    overflow = true;
+	    overflowList.add(message);
+	}
+    }
+
+    private boolean offer(J3dMessage message) {
+	long t;
+	int idx;
+
+	while (true) {
+	    t = tail.get();
+	    idx = (int) t & mask;
+	    long seq = sequence.get(idx);
+	    if (seq == t) {
+		if (tail.compareAndSet(t, t + 1)) {
+		    break;
+		}
+	    } else if (seq < t) {
+		// ring is full
+		return false;
+	    }
+	    // another producer claimed the slot, retry
+	}
+	slots.set(idx, message);
+	// publish the slot to the consumer
+	sequence.lazySet(idx, t + 1);
+	return true;
+    }
+
+    /**
+     * Returns the head of the queue if its time is not later than
+     * referenceTime, and removes it from the queue.  Returns null if the
+     * queue is empty or the head message belongs to a later snapshot.
+     * Must only be called by the consumer of this queue.
+     */
+    final J3dMessage poll(long referenceTime) {
+	long h = head;
+	int idx = (int) h & mask;
+
+	if (sequence.get(idx) == h + 1) {
+	    J3dMessage m = slots.get(idx);
+	    if (m.time > referenceTime) {
+		return null;
+	    }
+	    slots.set(idx, null);
+	    // release the slot to the producers
+	    sequence.lazySet(idx, h + capacity);
+	    head = h + 1;
+	    return m;
+	}
+
+	if (overflow) {
+	    synchronized (overflowList) {
+		// recheck the ring, a producer may have published into it
+		// before the overflow list was started
+		if (sequence.get(idx) == h + 1) {
+		    return poll(referenceTime);
+		}
+		if (overflowHead < overflowList.size()) {
+		    J3dMessage m = overflowList.get(overflowHead);
+		    if (m.time > referenceTime) {
+			return null;
+		    }
+		    overflowList.set(overflowHead++, null);
+		    if (overflowHead == overflowList.size()) {
+			overflowList.clear();
+			overflowHead = 0;
+			overflow = false;
+		    }
+		    return m;
+		}
+		overflowList.clear();
+		overflowHead = 0;
+		overflow = false;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Returns an approximation of the number of messages in the queue.
+     */
+    final int size() {
+	int n = (int) (tail.get() - head);
+	if (overflow) {
+	    synchronized (overflowList) {
+		n += overflowList.size() - overflowHead;
+	    }
+	}
+	return n;
+    }
+
+    final boolean isEmpty() {
+	return size() <= 0;
+    }
+
+    /**
+     * Removes all messages from the queue and returns them in order.
+     * Must only be called by the consumer of this queue.
+     */
+    final J3dMessage[] removeAll() {
+	ArrayList<J3dMessage> list = new ArrayList<J3dMessage>();
+	J3dMessage m;
+
+	while ((m = poll(Long.MAX_VALUE)) != null) {
+	    list.add(m);
+	}
+	return list.toArray(new J3dMessage[list.size()]);
+    }
+
+    /**
+     * Removes all messages from the queue without collecting them.
+     * Must only be called by the consumer of this queue.
+     */
+    final void clear() {
+	while (poll(Long.MAX_VALUE) != null) {
+	}
+    }
+}
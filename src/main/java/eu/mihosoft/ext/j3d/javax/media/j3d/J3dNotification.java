@@ -37,6 +37,7 @@ class J3dNotification extends Object {
     static final int INVALID_TYPE       = -1;
     static final int SHADER_ERROR       =  0;
     static final int RENDERING_ERROR    =  1;
+    static final int FRAME_STATISTICS   =  2;
 
     /**
      * This holds the type of this message
@@ -34,9 +34,9 @@ package eu.mihosoft.ext.j3d.javax.media.j3d;
 
 abstract class J3dStructure extends Object {
     /**
-     * This is the list of messages to be processed by this structure
+     * This is the queue of messages to be processed by this structure
      */
-    UnorderList messageList = new UnorderList(5, J3dMessage.class);
+    J3dMessageQueue messageQueue = new J3dMessageQueue();
 
     /**
      * This is the update Thread for this structure
@@ -93,7 +93,7 @@ abstract class J3dStructure extends Object {
 	    message.time = -1;
 	}
 	message.incRefcount();
-	messageList.add(message);
+	messageQueue.add(message);
     }
 
 
@@ -101,43 +101,41 @@ abstract class J3dStructure extends Object {
      * This returns whether or not there are any pending messages
      */
     final J3dMessage[] getMessages(long referenceTime) {
-	int sz, n = 0;
-
-	synchronized (messageList) {
-	    if ((sz = messageList.size()) > 0) {
-		J3dMessage mess[] = (J3dMessage []) messageList.toArray(false);
-		for (n = 0; n < sz; n++) {
-		    if (mess[n].time > referenceTime) {
-			break;
-		    }
-		}
-		if (n > 0) {
-		    if (msgList.length < n) {
-			msgList = new J3dMessage[n];
-		    }
-		    messageList.shift(msgList, n);
-		}
+	int n = 0;
+	J3dMessage m;
+
+	while ((m = messageQueue.poll(referenceTime)) != null) {
+	    if (n == msgList.length) {
+		J3dMessage[] newList = new J3dMessage[n << 1];
+		System.arraycopy(msgList, 0, newList, 0, n);
+		msgList = newList;
 	    }
+	    msgList[n++] = m;
 	}
 
 	nMessage = n;
+
+	if (FrameStatisticsCollector.isCollecting()) {
+	    FrameStatistics.Type statsType =
+		FrameStatisticsCollector.structureType(threadType);
+	    if (statsType != null) {
+		FrameStatisticsCollector.recordQueueDepth(statsType,
+							  n + messageQueue.size());
+	    }
+	}
 	return msgList;
     }
 
     final void clearMessages() {
-	synchronized (messageList) {
-            int nmessage = messageList.size();
-	    if (nmessage > 0) {
-		J3dMessage mess[] = (J3dMessage []) messageList.toArray(false);
-		for (int i = nmessage-1; i >=0; i--) {
-		    mess[i].decRefcount();
-		}
-		messageList.clear();
-	    }
-	    nMessage = 0;
-	    msgList = new J3dMessage[5];
-	}
+	J3dMessage m;
 
+	while ((m = messageQueue.poll(Long.MAX_VALUE)) != null) {
+	    m.decRefcount();
+	}
+	for (int i = msgList.length-1; i >= 0; i--) {
+	    msgList[i] = null;
+	}
+	nMessage = 0;
     }
 
     int  getNumMessage() {
@@ -245,7 +245,7 @@ abstract class J3dThread extends Thread {
     void initialize() {
 	this.start();
 	while (!started) {
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(this);
 	}
     }
 
@@ -255,7 +255,7 @@ abstract class J3dThread extends Thread {
     void finish() {
         // NOTE: This spin loop is probably not necessary.
 	while (!waiting) {
-	    MasterControl.threadYield();
+	    MasterControl.threadWait(this);
 	}
 	runMonitor(STOP, 0,null);
     }
@@ -269,6 +269,8 @@ abstract class J3dThread extends Thread {
 	runMonitor(WAIT, 0, null);
 	while (running) {
 	    doWork(referenceTime);
+	    // wake up threads waiting for the result of this work
+	    MasterControl.threadSignal(this);
 	    runMonitor(NOTIFY_AND_WAIT, 0, null);
 	}
 	// resource clean up
@@ -280,9 +282,11 @@ abstract class J3dThread extends Thread {
         switch (action) {
             case WAIT:
                 started = true;
+                MasterControl.threadSignal(this);
                 // Issue 279 - loop until ready
                 while (!ready && running) {
                     waiting = true;
+                    MasterControl.threadSignal(this);
                     try {
                         wait();
                     } catch (InterruptedException e) {
@@ -299,6 +303,7 @@ abstract class J3dThread extends Thread {
                 // Issue 279 - loop until ready
                 while (!ready && running) {
                     waiting = true;
+                    MasterControl.threadSignal(this);
                     try {
                         wait();
                     } catch (InterruptedException e) {
@@ -152,7 +152,8 @@ class JoglPipeline extends Pipeline {
             int[] texUnitOffset,
             int numActiveTexUnitState,
             int vertexAttrCount, int[] vertexAttrSizes,
-            float[] varray, float[] carray, int cDirty) {
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] carray, int cDirty) {
         if (VERBOSE) System.err.println("JoglPipeline.execute()");
 
         executeGeometryArray(ctx, geo, geo_type, isNonUniformScale, useAlpha,
@@ -160,7 +161,7 @@ class JoglPipeline extends Pipeline {
                 texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
                 texUnitOffset, numActiveTexUnitState,
                 vertexAttrCount, vertexAttrSizes,
-                varray, null, carray, cDirty);
+                varray, varrayBuffer, carray, cDirty);
     }
 
     // used by GeometryArray by Reference with java arrays
@@ -1680,7 +1681,8 @@ class JoglPipeline extends Pipeline {
             int texCoordSetMapLen,
             int[] texCoordSetOffset,
             int numActiveTexUnitState,
-            float[] varray, float[] carray,
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] carray,
             int cdirty,
             int[] indexCoord) {
         if (VERBOSE) System.err.println("JoglPipeline.executeIndexedGeometry()");
@@ -1693,7 +1695,7 @@ class JoglPipeline extends Pipeline {
                 texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
                 texCoordSetOffset,
                 numActiveTexUnitState,
-                varray, null, carray,
+                varray, varrayBuffer, carray,
                 cdirty, indexCoord);
     }
 
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector4d;
+
+/**
+ * The LODStage selects the levels of detail of the live
+ * ScreenSpaceErrorLOD nodes of a universe.  It is run by the RenderBin of
+ * the primary view every frame, and only evaluates the LOD nodes whose
+ * bounding sphere intersects the view frustum.  The RenderBin only
+ * queues the levels that changed; the BehaviorScheduler sets them on the
+ * Switch nodes in its next run, the same way as DistanceLOD does, so the
+ * LOD nodes are never scheduled themselves.
+ *
+ * The bounding spheres are kept in vworld coordinates in flat arrays, so
+ * that the LOD nodes outside of the frustum cost a sphere test.  The
+ * sphere of a node is only computed again after the BehaviorStructure
+ * reports that its transform changed.  The LOD nodes are added and
+ * removed by the BehaviorStructure as well.
+ */
+
+class LODStage {
+
+    private final VirtualUniverse universe;
+
+    // The LOD nodes in the order they were added, and the index of each
+    // node in the list
+    private final ArrayList<ScreenSpaceErrorLOD> lods =
+	new ArrayList<ScreenSpaceErrorLOD>();
+    private final IdentityHashMap<ScreenSpaceErrorLOD, Integer> lodIndex =
+	new IdentityHashMap<ScreenSpaceErrorLOD, Integer>();
+    private boolean lodsChanged = false;
+
+    // The LOD nodes whose transform or bounding sphere changed since the
+    // last select()
+    private ArrayList<ScreenSpaceErrorLOD> changed =
+	new ArrayList<ScreenSpaceErrorLOD>();
+    private ArrayList<ScreenSpaceErrorLOD> changedSwap =
+	new ArrayList<ScreenSpaceErrorLOD>();
+
+    // The LOD nodes whose level changed since the last applyLevels()
+    private ArrayList<ScreenSpaceErrorLOD> levelChanged =
+	new ArrayList<ScreenSpaceErrorLOD>();
+    private ArrayList<ScreenSpaceErrorLOD> levelChangedSwap =
+	new ArrayList<ScreenSpaceErrorLOD>();
+
+    // Copy of the LOD nodes used by select(), with the center, radius and
+    // scale of their bounding spheres in vworld coordinates.  The sphere
+    // of a node is computed again while its dirty count isn't 0; it
+    // starts at 2 since the change may be reported before the transform
+    // of the node is current.
+    private ScreenSpaceErrorLOD[] lodArr = new ScreenSpaceErrorLOD[0];
+    private double[] spheres = new double[0];
+    private int[] dirty = new int[0];
+
+    private final Point3d center = new Point3d();
+
+    // Number of LOD nodes evaluated by the last select()
+    int lastNumEvaluated = 0;
+
+    LODStage(VirtualUniverse universe) {
+	this.universe = universe;
+    }
+
+    synchronized void add(ScreenSpaceErrorLOD lod) {
+	if (!lodIndex.containsKey(lod)) {
+	    lodIndex.put(lod, Integer.valueOf(lods.size()));
+	    lods.add(lod);
+	    lodsChanged = true;
+	}
+    }
+
+    synchronized void remove(ScreenSpaceErrorLOD lod) {
+	Integer index = lodIndex.remove(lod);
+	if (index != null) {
+	    // Move the last node into its place
+	    ScreenSpaceErrorLOD last = lods.remove(lods.size() - 1);
+	    if (last != lod) {
+		lods.set(index.intValue(), last);
+		lodIndex.put(last, index);
+	    }
+	    lod.level = -1;
+	    lodsChanged = true;
+	}
+    }
+
+    /**
+     * Reports that the transform or the bounding sphere of the LOD node
+     * changed.
+     */
+    synchronized void boundsChanged(ScreenSpaceErrorLOD lod) {
+	if (lodIndex.containsKey(lod)) {
+	    changed.add(lod);
+	}
+    }
+
+    synchronized void clear() {
+	lods.clear();
+	lodIndex.clear();
+	changed.clear();
+	levelChanged.clear();
+	lodsChanged = true;
+    }
+
+    synchronized int size() {
+	return lods.size();
+    }
+
+    // Takes the changes of the LOD nodes since the last call
+    private synchronized boolean takeChanges() {
+	ArrayList<ScreenSpaceErrorLOD> tmp = changed;
+	changed = changedSwap;
+	changedSwap = tmp;
+	if (!lodsChanged) {
+	    return false;
+	}
+	lodArr = lods.toArray(new ScreenSpaceErrorLOD[lods.size()]);
+	lodsChanged = false;
+	return true;
+    }
+
+    private synchronized void queueLevel(ScreenSpaceErrorLOD lod) {
+	levelChanged.add(lod);
+    }
+
+    // Takes the LOD nodes whose level changed since the last call
+    private synchronized ArrayList<ScreenSpaceErrorLOD> takeLevels() {
+	ArrayList<ScreenSpaceErrorLOD> tmp = levelChanged;
+	levelChanged = levelChangedSwap;
+	levelChangedSwap = tmp;
+	return tmp;
+    }
+
+    /**
+     * Sets the levels selected since the last call on the Switch nodes of
+     * the LOD nodes.  This is called by the BehaviorScheduler.
+     */
+    void applyLevels() {
+	ArrayList<ScreenSpaceErrorLOD> list = takeLevels();
+
+	for (int i = list.size() - 1; i >= 0; i--) {
+	    ScreenSpaceErrorLOD lod = list.get(i);
+	    int level = lod.level;
+	    if ((level < 0) || !lod.isLive()) {
+		continue;
+	    }
+	    try {
+		for (int j = lod.numSwitches() - 1; j >= 0; j--) {
+		    Switch sw = lod.getSwitch(j);
+		    // Note that we skip the capability check for getWhichChild()
+		    if (((SwitchRetained) sw.retained).getWhichChild() != level) {
+			sw.setWhichChild(level);
+		    }
+		}
+	    }
+	    catch (RuntimeException e) {
+		System.err.println("Exception occurred during Behavior execution:");
+		e.printStackTrace();
+	    }
+	}
+	list.clear();
+    }
+
+    /**
+     * Selects the levels of detail of the LOD nodes visible in the view.
+     * The view frustum is given by frustumPlanes, whose inside is on
+     * the positive side, or by frustumBBox if frustumPlanes is null.
+     */
+    void select(View view, Point3d eye, BoundingBox frustumBBox,
+		Vector4d[] frustumPlanes) {
+	if (size() == 0) {
+	    lastNumEvaluated = 0;
+	    return;
+	}
+
+	// Pixels covered by a unit length at unit distance from the eye
+	Canvas3D[] canvases = view.getCanvases();
+	int width = (canvases.length > 0 ? canvases[0].getWidth() : 0);
+	if (width <= 0) {
+	    lastNumEvaluated = 0;
+	    return;
+	}
+	select(width / (2.0 * Math.tan(0.5 * view.getFieldOfView())),
+	       eye, frustumBBox, frustumPlanes);
+    }
+
+    /**
+     * Selects the levels of detail of the LOD nodes visible in the view,
+     * where a unit length at unit distance from the eye covers
+     * pixelsPerUnit pixels.
+     */
+    void select(double pixelsPerUnit, Point3d eye, BoundingBox frustumBBox,
+		Vector4d[] frustumPlanes) {
+	if (takeChanges()) {
+	    int n = lodArr.length;
+	    spheres = new double[5 * n];
+	    dirty = new int[n];
+	    for (int i = 0; i < n; i++) {
+		lodArr[i].stageIndex = i;
+		dirty[i] = 2;
+	    }
+	}
+	ScreenSpaceErrorLOD[] arr = lodArr;
+	boolean queued = false;
+	for (int i = changedSwap.size() - 1; i >= 0; i--) {
+	    ScreenSpaceErrorLOD lod = changedSwap.get(i);
+	    int index = lod.stageIndex;
+	    if ((index >= 0) && (index < arr.length) && (arr[index] == lod)) {
+		dirty[index] = 2;
+	    }
+	}
+	changedSwap.clear();
+
+	double[] s = spheres;
+	lastNumEvaluated = 0;
+	for (int i = 0, k = 0; i < arr.length; i++, k += 5) {
+	    if (dirty[i] > 0) {
+		dirty[i]--;
+		ScreenSpaceErrorLOD lod = arr[i];
+		Transform3D localToVworld =
+		    ((NodeRetained) lod.retained).getCurrentLocalToVworld();
+		center.set(lod.getLocalPosition());
+		localToVworld.transform(center);
+		double scale = localToVworld.getDistanceScale();
+		s[k] = center.x;
+		s[k+1] = center.y;
+		s[k+2] = center.z;
+		s[k+3] = lod.getRadius() * scale;
+		s[k+4] = scale;
+	    }
+
+	    double x = s[k], y = s[k+1], z = s[k+2], radius = s[k+3];
+	    if (!isVisible(x, y, z, radius, frustumBBox, frustumPlanes)) {
+		continue;
+	    }
+	    lastNumEvaluated++;
+
+	    ScreenSpaceErrorLOD lod = arr[i];
+	    x -= eye.x;
+	    y -= eye.y;
+	    z -= eye.z;
+	    double distance = Math.sqrt(x * x + y * y + z * z) - radius;
+	    int level = lod.selectLevel(distance > 0.0 ?
+					pixelsPerUnit * s[k+4] / distance :
+					Double.POSITIVE_INFINITY);
+	    if ((level < 0) || (level == lod.level)) {
+		continue;
+	    }
+	    lod.level = level;
+	    queueLevel(lod);
+	    queued = true;
+	}
+
+	if (queued) {
+	    VirtualUniverse.mc.sendRunMessage(universe,
+					      J3dThread.BEHAVIOR_SCHEDULER);
+	}
+    }
+
+    private static boolean isVisible(double x, double y, double z,
+				     double radius, BoundingBox frustumBBox,
+				     Vector4d[] frustumPlanes) {
+	if (frustumPlanes != null) {
+	    for (int i = 0; i < frustumPlanes.length; i++) {
+		Vector4d p = frustumPlanes[i];
+		double d = p.x * x + p.y * y + p.z * z + p.w;
+		if (d < -radius * Math.sqrt(p.x * p.x + p.y * p.y + p.z * p.z)) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+	return ((x + radius >= frustumBBox.lower.x) &&
+		(x - radius <= frustumBBox.upper.x) &&
+		(y + radius >= frustumBBox.lower.y) &&
+		(y - radius <= frustumBBox.upper.y) &&
+		(z + radius >= frustumBBox.lower.z) &&
+		(z - radius <= frustumBBox.upper.z));
+    }
+}
@@ -71,6 +71,11 @@ class LightBin extends Object implements ObjectUpdate {
     LightBin next = null;
     LightBin prev = null;
 
+    /**
+     * The id of this LightBin in the sort keys of the DrawList
+     */
+    int drawListId = 0;
+
     /**
      * The list of EnvironmentSets in this LightBin.
      */
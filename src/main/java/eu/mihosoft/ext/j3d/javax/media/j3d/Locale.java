@@ -183,6 +183,12 @@ Vector<BranchGroup> branchGroups = new Vector<BranchGroup>();
 	    doAddBranchGraph(branchGroup);
 	    universe.setLiveState.reset(this);
 	}
+	if (VirtualUniverse.mc.manualStepping) {
+	    // Let VirtualUniverse.step() update the universe even if it
+	    // has no View
+	    VirtualUniverse.mc.postRequest(MasterControl.ACTIVATE_UNIVERSE,
+					   universe);
+	}
 	universe.waitForMC();
     }
 
@@ -1085,4 +1091,97 @@ Vector<BranchGroup> branchGroups = new Vector<BranchGroup>();
 
     }
 
+    /**
+     * Picks all the items below this <code>Locale</code> that intersect
+     * with each pick shape of a batch.  This gives the same hits as
+     * calling <code>pickAllSorted(mode, PickInfo.NODE, pickShape)</code>
+     * for every pick shape, but the bounding hierarchy of the locale is
+     * traversed once by packets of pick shapes, the scene graph is
+     * locked once for the whole batch, and the work is spread over the
+     * fork/join pool when the <code>j3d.forkJoinScheduler</code>
+     * property is set.
+     *
+     * @param mode picking mode, one of <code>PickInfo.PICK_BOUNDS</code>
+     * or <code>PickInfo.PICK_GEOMETRY</code>.
+     * @param pickShapes the pick shapes of the batch.  Each one must be a
+     * PickRay, a PickSegment, a PickBounds or null, which never hits
+     * anything.
+     *
+     * @return the hits of each pick shape, ordered by increasing distance.
+     *
+     * @exception IllegalArgumentException if pick mode is neither
+     * PICK_BOUNDS nor PICK_GEOMETRY.
+     *
+     * @exception IllegalArgumentException if a pick shape is neither a
+     * PickRay, a PickSegment nor a PickBounds.
+     *
+     * @exception IllegalStateException if this Locale has been
+     * removed from its VirtualUniverse.
+     *
+     * @exception CapabilityNotSetException if the mode is PICK_GEOMETRY
+     * and the capability bits needed by
+     * <code>pickAllSorted(int,int,PickShape)</code> are not set in a
+     * node whose bounds intersect a pick shape, or in its geometry.
+     *
+     * @see PickBatchResult
+     */
+    public PickBatchResult pickAllBatch(int mode, PickShape[] pickShapes) {
+
+        validateModeAndPickShapes(mode, pickShapes);
+        return new BatchPicker(mode, false, pickShapes).pick(this);
+    }
+
+    /**
+     * Picks the closest item below this <code>Locale</code> that
+     * intersects with each pick shape of a batch.  This gives the same
+     * hits as calling <code>pickClosest(mode, PickInfo.NODE, pickShape)</code>
+     * for every pick shape, but is run like
+     * <code>pickAllBatch</code>.  In PICK_GEOMETRY mode, the geometry of
+     * items whose bounds are farther away than the closest hit found so
+     * far is not tested.
+     *
+     * @param mode picking mode, one of <code>PickInfo.PICK_BOUNDS</code>
+     * or <code>PickInfo.PICK_GEOMETRY</code>.
+     * @param pickShapes the pick shapes of the batch.  Each one must be a
+     * PickRay, a PickSegment, a PickBounds or null, which never hits
+     * anything.
+     *
+     * @return at most one hit for each pick shape.
+     *
+     * @exception IllegalArgumentException if pick mode is neither
+     * PICK_BOUNDS nor PICK_GEOMETRY.
+     *
+     * @exception IllegalArgumentException if a pick shape is neither a
+     * PickRay, a PickSegment nor a PickBounds.
+     *
+     * @exception IllegalStateException if this Locale has been
+     * removed from its VirtualUniverse.
+     *
+     * @exception CapabilityNotSetException if the mode is PICK_GEOMETRY
+     * and the capability bits needed by
+     * <code>pickClosest(int,int,PickShape)</code> are not set in a
+     * node whose bounds intersect a pick shape, or in its geometry.
+     *
+     * @see PickBatchResult
+     */
+    public PickBatchResult pickClosestBatch(int mode, PickShape[] pickShapes) {
+
+        validateModeAndPickShapes(mode, pickShapes);
+        return new BatchPicker(mode, true, pickShapes).pick(this);
+    }
+
+    void validateModeAndPickShapes(int mode, PickShape[] pickShapes) {
+
+        validateModeFlagAndPickShape(mode, 0, null);
+
+        for (int i = 0; i < pickShapes.length; i++) {
+            if ((pickShapes[i] != null) &&
+                    !(pickShapes[i] instanceof PickRay) &&
+                    !(pickShapes[i] instanceof PickSegment) &&
+                    !(pickShapes[i] instanceof PickBounds)) {
+                throw new IllegalArgumentException(J3dI18N.getString("Locale10"));
+            }
+        }
+    }
+
 }
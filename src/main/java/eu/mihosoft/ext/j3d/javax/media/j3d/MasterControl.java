@@ -37,6 +37,9 @@ import java.awt.GraphicsDevice;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -86,6 +89,7 @@ class MasterControl {
     static final Integer SET_GRAPHICSCONFIG_FEATURES = new Integer(19);
     static final Integer SET_QUERYPROPERTIES = new Integer(20);
     static final Integer SET_VIEW = new Integer(21);
+    static final Integer ACTIVATE_UNIVERSE = new Integer(22);
 
     // Developer logger for reporting informational messages; see getDevLogger()
     private static boolean devLoggerEnabled = false;
@@ -230,6 +234,19 @@ class MasterControl {
      */
     private boolean workToDo = false;
 
+    /**
+     * Flag to indicate that frames are only run when requested by
+     * VirtualUniverse.step(); set by the "j3d.manualStep" property.
+     */
+    boolean manualStepping = false;
+
+    // Number of frames requested by step() and number of those run so far
+    private long stepsRequested = 0L;
+    private volatile long stepsDone = 0L;
+
+    // Serializes callers of step()
+    private final Object stepLock = new Object();
+
     /**
      * This flag indicates that there is work for requestRenderer
      */
@@ -314,6 +331,16 @@ class MasterControl {
     // This is a time stamp used when context is created
     private long contextTimeStamp = 0;
 
+    // The unused display list ids, and the last id created
+    private final AtomicInteger displayListIdCount = new AtomicInteger();
+    private final ObjectPool<Integer> displayListIds =
+	new ObjectPool<Integer>("DisplayListId", 16, 1024) {
+	    @Override
+	    Integer create() {
+		return new Integer(displayListIdCount.incrementAndGet());
+	    }
+	};
+
     // This is an array of  canvasIds in used
     private boolean[] canvasIds = null;
     private int canvasFreeIndex = 0;
@@ -462,6 +489,100 @@ class MasterControl {
     // issue 544
     boolean useBoxForGroupBounds = false;
 
+    // Set by the -Dj3d.forkJoinScheduler property. When this flag is set
+    // to true, the structure update threads are run as tasks on the
+    // shared J3dForkJoinScheduler pool rather than on their own threads.
+    boolean useForkJoinScheduler = false;
+
+    // Set by the -Dj3d.independentUniverses property. When this flag is
+    // set to true (together with j3d.forkJoinScheduler), the structure
+    // updates of each universe are run as one UniverseUpdatePipeline task,
+    // so that universes do not wait for each other between their transform
+    // and structure updates. The universes still share this MasterControl
+    // loop, its timeLock, and the barriers before the behavior schedulers
+    // and the renderers.
+    boolean independentUniverses = false;
+
+    // Set by the -Dj3d.sahBHTree property. When this flag is set to true,
+    // BHTrees are built with the surface area heuristic and subtrees
+    // whose bounds grew too much by refitting are rebuilt.
+    boolean sahBHTree = false;
+
+    // Set by the -Dj3d.coherentCulling property. When this flag is set to
+    // true, BHTree visibility culling tests the view frustum planes with
+    // plane masking and skips subtrees that were fully inside in an
+    // unchanged frustum.
+    boolean coherentCulling = false;
+
+    // Set by the -Dj3d.occlusionCulling property. When this flag is set
+    // to true, the RenderBin of a view with a single mono canvas tests
+    // the shapes that pass frustum culling against a software depth
+    // buffer of the largest occluders (see OcclusionCuller).
+    boolean occlusionCulling = false;
+
+    // Width in pixels of the occlusion culling depth buffer, set by the
+    // -Dj3d.occlusionBufferWidth property
+    int occlusionBufferWidth = OcclusionCuller.DEFAULT_WIDTH;
+
+    // Set by the -Dj3d.pickBHTree property. When this flag is set to true,
+    // GEOMETRY-level ray, segment, cylinder and cone picks of triangle and
+    // quad arrays only test the primitives found through a PrimitiveBHTree
+    // that is cached per geometry.
+    boolean pickBHTree = false;
+
+    // Minimum number of primitives of a geometry for which a PrimitiveBHTree
+    // is built, set by the -Dj3d.pickBHTreeThreshold property
+    int pickBHTreeThreshold = 64;
+
+    // Set by the -Dj3d.collisionBroadphase property. When this flag is set
+    // to true, the GeometryStructure only tests the collision wakeup
+    // conditions whose region or nearby BHTree leaves changed since the
+    // last frame (see CollisionBroadphase).
+    boolean collisionBroadphase = false;
+
+    // Set by the -Dj3d.behaviorRegionIndex property. When this flag is set
+    // to true, the BehaviorStructure keeps the scheduling regions of the
+    // behaviors in a BoundsGrid, so that a ViewPlatform move only
+    // re-evaluates the active behaviors and those near the ViewPlatform.
+    boolean behaviorRegionIndex = false;
+
+    // Set by the -Dj3d.influenceIndex property. When this flag is set to
+    // true, the RenderingEnvironmentStructure keeps the influencing regions
+    // of the lights, fogs, model clips and alternate appearances in a
+    // BoundsGrid, so that only the nodes near a RenderAtom are tested
+    // against its bounds (see InfluenceIndex).
+    boolean influenceIndex = false;
+
+    // Set by the -Dj3d.drawList property. When this flag is set to true,
+    // the RenderBin renders its opaque TextureBins from a flat array
+    // sorted by a 64-bit key of their LightBin, EnvironmentSet,
+    // AttributeBin, ShaderBin and texture (see DrawList) instead of
+    // walking the bin hierarchy.
+    boolean drawList = false;
+
+    // Set by the -Dj3d.geometryDirtyRanges property. When this flag is set
+    // to true, the coordinate changes of a large GeometryArray that are
+    // limited to known vertex ranges only rescan these ranges to update
+    // its bounds (see ChunkedBounds).
+    boolean geometryDirtyRanges = false;
+
+    // Set by the -Dj3d.parallelBounds property. When this flag is set to
+    // true, the bounding box of a large GeometryArray is computed by
+    // BoundsKernel, split across the J3dForkJoinScheduler pool when it is
+    // enabled, with the same result as the serial loops.
+    boolean parallelBounds = false;
+
+    // Bytes of free buffers kept by the VertexBufferPool, set in megabytes
+    // by the -Dj3d.offHeapPoolSize property
+    long offHeapPoolSize = 256L << 20;
+
+    // Set by the -Dj3d.morphBlending property. When this flag is set to
+    // true, a Morph node blends its float input arrays with MorphBlender,
+    // which skips weights that did not change, split across the
+    // J3dForkJoinScheduler pool when it is enabled, and computes the
+    // bounds of the morphed coordinates in the same pass.
+    boolean morphBlending = false;
+
     /**
      * Constructs a new MasterControl object.  Note that there is
      * exatly one MasterControl object, created statically by
@@ -648,6 +769,115 @@ class MasterControl {
                 useBoxForGroupBounds,
                 "Use of BoundingBox for group geometric bounds");
 
+        useForkJoinScheduler =
+                getBooleanProperty("j3d.forkJoinScheduler",
+                useForkJoinScheduler,
+                "Fork/join scheduler for structure updates");
+        J3dForkJoinScheduler.setEnabled(useForkJoinScheduler && cpuLimit > 1,
+                cpuLimit);
+
+        independentUniverses =
+                getBooleanProperty("j3d.independentUniverses",
+                independentUniverses,
+                "Per-universe structure update pipelines");
+        if (independentUniverses && !useForkJoinScheduler) {
+            // The pipelines can only be run as fork/join tasks
+            getCoreLogger().warning("j3d.independentUniverses ignored, " +
+                                    "requires j3d.forkJoinScheduler");
+            independentUniverses = false;
+        }
+
+        sahBHTree = getBooleanProperty("j3d.sahBHTree",
+                sahBHTree,
+                "Surface area heuristic BHTree");
+
+        coherentCulling = getBooleanProperty("j3d.coherentCulling",
+                coherentCulling,
+                "Coherent BHTree frustum culling");
+
+        occlusionCulling = getBooleanProperty("j3d.occlusionCulling",
+                occlusionCulling,
+                "Software occlusion culling");
+
+	final int defaultOcclusionBufferWidth = occlusionBufferWidth;
+	Integer bufferWidth = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.occlusionBufferWidth",
+					defaultOcclusionBufferWidth);
+		}
+	});
+
+	occlusionBufferWidth = Math.max(bufferWidth.intValue(),
+					OcclusionBuffer.TILE_SIZE);
+
+        pickBHTree = getBooleanProperty("j3d.pickBHTree",
+                pickBHTree,
+                "Cached primitive BHTree for geometry picking");
+
+	final int defaultPickBHTreeThreshold = pickBHTreeThreshold;
+	Integer treeThreshold = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.pickBHTreeThreshold",
+					defaultPickBHTreeThreshold);
+		}
+	});
+
+	pickBHTreeThreshold = Math.max(treeThreshold.intValue(), 1);
+
+        collisionBroadphase = getBooleanProperty("j3d.collisionBroadphase",
+                collisionBroadphase,
+                "Collision wakeup broadphase");
+
+        behaviorRegionIndex = getBooleanProperty("j3d.behaviorRegionIndex",
+                behaviorRegionIndex,
+                "Behavior scheduling region index");
+
+        influenceIndex = getBooleanProperty("j3d.influenceIndex",
+                influenceIndex,
+                "Influencing bounds index");
+
+        drawList = getBooleanProperty("j3d.drawList",
+                drawList,
+                "Flat sort-key draw list");
+
+        geometryDirtyRanges = getBooleanProperty("j3d.geometryDirtyRanges",
+                geometryDirtyRanges,
+                "Geometry dirty range tracking");
+
+        parallelBounds = getBooleanProperty("j3d.parallelBounds",
+                parallelBounds,
+                "Parallel geometry bounds");
+
+	final int defaultOffHeapPoolSize = (int) (offHeapPoolSize >> 20);
+	Integer poolSize = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.offHeapPoolSize",
+					defaultOffHeapPoolSize);
+		}
+	});
+
+	offHeapPoolSize = Math.max(poolSize.intValue(), 0) * (1L << 20);
+
+        morphBlending = getBooleanProperty("j3d.morphBlending",
+                morphBlending,
+                "Morph blending kernel");
+
+        manualStepping = getBooleanProperty("j3d.manualStep",
+                manualStepping,
+                "Manual frame stepping");
+
+        if (getBooleanProperty("j3d.frameStatistics", false,
+                "Frame statistics over JMX")) {
+            FrameStatisticsCollector.setCollecting(true);
+            FrameStatisticsCollector.registerMBean();
+        }
+
         // Check for obsolete properties
         String[] obsoleteProps = {
             "j3d.backgroundtexture",
@@ -665,9 +895,6 @@ class MasterControl {
 	// Get the maximum Lights
 	maxLights = Pipeline.getPipeline().getMaximumLights();
 
-	// create the freelists
-	FreeListManager.createFreeLists();
-
 	// create an array canvas use registers
 	// The 32 limit can be lifted once the
 	// resourceXXXMasks in other classes
@@ -716,6 +943,7 @@ class MasterControl {
                     return null;
                 }
         });
+        FrameStatisticsCollector.updateStatsLoggable();
     }
 
     /**
@@ -769,7 +997,7 @@ class MasterControl {
         return coreLoggerEnabled && coreLogger.isLoggable(level);
     }
 
-private static String getProperty(final String prop) {
+static String getProperty(final String prop) {
 	return java.security.AccessController.doPrivileged(
 		new java.security.PrivilegedAction<String>() {
 			@Override
@@ -919,11 +1147,11 @@ private static String getProperty(final String prop) {
      * This returns the a unused displayListId
      */
     Integer getDisplayListId() {
-        return (Integer) FreeListManager.getObject(FreeListManager.DISPLAYLIST);
+        return displayListIds.get();
     }
 
     void freeDisplayListId(Integer id) {
-	FreeListManager.freeObject(FreeListManager.DISPLAYLIST, id);
+	displayListIds.put(id);
     }
 
     int getCanvasId() {
@@ -1006,6 +1234,7 @@ private static String getProperty(final String prop) {
 		    if ((type == ACTIVATE_VIEW) ||
 			(type == GETBESTCONFIG) ||
 			(type == SET_VIEW) ||
+			(type == ACTIVATE_UNIVERSE) ||
 			(type == ISCONFIGSUPPORT) ||
 			(type == SET_QUERYPROPERTIES) ||
 			(type == SET_GRAPHICSCONFIG_FEATURES)) {
@@ -1027,6 +1256,7 @@ private static String getProperty(final String prop) {
 			}
 		    } else if (type == UNREGISTER_VIEW) {
 			((View) obj).doneUnregister = true;
+			threadSignal(this);
 		    } else {
 			requestObjList.add(obj);
 			requestTypeList.add(type);
@@ -1057,6 +1287,7 @@ private static String getProperty(final String prop) {
 	    synchronized (requestObjList) {
 		if (!pendingRequest) {
 		    mcThread = null;
+		    discardSteps();
 		    if (renderingAttributesStructure.updateThread !=
 			null) {
 			renderingAttributesStructure.updateThread.finish();
@@ -1249,7 +1480,7 @@ private static String getProperty(final String prop) {
 	    }
 
 	    if (message.getRefcount() == 0) {
-		message.clear();
+		message.free();
 	    }
 	  }
     }
@@ -1463,7 +1694,18 @@ private static String getProperty(final String prop) {
             while (i<lastTransformStructureThread) {
                 thread = threads[i++];
 
-                if ((thread.lastUpdateTime > thread.lastRunTime) &&
+                if (thread.thread instanceof UniverseUpdatePipeline) {
+                    // The pipeline checks the structures of its universe
+                    if (((UniverseUpdatePipeline) thread.thread).
+                            prepare(currentTime)) {
+                        lastThread = thread;
+                        thread.needsRun = true;
+                        thread.threadOpts = J3dThreadData.CONT_THREAD;
+                        thread.lastRunTime = currentTime;
+                    } else {
+                        thread.needsRun = false;
+                    }
+                } else if ((thread.lastUpdateTime > thread.lastRunTime) &&
                     !thread.thread.userStop) {
                     lastThread = thread;
                     thread.needsRun = true;
@@ -1626,7 +1868,7 @@ private static String getProperty(final String prop) {
         // Issue 275 - go to sleep without holding timeLock
 	// Sleep for the amount of time needed to satisfy the minimum
 	// cycle time for all views.
-	if (sleepTime > 0) {
+	if (sleepTime > 0 && !manualStepping) {
 	    // System.err.println("MasterControl: sleep(" + sleepTime + ")");
 	    try {
 		Thread.sleep(sleepTime);
@@ -1690,36 +1932,36 @@ private static String getProperty(final String prop) {
 	    }
 
 
-	    UnorderList mlist = structure.messageList;
-	    // Note that message is add at the end of array
-	    synchronized (mlist) {
-		int size = mlist.size();
-		if (size > 0) {
-		    J3dMessage mess[] = (J3dMessage []) mlist.toArray(false);
-		    J3dMessage m;
-		    int i = 0;
-
-		    while (i < size) {
-			m = mess[i];
-			if ((v == null) || (m.view == v) ||
-			    ((m.view == null) && !otherViewExist)) {
-			    if (m.type == J3dMessage.INSERT_NODES) {
-				// There is another View register request
-				// immediately following, so no need
-				// to remove message.
-				break;
-			    }
-			    // Some other thread may still using this
-			    // message so we should not directly
-			    // add this message to free lists
-			    m.decRefcount();
-			    mlist.removeOrdered(i);
-			    size--;
-			} else {
-			    i++;
-			}
+	    // Note that message is add at the end of the queue. The
+	    // timeLock is held here, so no message can be added while
+	    // the remaining messages are put back in order.
+	    J3dMessageQueue mqueue = structure.messageQueue;
+	    J3dMessage mess[] = mqueue.removeAll();
+	    int size = mess.length;
+	    J3dMessage m;
+	    int i = 0;
+
+	    while (i < size) {
+		m = mess[i];
+		if ((v == null) || (m.view == v) ||
+		    ((m.view == null) && !otherViewExist)) {
+		    if (m.type == J3dMessage.INSERT_NODES) {
+			// There is another View register request
+			// immediately following, so no need
+			// to remove message.
+			break;
 		    }
+		    // Some other thread may still using this
+		    // message so we should not directly
+		    // add this message to free lists
+		    m.decRefcount();
+		} else {
+		    mqueue.add(m);
 		}
+		i++;
+	    }
+	    while (i < size) {
+		mqueue.add(mess[i++]);
 	    }
 	}
     }
@@ -1741,20 +1983,42 @@ private static String getProperty(final String prop) {
      * The View has at least one Canvas3D added to a container.
      */
     private void registerView(View v) {
-	final VirtualUniverse univ = v.universe;
+	VirtualUniverse univ = v.universe;
 
 	if (views.contains(v) && regUniverseList.contains(univ)) {
 	    return;  // already register
 	}
 
+	// If viewId is null, assign one ..
+	v.assignViewId();
+
+	registerUniverse(univ, v.stopBehavior);
+
+	createUpdateThread(v.renderBin);
+	createUpdateThread(v.soundScheduler);
+
+	if (v.physicalEnvironment != null) {
+	    v.physicalEnvironment.addUser(v);
+	}
+	// create InputDeviceScheduler
+	evaluatePhysicalEnv(v);
+
+	regUniverseList.addUnique(univ);
+	views.addUnique(v);
+    }
+
+    /**
+     * This creates the update threads and the behavior scheduler of
+     * a VirtualUniverse if not done before.
+     */
+    private void registerUniverse(final VirtualUniverse univ,
+				  boolean stopBehavior) {
 	if (timerThread == null) {
 	    // This handle the case when MC shutdown and restart in
 	    // a series of pending request
 	    running = true;
 	    createMCThreads();
 	}
-	// If viewId is null, assign one ..
-	v.assignViewId();
 
 	// Create thread if not done before
 	createUpdateThread(univ.behaviorStructure);
@@ -1780,7 +2044,7 @@ private static String getProperty(final String prop) {
 		       }
 	    });
 	    univ.behaviorScheduler.initialize();
-	    univ.behaviorScheduler.userStop = v.stopBehavior;
+	    univ.behaviorScheduler.userStop = stopBehavior;
 	    threadData = univ.behaviorScheduler.getThreadData(null, null);
 	    threadData.thread = univ.behaviorScheduler;
 	    threadData.threadType = J3dThread.BEHAVIOR_SCHEDULER;
@@ -1788,17 +2052,54 @@ private static String getProperty(final String prop) {
 						 threadData.lastUpdateTime);
 	}
 
-	createUpdateThread(v.renderBin);
-	createUpdateThread(v.soundScheduler);
+	if (independentUniverses && univ.updatePipeline == null) {
+	    java.security.AccessController.doPrivileged(
+		new java.security.PrivilegedAction<Object>() {
+                       @Override
+                       public Object run() {
+			   synchronized (rootThreadGroup) {
+			       univ.updatePipeline = new UniverseUpdatePipeline(
+						      rootThreadGroup, univ);
+			       univ.updatePipeline.setPriority(threadPriority);
+			   }
+			   return null;
+		       }
+	    });
+	    univ.updatePipeline.initialize();
+	    univ.updatePipeline.active = true;
+	}
+    }
 
-	if (v.physicalEnvironment != null) {
-	    v.physicalEnvironment.addUser(v);
+    /**
+     * This activates the structures of a VirtualUniverse that has no
+     * active View, so that its scene graph is updated by step().  Only
+     * used if manualStepping is set.
+     */
+    private void universeActivate(VirtualUniverse univ) {
+	if (univ.activeWithoutView || univ.isEmpty()) {
+	    return;
 	}
-	// create InputDeviceScheduler
-	evaluatePhysicalEnv(v);
 
-	regUniverseList.addUnique(univ);
-	views.addUnique(v);
+	if (!regUniverseList.contains(univ)) {
+	    registerUniverse(univ, false);
+	    regUniverseList.addUnique(univ);
+	}
+
+	if (univ.activeViewCount == 0) {
+	    univ.geometryStructure.resetConditionMet();
+	    univ.behaviorStructure.resetConditionMet();
+	}
+
+	univ.transformStructure.updateThread.active = true;
+	univ.geometryStructure.updateThread.active = true;
+	univ.soundStructure.updateThread.active = true;
+	univ.renderingEnvironmentStructure.updateThread.active = true;
+	univ.behaviorScheduler.active = true;
+	univ.behaviorStructure.updateThread.active = true;
+	univ.activeWithoutView = true;
+
+	activeUniverseList.addUnique(univ);
+	threadListsChanged = true;
     }
 
 
@@ -2014,7 +2315,12 @@ private static String getProperty(final String prop) {
 	    univ.behaviorScheduler.finish();
 	    univ.behaviorScheduler.free();
 	    univ.behaviorScheduler = null;
+	    if (univ.updatePipeline != null) {
+		univ.updatePipeline.finish();
+		univ.updatePipeline = null;
+	    }
 	    univ.initMCStructure();
+	    univ.activeWithoutView = false;
 	    activeUniverseList.remove(univ);
 	    regUniverseList.remove(univ);
 	} else {
@@ -2034,7 +2340,7 @@ private static String getProperty(final String prop) {
 		renderingAttributesStructure.updateThread.finish();
 		renderingAttributesStructure.updateThread = null;
 	    }
-	    renderingAttributesStructure.messageList.clear();
+	    renderingAttributesStructure.messageQueue.clear();
 	    renderingAttributesStructure.objList = new ArrayList<J3dMessage>();
 	    renderingAttributesStructure = new RenderingAttributesStructure();
 	    if (timerThread != null) {
@@ -2428,7 +2734,7 @@ private static String getProperty(final String prop) {
 	    renderingAttributesStructure.updateThread.active = false;
 	}
 
-	if (univ.activeViewCount == 0) {
+	if (univ.activeViewCount == 0 && !univ.activeWithoutView) {
 	    // check if destroyUniverseThread invoked before
 	    if (univ.behaviorScheduler != null) {
 		univ.behaviorScheduler.deactivate();
@@ -2579,19 +2885,30 @@ private static String getProperty(final String prop) {
 	int i;
 	int size = activeUniverseList.arraySize();
 
-	for (i=size-1; i>=0; i--) {
-	    addToStateThreads(universes[i].transformStructure.getUpdateThreadData());
-	}
-	lastTransformStructureThread = stateWorkThreads.size();
-
-	// Next, the GeometryStructure, BehaviorStructure,
-	//       RenderingEnvironmentStructure, and SoundStructure
-	for (i=size-1; i>=0; i--) {
-	    univ = universes[i];
-	    addToStateThreads(univ.geometryStructure.getUpdateThreadData());
-	    addToStateThreads(univ.behaviorStructure.getUpdateThreadData());
-	    addToStateThreads(univ.renderingEnvironmentStructure.getUpdateThreadData());
-	    addToStateThreads(univ.soundStructure.getUpdateThreadData());
+	if (independentUniverses) {
+	    // One pipeline per universe runs all its structure updates,
+	    // so there is no barrier between the transform structures
+	    // and the other structures of different universes
+	    for (i=size-1; i>=0; i--) {
+		addToStateThreads(universes[i].updatePipeline.
+				  getThreadData(null, null));
+	    }
+	    lastTransformStructureThread = stateWorkThreads.size();
+	} else {
+	    for (i=size-1; i>=0; i--) {
+		addToStateThreads(universes[i].transformStructure.getUpdateThreadData());
+	    }
+	    lastTransformStructureThread = stateWorkThreads.size();
+
+	    // Next, the GeometryStructure, BehaviorStructure,
+	    //       RenderingEnvironmentStructure, and SoundStructure
+	    for (i=size-1; i>=0; i--) {
+		univ = universes[i];
+		addToStateThreads(univ.geometryStructure.getUpdateThreadData());
+		addToStateThreads(univ.behaviorStructure.getUpdateThreadData());
+		addToStateThreads(univ.renderingEnvironmentStructure.getUpdateThreadData());
+		addToStateThreads(univ.soundStructure.getUpdateThreadData());
+	    }
 	}
 
 	lastStructureUpdateThread = stateWorkThreads.size();
@@ -2894,6 +3211,9 @@ private static String getProperty(final String prop) {
 	    }
 	}
 
+	// wake up user threads waiting for a request to be handled
+	threadSignal(this);
+
 	if (!running) {
 	    return;
 	}
@@ -2902,6 +3222,11 @@ private static String getProperty(final String prop) {
 	    updateWorkThreads();
 	}
 
+	if (manualStepping && !startStep()) {
+	    // Only requests are handled until the next step()
+	    return;
+	}
+
 	synchronized (timeLock) {
 	    // This is neccesary to prevent updating
 	    // thread.lastUpdateTime from user thread
@@ -2933,6 +3258,59 @@ private static String getProperty(final String prop) {
 
 	manageMemory();
 
+	if (manualStepping) {
+	    stepsDone++;
+	}
+
+	threadSignal(this);
+
+    }
+
+    /**
+     * Returns true if step() has requested a frame that has not been
+     * run yet.
+     */
+    private synchronized boolean startStep() {
+	return stepsDone < stepsRequested;
+    }
+
+    /**
+     * Runs one frame of all update threads and waits for it to finish.
+     * Only used if manualStepping is set.  The frame processes all
+     * messages sent before this call; messages sent by the threads
+     * during the frame are processed by the next step.
+     */
+    void step() {
+	Thread current = Thread.currentThread();
+	if (current instanceof J3dThread ||
+	    current instanceof MasterControlThread) {
+	    throw new IllegalStateException(J3dI18N.getString("VirtualUniverse2"));
+	}
+
+	synchronized (stepLock) {
+	    long step;
+	    synchronized (mcThreadLock) {
+		if (mcThread == null) {
+		    // No live scene graph, so there is nothing to update
+		    return;
+		}
+		synchronized (this) {
+		    step = ++stepsRequested;
+		}
+	    }
+	    setWork();
+	    while (stepsDone < step && running) {
+		threadWait(this);
+	    }
+	}
+    }
+
+    /**
+     * Drops the requested steps that have not been run when the
+     * MasterControl thread terminates.
+     */
+    private synchronized void discardSteps() {
+	stepsRequested = stepsDone;
     }
 
     private void handlePendingRequest() {
@@ -2967,6 +3345,9 @@ private static String getProperty(final String prop) {
 	   else if (type == ACTIVATE_VIEW) {
 		viewActivate((View) o);
 	   }
+	   else if (type == ACTIVATE_UNIVERSE) {
+		universeActivate((VirtualUniverse) o);
+	   }
 	   else if (type == DEACTIVATE_VIEW) {
 		viewDeactivate((View) o);
 	    } else if (type == REEVALUATE_CANVAS) {
@@ -3284,6 +3665,11 @@ private static String getProperty(final String prop) {
 		    if (cpuLimit == 1) {
 			thread.thread.args = (Object[])thread.threadArgs;
 			thread.thread.doWork(currentTime);
+		    } else if (useForkJoinScheduler &&
+			       thread.thread.classification ==
+			       J3dThread.UPDATE_THREAD) {
+			threadPending++;
+			J3dForkJoinScheduler.runThread(thread, currentTime);
 		    } else {
 			threadPending++;
 			thread.thread.runMonitor(J3dThread.RUN,
@@ -3386,9 +3772,9 @@ private static String getProperty(final String prop) {
 		    updateMirrorObjects();
 		    done = true;
 
-                    if (isStatsLoggable(Level.INFO)) {
+                    if (FrameStatisticsCollector.isCollecting()) {
                         // Instrumentation of Java 3D renderer
-                        logTimes();
+                        FrameStatisticsCollector.frameDone();
                     }
 		}
 	    }
@@ -3637,35 +4023,94 @@ private static String getProperty(final String prop) {
 
     private void manageMemory() {
 	if (++frameCount > frameCountCutoff) {
-	    FreeListManager.manageLists();
+	    ObjectPool.trimAll();
+	    // Pick up a change of the stats logger level
+	    FrameStatisticsCollector.updateStatsLoggable();
 	    frameCount = 0;
 	}
+	VertexBufferPool.frameDone();
     }
 
     /**
-     * Yields the current thread, by sleeping for a small amount of
-     * time.  Unlike <code>Thread.yield()</code>, this method
-     * guarantees that the current thread will yield to another thread
-     * waiting to run.  It also ensures that the other threads will
-     * run for at least a small amount of time before the current
-     * thread runs again.
+     * A thread that waits in threadWait(), and the object it waits on.
+     * Each thread has its own Waiter, which stays registered for the
+     * last object it waited on.
      */
-    static final void threadYield() {
-	// Note that we can't just use Thread.yield(), since it
-	// doesn't guarantee that it will actually yield the thread
-	// (and, in fact, it appears to be a no-op under Windows). So
-	// we will sleep for 1 msec instead. Since most threads use
-	// wait/notify, and only use this when they are waiting for
-	// another thread to finish something, this shouldn't be a
-	// performance concern.
+    private static final class Waiter {
+	final Thread thread;
+	volatile Object key = null;
+	volatile boolean signalled = false;
 
-	//Thread.yield();
-	try {
-	    Thread.sleep(1);
+	Waiter(Thread thread) {
+	    this.thread = thread;
 	}
-	catch (InterruptedException e) {
-	    // Do nothing, since we really don't care how long (or
-	    // even whether) we sleep
+    }
+
+    /**
+     * The registered Waiters of all threads
+     */
+    private static final ConcurrentLinkedQueue<Waiter> waiters =
+	new ConcurrentLinkedQueue<Waiter>();
+
+    private static final ThreadLocal<Waiter> currentWaiter =
+	new ThreadLocal<Waiter>() {
+	    @Override
+	    protected Waiter initialValue() {
+		Waiter w = new Waiter(Thread.currentThread());
+		waiters.add(w);
+		return w;
+	    }
+	};
+
+    /**
+     * Blocks the current thread until another thread calls
+     * threadSignal() with the same key.  This is used wherever a thread
+     * waits for another thread to finish something:
+     *
+     * <pre>
+     *     while (!done) {
+     *         MasterControl.threadWait(key);
+     *     }
+     * </pre>
+     *
+     * The thread that sets "done" must call threadSignal(key) afterwards,
+     * and "done" must be volatile.  The key is the object that completes
+     * the work, such as MasterControl for posted requests, a J3dThread
+     * for its own state, or a Canvas3D for its off-screen buffer.
+     *
+     * A signal sent between the test of the condition and the park is
+     * not lost: the first call for a new key only registers the thread
+     * for that key and returns, so the caller tests its condition again
+     * after it can be signalled.
+     */
+    static final void threadWait(Object key) {
+	Waiter w = currentWaiter.get();
+
+	if (w.key != key) {
+	    w.signalled = false;
+	    w.key = key;
+	    return;
+	}
+
+	while (!w.signalled) {
+	    LockSupport.park(key);
+	}
+	w.signalled = false;
+    }
+
+    /**
+     * Wakes up the threads blocked in threadWait() on the given key so
+     * that they test their condition again.  Must be called after the
+     * state the waiting threads are testing has been changed.
+     */
+    static final void threadSignal(Object key) {
+	for (Waiter w : waiters) {
+	    if (w.key == key) {
+		w.signalled = true;
+		LockSupport.unpark(w.thread);
+	    } else if (!w.thread.isAlive()) {
+		waiters.remove(w);
+	    }
 	}
     }
 
@@ -3679,70 +4124,23 @@ private static String getProperty(final String prop) {
     // add code of the following form to areas that you want to enable for
     // timing:
     //
-    //     long startTime = System.nanoTime();
+    //     boolean stats = FrameStatisticsCollector.isCollecting();
+    //     long startTime = stats ? System.nanoTime() : 0L;
     //     sortTransformGroups(tSize, tgs);
-    //     long deltaTime = System.nanoTime() - startTime;
-    //     VirtualUniverse.mc.recordTime(MasterControl.TimeType.XXXXX, deltaTime);
+    //     if (stats) {
+    //         long deltaTime = System.nanoTime() - startTime;
+    //         VirtualUniverse.mc.recordTime(FrameStatistics.Type.XXXXX, deltaTime);
+    //     }
     //
     // where "XXXXX" is the enum representing the code segment being timed.
-    // Additional enums can be defined for new subsystems.
+    // Additional enums can be defined in FrameStatistics.Type for new
+    // subsystems.
     //
 
-    static enum TimeType {
-        TOTAL_FRAME,
-        RENDER,
-        BEHAVIOR,
-        // TRANSFORM_UPDATE,
-        // ...
-    }
-
-    private long[] statTimes = new long[TimeType.values().length];
-    private int[] statCounts = new int[TimeType.values().length];
-    private boolean[] statSeen = new boolean[TimeType.values().length];
-    private int frameCycleTick = 0;
-    private long frameCycleNumber = 0L;
-
-    // Method to record times -- should not be called unless the stats logger
-    // level is set to INFO or lower
-    synchronized void recordTime(TimeType type, long deltaTime) {
-        int idx = type.ordinal();
-        statTimes[idx] += deltaTime;
-        statCounts[idx]++;
-        statSeen[idx] = true;
-    }
-
-    // Method to record times -- this is not called unless the stats logger
-    // level is set to INFO or lower
-    private synchronized void logTimes() {
-        ++frameCycleNumber;
-        if (++frameCycleTick >= 10) {
-            StringBuffer strBuf = new StringBuffer();
-            strBuf.append("----------------------------------------------\n").
-                    append("    Frame Number = ").
-                    append(frameCycleNumber).
-                    append("\n");
-            for (int i = 0; i < statTimes.length; i++) {
-                if (statSeen[i]) {
-                    strBuf.append("    ");
-                    if (statCounts[i] > 0) {
-                        strBuf.append(TimeType.values()[i]).
-                                append(" [").
-                                append(statCounts[i]).
-                                append("] = ").
-                                append((double)statTimes[i] / 1000000.0 / (double)statCounts[i]).
-                                append(" msec per call\n");
-                        statTimes[i] = 0L;
-                        statCounts[i] = 0;
-                    } else {
-                        assert statTimes[i] == 0L;
-                        strBuf.append(TimeType.values()[i]).
-                                append(" [0] = 0.0 msec\n");
-                    }
-                }
-            }
-            getStatsLogger().info(strBuf.toString());
-            frameCycleTick = 0;
-        }
+    // Method to record times -- should not be called unless
+    // FrameStatisticsCollector.isCollecting() returns true
+    void recordTime(FrameStatistics.Type type, long deltaTime) {
+        FrameStatisticsCollector.recordTime(type, deltaTime);
     }
 
 }
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+
+/**
+ * Blends the input GeometryArrays of a Morph node into its morphed arrays.
+ * Only the inputs with a non-zero weight are read, and the vertices are
+ * split into tasks of GRAIN vertices that are run on the
+ * J3dForkJoinScheduler pool when it is enabled.  Each task blends every
+ * array of its vertices, one input after the other, and then computes the
+ * bounding box of its coordinates while they are still in the cache.
+ * No temporary arrays are allocated once the tables of the blender have
+ * grown to the number of inputs.
+ *
+ * The inputs must be float arrays: by-copy arrays, interleaved arrays and
+ * by-reference float arrays.  blend() returns false for any other format,
+ * in which case MorphRetained blends the arrays itself.  Unlike the loops
+ * of MorphRetained, which add the weighted values in double precision and
+ * round each sum to a float, the blender adds them in single precision
+ * with the weights rounded to floats, which avoids two conversions per
+ * value; the values may differ in the last bits.  The bounds are the same
+ * as the ones computed by GeometryArrayRetained from the blended values.
+ *
+ * The blender also keeps the weights of the last blend, so that a Morph
+ * node whose weights are set to the same values again is not blended.
+ */
+
+class MorphBlender implements J3dForkJoinScheduler.RangeTask {
+
+    // Number of vertices blended by one task
+    static final int GRAIN = 4096;
+
+    // The channels: the coordinates, colors and normals, followed by one
+    // channel per texture coordinate set
+    private static final int COORDS = 0;
+    private static final int COLORS = 1;
+    private static final int NORMALS = 2;
+    private static final int TEXCOORDS = 3;
+
+    // The weights of the last blend, or null
+    private double[] lastWeights = null;
+
+    // Destination array, floats per vertex and number of vertices of each
+    // channel
+    private int numChannels = 0;
+    private float[][] dst = new float[TEXCOORDS][];
+    private int[] width = new int[TEXCOORDS];
+    private int[] count = new int[TEXCOORDS];
+
+    // Source array, index of the first vertex and stride of each channel
+    // of each input with a non-zero weight
+    private int numActive = 0;
+    private float[] weight = new float[0];
+    private float[][][] src = new float[TEXCOORDS][][];
+    private int[][] base = new int[TEXCOORDS][];
+    private int[][] stride = new int[TEXCOORDS][];
+
+    // Bounds of the coordinates of each task, and number of vertices
+    // whose bounds are computed
+    private double[] r = new double[0];
+    private int boundsCount = 0;
+
+    /**
+     * Returns true if the morphed arrays were not blended with these
+     * weights.
+     */
+    boolean weightsChanged(double[] weights) {
+	return !Arrays.equals(weights, lastWeights);
+    }
+
+    /**
+     * Records the weights with which the morphed arrays were blended.
+     */
+    void setBlendedWeights(double[] weights) {
+	if ((lastWeights == null) || (lastWeights.length != weights.length)) {
+	    lastWeights = new double[weights.length];
+	}
+	System.arraycopy(weights, 0, lastWeights, 0, weights.length);
+    }
+
+    /**
+     * Forgets the weights of the last blend, after the input arrays may
+     * have changed without the morphed arrays being blended again.
+     */
+    void invalidate() {
+	lastWeights = null;
+    }
+
+    /**
+     * Sets the morphed arrays to the sum of the first numGeos input arrays
+     * multiplied by their weight, and the bounds of mga to the bounds of
+     * the morphed coordinates.  Returns false, without changing anything,
+     * if an input with a non-zero weight is not made of float arrays.
+     */
+    boolean blend(GeometryArrayRetained[] geos, int numGeos, double[] weights,
+		  float[] coords, float[] colors, float[] normals,
+		  float[][] texCoords, GeometryArrayRetained mga) {
+	GeometryArrayRetained geo = geos[0];
+	int vFormat = geo.vertexFormat;
+	boolean indexed = (geo instanceof IndexedGeometryArrayRetained);
+	if ((vFormat & GeometryArray.USE_NIO_BUFFER) != 0) {
+	    return false;
+	}
+
+	int texCoordSetCount = 0, tstride = 0, cstride = 3;
+	if ((vFormat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+	    texCoordSetCount = geo.getTexCoordSetCount();
+	    if ((vFormat & GeometryArray.TEXTURE_COORDINATE_2) != 0) {
+		tstride = 2;
+	    } else if ((vFormat & GeometryArray.TEXTURE_COORDINATE_3) != 0) {
+		tstride = 3;
+	    } else {
+		tstride = 4;
+	    }
+	}
+	if ((vFormat & GeometryArray.WITH_ALPHA) != 0) {
+	    cstride = 4;
+	}
+
+	int n = 0;
+	for (int j = 0; j < numGeos; j++) {
+	    if (weights[j] != 0) {
+		n++;
+	    }
+	}
+	if (n == 0) {
+	    return false;
+	}
+	ensureCapacity(TEXCOORDS + texCoordSetCount, n);
+	numChannels = TEXCOORDS + texCoordSetCount;
+	numActive = n;
+
+	// The destination arrays have the sizes of the first input
+	setChannel(COORDS, coords, 3,
+		   indexed ? geo.getNumCoordCount() : geo.validVertexCount);
+	setChannel(COLORS, colors, cstride,
+		   ((vFormat & GeometryArray.COLOR) == 0) ? 0 :
+		   (indexed ? geo.getNumColorCount() : geo.validVertexCount));
+	setChannel(NORMALS, normals, 3,
+		   ((vFormat & GeometryArray.NORMALS) == 0) ? 0 :
+		   (indexed ? geo.getNumNormalCount() : geo.validVertexCount));
+	for (int k = 0; k < texCoordSetCount; k++) {
+	    setChannel(TEXCOORDS + k, texCoords[k], tstride,
+		       indexed ? geo.getNumTexCoordCount(k) :
+		       geo.validVertexCount);
+	}
+	if (count[COORDS] <= 0) {
+	    return false;
+	}
+	for (int c = 0; c < numChannels; c++) {
+	    if ((count[c] > 0) &&
+		((dst[c] == null) || (dst[c].length < count[c] * width[c]))) {
+		return false;
+	    }
+	}
+
+	for (int j = 0, a = 0; j < numGeos; j++) {
+	    if (weights[j] == 0) {
+		continue;
+	    }
+	    weight[a] = (float) weights[j];
+	    for (int c = 0; c < numChannels; c++) {
+		if ((count[c] > 0) && !setSource(c, a, geos[j], indexed)) {
+		    return false;
+		}
+	    }
+	    a++;
+	}
+
+	int maxCount = 0;
+	for (int c = 0; c < numChannels; c++) {
+	    maxCount = Math.max(maxCount, count[c]);
+	}
+	int numTasks = (maxCount + GRAIN - 1) / GRAIN;
+
+	// The bounds of the coordinates are computed the same way as by
+	// GeometryArrayRetained.computeBoundingBox(float[]), from the first
+	// vertex, which is blended first to seed the bounds of every task
+	boundsCount = 0;
+	if (mga.initialCoordIndex == 0) {
+	    boundsCount = Math.min(count[COORDS], mga.validVertexCount);
+	}
+	if (boundsCount > 0) {
+	    if (r.length < 6 * numTasks) {
+		r = new double[6 * numTasks];
+	    }
+	    blend(COORDS, 0, 1);
+	    float[] d = dst[COORDS];
+	    for (int k = 0; k < 6 * numTasks; k += 6) {
+		r[k] = r[k+3] = d[0];
+		r[k+1] = r[k+4] = d[1];
+		r[k+2] = r[k+5] = d[2];
+	    }
+	}
+
+	J3dForkJoinScheduler.parallelFor(numTasks, 1, this);
+
+	if (boundsCount > 0) {
+	    double xmin = r[0], ymin = r[1], zmin = r[2];
+	    double xmax = r[3], ymax = r[4], zmax = r[5];
+	    for (int k = 6; k < 6 * numTasks; k += 6) {
+		if (r[k] < xmin) xmin = r[k];
+		if (r[k+1] < ymin) ymin = r[k+1];
+		if (r[k+2] < zmin) zmin = r[k+2];
+		if (r[k+3] > xmax) xmax = r[k+3];
+		if (r[k+4] > ymax) ymax = r[k+4];
+		if (r[k+5] > zmax) zmax = r[k+5];
+	    }
+	    mga.setUpdaterBounds(xmin, ymin, zmin, xmax, ymax, zmax);
+	}
+
+	// Drop the references to the arrays of the inputs
+	for (int c = 0; c < numChannels; c++) {
+	    Arrays.fill(src[c], 0, numActive, null);
+	}
+	return true;
+    }
+
+    /**
+     * Blends the vertices of the tasks from start to end - 1.
+     */
+    @Override
+    public void run(int start, int end) {
+	for (int t = start; t < end; t++) {
+	    int first = t * GRAIN;
+	    for (int c = 0; c < numChannels; c++) {
+		blend(c, first, Math.min(first + GRAIN, count[c]));
+	    }
+	    if (first < boundsCount) {
+		scan(first, Math.min(first + GRAIN, boundsCount), 6 * t);
+	    }
+	}
+    }
+
+    private void ensureCapacity(int channels, int active) {
+	if (dst.length < channels) {
+	    dst = Arrays.copyOf(dst, channels);
+	    width = Arrays.copyOf(width, channels);
+	    count = Arrays.copyOf(count, channels);
+	    src = Arrays.copyOf(src, channels);
+	    base = Arrays.copyOf(base, channels);
+	    stride = Arrays.copyOf(stride, channels);
+	}
+	if (weight.length < active) {
+	    weight = new float[active];
+	}
+	for (int c = 0; c < channels; c++) {
+	    if ((src[c] == null) || (src[c].length < active)) {
+		src[c] = new float[active][];
+		base[c] = new int[active];
+		stride[c] = new int[active];
+	    }
+	}
+    }
+
+    private void setChannel(int c, float[] d, int w, int n) {
+	dst[c] = d;
+	width[c] = w;
+	count[c] = n;
+    }
+
+    // Sets the source of the channel c of the active input a.  Returns
+    // false if it is not a float array with the vertices of the channel.
+    private boolean setSource(int c, int a, GeometryArrayRetained geo,
+			      boolean indexed) {
+	int vFormat = geo.vertexFormat;
+	float[] data = null;
+	int first = 0, offset = 0, step = 0, n = 0;
+
+	if ((vFormat & (GeometryArray.BY_REFERENCE |
+			GeometryArray.INTERLEAVED)) != GeometryArray.BY_REFERENCE) {
+	    // By copy or interleaved, the vertices are stored in one array
+	    boolean byCopy = ((vFormat & GeometryArray.BY_REFERENCE) == 0);
+	    data = (byCopy ? geo.vertexData : geo.interLeavedVertexData);
+	    step = geo.stride;
+	    first = (indexed ? 0 : geo.getInitialVertexIndex());
+	    n = (indexed ? geo.getNumCoordCount() : geo.validVertexCount);
+	    switch (c) {
+	    case COORDS:
+		offset = geo.coordinateOffset;
+		break;
+	    case COLORS:
+		// The alpha of the by-copy colors may be scaled
+		if (byCopy && ((vFormat & GeometryArray.WITH_ALPHA) != 0) &&
+		    (geo.getLastAlpha() != 1.0f)) {
+		    return false;
+		}
+		offset = geo.colorOffset;
+		break;
+	    case NORMALS:
+		offset = geo.normalOffset;
+		break;
+	    default:
+		offset = geo.textureOffset + (c - TEXCOORDS) * geo.texCoordStride;
+		break;
+	    }
+	} else {
+	    step = width[c];
+	    switch (c) {
+	    case COORDS:
+		if ((geo.vertexType & GeometryArrayRetained.VERTEX_DEFINED) ==
+		    GeometryArrayRetained.PF) {
+		    data = geo.floatRefCoords;
+		}
+		first = (indexed ? 0 : geo.initialCoordIndex);
+		n = (indexed ? geo.getNumCoordCount() : geo.validVertexCount);
+		break;
+	    case COLORS:
+		if ((geo.vertexType & GeometryArrayRetained.COLOR_DEFINED) ==
+		    GeometryArrayRetained.CF) {
+		    data = geo.floatRefColors;
+		}
+		first = (indexed ? 0 : geo.initialColorIndex);
+		n = (indexed ? geo.getNumColorCount() : geo.validVertexCount);
+		break;
+	    case NORMALS:
+		if ((geo.vertexType & GeometryArrayRetained.NORMAL_DEFINED) ==
+		    GeometryArrayRetained.NF) {
+		    data = geo.floatRefNormals;
+		}
+		first = (indexed ? 0 : geo.initialNormalIndex);
+		n = (indexed ? geo.getNumNormalCount() : geo.validVertexCount);
+		break;
+	    default:
+		int k = c - TEXCOORDS;
+		if ((geo.vertexType & GeometryArrayRetained.TEXCOORD_DEFINED) ==
+		    GeometryArrayRetained.TF) {
+		    data = geo.getTexCoordRefFloat(k);
+		}
+		first = (indexed ? 0 : geo.getInitialTexCoordIndex(k));
+		n = (indexed ? geo.getNumTexCoordCount(k) : geo.validVertexCount);
+		break;
+	    }
+	}
+
+	int b = first * step + offset;
+	if ((data == null) || (n != count[c]) || (first < 0) ||
+	    (data.length < b + (n - 1) * step + width[c])) {
+	    return false;
+	}
+	src[c][a] = data;
+	base[c][a] = b;
+	stride[c][a] = step;
+	return true;
+    }
+
+    // Blends the vertices from start to end - 1 of the channel c.  The
+    // first input sets the values and the others add to them.
+    private void blend(int c, int start, int end) {
+	if (start >= end) {
+	    return;
+	}
+	float[] d = dst[c];
+	int n = width[c];
+	int dend = end * n;
+	for (int a = 0; a < numActive; a++) {
+	    float[] s = src[c][a];
+	    float w = weight[a];
+	    int step = stride[c][a];
+	    int i = start * n;
+	    int k = base[c][a] + start * step;
+	    if (step == n) {
+		// Contiguous source
+		k -= i;
+		if (a == 0) {
+		    for (; i < dend; i++) {
+			d[i] = s[i+k] * w;
+		    }
+		} else {
+		    for (; i < dend; i++) {
+			d[i] += s[i+k] * w;
+		    }
+		}
+	    } else if (a == 0) {
+		for (; i < dend; i += n, k += step) {
+		    for (int m = 0; m < n; m++) {
+			d[i+m] = s[k+m] * w;
+		    }
+		}
+	    } else {
+		for (; i < dend; i += n, k += step) {
+		    for (int m = 0; m < n; m++) {
+			d[i+m] += s[k+m] * w;
+		    }
+		}
+	    }
+	}
+    }
+
+    // Scans the blended coordinates of the vertices from start to end - 1
+    // into the bounds r[k] to r[k+5]
+    private void scan(int start, int end, int k) {
+	float[] d = dst[COORDS];
+	float x0 = (float) r[k], y0 = (float) r[k+1], z0 = (float) r[k+2];
+	float x1 = (float) r[k+3], y1 = (float) r[k+4], z1 = (float) r[k+5];
+	float x, y, z;
+	for (int i = 3 * start, iend = 3 * end; i < iend; i += 3) {
+	    x = d[i];
+	    y = d[i+1];
+	    z = d[i+2];
+	    x0 = (x < x0 ? x : x0);
+	    x1 = (x > x1 ? x : x1);
+	    y0 = (y < y0 ? y : y0);
+	    y1 = (y > y1 ? y : y1);
+	    z0 = (z < z0 ? z : z0);
+	    z1 = (z > z1 ? z : z1);
+	}
+	r[k] = x0;
+	r[k+1] = y0;
+	r[k+2] = z0;
+	r[k+3] = x1;
+	r[k+4] = y1;
+	r[k+5] = z1;
+    }
+}
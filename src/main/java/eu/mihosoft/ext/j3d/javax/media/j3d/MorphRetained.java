@@ -134,6 +134,9 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
     // each vertex has 2 or 3floats
     float[][]MtexCoord = null;
 
+    // Blends the morph data when the j3d.morphBlending property is set
+    MorphBlender blender = null;
+
     // Whether the normal appearance is overrided by the alternate app
     boolean appearanceOverrideEnable = false;
 
@@ -587,6 +590,11 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
 
 
 	if (source.isLive()) {
+	    // Nothing changes if the morph data has these weights already
+	    if (VirtualUniverse.mc.morphBlending && (blender != null) &&
+		!blender.weightsChanged(this.weights)) {
+		return;
+	    }
 	    ((GeometryArrayRetained)morphedGeometryArray.retained).updateData(this);
 	    J3dMessage mChangeMessage = null;
 	    mChangeMessage = new J3dMessage();
@@ -689,6 +697,19 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
 	    }
 	}
 
+	// The morph data does not depend on a geometry with a zero weight
+	if (VirtualUniverse.mc.morphBlending && (blender != null) &&
+	    !blender.weightsChanged(weights)) {
+	    boolean weighted = false;
+	    for (int i = 0; i < numGeometryArrays; i++) {
+		if ((geometryArrays[i] == geo) && (weights[i] != 0)) {
+		    weighted = true;
+		}
+	    }
+	    if (!weighted) {
+		return;
+	    }
+	}
 
 	((GeometryArrayRetained)morphedGeometryArray.retained).updateData(this);
 	// Compute the bounds once
@@ -705,6 +726,47 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
      */
     @Override
     public void updateData(Geometry mga) {
+	int k, vFormat, texCoordSetCount;
+	GeometryArrayRetained mgaR =
+	    (GeometryArrayRetained)mga.retained;
+
+	if (VirtualUniverse.mc.morphBlending) {
+	    if (blender == null) {
+		blender = new MorphBlender();
+	    }
+	    if (!blender.blend(geometryArrays, numGeometryArrays, weights,
+			       Mcoord, Mcolor, Mnormal, MtexCoord, mgaR)) {
+		blendMorphData();
+	    }
+	    blender.setBlendedWeights(weights);
+	} else {
+	    blendMorphData();
+	}
+
+	vFormat = geometryArrays[0].vertexFormat;
+	texCoordSetCount = geometryArrays[0].getTexCoordSetCount();
+
+	mgaR.setCoordRefFloat(Mcoord);
+
+	if ((vFormat & GeometryArray.COLOR) != 0)
+	    mgaR.setColorRefFloat(Mcolor);
+
+	// *******Need to normalize normals
+	if ((vFormat & GeometryArray.NORMALS) != 0)
+	    mgaR.setNormalRefFloat(Mnormal);
+
+	if ((vFormat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+    	    for (k = 0; k < texCoordSetCount; k++) {
+		mgaR.setTexCoordRefFloat(k, MtexCoord[k]);
+	    }
+	}
+    }
+
+    /**
+     * Sets the morph data to the sum of the input GeometryArrays
+     * multiplied by their weights
+     */
+    private void blendMorphData() {
 
 	int i,j,k, vFormat, geoType, stripVCount[];
 	int iCount = 0;
@@ -1194,24 +1256,6 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
 		}
 	    }
 	}
-
-	GeometryArrayRetained mgaR =
-	    (GeometryArrayRetained)mga.retained;
-
-	mgaR.setCoordRefFloat(Mcoord);
-
-	if ((vFormat & GeometryArray.COLOR) != 0)
-	    mgaR.setColorRefFloat(Mcolor);
-
-	// *******Need to normalize normals
-	if ((vFormat & GeometryArray.NORMALS) != 0)
-	    mgaR.setNormalRefFloat(Mnormal);
-
-	if ((vFormat & GeometryArray.TEXTURE_COORDINATE) != 0) {
-    	    for (k = 0; k < texCoordSetCount; k++) {
-		mgaR.setTexCoordRefFloat(k, MtexCoord[k]);
-	    }
-	}
     }
 
     void updateImmediateMirrorObject(Object[] objs) {
@@ -1509,6 +1553,10 @@ class MorphRetained extends LeafRetained implements GeometryUpdater {
 		}
 	    }
 	}
+	// The geometries are not tracked while the morph is not live
+	if ((refCount <= 0) && (blender != null)) {
+	    blender.invalidate();
+	}
 	GeometryArrayRetained mga = (GeometryArrayRetained)morphedGeometryArray.retained;
 
 	mga.clearLive( s.refCount);
@@ -599,6 +599,10 @@ NodeRetained getParent() {
 		findCollidableFlags(collide);
 		updateCollidable(localToVworldKeys, collide);
 	    }
+	    GeometryStructure gs = universe.geometryStructure;
+	    if ((gs != null) && (gs.broadphase != null)) {
+		gs.broadphase.invalidateAll();
+	    }
 	}
     }
 
@@ -72,7 +72,8 @@ class NoopPipeline extends Pipeline {
             int[] texCoordSetOffset,
             int numActiveTexUnitState,
             int vertexAttrCount, int[] vertexAttrSizes,
-            float[] varray, float[] cdata, int cdirty) {
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] cdata, int cdirty) {
     }
 
     // used by GeometryArray by Reference with java arrays
@@ -199,7 +200,8 @@ class NoopPipeline extends Pipeline {
             int texCoordSetMapLen,
             int[] texCoordSetOffset,
             int numActiveTexUnitState,
-            float[] varray, float[] cdata,
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] cdata,
             int cdirty,
             int[] indexCoord) {
     }
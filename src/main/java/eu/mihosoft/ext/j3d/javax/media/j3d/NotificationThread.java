@@ -30,7 +30,8 @@ import java.util.ArrayList;
 
 /**
  * The NotificationThread class is used for asynchronous error notification,
- * such as notifying ShaderError listeners.
+ * such as notifying ShaderError listeners, and for delivering frame
+ * statistics.
  */
 class NotificationThread extends Thread {
     // action flag for runMonitor
@@ -85,6 +86,9 @@ class NotificationThread extends Thread {
             case J3dNotification.RENDERING_ERROR:
                 VirtualUniverse.notifyRenderingErrorListeners((RenderingError)n.args[0]);
                 break;
+            case J3dNotification.FRAME_STATISTICS:
+                VirtualUniverse.notifyFrameStatisticsListeners((FrameStatistics)n.args[0]);
+                break;
             default:
                 System.err.println("J3dNotification.processNotifications: unrecognized type = " + n.type);
             }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of reusable objects.  Each thread takes and returns objects
+ * through its own cache of at most cacheSize objects, without locking.
+ * A thread whose cache is empty takes half a cache of objects from a
+ * shared depot, and a thread whose cache is full moves the older half of
+ * it to the depot, so that objects obtained by one thread and released by
+ * another (such as J3dMessages, which are freed by the last structure
+ * that consumes them) go through the depot in batches.
+ *
+ * The depot holds at most depotSize objects; the objects that do not fit
+ * are dropped.  trimAll() is called periodically by MasterControl and
+ * drops half of the objects that stayed in the depot of a pool since the
+ * last call.  The caches are not trimmed, as they are bounded and go away
+ * with their thread.
+ *
+ * Every pool counts the objects taken from a cache or the depot (hits),
+ * the objects created because both were empty (misses), and the objects
+ * dropped by the depot (trims).  VirtualUniverse.getPoolStatistics()
+ * returns a snapshot of these counters for every pool.
+ */
+
+abstract class ObjectPool<T> {
+
+    // The pools, in the order they were created
+    private static final CopyOnWriteArrayList<ObjectPool<?>> pools =
+	new CopyOnWriteArrayList<ObjectPool<?>>();
+
+    private final String name;
+    private final int cacheSize;
+
+    // The cache of each thread
+    private final ThreadLocal<Cache> caches = new ThreadLocal<Cache>() {
+	@Override
+	protected Cache initialValue() {
+	    return new Cache(cacheSize);
+	}
+    };
+
+    // The shared depot and the fewest objects it held since the last
+    // trim, guarded by depot
+    private final Object[] depot;
+    private int depotCount = 0;
+    private int minDepotCount = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder trims = new LongAdder();
+
+    private static class Cache {
+	final Object[] objects;
+	int count = 0;
+
+	Cache(int size) {
+	    objects = new Object[size];
+	}
+    }
+
+    ObjectPool(String name, int cacheSize, int depotSize) {
+	if (cacheSize < 2 || depotSize < 0) {
+	    throw new IllegalArgumentException();
+	}
+	this.name = name;
+	this.cacheSize = cacheSize;
+	depot = new Object[depotSize];
+	pools.add(this);
+    }
+
+    /**
+     * Creates a new object when the pool is empty.
+     */
+    abstract T create();
+
+    /**
+     * Returns an object of the pool, or a new one if the pool is empty.
+     */
+    @SuppressWarnings("unchecked")
+    final T get() {
+	Cache cache = caches.get();
+	if ((cache.count == 0) && !refill(cache)) {
+	    misses.increment();
+	    return create();
+	}
+	hits.increment();
+	int i = --cache.count;
+	T obj = (T) cache.objects[i];
+	cache.objects[i] = null;
+	return obj;
+    }
+
+    /**
+     * Returns an object to the pool.  The caller must not use it anymore.
+     */
+    final void put(T obj) {
+	Cache cache = caches.get();
+	if (cache.count == cacheSize) {
+	    flush(cache);
+	}
+	cache.objects[cache.count++] = obj;
+    }
+
+    // Moves half a cache of objects from the depot to the empty cache.
+    // Returns false if the depot is empty.
+    private boolean refill(Cache cache) {
+	synchronized (depot) {
+	    int n = Math.min(depotCount, cacheSize / 2);
+	    if (n == 0) {
+		return false;
+	    }
+	    depotCount -= n;
+	    System.arraycopy(depot, depotCount, cache.objects, 0, n);
+	    Arrays.fill(depot, depotCount, depotCount + n, null);
+	    if (depotCount < minDepotCount) {
+		minDepotCount = depotCount;
+	    }
+	    cache.count = n;
+	}
+	return true;
+    }
+
+    // Moves the older half of the full cache to the depot
+    private void flush(Cache cache) {
+	int n = cacheSize / 2;
+	int stored;
+	synchronized (depot) {
+	    stored = Math.min(n, depot.length - depotCount);
+	    System.arraycopy(cache.objects, 0, depot, depotCount, stored);
+	    depotCount += stored;
+	}
+	if (stored < n) {
+	    trims.add(n - stored);
+	}
+	System.arraycopy(cache.objects, n, cache.objects, 0, cacheSize - n);
+	Arrays.fill(cache.objects, cacheSize - n, cacheSize, null);
+	cache.count = cacheSize - n;
+    }
+
+    /**
+     * Drops half of the objects that stayed in the depot since the last
+     * call.
+     */
+    final void trim() {
+	int n;
+	synchronized (depot) {
+	    n = minDepotCount / 2;
+	    depotCount -= n;
+	    Arrays.fill(depot, depotCount, depotCount + n, null);
+	    minDepotCount = depotCount;
+	}
+	if (n > 0) {
+	    trims.add(n);
+	}
+    }
+
+    /**
+     * Returns a snapshot of the counters of this pool.
+     */
+    final PoolStatistics getStatistics() {
+	int count;
+	synchronized (depot) {
+	    count = depotCount;
+	}
+	return new PoolStatistics(name, hits.sum(), misses.sum(), trims.sum(),
+				  count, depot.length, cacheSize);
+    }
+
+    /**
+     * Trims every pool.
+     */
+    static void trimAll() {
+	for (ObjectPool<?> pool : pools) {
+	    pool.trim();
+	}
+    }
+
+    /**
+     * Returns a snapshot of the counters of every pool.
+     */
+    static PoolStatistics[] getAllStatistics() {
+	Object[] p = pools.toArray();
+	PoolStatistics[] stats = new PoolStatistics[p.length];
+	for (int i = 0; i < p.length; i++) {
+	    stats[i] = ((ObjectPool<?>) p[i]).getStatistics();
+	}
+	return stats;
+    }
+}
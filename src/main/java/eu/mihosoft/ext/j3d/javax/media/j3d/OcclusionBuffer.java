@@ -0,0 +1,467 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+
+/**
+ * The OcclusionBuffer is a low resolution software depth buffer used by
+ * the OcclusionCuller.  Occluder triangles, given in clip coordinates,
+ * are rasterized into it, and bounding boxes are then tested against
+ * it through a hierarchy of per-tile maximum depths.  Unlike in Java 3D
+ * clip coordinates, z must grow away from the eye, as in OpenGL, so
+ * the near plane is z = -w.
+ *
+ * Both sides are conservative: a pixel only receives the depth of an
+ * occluder triangle if the triangle covers the whole pixel, and it
+ * receives the farthest depth of the triangle within that pixel, while
+ * a box is tested with its nearest depth over all pixels it touches.
+ * Depths are normalized device z values, so nearer is smaller.
+ *
+ * Triangle setup and rasterization are split into tile rows that are
+ * processed in parallel when the fork/join scheduler is enabled.
+ */
+
+class OcclusionBuffer {
+
+    // Size of the tiles of the hierarchical depth buffer, in pixels
+    static final int TILE_SHIFT = 3;
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    // Face culling of occluder triangles; front faces are counter
+    // clockwise in normalized device coordinates
+    static final int CULL_NONE  = 0;
+    static final int CULL_BACK  = 1;
+    static final int CULL_FRONT = 2;
+
+    // Vertices with a clip w below this are treated as behind the eye
+    private static final double MIN_W = 1.0e-6;
+
+    // Doubles per clip space triangle, and per set up screen triangle:
+    // three edge functions (a, b, c), the depth plane, the pixel
+    // bounds and the farthest depth
+    private static final int CLIP_STRIDE = 12;
+    private static final int SETUP_STRIDE = 17;
+
+    // Minimum number of triangles, or boxes, per parallel task
+    private static final int SETUP_GRAIN = 256;
+
+    int width;
+    int height;
+    private int tilesX;
+    private int tilesY;
+
+    // Farthest occluder depth of each fully covered pixel, and the
+    // maximum of those over each tile; +Infinity where uncovered
+    private float[] depth = new float[0];
+    private float[] tileMax = new float[0];
+
+    // Row major clip transform used by project()
+    private double[] clip = new double[16];
+
+    // Occluder triangles in clip coordinates and their face culling
+    private double[] triangles = new double[CLIP_STRIDE * 64];
+    private byte[] cullModes = new byte[64];
+    private int numTriangles = 0;
+
+    // Set up screen triangles, two slots per occluder triangle since
+    // near clipping may split it; a NaN farthest depth marks an unused
+    // slot
+    private double[] setup = new double[0];
+
+    /**
+     * Resizes the buffer.  width and height are rounded up to multiples
+     * of TILE_SIZE.
+     */
+    void setSize(int width, int height) {
+	width = (width + TILE_SIZE - 1) & ~(TILE_SIZE - 1);
+	height = (height + TILE_SIZE - 1) & ~(TILE_SIZE - 1);
+	if ((width == this.width) && (height == this.height)) {
+	    return;
+	}
+	this.width = width;
+	this.height = height;
+	tilesX = width >> TILE_SHIFT;
+	tilesY = height >> TILE_SHIFT;
+	depth = new float[width * height];
+	tileMax = new float[tilesX * tilesY];
+    }
+
+    /**
+     * Starts a new frame: sets the row major clip transform used to
+     * test boxes and removes all occluders.
+     */
+    void clear(double[] vworldToClip) {
+	clip = vworldToClip;
+	numTriangles = 0;
+	Arrays.fill(depth, Float.POSITIVE_INFINITY);
+	Arrays.fill(tileMax, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Reserves room for count more occluder triangles and returns the
+     * index of the first one; fill them in with setTriangle().
+     */
+    int addTriangles(int count) {
+	int first = numTriangles;
+	int needed = first + count;
+	if (needed > cullModes.length) {
+	    int size = Math.max(needed, cullModes.length * 2);
+	    double[] t = new double[CLIP_STRIDE * size];
+	    System.arraycopy(triangles, 0, t, 0, CLIP_STRIDE * first);
+	    triangles = t;
+	    byte[] c = new byte[size];
+	    System.arraycopy(cullModes, 0, c, 0, first);
+	    cullModes = c;
+	}
+	numTriangles = needed;
+	return first;
+    }
+
+    /**
+     * Returns the array holding the clip coordinates of the occluder
+     * triangles, 12 doubles (x, y, z, w for each vertex) per triangle.
+     */
+    double[] getTriangles() {
+	return triangles;
+    }
+
+    void setCullMode(int index, int cullMode) {
+	cullModes[index] = (byte) cullMode;
+    }
+
+    int getNumTriangles() {
+	return numTriangles;
+    }
+
+    /**
+     * Rasterizes all occluder triangles and builds the tile maxima.
+     */
+    void rasterize() {
+	if (numTriangles == 0) {
+	    return;
+	}
+
+	if (setup.length < 2 * SETUP_STRIDE * numTriangles) {
+	    setup = new double[2 * SETUP_STRIDE * numTriangles];
+	}
+
+	J3dForkJoinScheduler.parallelFor(numTriangles, SETUP_GRAIN,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		double[] v = new double[16];
+		for (int i = start; i < end; i++) {
+		    setupTriangle(i, v);
+		}
+	    }
+	});
+
+	J3dForkJoinScheduler.parallelFor(tilesY, 1,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		for (int ty = start; ty < end; ty++) {
+		    rasterizeTileRow(ty);
+		}
+	    }
+	});
+    }
+
+    // Clips triangle i against the near plane and sets up the one or
+    // two resulting screen triangles; v is scratch space.
+    private void setupTriangle(int i, double[] v) {
+	double[] t = triangles;
+	int k = CLIP_STRIDE * i;
+	int s = 2 * SETUP_STRIDE * i;
+	setup[s + 16] = Double.NaN;
+	setup[s + SETUP_STRIDE + 16] = Double.NaN;
+
+	// Sutherland-Hodgman against z + w >= 0
+	int n = 0;
+	for (int j = 0; j < 3; j++) {
+	    int a = k + 4 * j;
+	    int b = k + 4 * ((j + 1) % 3);
+	    double da = t[a+2] + t[a+3];
+	    double db = t[b+2] + t[b+3];
+	    if (da >= 0.0) {
+		v[n++] = t[a];
+		v[n++] = t[a+1];
+		v[n++] = t[a+2];
+		v[n++] = t[a+3];
+	    }
+	    if ((da >= 0.0) != (db >= 0.0)) {
+		double f = da / (da - db);
+		for (int c = 0; c < 4; c++) {
+		    v[n++] = t[a+c] + f * (t[b+c] - t[a+c]);
+		}
+	    }
+	}
+	n >>= 2;
+	if (n < 3) {
+	    return;
+	}
+
+	// project to pixel coordinates, in place
+	for (int j = 0; j < n; j++) {
+	    double w = v[4*j+3];
+	    if (w < MIN_W) {
+		return;
+	    }
+	    v[4*j]   = (v[4*j] / w + 1.0) * 0.5 * width;
+	    v[4*j+1] = (1.0 - v[4*j+1] / w) * 0.5 * height;
+	    v[4*j+2] = v[4*j+2] / w;
+	}
+
+	setupScreenTriangle(v, 0, 4, 8, cullModes[i], s);
+	if (n == 4) {
+	    setupScreenTriangle(v, 0, 8, 12, cullModes[i], s + SETUP_STRIDE);
+	}
+    }
+
+    private void setupScreenTriangle(double[] v, int i0, int i1, int i2,
+				     int cullMode, int s) {
+	double x0 = v[i0], y0 = v[i0+1], z0 = v[i0+2];
+	double x1 = v[i1], y1 = v[i1+1], z1 = v[i1+2];
+	double x2 = v[i2], y2 = v[i2+1], z2 = v[i2+2];
+
+	// Pixel y goes down, so counter clockwise in normalized device
+	// coordinates has a negative area here.
+	double area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+	if ((area == 0.0) || Double.isNaN(area) ||
+	    ((cullMode == CULL_BACK) && (area > 0.0)) ||
+	    ((cullMode == CULL_FRONT) && (area < 0.0))) {
+	    return;
+	}
+	if (area < 0.0) {
+	    double tx = x1, ty = y1, tz = z1;
+	    x1 = x2; y1 = y2; z1 = z2;
+	    x2 = tx; y2 = ty; z2 = tz;
+	    area = -area;
+	}
+
+	int minX = (int) Math.max(Math.ceil(Math.min(x0, Math.min(x1, x2))), 0.0);
+	int minY = (int) Math.max(Math.ceil(Math.min(y0, Math.min(y1, y2))), 0.0);
+	int maxX = (int) Math.min(Math.floor(Math.max(x0, Math.max(x1, x2))) - 1.0,
+				  width - 1);
+	int maxY = (int) Math.min(Math.floor(Math.max(y0, Math.max(y1, y2))) - 1.0,
+				  height - 1);
+	if ((minX > maxX) || (minY > maxY)) {
+	    return;
+	}
+
+	// Edge functions, non negative inside.  Their constant is moved
+	// in by half the pixel extent, so that evaluating them at a pixel
+	// center tells whether the whole pixel is inside.
+	double[] p = setup;
+	setEdge(p, s,     x0, y0, x1, y1);
+	setEdge(p, s + 3, x1, y1, x2, y2);
+	setEdge(p, s + 6, x2, y2, x0, y0);
+
+	double zx = ((z1 - z0) * (y2 - y0) - (z2 - z0) * (y1 - y0)) / area;
+	double zy = ((x1 - x0) * (z2 - z0) - (x2 - x0) * (z1 - z0)) / area;
+	p[s+9]  = zx;
+	p[s+10] = zy;
+	// farthest depth over a pixel, relative to its center
+	p[s+11] = z0 - zx * x0 - zy * y0 + 0.5 * (Math.abs(zx) + Math.abs(zy));
+	p[s+12] = minX;
+	p[s+13] = minY;
+	p[s+14] = maxX;
+	p[s+15] = maxY;
+	p[s+16] = Math.max(z0, Math.max(z1, z2));
+    }
+
+    private static void setEdge(double[] p, int s,
+				double xa, double ya, double xb, double yb) {
+	double a = ya - yb;
+	double b = xb - xa;
+	p[s]   = a;
+	p[s+1] = b;
+	p[s+2] = xa * yb - xb * ya - 0.5 * (Math.abs(a) + Math.abs(b));
+    }
+
+    private void rasterizeTileRow(int ty) {
+	int rowStart = ty << TILE_SHIFT;
+	int rowEnd = rowStart + TILE_SIZE - 1;
+	double[] p = setup;
+	float[] d = depth;
+	int numSetup = 2 * numTriangles;
+
+	for (int i = 0; i < numSetup; i++) {
+	    int s = SETUP_STRIDE * i;
+	    double zFar = p[s+16];
+	    if (Double.isNaN(zFar) ||
+		(p[s+13] > rowEnd) || (p[s+15] < rowStart)) {
+		continue;
+	    }
+	    int minX = (int) p[s+12];
+	    int maxX = (int) p[s+14];
+	    int minY = Math.max((int) p[s+13], rowStart);
+	    int maxY = Math.min((int) p[s+15], rowEnd);
+	    double a0 = p[s],   b0 = p[s+1], c0 = p[s+2];
+	    double a1 = p[s+3], b1 = p[s+4], c1 = p[s+5];
+	    double a2 = p[s+6], b2 = p[s+7], c2 = p[s+8];
+	    double zx = p[s+9], zy = p[s+10], zc = p[s+11];
+
+	    for (int y = minY; y <= maxY; y++) {
+		double cy = y + 0.5;
+		double e0 = b0 * cy + c0;
+		double e1 = b1 * cy + c1;
+		double e2 = b2 * cy + c2;
+		double zr = zy * cy + zc;
+		int row = y * width;
+		for (int x = minX; x <= maxX; x++) {
+		    double cx = x + 0.5;
+		    if ((a0 * cx + e0 >= 0.0) &&
+			(a1 * cx + e1 >= 0.0) &&
+			(a2 * cx + e2 >= 0.0)) {
+			// round up, so the stored depth is never nearer
+			float z = Math.nextUp((float) Math.min(zx * cx + zr, zFar));
+			if (z < d[row + x]) {
+			    d[row + x] = z;
+			}
+		    }
+		}
+	    }
+	}
+
+	for (int tx = 0; tx < tilesX; tx++) {
+	    float max = Float.NEGATIVE_INFINITY;
+	    for (int y = rowStart; y <= rowEnd; y++) {
+		int row = y * width;
+		for (int x = tx << TILE_SHIFT, e = x + TILE_SIZE; x < e; x++) {
+		    if (d[row + x] > max) {
+			max = d[row + x];
+		    }
+		}
+	    }
+	    tileMax[ty * tilesX + tx] = max;
+	}
+    }
+
+    /**
+     * Projects box, in the coordinates of the clip transform passed to
+     * clear(), and stores its normalized device bounds at rect[offset]
+     * as minX, maxX, minY, maxY and minZ.  Returns false, leaving rect
+     * unchanged, if the box crosses the near plane or is empty.  May be
+     * called from several threads.
+     */
+    boolean project(BoundingBox box, double[] rect, int offset) {
+	if ((box == null) || box.boundsIsEmpty || box.boundsIsInfinite) {
+	    return false;
+	}
+
+	double[] m = clip;
+	double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+	double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+	double minZ = Double.POSITIVE_INFINITY;
+
+	for (int i = 0; i < 8; i++) {
+	    double x = ((i & 1) == 0) ? box.lower.x : box.upper.x;
+	    double y = ((i & 2) == 0) ? box.lower.y : box.upper.y;
+	    double z = ((i & 4) == 0) ? box.lower.z : box.upper.z;
+	    double cz = m[8]  * x + m[9]  * y + m[10] * z + m[11];
+	    double cw = m[12] * x + m[13] * y + m[14] * z + m[15];
+	    if ((cw < MIN_W) || (cz + cw < 0.0)) {
+		return false;
+	    }
+	    double cx = (m[0] * x + m[1] * y + m[2] * z + m[3]) / cw;
+	    double cy = (m[4] * x + m[5] * y + m[6] * z + m[7]) / cw;
+	    cz /= cw;
+	    if (cx < minX) minX = cx;
+	    if (cx > maxX) maxX = cx;
+	    if (cy < minY) minY = cy;
+	    if (cy > maxY) maxY = cy;
+	    if (cz < minZ) minZ = cz;
+	}
+
+	rect[offset]   = minX;
+	rect[offset+1] = maxX;
+	rect[offset+2] = minY;
+	rect[offset+3] = maxY;
+	rect[offset+4] = minZ;
+	return true;
+    }
+
+    /**
+     * Returns the fraction of the screen covered by a rect computed by
+     * project().
+     */
+    static double screenArea(double[] rect, int offset) {
+	double w = Math.min(rect[offset+1], 1.0) - Math.max(rect[offset], -1.0);
+	double h = Math.min(rect[offset+3], 1.0) - Math.max(rect[offset+2], -1.0);
+	return ((w > 0.0) && (h > 0.0)) ? 0.25 * w * h : 0.0;
+    }
+
+    /**
+     * Returns true if everything within a rect computed by project() is
+     * hidden behind the occluders.  May be called from several threads
+     * after rasterize().
+     */
+    boolean isOccluded(double[] rect, int offset) {
+	double minX = rect[offset],   maxX = rect[offset+1];
+	double minY = rect[offset+2], maxY = rect[offset+3];
+	double minZ = rect[offset+4];
+
+	if ((numTriangles == 0) ||
+	    (maxX < -1.0) || (minX > 1.0) || (maxY < -1.0) || (minY > 1.0)) {
+	    return false;
+	}
+
+	// pixels touched by the rect
+	int x0 = (int) Math.floor((minX + 1.0) * 0.5 * width);
+	int x1 = (int) Math.ceil((maxX + 1.0) * 0.5 * width) - 1;
+	int y0 = (int) Math.floor((1.0 - maxY) * 0.5 * height);
+	int y1 = (int) Math.ceil((1.0 - minY) * 0.5 * height) - 1;
+	x0 = Math.min(Math.max(x0, 0), width - 1);
+	y0 = Math.min(Math.max(y0, 0), height - 1);
+	x1 = Math.min(Math.max(x1, x0), width - 1);
+	y1 = Math.min(Math.max(y1, y0), height - 1);
+
+	float[] d = depth;
+	for (int ty = y0 >> TILE_SHIFT; ty <= (y1 >> TILE_SHIFT); ty++) {
+	    for (int tx = x0 >> TILE_SHIFT; tx <= (x1 >> TILE_SHIFT); tx++) {
+		if (tileMax[ty * tilesX + tx] < minZ) {
+		    continue;
+		}
+		int ys = Math.max(y0, ty << TILE_SHIFT);
+		int ye = Math.min(y1, (ty << TILE_SHIFT) + TILE_SIZE - 1);
+		int xs = Math.max(x0, tx << TILE_SHIFT);
+		int xe = Math.min(x1, (tx << TILE_SHIFT) + TILE_SIZE - 1);
+		for (int y = ys; y <= ye; y++) {
+		    int row = y * width;
+		    for (int x = xs; x <= xe; x++) {
+			if (d[row + x] >= minZ) {
+			    return false;
+			}
+		    }
+		}
+	    }
+	}
+	return true;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+
+/**
+ * The OcclusionCuller is the software occlusion culling stage of a
+ * RenderBin, enabled by the -Dj3d.occlusionCulling property.
+ *
+ * While the BHTree visibility pass runs, the GeometryAtoms it selects
+ * are collected here instead of being handed to the RenderBin.  The
+ * opaque atoms that cover the largest part of the screen are then
+ * rasterized as occluders into an OcclusionBuffer, the bounds of all
+ * collected atoms are tested against it, and only the atoms that are
+ * not hidden are passed on to RenderBin.processGeometryAtom().  The
+ * RenderAtoms of hidden atoms, which may still be in the bin from
+ * earlier frames, are marked occluded so that the render methods skip
+ * them.
+ *
+ * Occluders must be triangle or quad arrays in the locale of the view,
+ * with filled polygons and without transparency, alpha test or
+ * disabled depth writes.  Atoms from other locales, oriented shapes and
+ * atoms that don't use a LESS or LESS_OR_EQUAL depth test are never
+ * culled.
+ */
+
+class OcclusionCuller {
+
+    // Default width of the occlusion buffer, in pixels; its height
+    // follows the aspect ratio of the canvas
+    static final int DEFAULT_WIDTH = 256;
+
+    // Smallest fraction of the screen that the bounds of an occluder
+    // must cover
+    static final double MIN_OCCLUDER_AREA = 0.01;
+
+    // Maximum number of occluder triangles per frame, and per shape
+    static final int MAX_TRIANGLES = 16384;
+    static final int MAX_SHAPE_TRIANGLES = 2048;
+
+    // Minimum number of atoms, or occluders, per parallel task
+    private static final int TEST_GRAIN = 512;
+    private static final int EXTRACT_GRAIN = 4;
+
+    private final RenderBin renderBin;
+    private final OcclusionBuffer buffer = new OcclusionBuffer();
+    // Row major vworld to clip transform, with z negated for the
+    // OcclusionBuffer
+    private final double[] vworldToClip = new double[16];
+
+    // Set while the BHTree visibility pass runs
+    boolean collecting = false;
+
+    // The atoms collected in this pass, the projection of their bounds
+    // (see OcclusionBuffer.project()), the fraction of the screen they
+    // cover (2 if they cross the near plane, -1 if they are from another
+    // locale), and whether they are hidden
+    private GeometryAtom[] atoms = new GeometryAtom[256];
+    private double[] rects = new double[5 * 256];
+    private double[] areas = new double[256];
+    private boolean[] occluded = new boolean[256];
+    private int numAtoms = 0;
+
+    // Indices of the occluders and of their first triangle
+    private int[] occluders = new int[16];
+    private int[] firstTriangles = new int[16];
+    private int numOccluders = 0;
+
+    // Statistics of the last pass
+    int lastNumOccluders = 0;
+    int lastNumOccluded = 0;
+
+    OcclusionCuller(RenderBin renderBin) {
+	this.renderBin = renderBin;
+    }
+
+    /**
+     * Starts a visibility pass with the given vworld to clip transform
+     * and canvas size.
+     */
+    void begin(Transform3D vworldToClip, int canvasWidth, int canvasHeight) {
+	int width = VirtualUniverse.mc.occlusionBufferWidth;
+	int height = width;
+	if ((canvasWidth > 0) && (canvasHeight > 0)) {
+	    height = (int) Math.ceil((double) width * canvasHeight / canvasWidth);
+	}
+	buffer.setSize(width, height);
+	vworldToClip.get(this.vworldToClip);
+	for (int i = 8; i < 12; i++) {
+	    this.vworldToClip[i] = -this.vworldToClip[i];
+	}
+	buffer.clear(this.vworldToClip);
+	numAtoms = 0;
+	collecting = true;
+    }
+
+    /**
+     * Called by the RenderBin for each atom selected while collecting.
+     */
+    void add(GeometryAtom ga) {
+	if (numAtoms == atoms.length) {
+	    int size = atoms.length * 2;
+	    atoms = Arrays.copyOf(atoms, size);
+	    rects = new double[5 * size];
+	    areas = new double[size];
+	    occluded = new boolean[size];
+	}
+	atoms[numAtoms++] = ga;
+    }
+
+    /**
+     * Ends the visibility pass: culls the collected atoms and passes
+     * the visible ones on to the RenderBin.
+     */
+    void end(long referenceTime) {
+	collecting = false;
+
+	cull();
+
+	View view = renderBin.view;
+	int numOccluded = 0;
+	for (int i = 0; i < numAtoms; i++) {
+	    GeometryAtom ga = atoms[i];
+	    if (occluded[i]) {
+		RenderAtom ra = ga.getRenderAtom(view);
+		if (ra != null) {
+		    ra.occluded = true;
+		}
+		numOccluded++;
+	    } else {
+		renderBin.processGeometryAtom(ga, referenceTime);
+		RenderAtom ra = ga.getRenderAtom(view);
+		if (ra != null) {
+		    ra.occluded = false;
+		}
+	    }
+	    atoms[i] = null;
+	}
+	lastNumOccluded = numOccluded;
+	numAtoms = 0;
+    }
+
+    // Selects and rasterizes the occluders, and tests all atoms.
+    private void cull() {
+	final OcclusionBuffer buffer = this.buffer;
+	final GeometryAtom[] atoms = this.atoms;
+	final double[] rects = this.rects;
+	final double[] areas = this.areas;
+	final boolean[] occluded = this.occluded;
+	final Locale locale = renderBin.locale;
+
+	J3dForkJoinScheduler.parallelFor(numAtoms, TEST_GRAIN,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		for (int i = start; i < end; i++) {
+		    Shape3DRetained source = atoms[i].source;
+		    if (source.locale != locale) {
+			areas[i] = -1.0;
+		    } else if (buffer.project(source.vwcBounds, rects, 5 * i)) {
+			areas[i] = OcclusionBuffer.screenArea(rects, 5 * i);
+		    } else {
+			areas[i] = 2.0;
+		    }
+		}
+	    }
+	});
+
+	selectOccluders();
+	lastNumOccluders = numOccluders;
+	if (numOccluders == 0) {
+	    Arrays.fill(occluded, 0, numAtoms, false);
+	    return;
+	}
+
+	J3dForkJoinScheduler.parallelFor(numOccluders, EXTRACT_GRAIN,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		double[] m = new double[16];
+		Point3d p = new Point3d();
+		for (int i = start; i < end; i++) {
+		    GeometryAtom ga = atoms[occluders[i]];
+		    mul(vworldToClip, ga.source.getCurrentLocalToVworld().mat, m);
+		    extractTriangles(ga, m, firstTriangles[i], p);
+		}
+	    }
+	});
+
+	buffer.rasterize();
+
+	J3dForkJoinScheduler.parallelFor(numAtoms, TEST_GRAIN,
+					 new J3dForkJoinScheduler.RangeTask() {
+	    @Override
+	    public void run(int start, int end) {
+		for (int i = start; i < end; i++) {
+		    occluded[i] = (areas[i] >= 0.0) && (areas[i] <= 1.0) &&
+			isOccludee(atoms[i]) &&
+			buffer.isOccluded(rects, 5 * i);
+		}
+	    }
+	});
+    }
+
+    // m = a * b for row major 4x4 matrices
+    private static void mul(double[] a, double[] b, double[] m) {
+	for (int r = 0; r < 16; r += 4) {
+	    for (int c = 0; c < 4; c++) {
+		m[r + c] = a[r] * b[c] + a[r+1] * b[4 + c] +
+		    a[r+2] * b[8 + c] + a[r+3] * b[12 + c];
+	    }
+	}
+    }
+
+    // Picks the occluders among the atoms, largest screen area first,
+    // and reserves room for their triangles in the buffer.
+    private void selectOccluders() {
+	numOccluders = 0;
+	for (int i = 0; i < numAtoms; i++) {
+	    if ((areas[i] >= MIN_OCCLUDER_AREA) && isOccluder(atoms[i])) {
+		if (numOccluders == occluders.length) {
+		    occluders = Arrays.copyOf(occluders, numOccluders * 2);
+		}
+		occluders[numOccluders++] = i;
+	    }
+	}
+
+	// insertion sort by decreasing area, the list is short
+	for (int i = 1; i < numOccluders; i++) {
+	    int o = occluders[i];
+	    int j = i - 1;
+	    while ((j >= 0) && (areas[occluders[j]] < areas[o])) {
+		occluders[j + 1] = occluders[j];
+		j--;
+	    }
+	    occluders[j + 1] = o;
+	}
+
+	if (firstTriangles.length < occluders.length) {
+	    firstTriangles = new int[occluders.length];
+	}
+	int n = 0;
+	int total = 0;
+	for (int i = 0; i < numOccluders; i++) {
+	    int count = countTriangles(atoms[occluders[i]]);
+	    if ((count == 0) || (count > MAX_SHAPE_TRIANGLES)) {
+		continue;
+	    }
+	    if (total + count > MAX_TRIANGLES) {
+		break;
+	    }
+	    occluders[n] = occluders[i];
+	    firstTriangles[n++] = buffer.addTriangles(count);
+	    total += count;
+	}
+	numOccluders = n;
+    }
+
+    // Returns true if the atom is drawn opaque with depth writes.
+    private static boolean isOccluder(GeometryAtom ga) {
+	if ((ga.lastLocalTransformArray != null) ||
+	    (ga.source instanceof OrientedShape3DRetained)) {
+	    return false;
+	}
+
+	AppearanceRetained app = ga.source.appearance;
+	if (app == null) {
+	    return true;
+	}
+	TransparencyAttributesRetained ta = app.transparencyAttributes;
+	if ((ta != null) &&
+	    (ta.transparencyMode != TransparencyAttributes.NONE)) {
+	    return false;
+	}
+	RenderingAttributesRetained ra = app.renderingAttributes;
+	if ((ra != null) &&
+	    (!ra.visible || !ra.depthBufferEnable ||
+	     !ra.depthBufferWriteEnable ||
+	     (ra.alphaTestFunction != RenderingAttributes.ALWAYS))) {
+	    return false;
+	}
+	PolygonAttributesRetained pa = app.polygonAttributes;
+	return (pa == null) || (pa.polygonMode == PolygonAttributes.POLYGON_FILL);
+    }
+
+    // Returns true if the atom is depth tested, so that it may be culled.
+    private static boolean isOccludee(GeometryAtom ga) {
+	if (ga.source instanceof OrientedShape3DRetained) {
+	    return false;
+	}
+	AppearanceRetained app = ga.source.appearance;
+	RenderingAttributesRetained ra = (app != null) ?
+	    app.renderingAttributes : null;
+	return (ra == null) ||
+	    (ra.depthBufferEnable &&
+	     ((ra.depthTestFunction == RenderingAttributes.LESS) ||
+	      (ra.depthTestFunction == RenderingAttributes.LESS_OR_EQUAL)));
+    }
+
+    private static int cullMode(GeometryAtom ga) {
+	AppearanceRetained app = ga.source.appearance;
+	if ((app == null) || (app.polygonAttributes == null)) {
+	    return OcclusionBuffer.CULL_BACK;
+	}
+	switch (app.polygonAttributes.cullFace) {
+	case PolygonAttributes.CULL_NONE:
+	    return OcclusionBuffer.CULL_NONE;
+	case PolygonAttributes.CULL_FRONT:
+	    return OcclusionBuffer.CULL_FRONT;
+	default:
+	    return OcclusionBuffer.CULL_BACK;
+	}
+    }
+
+    // Returns the number of triangles of the supported geometries of
+    // the atom.
+    private static int countTriangles(GeometryAtom ga) {
+	int count = 0;
+	for (int g = 0; g < ga.geometryArray.length; g++) {
+	    GeometryRetained geo = ga.geometryArray[g];
+	    if (geo instanceof IndexedGeometryArrayRetained) {
+		int n = ((IndexedGeometryArrayRetained) geo).validIndexCount;
+		if (geo instanceof IndexedTriangleArrayRetained) {
+		    count += n / 3;
+		} else if (geo instanceof IndexedQuadArrayRetained) {
+		    count += 2 * (n / 4);
+		}
+	    } else if (geo instanceof TriangleArrayRetained) {
+		count += ((GeometryArrayRetained) geo).validVertexCount / 3;
+	    } else if (geo instanceof QuadArrayRetained) {
+		count += 2 * (((GeometryArrayRetained) geo).validVertexCount / 4);
+	    } else if ((geo instanceof TriangleStripArrayRetained) ||
+		       (geo instanceof TriangleFanArrayRetained)) {
+		int[] counts = ((GeometryStripArrayRetained) geo).stripVertexCounts;
+		for (int i = 0; i < counts.length; i++) {
+		    count += Math.max(counts[i] - 2, 0);
+		}
+	    }
+	}
+	return count;
+    }
+
+    // Writes the clip coordinates of the triangles counted by
+    // countTriangles() into the buffer, starting at triangle first.
+    private void extractTriangles(GeometryAtom ga, double[] m, int first,
+				  Point3d p) {
+	double[] t = buffer.getTriangles();
+	int cullMode = cullMode(ga);
+	int tri = first;
+
+	for (int g = 0; g < ga.geometryArray.length; g++) {
+	    GeometryRetained gr = ga.geometryArray[g];
+	    if (!(gr instanceof GeometryArrayRetained)) {
+		continue;
+	    }
+	    GeometryArrayRetained geo = (GeometryArrayRetained) gr;
+
+	    if (geo instanceof IndexedGeometryArrayRetained) {
+		IndexedGeometryArrayRetained igeo =
+		    (IndexedGeometryArrayRetained) geo;
+		int[] index = igeo.indexCoord;
+		int start = igeo.initialIndexIndex;
+		int n = igeo.validIndexCount;
+		if (geo instanceof IndexedTriangleArrayRetained) {
+		    for (int i = start, e = start + n - 2; i < e; i += 3) {
+			putTriangle(geo, m, t, tri++, cullMode,
+				    index[i], index[i+1], index[i+2], p);
+		    }
+		} else if (geo instanceof IndexedQuadArrayRetained) {
+		    for (int i = start, e = start + n - 3; i < e; i += 4) {
+			putTriangle(geo, m, t, tri++, cullMode,
+				    index[i], index[i+1], index[i+2], p);
+			putTriangle(geo, m, t, tri++, cullMode,
+				    index[i], index[i+2], index[i+3], p);
+		    }
+		}
+		continue;
+	    }
+
+	    int start = ((geo.vertexFormat & GeometryArray.BY_REFERENCE) == 0) ?
+		geo.initialVertexIndex : geo.initialCoordIndex;
+	    int n = geo.validVertexCount;
+	    if (geo instanceof TriangleArrayRetained) {
+		for (int i = start, e = start + n - 2; i < e; i += 3) {
+		    putTriangle(geo, m, t, tri++, cullMode, i, i+1, i+2, p);
+		}
+	    } else if (geo instanceof QuadArrayRetained) {
+		for (int i = start, e = start + n - 3; i < e; i += 4) {
+		    putTriangle(geo, m, t, tri++, cullMode, i, i+1, i+2, p);
+		    putTriangle(geo, m, t, tri++, cullMode, i, i+2, i+3, p);
+		}
+	    } else if (geo instanceof TriangleStripArrayRetained) {
+		GeometryStripArrayRetained sgeo = (GeometryStripArrayRetained) geo;
+		for (int s = 0; s < sgeo.stripVertexCounts.length; s++) {
+		    int j = sgeo.stripStartVertexIndices[s];
+		    for (int k = 0; k < sgeo.stripVertexCounts[s] - 2; k++) {
+			// every other triangle of a strip is reversed
+			if ((k & 1) == 0) {
+			    putTriangle(geo, m, t, tri++, cullMode,
+					j+k, j+k+1, j+k+2, p);
+			} else {
+			    putTriangle(geo, m, t, tri++, cullMode,
+					j+k+1, j+k, j+k+2, p);
+			}
+		    }
+		}
+	    } else if (geo instanceof TriangleFanArrayRetained) {
+		GeometryStripArrayRetained sgeo = (GeometryStripArrayRetained) geo;
+		for (int s = 0; s < sgeo.stripVertexCounts.length; s++) {
+		    int j = sgeo.stripStartVertexIndices[s];
+		    for (int k = 0; k < sgeo.stripVertexCounts[s] - 2; k++) {
+			putTriangle(geo, m, t, tri++, cullMode,
+				    j, j+k+1, j+k+2, p);
+		    }
+		}
+	    }
+	}
+    }
+
+    private void putTriangle(GeometryArrayRetained geo, double[] m,
+			     double[] t, int tri, int cullMode,
+			     int v0, int v1, int v2, Point3d p) {
+	int k = 12 * tri;
+	putVertex(geo, m, t, k, v0, p);
+	putVertex(geo, m, t, k + 4, v1, p);
+	putVertex(geo, m, t, k + 8, v2, p);
+	buffer.setCullMode(tri, cullMode);
+    }
+
+    private static void putVertex(GeometryArrayRetained geo, double[] m,
+				  double[] t, int k, int v, Point3d p) {
+	geo.getVertexData(v, p);
+	t[k]   = m[0]  * p.x + m[1]  * p.y + m[2]  * p.z + m[3];
+	t[k+1] = m[4]  * p.x + m[5]  * p.y + m[6]  * p.z + m[7];
+	t[k+2] = m[8]  * p.x + m[9]  * p.y + m[10] * p.z + m[11];
+	t[k+3] = m[12] * p.x + m[13] * p.y + m[14] * p.z + m[15];
+    }
+}
@@ -85,8 +85,9 @@ class OrientedShape3DRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.occluded &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
 		    trans = ra.localToVworld;
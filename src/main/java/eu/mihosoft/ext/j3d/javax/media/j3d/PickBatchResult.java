@@ -0,0 +1,146 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+/**
+ * The PickBatchResult object holds the hits of a batch of pick shapes,
+ * as returned by the batched pick methods of Locale.
+ * <p>
+ * The hits are stored in flat arrays rather than in one PickInfo per
+ * hit.  The hits of pick shape <i>i</i> are the entries from
+ * <code>getOffsets()[i]</code> up to, but not including,
+ * <code>getOffsets()[i+1]</code> of the arrays returned by
+ * <code>getNodeIndices</code> and <code>getDistances</code>, ordered by
+ * increasing distance.  A node index refers to the array returned by
+ * <code>getNodes</code>, which holds each picked node once.
+ * <p>
+ * The arrays returned by the methods of this class are not copied and
+ * must not be modified.
+ *
+ * @see Locale#pickAllBatch
+ * @see Locale#pickClosestBatch
+ */
+
+public class PickBatchResult extends Object {
+
+    private final int[] offsets;
+    private final int[] nodeIndices;
+    private final double[] distances;
+    private final Node[] nodes;
+
+    PickBatchResult(int[] offsets, int[] nodeIndices, double[] distances,
+		    Node[] nodes) {
+	this.offsets = offsets;
+	this.nodeIndices = nodeIndices;
+	this.distances = distances;
+	this.nodes = nodes;
+    }
+
+    /**
+     * Returns the number of pick shapes of the batch.
+     * @return the number of pick shapes
+     */
+    public int getNumPickShapes() {
+	return offsets.length - 1;
+    }
+
+    /**
+     * Returns the total number of hits of all pick shapes.
+     * @return the number of hits
+     */
+    public int getNumHits() {
+	return nodeIndices.length;
+    }
+
+    /**
+     * Returns the number of hits of the given pick shape.
+     * @param pickShapeIndex the index of the pick shape in the batch
+     * @return the number of hits of the pick shape
+     */
+    public int getNumHits(int pickShapeIndex) {
+	return offsets[pickShapeIndex + 1] - offsets[pickShapeIndex];
+    }
+
+    /**
+     * Returns the offsets of the hits of each pick shape.  The array
+     * has one more entry than there are pick shapes; its last entry is
+     * the total number of hits.
+     * @return the hit offsets
+     */
+    public int[] getOffsets() {
+	return offsets;
+    }
+
+    /**
+     * Returns, for each hit, the index of the picked node in the array
+     * returned by <code>getNodes</code>.
+     * @return the node indices of the hits
+     */
+    public int[] getNodeIndices() {
+	return nodeIndices;
+    }
+
+    /**
+     * Returns, for each hit, its distance from the start of the pick
+     * shape.  In PICK_GEOMETRY mode this is the distance of the closest
+     * intersection of a PickRay or PickSegment with the geometry of the
+     * node.  Otherwise it is the distance at which the pick shape
+     * intersects the bounds of the node, as used by
+     * <code>Locale.pickAllSorted</code>.
+     * @return the distances of the hits
+     */
+    public double[] getDistances() {
+	return distances;
+    }
+
+    /**
+     * Returns the picked nodes.  These are Shape3D or Morph nodes.
+     * @return the picked nodes
+     */
+    public Node[] getNodes() {
+	return nodes;
+    }
+
+    /**
+     * Returns the node picked by the given hit.
+     * @param hitIndex the index of the hit
+     * @return the picked node
+     */
+    public Node getNode(int hitIndex) {
+	return nodes[nodeIndices[hitIndex]];
+    }
+
+    /**
+     * Returns the distance of the given hit.
+     * @param hitIndex the index of the hit
+     * @return the distance of the hit
+     * @see #getDistances
+     */
+    public double getDistance(int hitIndex) {
+	return distances[hitIndex];
+    }
+}
@@ -789,6 +789,122 @@ static ArrayList<NodeRetained> initSceneGraphPath(NodeRetained nodeR) {
 	return pickInfoList;
     }
 
+    /**
+     * Throws CapabilityNotSetException if the geometry of the given
+     * Shape3D or Morph node can't be intersected in PICK_GEOMETRY mode.
+     */
+    static void checkGeometryCapabilities(Node pickNode) {
+	if (pickNode instanceof Shape3D) {
+
+	    /*
+	     * @exception CapabilityNotSetException if the mode is
+	     * PICK_GEOMETRY and the Geometry.ALLOW_INTERSECT capability bit
+	     * is not set in any Geometry objects referred to by any shape
+	     * node whose bounds intersects the PickShape.
+	     *
+	     * @exception CapabilityNotSetException if flags contains any of
+	     * CLOSEST_INTERSECTION_POINT, CLOSEST_DISTANCE, CLOSEST_GEOM_INFO
+	     * or ALL_GEOM_INFO, and the capability bits that control reading of
+	     * coordinate data are not set in any GeometryArray object referred
+	     * to by any shape node that intersects the PickShape.
+	     * The capability bits that must be set to avoid this exception are
+	     * as follows :
+	     *
+	     * By-copy geometry : GeometryArray.ALLOW_COORDINATE_READ
+	     * By-reference geometry : GeometryArray.ALLOW_REF_DATA_READ
+	     * Indexed geometry : IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ
+	     * (in addition to one of the above)
+	     *
+	     */
+
+	    if (!pickNode.getCapability(Shape3D.ALLOW_GEOMETRY_READ)) {
+		throw new CapabilityNotSetException(J3dI18N.getString("PickInfo0"));
+	    }
+
+	    for (int j = 0; j < ((Shape3D)pickNode).numGeometries(); j++) {
+		Geometry geo = ((Shape3D)pickNode).getGeometry(j);
+
+		if(geo == null) {
+		    continue;
+		}
+
+		if(!geo.getCapability(Geometry.ALLOW_INTERSECT)) {
+		    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo1"));
+		}
+
+		if (geo instanceof GeometryArray) {
+		    if(!geo.getCapability(GeometryArray.ALLOW_COORDINATE_READ))
+			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo2"));
+		    if(!geo.getCapability(GeometryArray.ALLOW_COUNT_READ))
+			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo3"));
+		    if(!geo.getCapability(GeometryArray.ALLOW_FORMAT_READ))
+			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo4"));
+		    if (geo instanceof IndexedGeometryArray) {
+			if(!geo.getCapability(IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ))
+			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo5"));
+		    }
+		} else if (geo.retained instanceof CompressedGeometryRetained) {
+		    if(!geo.getCapability(CapabilityBits.COMPRESSED_GEOMETRY_ALLOW_GEOMETRY_READ))
+			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo0"));
+		}
+	    }
+
+	} else if (pickNode.retained instanceof MorphRetained) {
+
+	    /*
+	     * @exception CapabilityNotSetException if the mode is
+	     * PICK_GEOMETRY and the Geometry.ALLOW_INTERSECT capability bit
+	     * is not set in any Geometry objects referred to by any shape
+	     * node whose bounds intersects the PickShape.
+	     *
+	     * @exception CapabilityNotSetException if flags contains any of
+	     * CLOSEST_INTERSECTION_POINT, CLOSEST_DISTANCE, CLOSEST_GEOM_INFO
+	     * or ALL_GEOM_INFO, and the capability bits that control reading of
+	     * coordinate data are not set in any GeometryArray object referred
+	     * to by any shape node that intersects the PickShape.
+	     * The capability bits that must be set to avoid this exception are
+	     * as follows :
+	     *
+	     * By-copy geometry : GeometryArray.ALLOW_COORDINATE_READ
+	     * By-reference geometry : GeometryArray.ALLOW_REF_DATA_READ
+	     * Indexed geometry : IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ
+	     * (in addition to one of the above)
+	     *
+	     */
+
+	    if (!pickNode.getCapability(CapabilityBits.MORPH_ALLOW_GEOMETRY_ARRAY_READ)) {
+		throw new CapabilityNotSetException(J3dI18N.getString("PickInfo6"));
+	    }
+
+	    MorphRetained morph = (MorphRetained)pickNode.retained;
+	    int numGeo = morph.getNumGeometryArrays();
+	    for (int j = 0; j < numGeo; j++) {
+		GeometryArray geo = morph.getGeometryArray(j);
+
+		if(geo == null) {
+		    continue;
+		}
+
+		if(!geo.getCapability(Geometry.ALLOW_INTERSECT)) {
+		    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo1"));
+		}
+
+		if(!geo.getCapability(GeometryArray.ALLOW_COORDINATE_READ))
+		    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo2"));
+		if(!geo.getCapability(GeometryArray.ALLOW_COUNT_READ))
+		    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo3"));
+		if(!geo.getCapability(GeometryArray.ALLOW_FORMAT_READ))
+		    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo4"));
+
+		if (geo instanceof IndexedGeometryArray) {
+		    if(!geo.getCapability(IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ))
+			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo5"));
+		}
+	    }
+
+	}
+    }
+
     static PickInfo[] pick(Object node, GeometryAtom[] geomAtoms,
             int mode, int flags, PickShape pickShape, int pickType) {
 
@@ -832,59 +948,7 @@ static ArrayList<NodeRetained> initSceneGraphPath(NodeRetained nodeR) {
                 }
 
                 if (pickNode instanceof Shape3D) {
-
-		    /*
-		     * @exception CapabilityNotSetException if the mode is
-		     * PICK_GEOMETRY and the Geometry.ALLOW_INTERSECT capability bit
-		     * is not set in any Geometry objects referred to by any shape
-		     * node whose bounds intersects the PickShape.
-		     *
-                     * @exception CapabilityNotSetException if flags contains any of
-		     * CLOSEST_INTERSECTION_POINT, CLOSEST_DISTANCE, CLOSEST_GEOM_INFO
-		     * or ALL_GEOM_INFO, and the capability bits that control reading of
-		     * coordinate data are not set in any GeometryArray object referred
-		     * to by any shape node that intersects the PickShape.
-		     * The capability bits that must be set to avoid this exception are
-                     * as follows :
-		     *
-		     * By-copy geometry : GeometryArray.ALLOW_COORDINATE_READ
-		     * By-reference geometry : GeometryArray.ALLOW_REF_DATA_READ
-		     * Indexed geometry : IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ
-		     * (in addition to one of the above)
-		     *
-		     */
-
-                    if (!pickNode.getCapability(Shape3D.ALLOW_GEOMETRY_READ)) {
-			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo0"));
-		    }
-
-		    for (int j = 0; j < ((Shape3D)pickNode).numGeometries(); j++) {
-			Geometry geo = ((Shape3D)pickNode).getGeometry(j);
-
-			if(geo == null) {
-			    continue;
-			}
-
-			if(!geo.getCapability(Geometry.ALLOW_INTERSECT)) {
-			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo1"));
-			}
-
-			if (geo instanceof GeometryArray) {
-			    if(!geo.getCapability(GeometryArray.ALLOW_COORDINATE_READ))
-				throw new CapabilityNotSetException(J3dI18N.getString("PickInfo2"));
-			    if(!geo.getCapability(GeometryArray.ALLOW_COUNT_READ))
-				throw new CapabilityNotSetException(J3dI18N.getString("PickInfo3"));
-			    if(!geo.getCapability(GeometryArray.ALLOW_FORMAT_READ))
-				throw new CapabilityNotSetException(J3dI18N.getString("PickInfo4"));
-			    if (geo instanceof IndexedGeometryArray) {
-				if(!geo.getCapability(IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ))
-				    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo5"));
-			    }
-			} else if (geo instanceof CompressedGeometry) {
-			    if(!geo.getCapability(CompressedGeometry.ALLOW_GEOMETRY_READ))
-				throw new CapabilityNotSetException(J3dI18N.getString("PickInfo0"));
-			}
-		    }
+		    checkGeometryCapabilities(pickNode);
 
 		    if (((Shape3DRetained)(pickNode.retained)).intersect(pickInfo, pickShape, flags) == false) {
 			// System.err.println("  ---- geom " + i + " not intersected");
@@ -897,57 +961,8 @@ static ArrayList<NodeRetained> initSceneGraphPath(NodeRetained nodeR) {
                         pickInfoArr[0] = pickInfo;
                         return pickInfoArr;
                     }
-                } else if (pickNode instanceof Morph) {
-
-		    /*
-		     * @exception CapabilityNotSetException if the mode is
-		     * PICK_GEOMETRY and the Geometry.ALLOW_INTERSECT capability bit
-		     * is not set in any Geometry objects referred to by any shape
-		     * node whose bounds intersects the PickShape.
-		     *
-                     * @exception CapabilityNotSetException if flags contains any of
-		     * CLOSEST_INTERSECTION_POINT, CLOSEST_DISTANCE, CLOSEST_GEOM_INFO
-		     * or ALL_GEOM_INFO, and the capability bits that control reading of
-		     * coordinate data are not set in any GeometryArray object referred
-		     * to by any shape node that intersects the PickShape.
-		     * The capability bits that must be set to avoid this exception are
-                     * as follows :
-		     *
-		     * By-copy geometry : GeometryArray.ALLOW_COORDINATE_READ
-		     * By-reference geometry : GeometryArray.ALLOW_REF_DATA_READ
-		     * Indexed geometry : IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ
-		     * (in addition to one of the above)
-		     *
-		     */
-
-                    if (!pickNode.getCapability(Morph.ALLOW_GEOMETRY_ARRAY_READ)) {
-			throw new CapabilityNotSetException(J3dI18N.getString("PickInfo6"));
-		    }
-
-		    int numGeo = ((MorphRetained)(pickNode.retained)).getNumGeometryArrays();
-		    for (int j = 0; j < numGeo; j++) {
-			GeometryArray geo = ((Morph)pickNode).getGeometryArray(j);
-
-			if(geo == null) {
-			    continue;
-			}
-
-			if(!geo.getCapability(Geometry.ALLOW_INTERSECT)) {
-			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo1"));
-			}
-
-			if(!geo.getCapability(GeometryArray.ALLOW_COORDINATE_READ))
-			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo2"));
-			if(!geo.getCapability(GeometryArray.ALLOW_COUNT_READ))
-			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo3"));
-			if(!geo.getCapability(GeometryArray.ALLOW_FORMAT_READ))
-			    throw new CapabilityNotSetException(J3dI18N.getString("PickInfo4"));
-
-			if (geo instanceof IndexedGeometryArray) {
-			    if(!geo.getCapability(IndexedGeometryArray.ALLOW_COORDINATE_INDEX_READ))
-				throw new CapabilityNotSetException(J3dI18N.getString("PickInfo5"));
-			}
-		    }
+                } else if (pickNode.retained instanceof MorphRetained) {
+		    checkGeometryCapabilities(pickNode);
 
                     if (((MorphRetained)(pickNode.retained)).intersect(pickInfo, pickShape, flags) == false) {
                         pickInfoList.remove(i);
@@ -71,9 +71,9 @@ public Pipeline run() {
 	try {
 		switch (pipeType) {
 		case JOGL:
-			return (Pipeline)Class.forName("javax.media.j3d.JoglPipeline").newInstance();
+			return (Pipeline)Class.forName("eu.mihosoft.ext.j3d.javax.media.j3d.JoglPipeline").newInstance();
 		case NOOP:
-			return (Pipeline)Class.forName("javax.media.j3d.NoopPipeline").newInstance();
+			return (Pipeline)Class.forName("eu.mihosoft.ext.j3d.javax.media.j3d.NoopPipeline").newInstance();
 		}
 	} catch (Exception e) {
 		throw new RuntimeException(e);
@@ -158,7 +158,8 @@ public Pipeline run() {
     // GeometryArrayRetained methods
     //
 
-    // used for GeometryArrays by Copy or interleaved
+    // used for GeometryArrays by Copy or interleaved; the vertex data is
+    // varray, or varrayBuffer if varray is null
     abstract void execute(Context ctx,
             GeometryArrayRetained geo, int geo_type,
             boolean isNonUniformScale,
@@ -170,7 +171,8 @@ public Pipeline run() {
             int[] texCoordSetOffset,
             int numActiveTexUnitState,
             int vertexAttrCount, int[] vertexAttrSizes,
-            float[] varray, float[] cdata, int cdirty);
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] cdata, int cdirty);
 
     // used by GeometryArray by Reference with java arrays
     abstract void executeVA(Context ctx,
@@ -290,7 +292,8 @@ public Pipeline run() {
     // IndexedGeometryArrayRetained methods
     //
 
-    // by-copy or interleaved, by reference, Java arrays
+    // by-copy or interleaved, by reference, Java arrays; the vertex data
+    // is varray, or varrayBuffer if varray is null
     abstract void executeIndexedGeometry(Context ctx,
             GeometryArrayRetained geo, int geo_type,
             boolean isNonUniformScale,
@@ -304,7 +307,8 @@ public Pipeline run() {
             int texCoordSetMapLen,
             int[] texCoordSetOffset,
             int numActiveTexUnitState,
-            float[] varray, float[] cdata,
+            float[] varray, FloatBuffer varrayBuffer,
+            float[] cdata,
             int cdirty,
             int[] indexCoord);
 
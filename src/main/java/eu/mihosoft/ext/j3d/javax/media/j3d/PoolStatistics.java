@@ -0,0 +1,146 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+/**
+ * PoolStatistics is a snapshot of the counters of one of the object pools
+ * that Java 3D uses to reuse its internal objects, such as the messages
+ * passed between its threads.  Each thread takes objects from and returns
+ * objects to a small cache of its own, backed by a depot shared by all the
+ * threads; the depot is trimmed periodically.
+ * <p>
+ * The counters are totals since the pool was created.  A hit is an object
+ * taken from a thread cache or from the depot, a miss is an object that
+ * was created because both were empty, and a trim is an object dropped by
+ * the depot, either because the depot was full or because it was not used
+ * between two periodic trims.
+ *
+ * @see VirtualUniverse#getPoolStatistics
+ */
+public class PoolStatistics extends Object {
+
+    private final String name;
+    private final long hitCount;
+    private final long missCount;
+    private final long trimCount;
+    private final int depotSize;
+    private final int maxDepotSize;
+    private final int maxCacheSize;
+
+    /**
+     * Constructs a snapshot of the counters of a pool.
+     */
+    PoolStatistics(String name, long hitCount, long missCount,
+		   long trimCount, int depotSize, int maxDepotSize,
+		   int maxCacheSize) {
+	this.name = name;
+	this.hitCount = hitCount;
+	this.missCount = missCount;
+	this.trimCount = trimCount;
+	this.depotSize = depotSize;
+	this.maxDepotSize = maxDepotSize;
+	this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Retrieves the name of the pool.
+     *
+     * @return the name of the pool
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Retrieves the number of objects that were taken from the pool.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+	return hitCount;
+    }
+
+    /**
+     * Retrieves the number of objects that were created because the pool
+     * was empty.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+	return missCount;
+    }
+
+    /**
+     * Retrieves the number of objects that were dropped by the pool.
+     *
+     * @return the number of trimmed objects
+     */
+    public long getTrimCount() {
+	return trimCount;
+    }
+
+    /**
+     * Retrieves the number of objects in the shared depot of the pool.
+     * The objects in the caches of the threads are not included.
+     *
+     * @return the number of objects in the depot
+     */
+    public int getDepotSize() {
+	return depotSize;
+    }
+
+    /**
+     * Retrieves the maximum number of objects in the shared depot of the
+     * pool.
+     *
+     * @return the capacity of the depot
+     */
+    public int getMaxDepotSize() {
+	return maxDepotSize;
+    }
+
+    /**
+     * Retrieves the maximum number of objects in the cache of a thread.
+     *
+     * @return the capacity of a thread cache
+     */
+    public int getMaxCacheSize() {
+	return maxCacheSize;
+    }
+
+    /**
+     * Returns a string with the counters of the pool.
+     *
+     * @return a string representation of this snapshot
+     */
+    @Override
+    public String toString() {
+	return name + ": hits=" + hitCount + " misses=" + missCount +
+	    " trims=" + trimCount + " depot=" + depotSize + "/" + maxDepotSize;
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Arrays;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
+
+/**
+ * The PrimitiveBHTree is a bounding volume hierarchy over the triangles
+ * or quads of a single GeometryArrayRetained, in local coordinates.  It
+ * is built lazily by GeometryArrayRetained.getPickCursor() and culls
+ * the primitives that GEOMETRY-level ray, segment, cylinder and cone
+ * picks have to test exactly.
+ *
+ * The tests against the nodes are conservative: node bounds are padded,
+ * cylinders and cones are tested against the bounding sphere of a node,
+ * and a node is only rejected if no point in it can be within the
+ * distance used by GeometryArrayRetained.intersectCylinder() or
+ * intersectCone() of the pick shape.  The candidates are returned in
+ * ascending order, so that the intersect methods see the remaining
+ * primitives in the same order as their linear loops and return the
+ * same results.
+ */
+
+class PrimitiveBHTree {
+
+    // Maximum number of primitives in a leaf
+    private static final int LEAF_SIZE = 4;
+
+    // Padding of the node bounds, relative to the size of the geometry,
+    // so that the culling never rejects a primitive that the exact
+    // tests with their tolerances would hit
+    private static final double PAD = 1.0e-6;
+
+    // Inverse of a zero direction component, as in BatchPicker
+    private static final double ZERO_INVERSE = 1.0e300;
+
+    /**
+     * Iterates over the start indices of the primitives to test.  The
+     * intersect methods call next() with the start index of the next
+     * primitive in their loop and continue at the returned index.
+     */
+    static class Cursor {
+	int next(int i) {
+	    return i;
+	}
+    }
+
+    // Cursor that visits every primitive
+    static final Cursor ALL = new Cursor();
+
+    private static class CandidateCursor extends Cursor {
+	private final int[] candidates;
+	private final int count;
+	private int pos = 0;
+
+	CandidateCursor(int[] candidates, int count) {
+	    this.candidates = candidates;
+	    this.count = count;
+	}
+
+	@Override
+	int next(int i) {
+	    while (pos < count && candidates[pos] < i) {
+		pos++;
+	    }
+	    return (pos < count ? candidates[pos] : Integer.MAX_VALUE);
+	}
+    }
+
+    // Geometry stamp this tree was built for, and the range of vertex
+    // (or index) positions and primitive size it covers
+    final int stamp;
+    final int first;
+    final int end;
+    final int primSize;
+
+    // Start index of the primitive in each leaf slot
+    private final int[] prims;
+
+    // Padded bounds per node (xmin, ymin, zmin, xmax, ymax, zmax), and
+    // per node either the first child (the second one follows it) and
+    // 0, or the first leaf slot and the number of primitives
+    private double[] bounds;
+    private int[] nodes;
+    private int numNodes = 0;
+
+    // Primitive bounds and centroids during the build
+    private double[] primBounds;
+    private double[] centroids;
+
+    private PrimitiveBHTree(int stamp, int first, int end, int primSize) {
+	this.stamp = stamp;
+	this.first = first;
+	this.end = end;
+	this.primSize = primSize;
+	this.prims = new int[(end - first + primSize - 1) / primSize];
+    }
+
+    boolean covers(int first, int end, int primSize) {
+	return this.first == first && this.end == end &&
+	    this.primSize == primSize;
+    }
+
+    /**
+     * Builds the tree over the primitives that start at the positions
+     * first, first + primSize, ... below end.  The vertices of a
+     * primitive are read with getVertexData() at consecutive positions,
+     * or at the coordinate indices of those positions if coordIndices is
+     * not null, as the intersect methods do.
+     */
+    static PrimitiveBHTree build(GeometryArrayRetained geo, int stamp,
+				 int first, int end, int primSize,
+				 int[] coordIndices) {
+	PrimitiveBHTree tree = new PrimitiveBHTree(stamp, first, end, primSize);
+	int n = tree.prims.length;
+	double[] pb = new double[6 * n];
+	double[] ce = new double[3 * n];
+	Point3d[] pnts = new Point3d[primSize];
+	for (int j = 0; j < primSize; j++) {
+	    pnts[j] = new Point3d();
+	}
+	double[] box = new double[6];
+	double gxmin = Double.MAX_VALUE, gymin = Double.MAX_VALUE, gzmin = Double.MAX_VALUE;
+	double gxmax = -Double.MAX_VALUE, gymax = -Double.MAX_VALUE, gzmax = -Double.MAX_VALUE;
+
+	for (int p = 0; p < n; p++) {
+	    int s = first + p * primSize;
+	    for (int j = 0; j < primSize; j++) {
+		geo.getVertexData(coordIndices == null ? s + j : coordIndices[s + j], pnts[j]);
+	    }
+	    primitiveBounds(pnts, box);
+	    double xmin = box[0], ymin = box[1], zmin = box[2];
+	    double xmax = box[3], ymax = box[4], zmax = box[5];
+	    int o = 6 * p;
+	    pb[o] = xmin; pb[o+1] = ymin; pb[o+2] = zmin;
+	    pb[o+3] = xmax; pb[o+4] = ymax; pb[o+5] = zmax;
+	    ce[3*p] = 0.5 * (xmin + xmax);
+	    ce[3*p+1] = 0.5 * (ymin + ymax);
+	    ce[3*p+2] = 0.5 * (zmin + zmax);
+	    if (xmin < gxmin) gxmin = xmin;
+	    if (ymin < gymin) gymin = ymin;
+	    if (zmin < gzmin) gzmin = zmin;
+	    if (xmax > gxmax) gxmax = xmax;
+	    if (ymax > gymax) gymax = ymax;
+	    if (zmax > gzmax) gzmax = zmax;
+	    tree.prims[p] = p;
+	}
+
+	// Pad all primitive bounds by the same absolute amount, so that
+	// the node bounds built from them are padded as well
+	double dx = gxmax - gxmin, dy = gymax - gymin, dz = gzmax - gzmin;
+	double pad = PAD * Math.sqrt(dx*dx + dy*dy + dz*dz) + Double.MIN_NORMAL;
+	for (int k = 0; k < 6 * n; k += 6) {
+	    pb[k] -= pad; pb[k+1] -= pad; pb[k+2] -= pad;
+	    pb[k+3] += pad; pb[k+4] += pad; pb[k+5] += pad;
+	}
+
+	tree.primBounds = pb;
+	tree.centroids = ce;
+	int maxNodes = Math.max(1, 2 * n);
+	tree.bounds = new double[6 * maxNodes];
+	tree.nodes = new int[2 * maxNodes];
+	tree.numNodes = 1;
+	if (n > 0) {
+	    tree.buildNode(0, 0, n);
+	}
+
+	// Turn the slots into start indices
+	for (int p = 0; p < n; p++) {
+	    tree.prims[p] = first + tree.prims[p] * primSize;
+	}
+	tree.primBounds = null;
+	tree.centroids = null;
+	return tree;
+    }
+
+    /**
+     * Computes the bounds of the points that intersectRayOrSegment() can
+     * return for the primitive.  For a triangle those are its bounds.  A
+     * quad is intersected in the plane through its first vertex whose
+     * normal is the cross product of two of its edges, and accepted if
+     * the point projected along the dominant axis of that normal is in
+     * the projected quad; when the quad is not planar that point can be
+     * outside its bounds, so the vertices lifted onto each such plane are
+     * included as well.
+     */
+    private static void primitiveBounds(Point3d[] pnts, double[] box) {
+	box[0] = box[1] = box[2] = Double.MAX_VALUE;
+	box[3] = box[4] = box[5] = -Double.MAX_VALUE;
+	for (int j = 0; j < pnts.length; j++) {
+	    addPoint(box, pnts[j].x, pnts[j].y, pnts[j].z);
+	}
+	if (pnts.length != 4) {
+	    return;
+	}
+
+	Point3d p0 = pnts[0];
+	for (int a = 0; a < 3; a++) {
+	    Point3d a0 = pnts[a], a1 = pnts[a+1];
+	    double ax = a1.x - a0.x, ay = a1.y - a0.y, az = a1.z - a0.z;
+	    for (int b = a + 1; b < 4; b++) {
+		Point3d b0 = pnts[b], b1 = pnts[(b + 1) & 3];
+		double bx = b1.x - b0.x, by = b1.y - b0.y, bz = b1.z - b0.z;
+		double nx = ay*bz - az*by, ny = az*bx - ax*bz, nz = ax*by - ay*bx;
+		double anx = Math.abs(nx), any = Math.abs(ny), anz = Math.abs(nz);
+		if (anx == 0.0 && any == 0.0 && anz == 0.0) {
+		    continue;
+		}
+		double d = nx*p0.x + ny*p0.y + nz*p0.z;
+		for (int j = 1; j < 4; j++) {
+		    Point3d q = pnts[j];
+		    if (anz >= anx && anz >= any) {
+			addPoint(box, q.x, q.y, (d - nx*q.x - ny*q.y) / nz);
+		    } else if (any >= anx) {
+			addPoint(box, q.x, (d - nx*q.x - nz*q.z) / ny, q.z);
+		    } else {
+			addPoint(box, (d - ny*q.y - nz*q.z) / nx, q.y, q.z);
+		    }
+		}
+	    }
+	}
+    }
+
+    private static void addPoint(double[] box, double x, double y, double z) {
+	if (x < box[0]) box[0] = x;
+	if (x > box[3]) box[3] = x;
+	if (y < box[1]) box[1] = y;
+	if (y > box[4]) box[4] = y;
+	if (z < box[2]) box[2] = z;
+	if (z > box[5]) box[5] = z;
+    }
+
+    private void buildNode(int node, int lo, int hi) {
+	double xmin = Double.MAX_VALUE, ymin = Double.MAX_VALUE, zmin = Double.MAX_VALUE;
+	double xmax = -Double.MAX_VALUE, ymax = -Double.MAX_VALUE, zmax = -Double.MAX_VALUE;
+	double cxmin = Double.MAX_VALUE, cymin = Double.MAX_VALUE, czmin = Double.MAX_VALUE;
+	double cxmax = -Double.MAX_VALUE, cymax = -Double.MAX_VALUE, czmax = -Double.MAX_VALUE;
+
+	for (int k = lo; k < hi; k++) {
+	    int p = prims[k];
+	    int o = 6 * p;
+	    if (primBounds[o] < xmin) xmin = primBounds[o];
+	    if (primBounds[o+1] < ymin) ymin = primBounds[o+1];
+	    if (primBounds[o+2] < zmin) zmin = primBounds[o+2];
+	    if (primBounds[o+3] > xmax) xmax = primBounds[o+3];
+	    if (primBounds[o+4] > ymax) ymax = primBounds[o+4];
+	    if (primBounds[o+5] > zmax) zmax = primBounds[o+5];
+	    double cx = centroids[3*p], cy = centroids[3*p+1], cz = centroids[3*p+2];
+	    if (cx < cxmin) cxmin = cx;
+	    if (cx > cxmax) cxmax = cx;
+	    if (cy < cymin) cymin = cy;
+	    if (cy > cymax) cymax = cy;
+	    if (cz < czmin) czmin = cz;
+	    if (cz > czmax) czmax = cz;
+	}
+
+	int b = 6 * node;
+	bounds[b] = xmin; bounds[b+1] = ymin; bounds[b+2] = zmin;
+	bounds[b+3] = xmax; bounds[b+4] = ymax; bounds[b+5] = zmax;
+
+	if (hi - lo <= LEAF_SIZE) {
+	    nodes[2*node] = lo;
+	    nodes[2*node+1] = hi - lo;
+	    return;
+	}
+
+	// Split at the median centroid along the longest centroid extent
+	double ex = cxmax - cxmin, ey = cymax - cymin, ez = czmax - czmin;
+	int axis = (ex >= ey ? (ex >= ez ? 0 : 2) : (ey >= ez ? 1 : 2));
+	int mid = (lo + hi) >>> 1;
+	select(lo, hi - 1, mid, axis);
+
+	int left = numNodes;
+	numNodes += 2;
+	nodes[2*node] = left;
+	nodes[2*node+1] = 0;
+	buildNode(left, lo, mid);
+	buildNode(left + 1, mid, hi);
+    }
+
+    // Partially sorts prims[lo..hi] so that the slot k holds the
+    // primitive with the k-th smallest centroid along the axis
+    private void select(int lo, int hi, int k, int axis) {
+	while (hi > lo) {
+	    double pivot = centroids[3 * prims[(lo + hi) >>> 1] + axis];
+	    int i = lo, j = hi;
+	    while (i <= j) {
+		while (centroids[3 * prims[i] + axis] < pivot) i++;
+		while (centroids[3 * prims[j] + axis] > pivot) j--;
+		if (i <= j) {
+		    int t = prims[i];
+		    prims[i] = prims[j];
+		    prims[j] = t;
+		    i++;
+		    j--;
+		}
+	    }
+	    if (k <= j) {
+		hi = j;
+	    } else if (k >= i) {
+		lo = i;
+	    } else {
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Returns true for the pick shapes that select() culls.
+     */
+    static boolean culls(PickShape pickShape) {
+	switch (pickShape.getPickType()) {
+	case PickShape.PICKRAY:
+	case PickShape.PICKSEGMENT:
+	case PickShape.PICKCYLINDER:
+	case PickShape.PICKCONE:
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
+    /**
+     * Returns a cursor over the primitives that may intersect the pick
+     * shape, which must be in the local coordinates of the geometry.
+     * Returns ALL for pick shapes that are not culled.
+     */
+    Cursor select(PickShape pickShape) {
+	if (prims.length == 0) {
+	    return ALL;
+	}
+	switch (pickShape.getPickType()) {
+	case PickShape.PICKRAY:
+	    PickRay ray = (PickRay) pickShape;
+	    return selectRay(ray.origin.x, ray.origin.y, ray.origin.z,
+			     ray.direction.x, ray.direction.y, ray.direction.z,
+			     Double.POSITIVE_INFINITY);
+	case PickShape.PICKSEGMENT:
+	    PickSegment seg = (PickSegment) pickShape;
+	    return selectRay(seg.start.x, seg.start.y, seg.start.z,
+			     seg.end.x - seg.start.x, seg.end.y - seg.start.y,
+			     seg.end.z - seg.start.z, 1.0);
+	case PickShape.PICKCYLINDER:
+	    PickCylinder cyl = (PickCylinder) pickShape;
+	    if (cyl instanceof PickCylinderSegment) {
+		Point3d e = ((PickCylinderSegment) cyl).end;
+		return selectCylinder(cyl.origin, e.x - cyl.origin.x,
+				      e.y - cyl.origin.y, e.z - cyl.origin.z,
+				      1.0, cyl.radius);
+	    }
+	    return selectCylinder(cyl.origin, cyl.direction.x, cyl.direction.y,
+				  cyl.direction.z, Double.POSITIVE_INFINITY,
+				  cyl.radius);
+	case PickShape.PICKCONE:
+	    PickCone cone = (PickCone) pickShape;
+	    if (cone instanceof PickConeSegment) {
+		Point3d e = ((PickConeSegment) cone).end;
+		return selectCone(cone.origin, e.x - cone.origin.x,
+				  e.y - cone.origin.y, e.z - cone.origin.z,
+				  true, cone.spreadAngle);
+	    }
+	    return selectCone(cone.origin, cone.direction.x, cone.direction.y,
+			      cone.direction.z, false, cone.spreadAngle);
+	default:
+	    return ALL;
+	}
+    }
+
+    private Cursor selectRay(double ox, double oy, double oz,
+			     double dx, double dy, double dz, double tmax) {
+	double ix = (dx != 0.0 ? 1.0 / dx : ZERO_INVERSE);
+	double iy = (dy != 0.0 ? 1.0 / dy : ZERO_INVERSE);
+	double iz = (dz != 0.0 ? 1.0 / dz : ZERO_INVERSE);
+	int[] out = new int[16];
+	int count = 0;
+	int[] stack = new int[64];
+	int sp = 0;
+	stack[sp++] = 0;
+
+	while (sp > 0) {
+	    int node = stack[--sp];
+	    int b = 6 * node;
+	    double t0 = (bounds[b] - ox) * ix, t1 = (bounds[b+3] - ox) * ix;
+	    double tnear = Math.min(t0, t1), tfar = Math.max(t0, t1);
+	    t0 = (bounds[b+1] - oy) * iy; t1 = (bounds[b+4] - oy) * iy;
+	    tnear = Math.max(tnear, Math.min(t0, t1));
+	    tfar = Math.min(tfar, Math.max(t0, t1));
+	    t0 = (bounds[b+2] - oz) * iz; t1 = (bounds[b+5] - oz) * iz;
+	    tnear = Math.max(tnear, Math.min(t0, t1));
+	    tfar = Math.min(tfar, Math.max(t0, t1));
+	    if (tnear > tfar || tfar < 0.0 || tnear > tmax) {
+		continue;
+	    }
+	    sp = visit(node, stack, sp);
+	    if (sp < 0) {
+		sp = -sp - 1;
+		out = collect(node, out, count);
+		count += nodes[2*node+1];
+	    }
+	}
+	return toCursor(out, count);
+    }
+
+    private Cursor selectCylinder(Point3d o, double dx, double dy, double dz,
+				  double tmax, double radius) {
+	double dd = dx*dx + dy*dy + dz*dz;
+	if (!(dd > 0.0) || Double.isNaN(radius)) {
+	    return ALL;
+	}
+	int[] out = new int[16];
+	int count = 0;
+	int[] stack = new int[64];
+	int sp = 0;
+	stack[sp++] = 0;
+
+	while (sp > 0) {
+	    int node = stack[--sp];
+	    int b = 6 * node;
+	    double hx = 0.5 * (bounds[b+3] - bounds[b]);
+	    double hy = 0.5 * (bounds[b+4] - bounds[b+1]);
+	    double hz = 0.5 * (bounds[b+5] - bounds[b+2]);
+	    double vx = bounds[b] + hx - o.x;
+	    double vy = bounds[b+1] + hy - o.y;
+	    double vz = bounds[b+2] + hz - o.z;
+	    double t = (vx*dx + vy*dy + vz*dz) / dd;
+	    t = (t < 0.0 ? 0.0 : (t > tmax ? tmax : t));
+	    double px = vx - t*dx, py = vy - t*dy, pz = vz - t*dz;
+	    double r = Math.abs(radius) + Math.sqrt(hx*hx + hy*hy + hz*hz);
+	    if (px*px + py*py + pz*pz > r*r) {
+		continue;
+	    }
+	    sp = visit(node, stack, sp);
+	    if (sp < 0) {
+		sp = -sp - 1;
+		out = collect(node, out, count);
+		count += nodes[2*node+1];
+	    }
+	}
+	return toCursor(out, count);
+    }
+
+    // A point p is within the pick cone if there is a point q at the
+    // distance s >= 0 along the axis with |p - q| <= tan(spread) * s,
+    // which is the solid cone of half angle asin(tan(spread)) around
+    // the axis; for a spread of 45 degrees or more that is everything
+    private Cursor selectCone(Point3d o, double dx, double dy, double dz,
+			      boolean isSegment, double spreadAngle) {
+	double len = Math.sqrt(dx*dx + dy*dy + dz*dz);
+	double k = Math.tan(spreadAngle);
+	if (!(len > 0.0) || !(k >= 0.0) || k >= 1.0) {
+	    return ALL;
+	}
+	double ux = dx / len, uy = dy / len, uz = dz / len;
+	double sin = k, cos = Math.sqrt(1.0 - k*k);
+	double maxDist = (isSegment ? len * (1.0 + k) : Double.POSITIVE_INFINITY);
+	int[] out = new int[16];
+	int count = 0;
+	int[] stack = new int[64];
+	int sp = 0;
+	stack[sp++] = 0;
+
+	while (sp > 0) {
+	    int node = stack[--sp];
+	    int b = 6 * node;
+	    double hx = 0.5 * (bounds[b+3] - bounds[b]);
+	    double hy = 0.5 * (bounds[b+4] - bounds[b+1]);
+	    double hz = 0.5 * (bounds[b+5] - bounds[b+2]);
+	    double r = Math.sqrt(hx*hx + hy*hy + hz*hz);
+	    double vx = bounds[b] + hx - o.x;
+	    double vy = bounds[b+1] + hy - o.y;
+	    double vz = bounds[b+2] + hz - o.z;
+	    double vv = vx*vx + vy*vy + vz*vz;
+	    double dist = Math.sqrt(vv);
+	    if (dist > maxDist + r) {
+		continue;
+	    }
+	    double a = vx*ux + vy*uy + vz*uz;
+	    double perp = Math.sqrt(Math.max(0.0, vv - a*a));
+	    // Distance from the center of the node to the solid cone:
+	    // to its surface, or to its apex behind the cone
+	    double d = perp * cos - a * sin;
+	    if (d > 0.0 && a * cos + perp * sin < 0.0) {
+		d = dist;
+	    }
+	    if (d > r) {
+		continue;
+	    }
+	    sp = visit(node, stack, sp);
+	    if (sp < 0) {
+		sp = -sp - 1;
+		out = collect(node, out, count);
+		count += nodes[2*node+1];
+	    }
+	}
+	return toCursor(out, count);
+    }
+
+    // Pushes the children of an internal node, or returns -(sp + 1) for
+    // a leaf
+    private int visit(int node, int[] stack, int sp) {
+	if (nodes[2*node+1] != 0) {
+	    return -sp - 1;
+	}
+	int left = nodes[2*node];
+	stack[sp++] = left + 1;
+	stack[sp++] = left;
+	return sp;
+    }
+
+    private int[] collect(int node, int[] out, int count) {
+	int lo = nodes[2*node];
+	int n = nodes[2*node+1];
+	if (count + n > out.length) {
+	    out = Arrays.copyOf(out, Math.max(2 * out.length, count + n));
+	}
+	System.arraycopy(prims, lo, out, count, n);
+	return out;
+    }
+
+    private static Cursor toCursor(int[] out, int count) {
+	Arrays.sort(out, 0, count);
+	return new CandidateCursor(out, count);
+    }
+}
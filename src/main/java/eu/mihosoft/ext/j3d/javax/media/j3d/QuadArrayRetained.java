@@ -58,11 +58,14 @@ class QuadArrayRetained extends GeometryArrayRetained {
 	pnts[2] = new Point3d();
 	pnts[3] = new Point3d();
 
+	PrimitiveBHTree.Cursor cursor =
+	    getPickCursor(pickShape, i, validVertexCount, 4, null);
+
 	switch (pickShape.getPickType()) {
 	case PickShape.PICKRAY:
 	    PickRay pickRay= (PickRay) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -91,7 +94,7 @@ class QuadArrayRetained extends GeometryArrayRetained {
 	case PickShape.PICKSEGMENT:
 	    PickSegment pickSegment = (PickSegment) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -211,7 +214,7 @@ class QuadArrayRetained extends GeometryArrayRetained {
 	case PickShape.PICKCYLINDER:
 	    PickCylinder pickCylinder= (PickCylinder) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -240,7 +243,7 @@ class QuadArrayRetained extends GeometryArrayRetained {
 	case PickShape.PICKCONE:
 	    PickCone pickCone= (PickCone) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<4; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -118,6 +118,12 @@ class RenderAtom extends Object implements ObjectUpdate {
      */
     long lastVisibleTime = -1;
 
+    /**
+     * Set by the OcclusionCuller when this atom is hidden behind the
+     * occluders of the last visibility pass
+     */
+    boolean occluded = false;
+
     /**
      * Next and Previous references for the list of RenderAtoms
      * groupType is a  mask set to true if this renderAtom is part of the displaylist array
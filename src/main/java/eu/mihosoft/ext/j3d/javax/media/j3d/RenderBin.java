@@ -38,6 +38,7 @@ import java.util.LinkedHashSet;
 import eu.mihosoft.ext.j3d.javax.vecmath.Color3f;
 import eu.mihosoft.ext.j3d.javax.vecmath.Point3d;
 import eu.mihosoft.ext.j3d.javax.vecmath.Vector3d;
+import eu.mihosoft.ext.j3d.javax.vecmath.Vector4d;
 
 /**
  * The RenderBin is a structure that optimizes rendering by doing efficient
@@ -150,6 +151,36 @@ ArrayList<RenderAtom> positionDirtyList = new ArrayList<RenderAtom>(5);
     BoundingBox viewFrustumBBox = new BoundingBox();
     BoundingBox canvasFrustumBBox = new BoundingBox();
 
+    /**
+     * The view frustum planes in vworld, for coherent culling.  Only
+     * valid if the view has a single mono canvas, see
+     * computeViewFrustumBBox().
+     */
+    Vector4d[] viewFrustumPlanes = new Vector4d[6];
+    boolean viewFrustumPlanesValid = false;
+
+    /**
+     * Set when a RenderAtom leaves the bin, so that the next coherent
+     * culling pass visits all visible subtrees again.
+     */
+    boolean cullCoherenceLost = true;
+
+    /**
+     * The vworld to clip transform and size of the canvas, valid along
+     * with viewFrustumPlanes, and the occlusion culling stage which is
+     * created when first used.
+     */
+    Transform3D viewVworldToClip = new Transform3D();
+    int viewCanvasWidth = 0;
+    int viewCanvasHeight = 0;
+    OcclusionCuller occlusionCuller = null;
+
+    /**
+     * The flat list of opaque TextureBins, sorted by state, which is
+     * rendered instead of opaqueBin when the draw list is enabled.
+     */
+    DrawList drawList = null;
+
     /**
      * To ensure that vpcToVworld is valid (not null) for the first pass
      */
@@ -395,6 +426,9 @@ private LinkedHashSet<RenderAtom> dirtyDepthSortRenderAtom = new LinkedHashSet<R
 	}
 	dlistRenderMethod = (DisplayListRenderMethod)
 	    VirtualUniverse.mc.getDisplayListRenderMethod();
+	if (VirtualUniverse.mc.drawList) {
+	    drawList = new DrawList(this);
+	}
     }
 
     /**
@@ -966,6 +1000,11 @@ private LinkedHashSet<RenderAtom> dirtyDepthSortRenderAtom = new LinkedHashSet<R
 
 	}
 
+	// The bins are not changed again until the next updateObject()
+	if (drawList != null) {
+	    drawList.update();
+	}
+
 	clearAllUpdateObjectState();
 	/*
 	if (opaqueBin != null) {
@@ -1792,14 +1831,45 @@ private LinkedHashSet<RenderAtom> dirtyDepthSortRenderAtom = new LinkedHashSet<R
 
 	    ViewPlatform vp = view.getViewPlatform();
 	    if (vp != null) {
+		// Skipped subtrees don't update lastVisibleTime, so visit
+		// everything in the frame whose time becomes removeCutoffTime.
+		boolean coherent = !cullCoherenceLost &&
+		    (frameCount + 1 != notVisibleCount);
+		cullCoherenceLost = false;
+
+		// Occlusion changes when occluders move, so subtrees can't
+		// be skipped while it is culled.
+		boolean occlusion = VirtualUniverse.mc.occlusionCulling &&
+		    viewFrustumPlanesValid;
+		if (occlusion) {
+		    if (occlusionCuller == null) {
+			occlusionCuller = new OcclusionCuller(this);
+		    }
+		    occlusionCuller.begin(viewVworldToClip, viewCanvasWidth,
+					  viewCanvasHeight);
+		    coherent = false;
+		} else if (occlusionCuller != null) {
+		    occlusionCuller = null;
+		    for (i = renderAtoms.size() - 1; i >= 0; i--) {
+			renderAtoms.get(i).occluded = false;
+		    }
+		}
+
 		allEnComp = universe.geometryStructure.
 		    getVisibleBHTrees(this, viewFrustumBBox,
+				      viewFrustumPlanesValid ?
+				      viewFrustumPlanes : null,
 				      locale, referenceTime,
 				      visGAIsDirty || reactivateView || localeChanged ||
 				      ((view.viewCache.vcDirtyMask &
 					View.VISIBILITY_POLICY_DIRTY) != 0),
+				      coherent,
 				      view.viewCache.visibilityPolicy);
 
+		if (occlusion) {
+		    occlusionCuller.end(referenceTime);
+		}
+
 		reactivateView = false;
 		// process background geometry atoms
 		if (currentActiveBackground != null &&
@@ -1828,6 +1898,15 @@ private LinkedHashSet<RenderAtom> dirtyDepthSortRenderAtom = new LinkedHashSet<R
 	    visQuery = false;
 
 	}
+
+	// Select the levels of the ScreenSpaceErrorLOD nodes in the frustum
+	// of the primary view; the BehaviorScheduler sets them
+	if ((view == universe.getCurrentView()) &&
+	    (view.getViewPlatform() != null)) {
+	    universe.behaviorStructure.lodStage.select(view,
+		vpSchedSphereInVworld.center, viewFrustumBBox,
+		viewFrustumPlanesValid ? viewFrustumPlanes : null);
+	}
 	// Two environments are dirty
 	// If lights, fog or model clip have been added/removed, then
 	// reEvaluate RenderAtoms and mark the lightbin and
@@ -3826,6 +3905,12 @@ private void processOrderedGroupInserted(J3dMessage m) {
 	RenderAtom renderAtom;
 	RenderMolecule rm;
 
+	// Deferred until the occlusion culler has tested it
+	if ((occlusionCuller != null) && occlusionCuller.collecting) {
+	    occlusionCuller.add(ga);
+	    return;
+	}
+
 	// System.err.println("+");
 
 
@@ -3946,6 +4031,9 @@ private void processOrderedGroupInserted(J3dMessage m) {
      * frames ago.  It also does compaction if it is needed.
      */
     void compact() {
+	boolean stats = FrameStatisticsCollector.isCollecting();
+	long startTime = stats ? System.nanoTime() : 0L;
+
 	for (int i=0; i < renderAtoms.size();) {
 		RenderAtom ra = renderAtoms.get(i);
 	    if (ra.lastVisibleTime < removeCutoffTime) {
@@ -3956,6 +4044,10 @@ private void processOrderedGroupInserted(J3dMessage m) {
 	    i++;
 	}
 
+	if (stats) {
+	    VirtualUniverse.mc.recordTime(FrameStatistics.Type.RENDER_BIN_COMPACTION,
+					  System.nanoTime() - startTime);
+	}
     }
 
     private void reEvaluateAlternateAppearance() {
@@ -4317,6 +4409,35 @@ private void processOrderedGroupInserted(J3dMessage m) {
 	    if(viewFrustumBBox.upper.z < canvasFrustumBBox.upper.z)
 		viewFrustumBBox.upper.z = canvasFrustumBBox.upper.z;
 	}
+
+	// The union of several frustums isn't a frustum, so the planes
+	// are only used with a single mono canvas.
+	viewFrustumPlanesValid = false;
+	if ((VirtualUniverse.mc.coherentCulling ||
+	     VirtualUniverse.mc.occlusionCulling) &&
+	    (canvases.length == 1) && !canvases[0].useStereo) {
+	    Canvas3D canvas = canvases[0];
+	    synchronized(canvas.cvLock) {
+		if (canvas.firstPaintCalled &&
+		    (canvas.canvasViewCacheFrustum != null)) {
+		    Vector4d[] planes = canvas.canvasViewCacheFrustum.
+			getLeftFrustumPlanesInVworld();
+		    for (int i = 0; i < viewFrustumPlanes.length; i++) {
+			if (viewFrustumPlanes[i] == null) {
+			    viewFrustumPlanes[i] = new Vector4d();
+			}
+			viewFrustumPlanes[i].set(planes[i]);
+		    }
+		    CanvasViewCache cvc = canvas.canvasViewCacheFrustum;
+		    viewVworldToClip.mul(cvc.getLeftProjection(),
+					 cvc.getLeftVpcToEc());
+		    viewVworldToClip.mul(cvc.getVworldToVpc());
+		    viewCanvasWidth = cvc.getCanvasWidth();
+		    viewCanvasHeight = cvc.getCanvasHeight();
+		    viewFrustumPlanesValid = true;
+		}
+	    }
+	}
     }
 
 
@@ -5106,6 +5227,10 @@ private void processOrderedGroupInserted(J3dMessage m) {
      * This renders the opaque objects
      */
     void renderOpaque(Canvas3D cv) {
+	if ((drawList != null) && drawList.render(cv)) {
+	    return;
+	}
+
 	LightBin currentBin = opaqueBin;
 	//System.err.println("========> renderOpaque");
 	while (currentBin != null) {
@@ -5827,6 +5952,8 @@ void addDirtyReferenceGeometry(GeometryArrayRetained geo) {
     void removeARenderAtom(RenderAtom ra) {
 	//	System.err.println("===> remove ga = "+ra.geometryAtom);
 	ra.setRenderBin(false);
+	ra.occluded = false;
+	cullCoherenceLost = true;
 	ra.renderMolecule.removeRenderAtom(ra);
 	if (ra.inDirtyOrientedRAs()) {
 	    dirtyOrientedRAs.remove(ra);
@@ -6843,6 +6970,9 @@ void removeNodes(J3dMessage m) {
     void cleanup() {
 	releaseAllDisplayListID();
 	removeAllRenderAtoms();
+	if (drawList != null) {
+	    drawList.clear();
+	}
     }
 
 
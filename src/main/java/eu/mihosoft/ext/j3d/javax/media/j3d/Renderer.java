@@ -39,7 +39,6 @@ import java.awt.image.ImageObserver;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.logging.Level;
 
 
 class Renderer extends J3dThread {
@@ -285,12 +284,14 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                             cv.view.inCanvasCallback = false;
                             // Clear canvasDirty bit ONLY when postSwap() success
 
-                            if (MasterControl.isStatsLoggable(Level.INFO)) {
+                            if (FrameStatisticsCollector.isCollecting()) {
                                 // Instrumentation of Java 3D renderer
                                 long currSwapTime = System.nanoTime();
-                                long deltaTime = currSwapTime - lastSwapTime;
+                                if (lastSwapTime != 0L) {
+                                    long deltaTime = currSwapTime - lastSwapTime;
+                                    VirtualUniverse.mc.recordTime(FrameStatistics.Type.TOTAL_FRAME, deltaTime);
+                                }
                                 lastSwapTime = currSwapTime;
-                                VirtualUniverse.mc.recordTime(MasterControl.TimeType.TOTAL_FRAME, deltaTime);
                             }
 
                             // Set all dirty bits except environment set and lightbin
@@ -569,7 +570,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                         notifyErrorListeners(err);
                     }
 
-		    canvas.offScreenBufferPending = false;
+		    canvas.offScreenBufferDone();
 		    m[nmesg++].decRefcount();
 		    continue;
 		}
@@ -583,7 +584,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                             (Context) obj[3],
                             false, !canvas.offScreen, true);
 
-		    canvas.offScreenBufferPending = false;
+		    canvas.offScreenBufferDone();
 		    m[nmesg++].decRefcount();
 		    continue;
 		} else if (renderType == J3dMessage.ALLOCATE_CANVASID) {
@@ -595,7 +596,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                 if ((canvas.view == null) || !canvas.firstPaintCalled) {
                     // This happen when the canvas just remove from the View
                     if (renderType == J3dMessage.RENDER_OFFSCREEN) {
-                        canvas.offScreenRendering = false;
+                        canvas.offScreenRenderingDone();
 		    }
 		    m[nmesg++].decRefcount();
                     continue;
@@ -759,7 +760,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 		    m[nmesg++].decRefcount();
 		} else { // retained mode rendering
                     long startRenderTime = 0L;
-                    if (MasterControl.isStatsLoggable(Level.INFO)) {
+                    if (FrameStatisticsCollector.isCollecting()) {
                         // Instrumentation of Java 3D renderer
                         startRenderTime = System.nanoTime();
                     }
@@ -778,7 +779,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                         // (which doesn't use renderOffScreenBuffer)
                         canvas.offScreenRendering = true;
                         if (canvas.drawable == null || !canvas.active) {
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
                             continue;
 			} else {
 			    offBufRetained = (ImageComponent2DRetained)
@@ -822,7 +823,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				    offBufRetained.isByReference()) {
 				    offBufRetained.geomLock.unLock();
 				}
-                                canvas.offScreenRendering = false;
+                                canvas.offScreenRenderingDone();
 				break doneRender;
 			    }
 
@@ -840,7 +841,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 					offBufRetained.isByReference()) {
 					offBufRetained.geomLock.unLock();
 				    }
-                                    canvas.offScreenRendering = false;
+                                    canvas.offScreenRenderingDone();
 
                                     // Issue 260 : indicate fatal error and notify error listeners
                                     canvas.setFatalError();
@@ -871,7 +872,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				offBufRetained.isByReference()) {
 				offBufRetained.geomLock.unLock();
 			    }
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
 			    break doneRender;
 			}
 
@@ -889,7 +890,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				    offBufRetained.isByReference()) {
 				    offBufRetained.geomLock.unLock();
 				}
-                                canvas.offScreenRendering = false;
+                                canvas.offScreenRenderingDone();
 
                                 // Issue 260 : indicate fatal error and notify error listeners
                                 canvas.setFatalError();
@@ -953,7 +954,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				offBufRetained.isByReference()) {
 				offBufRetained.geomLock.unLock();
 			    }
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
 			    break doneRender;
 			}
 
@@ -983,7 +984,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				offBufRetained.isByReference()) {
 				offBufRetained.geomLock.unLock();
 			    }
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
 			    break doneRender;
 			}
 
@@ -1168,7 +1169,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 				offBufRetained.isByReference()) {
 				offBufRetained.geomLock.unLock();
 			    }
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
                             break doneRender;
                         }
 
@@ -1340,7 +1341,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 					offBufRetained.isByReference()) {
 					offBufRetained.geomLock.unLock();
 				    }
-                                    canvas.offScreenRendering = false;
+                                    canvas.offScreenRenderingDone();
                                     break doneRender;
                                 }
 
@@ -1389,7 +1390,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 
 			    canvas.syncRender(canvas.ctx, true);
                             canvas.endOffScreenRendering();
-                            canvas.offScreenRendering = false;
+                            canvas.offScreenRenderingDone();
 
                             // Issue 489 - don't call postSwap here for auto-offscreen,
                             // since it will be called later by the SWAP operation
@@ -1417,10 +1418,10 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                             }
                         }
 
-                        if (MasterControl.isStatsLoggable(Level.INFO)) {
+                        if (startRenderTime != 0L) {
                             // Instrumentation of Java 3D renderer
                             long deltaTime = System.nanoTime() - startRenderTime;
-                            VirtualUniverse.mc.recordTime(MasterControl.TimeType.RENDER, deltaTime);
+                            VirtualUniverse.mc.recordTime(FrameStatistics.Type.RENDER, deltaTime);
                         }
 
 		    } else { // if (renderBin != null)
@@ -1565,6 +1566,8 @@ void shutdown() {
 		    sharedCtxTimeStamp = 0;
 		}
 		cv.ctxTimeStamp = 0;
+		// wake up the thread waiting in Canvas3D.removeCtx()
+		MasterControl.threadSignal(cv);
 	    }
 
 	    // Fix for issue 18.
@@ -1572,7 +1575,7 @@ void shutdown() {
 	    // we can safely execute destroyOffScreenBuffer.
 	    if(destroyOffScreenBuffer) {
 		cv.destroyOffScreenBuffer(ctx, drawable);
-		cv.offScreenBufferPending = false;
+		cv.offScreenBufferDone();
 	    }
 	}
     }
@@ -1614,6 +1617,8 @@ void shutdown() {
 
 		cv.ctx = null;
 		cv.ctxTimeStamp = 0;
+		// wake up the thread waiting in Canvas3D.removeCtx()
+		MasterControl.threadSignal(cv);
 	    }
 
 	    if (sharedCtx != null) {
@@ -44,19 +44,7 @@ class RendererStructure extends J3dStructure{
      * Returns all messages in the queue.
      */
     J3dMessage[] getMessages() {
-	int sz;
-
-        synchronized (messageList) {
-            if ((sz = messageList.size()) > 0) {
-		if (msgList.length < sz) {
-		    msgList = new J3dMessage[sz];
-		}
-		messageList.toArrayAndClear(msgList);
-            }
-        }
-
-	nMessage = sz;
-        return msgList;
+	return getMessages(Long.MAX_VALUE);
     }
 
 
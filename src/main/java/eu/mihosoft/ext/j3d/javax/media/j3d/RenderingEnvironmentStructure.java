@@ -131,12 +131,59 @@ private final ArrayList<Object[]> objFreeList = new ArrayList<Object[]>();
     // Can used intersectedBounds itself, since this may be realloced
     Object lockObj = new Object();
 
+    // Indices of the influencing regions of the lights, fogs, model clips
+    // and alternate appearances, null if j3d.influenceIndex is not set
+    InfluenceIndex<LightRetained> lightIndex = null;
+    InfluenceIndex<FogRetained> fogIndex = null;
+    InfluenceIndex<ModelClipRetained> modelClipIndex = null;
+    InfluenceIndex<AlternateAppearanceRetained> altAppIndex = null;
+
+    // Changed before and after the lists or the regions are updated
+    volatile int influenceStamp = 0;
+
     /**
      * Constructs a RenderingEnvironmentStructure object in the specified
      * virtual universe.
      */
     RenderingEnvironmentStructure(VirtualUniverse u) {
 	super(u, J3dThread.UPDATE_RENDERING_ENVIRONMENT);
+
+	if (VirtualUniverse.mc.influenceIndex) {
+	    lightIndex = new InfluenceIndex<LightRetained>() {
+		@Override
+		Bounds getRegion(LightRetained light) {
+		    return light.region;
+		}
+	    };
+	    fogIndex = new InfluenceIndex<FogRetained>() {
+		@Override
+		Bounds getRegion(FogRetained fog) {
+		    return fog.region;
+		}
+	    };
+	    modelClipIndex = new InfluenceIndex<ModelClipRetained>() {
+		@Override
+		Bounds getRegion(ModelClipRetained modelClip) {
+		    return modelClip.region;
+		}
+	    };
+	    altAppIndex = new InfluenceIndex<AlternateAppearanceRetained>() {
+		@Override
+		Bounds getRegion(AlternateAppearanceRetained altApp) {
+		    return altApp.region;
+		}
+	    };
+	}
+    }
+
+    // Returns the nodes of the list whose region may intersect the bounds
+    // of the RenderAtom, or the list itself if it is not indexed
+    private <T> ArrayList<T> selectInfluencing(InfluenceIndex<T> index,
+					       ArrayList<T> list, RenderAtom ra) {
+	if (index == null) {
+	    return list;
+	}
+	return index.select(list, ra.localeVwcBounds, influenceStamp);
     }
 
 
@@ -159,6 +206,10 @@ void addObjArrayToFreeList(Object[] objs) {
 @Override
 public void updateObject() {
 	int size;
+	boolean changed = (objList.size() > 0) || (xformChangeList.size() > 0);
+
+	if (changed)
+		influenceStamp++;
 
 	size = objList.size();
 	for (int i = 0; i < size; i++) {
@@ -174,6 +225,9 @@ public void updateObject() {
 		xformChangeList.get(i).updateTransformChange();
 	}
 	xformChangeList.clear();
+
+	if (changed)
+		influenceStamp++;
 }
 
     @Override
@@ -186,6 +240,8 @@ public void updateObject() {
 	    return;
 	}
 
+	influenceStamp++;
+
 	for (int i=0; i < nMsg; i++) {
 	    m = messages[i];
 
@@ -260,6 +316,8 @@ public void updateObject() {
 	    transformMsg = false;
 	}
 
+	influenceStamp++;
+
 	VirtualUniverse.mc.addMirrorObject(this);
 
 	Arrays.fill(messages, 0, nMsg, null);
@@ -686,10 +744,12 @@ public void updateObject() {
 		}
 		else {
 			if ((globalLights = viewScopedLights.get(view)) != null) {
-				numLights = processLights(globalLights, ra, numLights);
+				numLights = processLights(selectInfluencing(lightIndex, globalLights, ra),
+							  ra, numLights);
 			}
 			// now process the common lights
-			numLights = processLights(nonViewScopedLights, ra, numLights);
+			numLights = processLights(selectInfluencing(lightIndex, nonViewScopedLights, ra),
+						  ra, numLights);
 		}
 
 	    boolean newLights = false;
@@ -794,10 +854,12 @@ FogRetained getInfluencingFog(RenderAtom ra, View view) {
 		}
 		else {
 			if ((globalFogs = viewScopedFogs.get(view)) != null) {
-				nfogs = processFogs(globalFogs, ra, nfogs);
+				nfogs = processFogs(selectInfluencing(fogIndex, globalFogs, ra),
+						    ra, nfogs);
 			}
 		// now process the common fogs
-		nfogs = processFogs(nonViewScopedFogs, ra, nfogs);
+		nfogs = processFogs(selectInfluencing(fogIndex, nonViewScopedFogs, ra),
+				    ra, nfogs);
 
 
 		if (nfogs == 1)
@@ -870,10 +932,12 @@ ModelClipRetained getInfluencingModelClip(RenderAtom ra, View view) {
 
 		ArrayList<ModelClipRetained> globalModelClips = viewScopedModelClips.get(view);
 		if (globalModelClips  != null)
-			nModelClips = processModelClips(globalModelClips, ra, nModelClips);
+			nModelClips = processModelClips(selectInfluencing(modelClipIndex, globalModelClips, ra),
+							ra, nModelClips);
 
 		// now process the common clips
-		nModelClips = processModelClips(nonViewScopedModelClips, ra, nModelClips);
+		nModelClips = processModelClips(selectInfluencing(modelClipIndex, nonViewScopedModelClips, ra),
+						ra, nModelClips);
 
 		ModelClipRetained modelClip = null;
 		if (nModelClips == 1)
@@ -1331,9 +1395,11 @@ int processClips(ArrayList<ClipRetained> globalClips, BoundingSphere bounds, int
 
 		ArrayList<AlternateAppearanceRetained> globalAltApps = viewScopedAltAppearances.get(view);
 		if (globalAltApps != null)
-			nAltApp = processAltApps(globalAltApps, ra, nAltApp);
+			nAltApp = processAltApps(selectInfluencing(altAppIndex, globalAltApps, ra),
+						 ra, nAltApp);
 
-		nAltApp = processAltApps(nonViewScopedAltAppearances, ra, nAltApp);
+		nAltApp = processAltApps(selectInfluencing(altAppIndex, nonViewScopedAltAppearances, ra),
+					 ra, nAltApp);
 		AlternateAppearanceRetained altApp = null;
 	    if (nAltApp == 1)
 		altApp = intersectedAltApps[0];
@@ -1742,5 +1808,16 @@ boolean isMclipScopedToThisView(Object obj, View view) {
 }
 
 @Override
-void cleanup() {}
+void cleanup() {
+	if (lightIndex != null) {
+		synchronized (retlights) {
+			lightIndex.clear();
+		}
+		synchronized (lockObj) {
+			fogIndex.clear();
+			modelClipIndex.clear();
+			altAppIndex.clear();
+		}
+	}
+}
 }
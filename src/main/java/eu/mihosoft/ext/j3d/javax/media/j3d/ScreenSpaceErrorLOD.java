@@ -0,0 +1,363 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.Enumeration;
+
+import eu.mihosoft.ext.j3d.javax.vecmath.Point3f;
+
+/**
+ * This class defines an LOD node that selects one of the children of its
+ * Switch nodes based on the screen-space error of the levels of detail.
+ * An array of <i>n</i> monotonically increasing error values is specified,
+ * such that errors[0] is associated with the highest level of detail,
+ * child 0, and errors[<i>n</i>-1] is associated with the lowest level of
+ * detail, child <i>n</i>-1.  The error of a level is the largest distance,
+ * in the local coordinate system of this node, between the surface of
+ * that level and the surface of the full detail model.
+ * <p>
+ * The error of each level is projected onto the canvas of the primary
+ * view at the distance from the viewer to the bounding sphere of the
+ * node, given by its position and radius.  The lowest level of detail
+ * whose projected error is not larger than the maximum screen error, in
+ * pixels, is selected.  To avoid switching back and forth near the
+ * limit, a coarser level is only selected when its projected error is
+ * below the maximum screen error reduced by the hysteresis fraction, and
+ * the current level is kept until its projected error exceeds the maximum
+ * screen error increased by that fraction.
+ * <p>
+ * Unlike DistanceLOD, this node is not scheduled as a behavior and does
+ * not use its scheduling bounds.  Its level is selected for the primary
+ * view every frame, and only when its bounding sphere intersects the view
+ * frustum; the level of a node outside of the view frustum is left as it
+ * is.  A new level is set on the Switch nodes by the behavior scheduler,
+ * so, as for DistanceLOD, they need the <code>ALLOW_SWITCH_WRITE</code>
+ * capability.
+ * <p>
+ * Note that the position, the radius and the array of errors are
+ * specified in the local coordinate system of this node.
+ *
+ * @since Java 3D 1.6
+ */
+public class ScreenSpaceErrorLOD extends LOD {
+
+    private double errors[];
+    private Point3f position = new Point3f(0.0f, 0.0f, 0.0f);
+    private float radius = 0.0f;
+    private float maxScreenError = 1.0f;
+    private float hysteresis = 0.1f;
+
+    // Level last selected by the LODStage, or -1 if none was selected
+    int level = -1;
+
+    // Index of this node in the arrays of the LODStage
+    int stageIndex = -1;
+
+    /**
+     * Constructs and initializes a ScreenSpaceErrorLOD node with default
+     * values.  Note that the default constructor creates a
+     * ScreenSpaceErrorLOD object with a single error value set to 0.0 and
+     * is, therefore, not useful.
+     */
+    public ScreenSpaceErrorLOD() {
+	errors = new double[1];
+	errors[0] = 0.0;
+    }
+
+    /**
+     * Constructs and initializes a ScreenSpaceErrorLOD node with the
+     * specified array of errors, a default position of (0,0,0) and a
+     * radius of 0.
+     * @param errors an array of values representing the error of each
+     * level of detail
+     */
+    public ScreenSpaceErrorLOD(float[] errors) {
+	this.errors = new double[errors.length];
+
+	for (int i = 0; i < errors.length; i++) {
+	    this.errors[i] = (double)errors[i];
+	}
+    }
+
+    /**
+     * Constructs and initializes a ScreenSpaceErrorLOD node with the
+     * specified array of errors and the specified bounding sphere.
+     * @param errors an array of values representing the error of each
+     * level of detail
+     * @param position the center of the bounding sphere of this LOD node
+     * @param radius the radius of the bounding sphere of this LOD node
+     */
+    public ScreenSpaceErrorLOD(float[] errors, Point3f position, float radius) {
+	this(errors);
+	this.position.set(position);
+	this.radius = radius;
+    }
+
+    /**
+     * Sets the position of this LOD node.  This position is specified in
+     * the local coordinates of this node, and is the center of the
+     * bounding sphere used to compute the distance to the viewer and to
+     * cull the node.
+     * @param position the new position
+     */
+    public void setPosition(Point3f position) {
+	if (((NodeRetained)retained).staticTransform != null) {
+	    ((NodeRetained)retained).staticTransform.transform.transform(
+					position, this.position);
+	} else {
+	    this.position.set(position);
+	}
+	boundsChanged();
+    }
+
+    /**
+     * Retrieves the current position of this LOD node.  This position is
+     * in the local coordinates of this node.
+     * @param position the object that will receive the current position
+     */
+    public void getPosition(Point3f position) {
+        if (((NodeRetained)retained).staticTransform != null) {
+            Transform3D invTransform =
+                ((NodeRetained)retained).staticTransform.getInvTransform();
+            invTransform.transform(this.position, position);
+        } else {
+            position.set(this.position);
+        }
+    }
+
+    /**
+     * Sets the radius of the bounding sphere of this LOD node.
+     * @param radius the new radius
+     */
+    public void setRadius(float radius) {
+	this.radius = radius;
+	boundsChanged();
+    }
+
+    /**
+     * Retrieves the radius of the bounding sphere of this LOD node.
+     * @return the radius
+     */
+    public float getRadius() {
+	return radius;
+    }
+
+    /**
+     * Sets the maximum error, in pixels, of the selected level of detail.
+     * The default value is 1.0.
+     * @param pixels the maximum screen error
+     */
+    public void setMaxScreenError(float pixels) {
+	maxScreenError = pixels;
+    }
+
+    /**
+     * Retrieves the maximum error, in pixels, of the selected level of
+     * detail.
+     * @return the maximum screen error
+     */
+    public float getMaxScreenError() {
+	return maxScreenError;
+    }
+
+    /**
+     * Sets the fraction of the maximum screen error by which the projected
+     * error must pass it before the level of detail changes.  The default
+     * value is 0.1.
+     * @param fraction the hysteresis fraction, between 0 and 1
+     */
+    public void setHysteresis(float fraction) {
+	hysteresis = fraction;
+    }
+
+    /**
+     * Retrieves the hysteresis fraction of this LOD node.
+     * @return the hysteresis fraction
+     */
+    public float getHysteresis() {
+	return hysteresis;
+    }
+
+    /**
+     * Returns a count of the number of LOD error values.  Note that the
+     * number of levels of detail (children of the Switch node) is equal
+     * to the number of error values.
+     * @return a count of the LOD error values
+     */
+    public int numErrors() {
+	return errors.length;
+    }
+
+    /**
+     * Returns the error of a particular level of detail.
+     * @param whichError an index specifying which LOD error to return
+     * @return the error value associated with the index provided
+     */
+    public double getError(int whichError) {
+	return errors[whichError];
+    }
+
+    /**
+     * Sets the error of a particular level of detail.
+     * @param whichError an index specifying which LOD error to modify
+     * @param error the error associated with the index provided
+     */
+    public void setError(int whichError, double error) {
+	errors[whichError] = error;
+    }
+
+    // Tells the LODStage to compute the bounding sphere again
+    private void boundsChanged() {
+	BehaviorRetained behav = (BehaviorRetained) retained;
+	if (behav.source.isLive() && (behav.universe != null)) {
+	    behav.universe.behaviorStructure.lodStage.boundsChanged(this);
+	}
+    }
+
+    /**
+     * Initialize method of this node.  It sets no wakeup criteria, since
+     * the level of detail is selected during culling.
+     */
+    @Override
+    public void initialize() {
+    }
+
+    /**
+     * Process stimulus method of this node.  It is never called, since
+     * this node sets no wakeup criteria.
+     * @param criteria an enumeration of the criteria that caused the
+     * stimulus
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void processStimulus(Enumeration criteria) {
+    }
+
+    /**
+     * Selects the level of detail for the specified projected errors
+     * scale, which converts an error in the local coordinates of this
+     * node into pixels.  Returns the current level if it doesn't change.
+     */
+    int selectLevel(double pixelsPerUnit) {
+	double[] e = errors;
+	int n = e.length;
+	if (n == 0) {
+	    return level;
+	}
+	double max = maxScreenError;
+	int current = level;
+	if ((current < 0) || (current >= n)) {
+	    current = -1;
+	}
+
+	// Coarsest level within the limit, lowered by the hysteresis when
+	// the level gets coarser
+	double coarsen = (current < 0 ? max : max * (1.0 - hysteresis));
+	int select = 0;
+	for (int i = n - 1; i > 0; i--) {
+	    if (e[i] * pixelsPerUnit <= (i > current ? coarsen : max)) {
+		select = i;
+		break;
+	    }
+	}
+	if ((current >= 0) && (select < current) &&
+	    (e[current] * pixelsPerUnit <= max * (1.0 + hysteresis))) {
+	    // The current level is still within the raised limit
+	    return current;
+	}
+	return select;
+    }
+
+    /**
+     * Used to create a new instance of the node.  This routine is called
+     * by <code>cloneTree</code> to duplicate the current node.
+     * @param forceDuplicate when set to <code>true</code>, causes the
+     *  <code>duplicateOnCloneTree</code> flag to be ignored.  When
+     *  <code>false</code>, the value of each node's
+     *  <code>duplicateOnCloneTree</code> variable determines whether
+     *  NodeComponent data is duplicated or copied.
+     *
+     * @see Node#cloneTree
+     * @see Node#cloneNode
+     * @see Node#duplicateNode
+     * @see NodeComponent#setDuplicateOnCloneTree
+     */
+    @Override
+    public Node cloneNode(boolean forceDuplicate) {
+        ScreenSpaceErrorLOD l = new ScreenSpaceErrorLOD();
+        l.duplicateNode(this, forceDuplicate);
+        return l;
+    }
+
+
+   /**
+     * Copies all ScreenSpaceErrorLOD information from
+     * <code>originalNode</code> into
+     * the current node.  This method is called from the
+     * <code>cloneNode</code> method which is, in turn, called by the
+     * <code>cloneTree</code> method.<P>
+     *
+     * @param originalNode the original node to duplicate.
+     * @param forceDuplicate when set to <code>true</code>, causes the
+     *  <code>duplicateOnCloneTree</code> flag to be ignored.  When
+     *  <code>false</code>, the value of each node's
+     *  <code>duplicateOnCloneTree</code> variable determines whether
+     *  NodeComponent data is duplicated or copied.
+     *
+     * @exception RestrictedAccessException if this object is part of a live
+     *  or compiled scenegraph.
+     *
+     * @see Node#duplicateNode
+     * @see Node#cloneTree
+     * @see NodeComponent#setDuplicateOnCloneTree
+     */
+    @Override
+    void duplicateAttributes(Node originalNode, boolean forceDuplicate) {
+        super.duplicateAttributes(originalNode, forceDuplicate);
+
+	ScreenSpaceErrorLOD lod = (ScreenSpaceErrorLOD) originalNode;
+
+        int numE = lod.numErrors();
+        this.errors = new double[numE];
+
+        for (int i = 0; i < numE; i++)
+            setError(i, lod.getError(i));
+
+        Point3f p = new Point3f();
+        lod.getPosition(p);
+        setPosition(p);
+        setRadius(lod.getRadius());
+        setMaxScreenError(lod.getMaxScreenError());
+        setHysteresis(lod.getHysteresis());
+    }
+
+    // The center of the bounding sphere in local coordinates
+    Point3f getLocalPosition() {
+	return position;
+    }
+}
@@ -60,6 +60,11 @@ class ShaderBin implements ObjectUpdate {
     ShaderBin next = null;
     ShaderBin prev = null;
 
+    /**
+     * The id of this ShaderBin in the sort keys of the DrawList
+     */
+    int drawListId = 0;
+
     /**
      * The list of TextureBins in this ShaderBin
      */
@@ -152,6 +157,11 @@ ArrayList<TextureBin> addTextureBins = new ArrayList<TextureBin>();
 		insertTextureBin(t);
 
 	    }
+	    if (renderBin.drawList != null) {
+		for (i = 0; i < addTextureBins.size(); i++) {
+		    renderBin.drawList.add(addTextureBins.get(i));
+		}
+	    }
 	}
 	addTextureBins.clear();
 	onUpdateList = false;
@@ -214,6 +224,11 @@ ArrayList<TextureBin> addTextureBins = new ArrayList<TextureBin>();
             texture = tb.texUnitState[0].texture;
         }
 
+	// The texture is part of the sort key of the TextureBin
+	if (renderBin.drawList != null) {
+	    renderBin.drawList.add(tb);
+	}
+
         if (tb.prev != null && tb.prev.texUnitState != null) {
             prevTexture = tb.prev.texUnitState[0].texture;
         }
@@ -280,6 +295,10 @@ ArrayList<TextureBin> addTextureBins = new ArrayList<TextureBin>();
 	t.prev = null;
 	t.next = null;
 
+	if (renderBin.drawList != null) {
+	    renderBin.drawList.invalidate();
+	}
+
 	t.clear();
 
 	if (textureBinList == null && addTextureBins.size() == 0 ) {
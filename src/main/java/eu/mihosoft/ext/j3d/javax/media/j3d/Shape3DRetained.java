@@ -642,7 +642,18 @@ Enumeration getAllGeometries(int id) {
 
  	Transform3D t3d = new Transform3D();
 	t3d.invert(localToVworld);
-	PickShape newPS = pickShape.transform(t3d);
+	return intersect(pickInfo, pickShape, flags, localToVworld, t3d);
+    }
+
+    /**
+     * Same as intersect(PickInfo, PickShape, int) for callers that have
+     * already computed the local to vworld transform, including the
+     * orientation of an OrientedShape3D, and its inverse.
+     */
+    boolean intersect(PickInfo pickInfo, PickShape pickShape, int flags,
+		      Transform3D localToVworld, Transform3D vworldToLocal) {
+
+	PickShape newPS = pickShape.transform(vworldToLocal);
 
 	// Note: For optimization - Should do a geobounds check of
 	// each geometry first. But this doesn't work for
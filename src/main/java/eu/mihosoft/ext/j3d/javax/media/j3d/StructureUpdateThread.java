@@ -95,6 +95,17 @@ class StructureUpdateThread extends J3dThread {
 
     @Override
     void doWork(long referenceTime) {
-	structure.processMessages(referenceTime);
+	if (FrameStatisticsCollector.isCollecting()) {
+	    FrameStatistics.Type statsType =
+		FrameStatisticsCollector.structureType(type);
+	    long startTime = System.nanoTime();
+	    structure.processMessages(referenceTime);
+	    if (statsType != null) {
+		VirtualUniverse.mc.recordTime(statsType,
+					      System.nanoTime() - startTime);
+	    }
+	} else {
+	    structure.processMessages(referenceTime);
+	}
     }
 }
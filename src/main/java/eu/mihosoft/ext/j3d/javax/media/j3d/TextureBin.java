@@ -128,6 +128,9 @@ HashMap<Transform3D[], RenderMolecule> transparentRenderMoleculeMap = new HashMa
     RenderMolecule transparentRMList = null;
     TransparentRenderingInfo parentTInfo;
 
+    // State of this TextureBin in the DrawList, DrawList.ADDED or LISTED
+    int drawListId = 0;
+
     int numRenderMolecules = 0;
     int numEditingRenderMolecules = 0;
 
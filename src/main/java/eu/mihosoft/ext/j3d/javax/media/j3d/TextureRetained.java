@@ -83,6 +83,10 @@ abstract class TextureRetained extends NodeComponentRetained {
     // Texture Object Id used by native code.
     int 	objectId = -1;
 
+    // Id of this texture in the sort keys of a DrawList, only valid
+    // during DrawList.update()
+    int		drawListId = 0;
+
     int		mipmapMode = Texture.BASE_LEVEL; // Type of mip-mapping
     int		format = Texture.RGB;		// Texture format
     int		width = 1;			// Width in pixels (2**n)
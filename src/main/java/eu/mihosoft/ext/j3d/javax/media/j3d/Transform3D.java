@@ -150,6 +150,16 @@ public class Transform3D {
 
     private int dirtyBits;
 
+    // Exact structure of a matrix, used to select a specialized kernel
+    // in mul() and invert().  Unlike the type above these are not
+    // tolerance based, so a specialized kernel computes the same values
+    // as the general code.  Ordered from least to most general.
+    private static final int KIND_IDENTITY    = 0;
+    private static final int KIND_TRANSLATION = 1;
+    private static final int KIND_DIAGONAL    = 2;
+    private static final int KIND_AFFINE      = 3;
+    private static final int KIND_GENERAL     = 4;
+
     boolean autoNormalize = false;	// Don't auto normalize by default
     /*
     // reused temporaries for compute_svd
@@ -2842,6 +2852,8 @@ public class Transform3D {
     public final void invert(Transform3D t1) {
 	if (t1 == this) {
 	    invert();
+	} else if (invertExact(t1)) {
+	    return;
 	} else if (t1.isAffine()) {
 	    // We can't use invertOrtho() because of numerical
 	    // instability unless we set tolerance of ortho test to 0
@@ -2858,13 +2870,59 @@ public class Transform3D {
      * not invertible
      */
     public final void invert() {
-	if (isAffine()) {
+	if (invertExact(this)) {
+	    return;
+	} else if (isAffine()) {
 	    invertAffine();
 	} else {
 	    invertGeneral(this);
 	}
     }
 
+    /**
+     * Specialized invert routines for identity, translation and diagonal
+     * (scale and translation) matrices.  Inverts t1 and places the result
+     * in "this".  Returns false if the general code has to be used.
+     */
+    private boolean invertExact(Transform3D t1) {
+	switch (exactKind(t1.mat)) {
+	case KIND_IDENTITY:
+	    if (this != t1) {
+		set(t1);
+	    }
+	    return true;
+	case KIND_TRANSLATION:
+	    if (this != t1) {
+		set(t1);
+	    }
+	    mat[3] = -mat[3];
+	    mat[7] = -mat[7];
+	    mat[11] = -mat[11];
+	    // The inverse of a translation has the same type
+	    return true;
+	case KIND_DIAGONAL:
+	    if (t1.mat[0] == 0.0 || t1.mat[5] == 0.0 || t1.mat[10] == 0.0) {
+		throw new SingularMatrixException(J3dI18N.getString("Transform3D1"));
+	    }
+	    mat[0] = 1.0 / t1.mat[0];
+	    mat[5] = 1.0 / t1.mat[5];
+	    mat[10] = 1.0 / t1.mat[10];
+	    mat[3] = -(t1.mat[3] * mat[0]);
+	    mat[7] = -(t1.mat[7] * mat[5]);
+	    mat[11] = -(t1.mat[11] * mat[10]);
+	    mat[1] = mat[2] = mat[4] = mat[6] = mat[8] = mat[9] = 0.0;
+	    mat[12] = mat[13] = mat[14] = 0.0;
+	    mat[15] = 1.0;
+	    type = AFFINE | ORTHO;
+	    dirtyBits = CONGRUENT_BIT | RIGID_BIT | CLASSIFY_BIT |
+		        ROTSCALESVD_DIRTY;
+	    checkInfOrNaN();
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
     /**
      * Congruent invert routine.
      *
@@ -3509,6 +3567,10 @@ public class Transform3D {
 	double tmp8, tmp9, tmp10, tmp11;
 	boolean aff = false;
 
+	if (mulExact(this, t1)) {
+	    return;
+	}
+
 	if (t1.isAffine()) {
 	    tmp0 = mat[0]*t1.mat[0] + mat[1]*t1.mat[4] + mat[2]*t1.mat[8];
 	    tmp1 = mat[0]*t1.mat[1] + mat[1]*t1.mat[5] + mat[2]*t1.mat[9];
@@ -3630,6 +3692,11 @@ public class Transform3D {
      */
     public final void mul(Transform3D t1, Transform3D t2) {
 	boolean aff = false;
+
+	if (mulExact(t1, t2)) {
+	    return;
+	}
+
 	if ((this != t1)  &&  (this != t2)) {
 	    if (t2.isAffine()) {
 
@@ -3824,6 +3891,134 @@ public class Transform3D {
 	}
     }
 
+    /**
+     * Returns the exact structure of the specified matrix, see KIND_*.
+     */
+    private static int exactKind(double[] m) {
+	if (m[12] != 0.0 || m[13] != 0.0 || m[14] != 0.0 || m[15] != 1.0) {
+	    return KIND_GENERAL;
+	}
+	if (m[1] != 0.0 || m[2] != 0.0 || m[4] != 0.0 ||
+	    m[6] != 0.0 || m[8] != 0.0 || m[9] != 0.0) {
+	    return KIND_AFFINE;
+	}
+	if (m[0] != 1.0 || m[5] != 1.0 || m[10] != 1.0) {
+	    return KIND_DIAGONAL;
+	}
+	if (m[3] != 0.0 || m[7] != 0.0 || m[11] != 0.0) {
+	    return KIND_TRANSLATION;
+	}
+	return KIND_IDENTITY;
+    }
+
+    /**
+     * Specialized kernels for this = t1*t2 when one of the operands is
+     * an identity or translation matrix, or both are diagonal (scale
+     * and translation).  The type of the result is derived from the
+     * operands so that it need not be classified again.  Returns false
+     * if the general code has to be used.
+     */
+    private boolean mulExact(Transform3D t1, Transform3D t2) {
+	int k1 = exactKind(t1.mat);
+	int k2;
+
+	if (k1 == KIND_IDENTITY) {
+	    if (this != t2) {
+		System.arraycopy(t2.mat, 0, mat, 0, 16);
+		type = t2.type;
+		dirtyBits = t2.dirtyBits | ROTSCALESVD_DIRTY;
+	    }
+	} else if ((k2 = exactKind(t2.mat)) == KIND_IDENTITY) {
+	    if (this != t1) {
+		System.arraycopy(t1.mat, 0, mat, 0, 16);
+		type = t1.type;
+		dirtyBits = t1.dirtyBits | ROTSCALESVD_DIRTY;
+	    }
+	} else if (k1 == KIND_GENERAL || k2 == KIND_GENERAL) {
+	    return false;
+	} else if (k1 == KIND_TRANSLATION && k2 == KIND_TRANSLATION) {
+	    mat[3] = t1.mat[3] + t2.mat[3];
+	    mat[7] = t1.mat[7] + t2.mat[7];
+	    mat[11] = t1.mat[11] + t2.mat[11];
+	    if (this != t1) {
+		mat[0] = mat[5] = mat[10] = mat[15] = 1.0;
+		mat[1] = mat[2] = mat[4] = mat[6] = mat[8] = mat[9] = 0.0;
+		mat[12] = mat[13] = mat[14] = 0.0;
+	    }
+	    // Translation only, the identity test is left to classify()
+	    type = AFFINE | CONGRUENT | RIGID | ORTHO;
+	    dirtyBits = CLASSIFY_BIT | SCALE_BIT | ROTATION_BIT;
+	    checkInfOrNaN();
+	} else if (k1 <= KIND_DIAGONAL && k2 <= KIND_DIAGONAL) {
+	    double m0 = t1.mat[0], m5 = t1.mat[5], m10 = t1.mat[10];
+	    mat[3] = m0*t2.mat[3] + t1.mat[3];
+	    mat[7] = m5*t2.mat[7] + t1.mat[7];
+	    mat[11] = m10*t2.mat[11] + t1.mat[11];
+	    mat[0] = m0*t2.mat[0];
+	    mat[5] = m5*t2.mat[5];
+	    mat[10] = m10*t2.mat[10];
+	    mat[1] = mat[2] = mat[4] = mat[6] = mat[8] = mat[9] = 0.0;
+	    mat[12] = mat[13] = mat[14] = 0.0;
+	    mat[15] = 1.0;
+	    // Orthogonal rows, uniform scale is left to classifyRigid()
+	    type = AFFINE | ORTHO;
+	    dirtyBits = CONGRUENT_BIT | RIGID_BIT | CLASSIFY_BIT |
+		        ROTSCALESVD_DIRTY;
+	    checkInfOrNaN();
+	} else if (k1 == KIND_TRANSLATION) {
+	    // Upper 3x3 is the one of t2, so are the rigid/congruent bits
+	    mat[3] = t2.mat[3] + t1.mat[3];
+	    mat[7] = t2.mat[7] + t1.mat[7];
+	    mat[11] = t2.mat[11] + t1.mat[11];
+	    if (this != t2) {
+		mat[0] = t2.mat[0]; mat[1] = t2.mat[1]; mat[2] = t2.mat[2];
+		mat[4] = t2.mat[4]; mat[5] = t2.mat[5]; mat[6] = t2.mat[6];
+		mat[8] = t2.mat[8]; mat[9] = t2.mat[9]; mat[10] = t2.mat[10];
+		mat[12] = mat[13] = mat[14] = 0.0;
+		mat[15] = 1.0;
+	    }
+	    inheritRotScaleType(t2);
+	} else if (k2 == KIND_TRANSLATION) {
+	    double x = t2.mat[3], y = t2.mat[7], z = t2.mat[11];
+	    mat[3] = t1.mat[0]*x + t1.mat[1]*y + t1.mat[2]*z + t1.mat[3];
+	    mat[7] = t1.mat[4]*x + t1.mat[5]*y + t1.mat[6]*z + t1.mat[7];
+	    mat[11] = t1.mat[8]*x + t1.mat[9]*y + t1.mat[10]*z + t1.mat[11];
+	    if (this != t1) {
+		mat[0] = t1.mat[0]; mat[1] = t1.mat[1]; mat[2] = t1.mat[2];
+		mat[4] = t1.mat[4]; mat[5] = t1.mat[5]; mat[6] = t1.mat[6];
+		mat[8] = t1.mat[8]; mat[9] = t1.mat[9]; mat[10] = t1.mat[10];
+		mat[12] = mat[13] = mat[14] = 0.0;
+		mat[15] = 1.0;
+	    }
+	    inheritRotScaleType(t1);
+	} else {
+	    return false;
+	}
+
+	if (autoNormalize) {
+	    normalize();
+	}
+	return true;
+    }
+
+    /**
+     * Sets the type of this affine matrix after its translation was
+     * changed, from the transform t1 that has the same upper 3x3.
+     */
+    private void inheritRotScaleType(Transform3D t1) {
+	type = (t1.type & (ORTHO | CONGRUENT | RIGID)) | AFFINE;
+	dirtyBits = (t1.dirtyBits & (ORTHO_BIT | CONGRUENT_BIT | RIGID_BIT)) |
+		    CLASSIFY_BIT | ROTSCALESVD_DIRTY;
+	checkInfOrNaN();
+    }
+
+    // Issue 253: a matrix with infinity or NaN values is never affine
+    private void checkInfOrNaN() {
+	if (isInfOrNaN()) {
+	    dirtyBits = ALL_DIRTY;
+	}
+    }
+
     /**
      * Multiplies this transform by the inverse of transform t1. The final
      * value is placed into this matrix (this = this*t1^-1).
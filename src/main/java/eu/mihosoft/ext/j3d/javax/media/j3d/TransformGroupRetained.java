@@ -124,20 +124,14 @@ ArrayList<NodeRetained> childTransformLinks = new ArrayList<NodeRetained>(1);
    */
   void setTransform(Transform3D t1) {
       J3dMessage tchangeMessage = null;
-      int i, j;
-      Transform3D trans = null;
 
       if (staticTransform != null) {
 	  // this writeable transformGroup has a static transform
 	  // merged into this node
-
-      	  trans = new Transform3D(staticTransform.transform);
-	  trans.mul(t1);
-
-      	  transform.setWithLock(trans);
-
+	  synchronized (transform) {
+	      transform.mul(staticTransform.transform, t1);
+	  }
       } else {
-      	  trans = new Transform3D(t1);
       	  transform.setWithLock(t1);
       }
 
@@ -151,10 +145,20 @@ ArrayList<NodeRetained> childTransformLinks = new ArrayList<NodeRetained>(1);
 	      throw new BadTransformException(J3dI18N.getString("ViewPlatformRetained0"));
 	  }
 
-	  tchangeMessage = new J3dMessage();
+	  // TRANSFORM_CHANGED consumers never keep the message, so it
+	  // can be recycled.  The copy of the new transform is recycled
+	  // with it, and the TransformStructure applies that copy at the
+	  // time of the message rather than the live transform.
+	  tchangeMessage = J3dMessage.getMessage();
 	  tchangeMessage.type = J3dMessage.TRANSFORM_CHANGED;
 	  tchangeMessage.threads = targetThreads;
 	  tchangeMessage.args[1] = this;
+	  Transform3D trans = tchangeMessage.getTransform();
+	  if (staticTransform != null) {
+	      trans.mul(staticTransform.transform, t1);
+	  } else {
+	      trans.set(t1);
+	  }
 	  tchangeMessage.args[2] = trans;
 
 	  tchangeMessage.universe = universe;
@@ -29,7 +29,6 @@ package eu.mihosoft.ext.j3d.javax.media.j3d;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 
 /**
  * A transform update is a object that manages TransformGroups
@@ -40,14 +39,23 @@ class TransformStructure extends J3dStructure implements ObjectUpdate {
     /**
      * A set of TransformGroups and associated Transform3Ds to traverse
      */
-    private HashSet<TransformData> transformSet = new HashSet<TransformData>();
+    private HashSet<TransformGroupRetained> transformSet =
+	new HashSet<TransformGroupRetained>();
 
-    private ArrayList objectList = new ArrayList();
+    // The TransformGroups of transformSet in the order they were added,
+    // and a copy of the transform carried by the latest TRANSFORM_CHANGED
+    // message of each.  The copies are reused from frame to frame.
+    private ArrayList<TransformGroupRetained> changedTgs =
+	new ArrayList<TransformGroupRetained>();
+    private ArrayList<Transform3D> changedTransforms =
+	new ArrayList<Transform3D>();
+
+    private ArrayList<Object[]> objectList = new ArrayList<Object[]>();
 
     /**
      * arraylist of the bounding leaf users affected by the transform
      */
-    private ArrayList blUsers = new ArrayList();
+    private ArrayList<LeafRetained> blUsers = new ArrayList<LeafRetained>();
 
     // to gather transform targets
     private UpdateTargets targets = new UpdateTargets();
@@ -55,13 +63,13 @@ class TransformStructure extends J3dStructure implements ObjectUpdate {
     /**
      * An arrayList of nodes that need collisionBounds updates
      */
-    private ArrayList collisionObjectList = new ArrayList();
+    private ArrayList<Object[]> collisionObjectList = new ArrayList<Object[]>();
 
 // List of dirty TransformGroups
 private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<TransformGroupRetained>();
 
     // Associated Keys with the dirtyNodeGroup
-    private ArrayList keySet = new ArrayList();
+    private ArrayList<HashKey> keySet = new ArrayList<HashKey>();
 
     // the active list contains changed TransformGroup minus those that
     // have been switched-off, plus those that have been changed but
@@ -75,11 +83,30 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     private boolean lazyUpdate = false;
 
     // ArrayList of switches that have changed, use for lastSwitchOn updates
-    private ArrayList switchChangedList = new ArrayList();
+    private ArrayList<SwitchState> switchChangedList =
+	new ArrayList<SwitchState>();
 
     // true if already in MasterControl's update object list
     private boolean inUpdateObjectList = false;
 
+    // Minimum number of target entries per fork/join subtask
+    private static final int VWC_BOUNDS_GRAIN = 256;
+
+    // Minimum number of independent TransformGroups per fork/join
+    // subtask of the localToVworld propagation
+    private static final int LOCAL_TO_VWORLD_GRAIN = 64;
+
+    // Upper limit of the number of localToVworld subtasks per frame
+    private static final int MAX_LOCAL_TO_VWORLD_CHUNKS = 64;
+
+    // Per depth counters and scratch array of sortTransformGroups()
+    private int[] levelStart = new int[16];
+    private TransformGroupRetained[] sortedTgs = new TransformGroupRetained[16];
+
+    // Per subtask results of the parallel localToVworld propagation,
+    // reused from frame to frame
+    private LocalToVworldChunk[] chunks = new LocalToVworldChunk[0];
+
     /**
      * This constructor does nothing
      */
@@ -109,9 +136,20 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	    for (i = (nMsg-1); i >= 0; i--) {
 		m = messages[i];
 		if (m.type == J3dMessage.TRANSFORM_CHANGED) {
-		    // Add the TG and associated transform. Since this is a
-                    // set, duplicates will be culled.
-                    transformSet.add(new TransformData((TransformGroupRetained)m.args[1], (Transform3D)m.args[2]));
+		    // Add the TG and a copy of its new transform.  Since
+		    // this is a set, duplicates will be culled.  The copy is
+		    // taken now as the message may be recycled as soon as
+		    // it is released below.
+		    TransformGroupRetained tg =
+			(TransformGroupRetained)m.args[1];
+		    if (transformSet.add(tg)) {
+			int n = changedTgs.size();
+			if (n == changedTransforms.size()) {
+			    changedTransforms.add(new Transform3D());
+			}
+			changedTransforms.get(n).set((Transform3D)m.args[2]);
+			changedTgs.add(tg);
+		    }
 		}
 	    }
 
@@ -120,7 +158,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 
 		switch (m.type) {
 		case J3dMessage.INSERT_NODES:
-		    objectList.add(m.args[0]);
+		    objectList.add((Object[])m.args[0]);
 		    if (m.args[1] != null) {
 			TargetsInterface ti = (TargetsInterface)m.args[1];
 			ti.updateCachedTargets(
@@ -135,7 +173,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 		    processSwitchChanged(m);
 		    break;
 		case J3dMessage.SHAPE3D_CHANGED:
-		    objectList.add(m.args[3]);
+		    objectList.add((Object[])m.args[3]);
 		    if (m.args[4] != null) {
 			TargetsInterface ti = (TargetsInterface)m.args[4];
 			ti.updateCachedTargets(
@@ -144,13 +182,13 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 		    }
 		    break;
 		case J3dMessage.GEOMETRY_CHANGED:
-		    objectList.add(m.args[0]);
+		    objectList.add((Object[])m.args[0]);
 		    break;
 		case J3dMessage.MORPH_CHANGED:
-		    objectList.add(m.args[3]);
+		    objectList.add((Object[])m.args[3]);
 		    break;
 		case J3dMessage.TEXT3D_DATA_CHANGED:
-		    objectList.add(m.args[1]);
+		    objectList.add((Object[])m.args[1]);
 		    Object tiArr[] = (Object[])m.args[2];
 		    if (tiArr != null) {
 			Object newCtArr[] = (Object[])m.args[3];
@@ -164,7 +202,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 		    }
 		    break;
 		case J3dMessage.TEXT3D_TRANSFORM_CHANGED:
-		    objectList.add(m.args[0]);
+		    objectList.add((Object[])m.args[0]);
 		    break;
 		case J3dMessage.BOUNDS_AUTO_COMPUTE_CHANGED:
 		    processBoundsAutoComputeChanged(m);
@@ -212,11 +250,9 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
         // process TG with setTransform changes
 	// update Transform3D, switchDirty and lToVwDrity flags
 	if (tSize > 0) {
-            Iterator<TransformData> it = transformSet.iterator();
-            while(it.hasNext()) {
-                TransformData lData = it.next();
-                tg = lData.getTransformGroupRetained();
-                tg.currentTransform.set(lData.getTransform3D());
+            for (i=0; i<tSize; i++) {
+                tg = changedTgs.get(i);
+                tg.currentTransform.set(changedTransforms.get(i));
 
                 synchronized(tg) { // synchronized with tg.set/clearLive
                 if(tg.perPathData != null) {
@@ -294,9 +330,13 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             sortTransformGroups(tSize, tgs);
 
             // update lToVw and gather targets
-            for (i=0; i<tSize; i++) {
-                tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
-                                                targets, blUsers);
+            if (!J3dForkJoinScheduler.isEnabled() ||
+                tSize < 2 * LOCAL_TO_VWORLD_GRAIN ||
+                !processLocalToVworldParallel(tSize, tgs)) {
+                for (i=0; i<tSize; i++) {
+                    tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
+                                                    targets, blUsers);
+                }
             }
 	    if (!inUpdateObjectList) {
                 VirtualUniverse.mc.addMirrorObject(this);
@@ -305,49 +345,193 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
         }
 
         transformSet.clear();
+        changedTgs.clear();
         activeTraverseList.clear();
     }
 
 
+    /**
+     * Sorts the TransformGroups by ascending maxTransformLevel, so that
+     * a TransformGroup is processed before the ones below it.  The
+     * levels are small integers, so a counting sort is used; it is
+     * linear in the number of TransformGroups and keeps the order of
+     * TransformGroups of the same level.
+     */
     private void sortTransformGroups(int size, TransformGroupRetained[] tgs) {
-        if (size < 7) {
-            insertSort(size, tgs);
+        int i, level;
+        int maxLevel = -1;
+
+        if (size < 2) {
+            return;
+        }
+
+        for (i=0; i<size; i++) {
+            if (tgs[i].maxTransformLevel > maxLevel) {
+                maxLevel = tgs[i].maxTransformLevel;
+            }
+        }
+
+        // maxTransformLevel is -1 for a TransformGroup that is not live,
+        // so bucket b holds the TransformGroups of level b-1
+        int numLevels = maxLevel + 2;
+        if (levelStart.length < numLevels + 1) {
+            levelStart = new int[numLevels + 1];
         } else {
-            quicksort(0, size-1, tgs);
+            Arrays.fill(levelStart, 0, numLevels + 1, 0);
         }
+        if (sortedTgs.length < size) {
+            sortedTgs = new TransformGroupRetained[size];
+        }
+
+        for (i=0; i<size; i++) {
+            levelStart[tgs[i].maxTransformLevel + 2]++;
+        }
+        for (level=1; level<numLevels; level++) {
+            levelStart[level] += levelStart[level-1];
+        }
+        for (i=0; i<size; i++) {
+            sortedTgs[levelStart[tgs[i].maxTransformLevel + 1]++] = tgs[i];
+        }
+
+        System.arraycopy(sortedTgs, 0, tgs, 0, size);
+        Arrays.fill(sortedTgs, 0, size, null);
     }
 
-    // Insertion sort on smallest arrays
-    private void insertSort(int size, TransformGroupRetained[] tgs) {
-        for (int i=0; i<size; i++) {
-            for (int j=i; j>0 &&
-		 (tgs[j-1].maxTransformLevel > tgs[j].maxTransformLevel); j--) {
-                TransformGroupRetained tmptg = tgs[j];
-                tgs[j] = tgs[j-1];
-                tgs[j-1] = tmptg;
+    /**
+     * Updates the localToVworld of the sorted TransformGroups on the
+     * fork/join pool.  A TransformGroup without a dirty TransformGroup
+     * above it updates its whole subtree, so these TransformGroups are
+     * independent and are split into chunks that run in parallel.  The
+     * results of the chunks are appended in the order of the chunks,
+     * which gives the same lists as the serial loop.  The remaining
+     * TransformGroups have normally been updated by then and are
+     * processed serially afterwards.  Returns false, without doing
+     * anything, if a TransformGroup is in a SharedGroup.
+     */
+    private boolean processLocalToVworldParallel(int size,
+                                                 TransformGroupRetained[] tgs) {
+        int i, numRoots = 0, numOthers = 0;
+
+        for (i=0; i<size; i++) {
+            if (tgs[i].inSharedGroup) {
+                return false;
+            }
+        }
+
+        if (sortedTgs.length < size) {
+            sortedTgs = new TransformGroupRetained[size];
+        }
+        for (i=0; i<size; i++) {
+            if (hasDirtyAncestor(tgs[i])) {
+                sortedTgs[numOthers++] = tgs[i];
+            } else {
+                tgs[numRoots++] = tgs[i];
             }
         }
+        System.arraycopy(sortedTgs, 0, tgs, numRoots, numOthers);
+        Arrays.fill(sortedTgs, 0, numOthers, null);
+
+        if (numRoots < 2 * LOCAL_TO_VWORLD_GRAIN) {
+            // Too few independent subtrees to be worth splitting
+            for (i=0; i<size; i++) {
+                tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
+                                                targets, blUsers);
+            }
+            return true;
+        }
+
+        final TransformGroupRetained[] roots = tgs;
+        final int numChunks = Math.min(MAX_LOCAL_TO_VWORLD_CHUNKS,
+                (numRoots + LOCAL_TO_VWORLD_GRAIN - 1) / LOCAL_TO_VWORLD_GRAIN);
+
+        if (chunks.length < numChunks) {
+            LocalToVworldChunk[] newChunks = new LocalToVworldChunk[numChunks];
+            System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+            for (i=chunks.length; i<numChunks; i++) {
+                newChunks[i] = new LocalToVworldChunk();
+            }
+            chunks = newChunks;
+        }
+        for (i=0; i<numChunks; i++) {
+            chunks[i].start = (int) ((long) numRoots * i / numChunks);
+            chunks[i].end = (int) ((long) numRoots * (i+1) / numChunks);
+        }
+
+        J3dForkJoinScheduler.parallelFor(numChunks, 1,
+            new J3dForkJoinScheduler.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int c=start; c<end; c++) {
+                        chunks[c].process(roots);
+                    }
+                }
+            });
+
+        for (i=0; i<numChunks; i++) {
+            chunks[i].mergeInto(dirtyTransformGroups, keySet, targets,
+                                blUsers);
+        }
+
+        for (i=numRoots; i<size; i++) {
+            tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
+                                            targets, blUsers);
+        }
+        return true;
     }
 
-    private void quicksort( int l, int r, TransformGroupRetained[] tgs ) {
-        int i = l;
-        int j = r;
-        double k = tgs[(l+r) / 2].maxTransformLevel;
-        do {
-            while (tgs[i].maxTransformLevel<k) i++;
-            while (k<tgs[j].maxTransformLevel) j--;
-            if (i<=j) {
-                TransformGroupRetained tmptg = tgs[i];
-                tgs[i] = tgs[j];
-                tgs[j] = tmptg;
-
-                i++;
-                j--;
-             }
-         } while (i<=j);
-
-         if (l<j) quicksort(l,j, tgs);
-         if (l<r) quicksort(i,r, tgs);
+    /**
+     * Returns true if a TransformGroup above the given one will update
+     * its localToVworld in this frame.
+     */
+    private static boolean hasDirtyAncestor(TransformGroupRetained tg) {
+        NodeRetained node = tg.parent;
+        while (node != null) {
+            if (node instanceof TransformGroupRetained) {
+                TransformGroupRetained ptg = (TransformGroupRetained) node;
+                if (ptg.perPathData != null &&
+                    ptg.perPathData[0].markedDirty &&
+                    ptg.localToVworld != null) {
+                    return true;
+                }
+            }
+            node = node.parent;
+        }
+        return false;
+    }
+
+    /**
+     * The TransformGroups and results of one subtask of the parallel
+     * localToVworld propagation.
+     */
+    static class LocalToVworldChunk {
+        int start;
+        int end;
+        final ArrayList<TransformGroupRetained> dirtyTransformGroups =
+            new ArrayList<TransformGroupRetained>();
+        final ArrayList<HashKey> keySet = new ArrayList<HashKey>();
+        final UpdateTargets targets = new UpdateTargets();
+        final ArrayList<LeafRetained> blUsers = new ArrayList<LeafRetained>();
+
+        void process(TransformGroupRetained[] tgs) {
+            for (int i=start; i<end; i++) {
+                tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
+                                                targets, blUsers);
+            }
+        }
+
+        void mergeInto(ArrayList<TransformGroupRetained> dirtyTgs,
+                       ArrayList<HashKey> keys, UpdateTargets updateTargets,
+                       ArrayList<LeafRetained> users) {
+            dirtyTgs.addAll(dirtyTransformGroups);
+            keys.addAll(keySet);
+            updateTargets.addTargets(targets);
+            users.addAll(blUsers);
+
+            dirtyTransformGroups.clear();
+            keySet.clear();
+            targets.clearNodes();
+            blUsers.clear();
+        }
     }
 
 
@@ -364,7 +548,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             SwitchState switchState;
 
             for (int i = 0; i < size; i++) {
-                switchState  = (SwitchState)switchChangedList.get(i);
+                switchState = switchChangedList.get(i);
                 switchState.updateLastSwitchOn();
             }
             switchChangedList.clear();
@@ -393,7 +577,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	    synchronized(tg) {
 		if (tg.childLocalToVworld != null) {
 		    if (tg.inSharedGroup) {
-			key = (HashKey) keySet.get(k++);
+			key = keySet.get(k++);
 			for (j=0; j<tg.localToVworldKeys.length; j++) {
 			    if (tg.localToVworldKeys[j].equals(key)) {
 				break;
@@ -429,7 +613,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	//int num_locales = universe.listOfLocales.size();
 	int oSize = objectList.size();
 	for (int i = 0; i < oSize; i++) {
-	    Object[] nodes = (Object[]) objectList.get(i);
+	    Object[] nodes = objectList.get(i);
 	    if (J3dDebug.devPhase && J3dDebug.debug) {
 		J3dDebug.doDebug(J3dDebug.transformStructure, J3dDebug.LEVEL_5,
 				 "vwcBounds computed this frame = " + nodes.length + "\n");
@@ -469,7 +653,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	}
 	// process collision bounds only update
 	for (int i = 0; i < collisionObjectList.size(); i++) {
-	    Object[] nodes = (Object[]) collisionObjectList.get(i);
+	    Object[] nodes = collisionObjectList.get(i);
 	    for (int j = 0; j < nodes.length; j++) {
 		synchronized(nodes[j]) {
 		    if (nodes[j] instanceof GeometryAtom) {
@@ -500,27 +684,18 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
         UnorderList arrList = targets.targetList[Targets.GEO_TARGETS];
         if (arrList != null) {
             size = arrList.size();
-	    nodesArr = arrList.toArray(false);
-
-            for (i = 0; i<size; i++) {
-                nodes = (Object[])nodesArr[i];
-                for (j = 0; j < nodes.length; j++) {
-                    synchronized(nodes[j]) {
-                        ga = (GeometryAtom) nodes[j];
-                        ms = ga.source;
-                        synchronized(ms.bounds) {
-                            ms.vwcBounds.transform(ms.bounds,
-                                          ms.getCurrentLocalToVworld(0));
-                        }
-                        if (ms.collisionBound != null) {
-                            ms.collisionVwcBound.transform(
-                                          ms.collisionBound,
-                                          ms.getCurrentLocalToVworld(0));
-                        }
-                        ga.centroidIsDirty = true;
+	    final Object[] geoArr = arrList.toArray(false);
+
+	    // Each entry holds the GeometryAtoms of one shape, so the
+	    // entries are independent and a large batch (e.g. thousands of
+	    // TRANSFORM_CHANGED) can be split across the fork/join pool.
+	    J3dForkJoinScheduler.parallelFor(size, VWC_BOUNDS_GRAIN,
+		new J3dForkJoinScheduler.RangeTask() {
+		    @Override
+		    public void run(int start, int end) {
+			processGeoTargetsVwcBounds(geoArr, start, end);
 		    }
-	        }
-	    }
+		});
 	}
 
         arrList = targets.targetList[Targets.GRP_TARGETS];
@@ -544,7 +719,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 
 	// process collision bounds only update
 	for (i = 0; i < collisionObjectList.size(); i++) {
-	    nodes = (Object[]) collisionObjectList.get(i);
+	    nodes = collisionObjectList.get(i);
 	    for (j = 0; j < nodes.length; j++) {
 		synchronized(nodes[j]) {
 		    if (nodes[j] instanceof GeometryAtom) {
@@ -563,6 +738,33 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	collisionObjectList.clear();
     }
 
+    private void processGeoTargetsVwcBounds(Object[] nodesArr,
+					    int start, int end) {
+	GeometryAtom ga;
+	Shape3DRetained ms;
+	Object nodes[];
+
+	for (int i = start; i < end; i++) {
+	    nodes = (Object[])nodesArr[i];
+	    for (int j = 0; j < nodes.length; j++) {
+		synchronized(nodes[j]) {
+		    ga = (GeometryAtom) nodes[j];
+		    ms = ga.source;
+		    synchronized(ms.bounds) {
+			ms.vwcBounds.transform(ms.bounds,
+					       ms.getCurrentLocalToVworld(0));
+			if (ms.collisionBound != null) {
+			    ms.collisionVwcBound.transform(
+					       ms.collisionBound,
+					       ms.getCurrentLocalToVworld(0));
+			}
+		    }
+		    ga.centroidIsDirty = true;
+		}
+	    }
+	}
+    }
+
     void processRegionBoundChanged(J3dMessage m) {
         // need to update mirrorShape's bounds
         processBoundsChanged((Object[]) m.args[0], (Bounds)m.args[1]);
@@ -626,7 +828,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     }
 
     void processSwitchChanged(J3dMessage m) {
-        ArrayList switchList = (ArrayList)m.args[2];
+        ArrayList<?> switchList = (ArrayList<?>)m.args[2];
 
 
         int size = switchList.size();
@@ -636,6 +838,8 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             for (int j=0; j<size; j++) {
                 switchState = (SwitchState)switchList.get(j);
                 switchState.updateCurrentSwitchOn();
+                // gather a list of SwitchState for lastSwitchOn update
+                switchChangedList.add(switchState);
             }
 
             // process switch dirty TranformGroups
@@ -683,9 +887,6 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
                 }
 	    }
 
-            // gather a list of SwitchState for lastSwitchOn update
-            switchChangedList.addAll(switchList);
-
 	    if (!inUpdateObjectList) {
                 VirtualUniverse.mc.addMirrorObject(this);
 	        inUpdateObjectList = true;
@@ -697,7 +898,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	return targets;
     }
 
-    ArrayList getBlUsers() {
+    ArrayList<LeafRetained> getBlUsers() {
  	return blUsers;
     }
 
@@ -718,42 +919,4 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     @Override
     void cleanup() {}
 
-    // Wrapper for a (TransformGroupRetained, Transform3D) pair
-    // TransformGroupRetained is effectively used as the key in the
-    // HashSet
-    private class TransformData {
-        private TransformGroupRetained transformGroupRetained;
-        private Transform3D transform3D;
-
-        TransformData( TransformGroupRetained tgr, Transform3D t3d )  {
-            transformGroupRetained = tgr;
-            transform3D = t3d;
-        }
-
-        // Hashcode and equals test only evaluate TransformGroupRetained
-        @Override
-        public int hashCode() {
-            return transformGroupRetained.hashCode();
-        }
-
-        // Hashcode and equals test only evaluate TransformGroupRetained
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof TransformData)) {
-                return false;
-            }
-
-            return transformGroupRetained.equals(((TransformData)o).getTransformGroupRetained());
-        }
-
-        TransformGroupRetained getTransformGroupRetained() {
-            return transformGroupRetained;
-        }
-
-        Transform3D getTransform3D() {
-            return transform3D;
-        }
-
-    }
-
 }
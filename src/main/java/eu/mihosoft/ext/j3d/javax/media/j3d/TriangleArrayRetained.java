@@ -56,11 +56,14 @@ class TriangleArrayRetained extends GeometryArrayRetained {
 	pnts[1] = new Point3d();
 	pnts[2] = new Point3d();
 
+	PrimitiveBHTree.Cursor cursor =
+	    getPickCursor(pickShape, i, validVertexCount, 3, null);
+
 	switch (pickShape.getPickType()) {
 	case PickShape.PICKRAY:
 	    PickRay pickRay= (PickRay) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -89,7 +92,7 @@ class TriangleArrayRetained extends GeometryArrayRetained {
 	case PickShape.PICKSEGMENT:
 	    PickSegment pickSegment = (PickSegment) pickShape;
 
-            while (i < validVertexCount) {
+            while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -209,7 +212,7 @@ class TriangleArrayRetained extends GeometryArrayRetained {
 	    break;
 	case PickShape.PICKCYLINDER:
 	    PickCylinder pickCylinder= (PickCylinder) pickShape;
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
@@ -239,7 +242,7 @@ class TriangleArrayRetained extends GeometryArrayRetained {
 	case PickShape.PICKCONE:
 	    PickCone pickCone= (PickCone) pickShape;
 
-	    while (i < validVertexCount) {
+	    while ((i = cursor.next(i)) < validVertexCount) {
                 for(int j=0; j<3; j++) {
                     vtxIndexArr[j] = i;
                     getVertexData(i++, pnts[j]);
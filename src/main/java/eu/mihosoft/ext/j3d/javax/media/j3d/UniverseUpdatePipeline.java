@@ -0,0 +1,177 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The UniverseUpdatePipeline runs all structure updates of one
+ * VirtualUniverse as a single task: first the TransformStructure, then
+ * the GeometryStructure, BehaviorStructure, RenderingEnvironmentStructure
+ * and SoundStructure, the latter in parallel on the J3dForkJoinScheduler
+ * pool.  It is used when the -Dj3d.independentUniverses property is set,
+ * so that the universes of a frame do not wait for each other between
+ * their transform and structure updates.
+ *
+ * Only the structure update phase is split per universe.  All universes
+ * still share the single MasterControl loop and its timeLock: the time
+ * snapshot of a frame is taken once for every universe, and the frame
+ * waits for the pipelines of all universes before the behavior
+ * schedulers run, and for those before the renderers run.  A busy
+ * universe thus still delays the frames of the others.
+ *
+ * The pipeline is started like the other update threads, but MasterControl
+ * normally runs it as an UPDATE_THREAD on the fork/join pool (or directly
+ * if cpuLimit is 1).  When it runs on its own thread, the structures are
+ * updated one after the other.
+ */
+
+class UniverseUpdatePipeline extends J3dThread {
+
+    /**
+     * The universe whose structures are updated
+     */
+    private VirtualUniverse universe;
+
+    // The structure update threads that need to run in this frame,
+    // set by prepare()
+    private J3dThreadData transformThread = null;
+    private final J3dThreadData[] structureThreads = new J3dThreadData[4];
+    private int numStructureThreads = 0;
+
+    UniverseUpdatePipeline(ThreadGroup t, VirtualUniverse u) {
+	super(t);
+	universe = u;
+	type = J3dThread.UPDATE_TRANSFORM | J3dThread.UPDATE_GEOMETRY |
+	       J3dThread.UPDATE_BEHAVIOR | J3dThread.UPDATE_SOUND |
+	       J3dThread.UPDATE_RENDERING_ENVIRONMENT;
+	classification = J3dThread.UPDATE_THREAD;
+	setName("J3D-UniverseUpdatePipeline-" + getInstanceNum());
+    }
+
+    /**
+     * Determines which structures of the universe have messages to
+     * process and marks them as run at the given time.  Returns true if
+     * any of them needs to run.  Called by MasterControl with the
+     * timeLock held.
+     */
+    boolean prepare(long currentTime) {
+	transformThread = null;
+	numStructureThreads = 0;
+
+	J3dThreadData thread =
+	    universe.transformStructure.getUpdateThreadData();
+	if (needsRun(thread, currentTime)) {
+	    transformThread = thread;
+	}
+	addStructureThread(universe.geometryStructure, currentTime);
+	addStructureThread(universe.behaviorStructure, currentTime);
+	addStructureThread(universe.renderingEnvironmentStructure, currentTime);
+	addStructureThread(universe.soundStructure, currentTime);
+
+	return (transformThread != null || numStructureThreads > 0);
+    }
+
+    private void addStructureThread(J3dStructure structure, long currentTime) {
+	J3dThreadData thread = structure.getUpdateThreadData();
+	if (needsRun(thread, currentTime)) {
+	    structureThreads[numStructureThreads++] = thread;
+	}
+    }
+
+    private static boolean needsRun(J3dThreadData thread, long currentTime) {
+	if (thread.thread == null || !thread.thread.active) {
+	    return false;
+	}
+	if ((thread.lastUpdateTime > thread.lastRunTime) &&
+	    !thread.thread.userStop) {
+	    thread.lastRunTime = currentTime;
+	    return true;
+	}
+	return false;
+    }
+
+    @Override
+    void doWork(long referenceTime) {
+	if (transformThread != null) {
+	    runStructureThread(transformThread, referenceTime);
+	}
+
+	if (numStructureThreads == 1 || !ForkJoinTask.inForkJoinPool()) {
+	    for (int i = 0; i < numStructureThreads; i++) {
+		runStructureThread(structureThreads[i], referenceTime);
+	    }
+	} else if (numStructureThreads > 1) {
+	    StructureTask[] tasks = new StructureTask[numStructureThreads];
+	    for (int i = 0; i < numStructureThreads; i++) {
+		tasks[i] = new StructureTask(structureThreads[i], referenceTime);
+	    }
+	    ForkJoinTask.invokeAll(tasks);
+	}
+
+	transformThread = null;
+	for (int i = 0; i < numStructureThreads; i++) {
+	    structureThreads[i] = null;
+	}
+	numStructureThreads = 0;
+    }
+
+    private static void runStructureThread(J3dThreadData thread,
+					   long referenceTime) {
+	thread.thread.args = (Object[]) thread.threadArgs;
+	thread.thread.referenceTime = referenceTime;
+	thread.thread.doWork(referenceTime);
+    }
+
+    static class StructureTask extends RecursiveAction {
+	static final long serialVersionUID = 1L;
+
+	private final J3dThreadData thread;
+	private final long referenceTime;
+
+	StructureTask(J3dThreadData thread, long referenceTime) {
+	    this.thread = thread;
+	    this.referenceTime = referenceTime;
+	}
+
+	@Override
+	protected void compute() {
+	    runStructureThread(thread, referenceTime);
+	}
+    }
+
+    @Override
+    void cleanup() {
+	super.cleanup();
+	transformThread = null;
+	for (int i = 0; i < structureThreads.length; i++) {
+	    structureThreads[i] = null;
+	}
+	numStructureThreads = 0;
+    }
+}
@@ -92,6 +92,25 @@ class UpdateTargets {
 	}
     }
 
+    /**
+     * Appends all targets of the given UpdateTargets to this one.
+     */
+    void addTargets(UpdateTargets updateTargets) {
+        for(int i=0; i<Targets.MAX_NODELIST; i++) {
+            UnorderList list = updateTargets.targetList[i];
+            if (list != null && list.size() > 0) {
+                if(targetList[i] == null)
+                    targetList[i] = new UnorderList(1);
+
+                Object[] nodes = list.toArray(false);
+                int size = list.size();
+                for (int j=0; j<size; j++) {
+                    targetList[i].add(nodes[j]);
+                }
+            }
+        }
+    }
+
     void addCachedTargets(CachedTargets cachedTargets) {
         for(int i=0; i<Targets.MAX_NODELIST; i++) {
             if (cachedTargets.targetArr[i] != null ) {
@@ -302,7 +302,7 @@ static public double rayToSegment(Point3d rayorig, Vector3d raydir,
 		}
 		else {
 			// same direction vectors
-			E = segdir.dot(diff);// -Dot(seg.m,diff);
+			E = -segdir.dot(diff);// -Dot(seg.m,diff);
 			t = 1;
 			tmp = B + D;
 			if (tmp >= 0) {
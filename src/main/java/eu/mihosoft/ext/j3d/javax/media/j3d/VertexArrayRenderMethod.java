@@ -62,8 +62,9 @@ class VertexArrayRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.occluded &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
 		    renderGeo(ra, rm, cv);
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * A pool of direct FloatBuffers holding the off-heap copies of the vertex
+ * data of the by-copy GeometryArrays that enabled them through
+ * GeometryArray.setOffHeapVertexData(), so that the pipeline can draw
+ * them without copying the data into a temporary buffer first.  The buffers
+ * are rounded up to size classes of powers of two floats.
+ *
+ * A buffer is returned to the pool by release(), when its geometry is no
+ * longer live, or when the geometry is reclaimed by the GC.  A released
+ * buffer may still be drawn by the renderers of the current frame, so it
+ * is only reused after two more frames are done.  Free buffers beyond the
+ * pool size of the MasterControl are left to the GC.
+ */
+
+class VertexBufferPool {
+
+    // Smallest size class is 2^MIN_SHIFT floats, largest 2^MAX_SHIFT
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 28;
+    private static final int NUM_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    /**
+     * The buffer of a geometry.  It is registered with the GC so that the
+     * buffer returns to the pool if the geometry is reclaimed without
+     * being released.
+     */
+    static class Handle extends PhantomReference<Object> {
+	final FloatBuffer buffer;
+	final int sizeClass;
+
+	Handle(Object owner, FloatBuffer buffer, int sizeClass) {
+	    super(owner, queue);
+	    this.buffer = buffer;
+	    this.sizeClass = sizeClass;
+	}
+    }
+
+    private static final ReferenceQueue<Object> queue =
+	new ReferenceQueue<Object>();
+
+    // The handles in use, kept here so that they are not reclaimed before
+    // their owners
+    private static final IdentityHashMap<Handle, Handle> inUse =
+	new IdentityHashMap<Handle, Handle>();
+
+    // The free buffers of each size class
+    private static final ArrayList<ArrayList<FloatBuffer>> free = newLists();
+
+    // The handles released during the current frame and the last one
+    private static ArrayList<Handle> released = new ArrayList<Handle>();
+    private static ArrayList<Handle> releasedLastFrame = new ArrayList<Handle>();
+
+    // Bytes of the buffers in use and of the free buffers
+    private static long inUseBytes = 0;
+    private static long freeBytes = 0;
+
+    // Number of buffers allocated and taken from the pool
+    private static long allocated = 0;
+    private static long reused = 0;
+
+    private static ArrayList<ArrayList<FloatBuffer>> newLists() {
+	ArrayList<ArrayList<FloatBuffer>> lists =
+	    new ArrayList<ArrayList<FloatBuffer>>(NUM_CLASSES);
+	for (int i = 0; i < NUM_CLASSES; i++) {
+	    lists.add(new ArrayList<FloatBuffer>());
+	}
+	return lists;
+    }
+
+    /**
+     * Returns a buffer of at least size floats for owner, cleared to
+     * position 0 and limit size, or null if no such buffer can be
+     * allocated.
+     */
+    static synchronized Handle acquire(Object owner, int size) {
+	pollQueue();
+
+	if (size > (1 << MAX_SHIFT)) {
+	    return null;
+	}
+	int sizeClass = Math.max(32 - Integer.numberOfLeadingZeros(
+				     Math.max(size, 1) - 1) - MIN_SHIFT, 0);
+	FloatBuffer buffer;
+	ArrayList<FloatBuffer> list = free.get(sizeClass);
+	if (list.isEmpty()) {
+	    try {
+		buffer = ByteBuffer.allocateDirect((int) bytes(sizeClass)).
+		    order(ByteOrder.nativeOrder()).asFloatBuffer();
+	    } catch (OutOfMemoryError e) {
+		// Out of direct memory: drop the free buffers, and let the
+		// geometry be drawn from its Java array
+		for (int i = 0; i < NUM_CLASSES; i++) {
+		    free.get(i).clear();
+		}
+		freeBytes = 0;
+		return null;
+	    }
+	    allocated++;
+	} else {
+	    buffer = list.remove(list.size() - 1);
+	    freeBytes -= bytes(sizeClass);
+	    reused++;
+	}
+	buffer.clear();
+	buffer.limit(size);
+
+	Handle handle = new Handle(owner, buffer, sizeClass);
+	inUse.put(handle, handle);
+	inUseBytes += bytes(sizeClass);
+	return handle;
+    }
+
+    /**
+     * Returns the buffer of handle to the pool once the renderers are
+     * done with it.
+     */
+    static synchronized void release(Handle handle) {
+	if (inUse.remove(handle) != null) {
+	    handle.clear();
+	    inUseBytes -= bytes(handle.sizeClass);
+	    released.add(handle);
+	}
+    }
+
+    /**
+     * Called by the MasterControl after each frame.
+     */
+    static synchronized void frameDone() {
+	pollQueue();
+	if (released.isEmpty() && releasedLastFrame.isEmpty()) {
+	    return;
+	}
+	for (int i = releasedLastFrame.size() - 1; i >= 0; i--) {
+	    Handle handle = releasedLastFrame.get(i);
+	    addFree(handle.buffer, handle.sizeClass);
+	}
+	releasedLastFrame.clear();
+	ArrayList<Handle> tmp = releasedLastFrame;
+	releasedLastFrame = released;
+	released = tmp;
+    }
+
+    // Returns the buffers of the reclaimed geometries to the pool.  Their
+    // geometries can no longer be drawn, so the buffers are free at once.
+    private static void pollQueue() {
+	Handle handle;
+	while ((handle = (Handle) queue.poll()) != null) {
+	    if (inUse.remove(handle) != null) {
+		inUseBytes -= bytes(handle.sizeClass);
+		addFree(handle.buffer, handle.sizeClass);
+	    }
+	}
+    }
+
+    private static void addFree(FloatBuffer buffer, int sizeClass) {
+	long size = bytes(sizeClass);
+	if (freeBytes + size <= VirtualUniverse.mc.offHeapPoolSize) {
+	    free.get(sizeClass).add(buffer);
+	    freeBytes += size;
+	}
+    }
+
+    private static long bytes(int sizeClass) {
+	return 4L << (sizeClass + MIN_SHIFT);
+    }
+
+    /**
+     * Returns the bytes of the buffers in use.
+     */
+    static synchronized long getInUseBytes() {
+	pollQueue();
+	return inUseBytes;
+    }
+
+    /**
+     * Returns the bytes of the free buffers kept by the pool.
+     */
+    static synchronized long getFreeBytes() {
+	return freeBytes;
+    }
+
+    /**
+     * Returns the number of buffers allocated since the pool was created.
+     */
+    static synchronized long getAllocatedCount() {
+	return allocated;
+    }
+
+    /**
+     * Returns the number of buffers taken from the pool instead of being
+     * allocated.
+     */
+    static synchronized long getReusedCount() {
+	return reused;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2001-2008 Sun Microsystems, Inc.  All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+
+
+package eu.mihosoft.ext.j3d.javax.media.j3d;
+
+/**
+ * A set of ranges of vertex indices, kept sorted and coalesced.  The
+ * number of ranges is bounded: when a range is added to a full set, the
+ * two ranges with the smallest gap between them are merged, so the set
+ * may cover vertices that were never added but never misses one.
+ */
+
+class VertexRangeSet {
+
+    static final int MAX_RANGES = 32;
+
+    // Start (inclusive) and end (exclusive) of the ranges
+    private final int[] starts = new int[MAX_RANGES + 1];
+    private final int[] ends = new int[MAX_RANGES + 1];
+    private int size = 0;
+
+    /**
+     * Adds the vertices from start to start + count - 1.
+     */
+    void add(int start, int count) {
+	if (count <= 0) {
+	    return;
+	}
+	int end = start + count;
+
+	// First range that ends at or after start
+	int i = 0;
+	while ((i < size) && (ends[i] < start)) {
+	    i++;
+	}
+	// Ranges from i to j - 1 touch the new range
+	int j = i;
+	while ((j < size) && (starts[j] <= end)) {
+	    j++;
+	}
+
+	if (j > i) {
+	    start = Math.min(start, starts[i]);
+	    end = Math.max(end, ends[j - 1]);
+	}
+	int shift = 1 - (j - i);
+	if (shift != 0) {
+	    System.arraycopy(starts, j, starts, j + shift, size - j);
+	    System.arraycopy(ends, j, ends, j + shift, size - j);
+	    size += shift;
+	}
+	starts[i] = start;
+	ends[i] = end;
+
+	if (size > MAX_RANGES) {
+	    int k = 0;
+	    for (int n = 1; n < size - 1; n++) {
+		if (starts[n + 1] - ends[n] < starts[k + 1] - ends[k]) {
+		    k = n;
+		}
+	    }
+	    ends[k] = ends[k + 1];
+	    System.arraycopy(starts, k + 2, starts, k + 1, size - k - 2);
+	    System.arraycopy(ends, k + 2, ends, k + 1, size - k - 2);
+	    size--;
+	}
+    }
+
+    void add(VertexRangeSet set) {
+	for (int i = 0; i < set.size; i++) {
+	    add(set.starts[i], set.ends[i] - set.starts[i]);
+	}
+    }
+
+    void clear() {
+	size = 0;
+    }
+
+    boolean isEmpty() {
+	return size == 0;
+    }
+
+    /**
+     * Returns the number of ranges.
+     */
+    int size() {
+	return size;
+    }
+
+    int getStart(int i) {
+	return starts[i];
+    }
+
+    int getEnd(int i) {
+	return ends[i];
+    }
+}
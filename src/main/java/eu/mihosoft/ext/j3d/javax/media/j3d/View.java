@@ -2944,7 +2944,7 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	    if (activeStatus && isRunning) {
 		VirtualUniverse.mc.postRequest(MasterControl.STOP_VIEW, this);
 		while (isRunning) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(VirtualUniverse.mc);
 		}
 	    } else {
 		isRunning = false;
@@ -2967,7 +2967,7 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	    if (activeStatus && !isRunning) {
 		VirtualUniverse.mc.postRequest(MasterControl.START_VIEW, this);
 		while (!isRunning) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(VirtualUniverse.mc);
 		}
 		VirtualUniverse.mc.sendRunMessage(this,
 						  J3dThread.RENDER_THREAD);
@@ -3037,7 +3037,7 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	    renderOnceFinish = false;
 	    VirtualUniverse.mc.postRequest(MasterControl.RENDER_ONCE, this);
 	    while (!renderOnceFinish) {
-		MasterControl.threadYield();
+		MasterControl.threadWait(VirtualUniverse.mc);
 	    }
 	    renderOnceFinish = true;
 	}
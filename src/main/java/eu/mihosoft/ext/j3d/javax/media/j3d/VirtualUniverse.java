@@ -84,6 +84,10 @@ private ViewPlatformRetained[] viewPlatformList = new ViewPlatformRetained[0];
     // The Behavior Scheduler Thread for this Virtual Universe.
     BehaviorScheduler behaviorScheduler = null;
 
+    // Runs the structure updates of this universe when
+    // MasterControl.independentUniverses is set
+    UniverseUpdatePipeline updatePipeline = null;
+
 
     // The geometry structure for this Universe
     GeometryStructure geometryStructure = null;
@@ -146,6 +150,10 @@ ArrayList<Integer> viewIdFreeList = new ArrayList<Integer>();
     // Keep track of how many active View use this universe
     int activeViewCount = 0;
 
+    // Set when the structures of this universe are run by step()
+    // without an active View
+    boolean activeWithoutView = false;
+
     // Root ThreadGroup for creating Java 3D threads
     static ThreadGroup rootThreadGroup;
 
@@ -173,6 +181,10 @@ ArrayList<Integer> viewIdFreeList = new ArrayList<Integer>();
     private static RenderingErrorListener defaultRenderingErrorListener =
 	Renderer.getDefaultErrorListener();
 
+    // Set of frame statistics listeners
+    private static final HashSet<FrameStatisticsListener> frameStatisticsListenerSet =
+	new HashSet<FrameStatisticsListener>();
+
     /**
      * Constructs a new VirtualUniverse.
      */
@@ -262,10 +274,12 @@ ArrayList<Integer> viewIdFreeList = new ArrayList<Integer>();
             }
 	}
 
-	// Java 3D cannot run in headless mode, so we will throw a
-	// HeadlessException if isHeadless() is true. This avoids a
-	// cryptic error message from MasterControl.loadLibraries().
-	if (java.awt.GraphicsEnvironment.isHeadless()) {
+	// Java 3D can only run in headless mode with the NOOP pipeline,
+	// so we will throw a HeadlessException if isHeadless() is true
+	// and another pipeline is selected. This avoids a cryptic error
+	// message from MasterControl.loadLibraries().
+	if (java.awt.GraphicsEnvironment.isHeadless() &&
+	    !"noop".equals(MasterControl.getProperty("j3d.rend"))) {
 	    throw new java.awt.HeadlessException();
 	}
 
@@ -419,6 +433,50 @@ public Enumeration<Locale> getAllLocales() {
     }
 
 
+    /**
+     * Runs one update cycle of all live scene graphs and waits for it
+     * to complete.  The cycle processes all scene graph changes made
+     * before this call: the transform, geometry, behavior, rendering
+     * environment and sound structures are updated, behaviors whose
+     * wakeup conditions are met are run, and views with a canvas are
+     * rendered.  Changes made by the Java 3D threads during the cycle,
+     * such as changes made by behaviors, are processed by the next call.
+     * <p>
+     * This method may only be used when manual frame stepping is
+     * enabled by setting the <code>j3d.manualStep</code> property to
+     * true.  Java 3D then runs no frame on its own, and does not pace
+     * the frames to the minimum frame cycle time of the views.
+     * Together with the NOOP rendering pipeline
+     * (<code>j3d.rend=noop</code>), which can run in a headless
+     * environment, this allows a scene graph to be updated at full
+     * speed and reproducibly, for example for simulation or picking.
+     *
+     * @exception IllegalStateException if manual frame stepping is not
+     * enabled, or if this method is called from a Java 3D thread, for
+     * example from the processStimulus method of a Behavior.
+     *
+     * @see #isManualStepping
+     */
+    public static void step() {
+	if (!VirtualUniverse.mc.manualStepping) {
+	    throw new IllegalStateException(J3dI18N.getString("VirtualUniverse1"));
+	}
+	VirtualUniverse.mc.step();
+    }
+
+
+    /**
+     * Retrieves whether manual frame stepping is enabled.
+     *
+     * @return true if frames are only run by calls to step()
+     *
+     * @see #step
+     */
+    public static boolean isManualStepping() {
+	return VirtualUniverse.mc.manualStepping;
+    }
+
+
     /**
      * Returns a read-only Map object containing key-value pairs that
      * define various global properties for Java 3D.  All of the keys
@@ -918,7 +976,7 @@ void enableMouseWheelEvents() {
 		if ((regViewWaiting == null) ||
 		    (regViewWaiting != unRegViewWaiting)) {
 		    while (!unRegViewWaiting.doneUnregister) {
-		        MasterControl.threadYield();
+		        MasterControl.threadWait(VirtualUniverse.mc);
 		    }
 		    unRegViewWaiting.doneUnregister = false;
 		    unRegViewWaiting = null;
@@ -927,7 +985,7 @@ void enableMouseWheelEvents() {
 
 	    if (regViewWaiting != null) {
 		while (!VirtualUniverse.mc.isRegistered(regViewWaiting)) {
-		    MasterControl.threadYield();
+		    MasterControl.threadWait(VirtualUniverse.mc);
 		}
 		regViewWaiting = null;
 	    }
@@ -1217,4 +1275,81 @@ void enableMouseWheelEvents() {
         }
     }
 
+    /**
+     * Adds the specified FrameStatisticsListener to the set of listeners
+     * that will be notified at the end of each statistics reporting
+     * interval.  Registering a listener enables the collection of
+     * statistics.
+     * If the specifed listener is null no action is taken and no exception
+     * is thrown.
+     * The listeners are called asynchronously from a separate
+     * notification thread.
+     *
+     * @param listener the listener to add to the set.
+     */
+    public static void addFrameStatisticsListener(FrameStatisticsListener listener) {
+        if (listener == null) {
+            return;
+        }
+
+        synchronized(frameStatisticsListenerSet) {
+            frameStatisticsListenerSet.add(listener);
+            FrameStatisticsCollector.setListenersPresent(true);
+        }
+    }
+
+    /**
+     * Removes the specified FrameStatisticsListener from the set of
+     * listeners. This method performs no function, nor does it throw
+     * an exception if the specified listener is not currently in the
+     * set or is null.
+     *
+     * @param listener the listener to remove from the set.
+     */
+    public static void removeFrameStatisticsListener(FrameStatisticsListener listener) {
+        synchronized(frameStatisticsListenerSet) {
+            frameStatisticsListenerSet.remove(listener);
+            FrameStatisticsCollector.setListenersPresent(
+                    !frameStatisticsListenerSet.isEmpty());
+        }
+    }
+
+    /**
+     * Retrieves a snapshot of the counters of the object pools that
+     * Java 3D uses to reuse its internal objects.  The counters are
+     * always collected.
+     *
+     * @return an array with the statistics of each pool
+     *
+     * @see PoolStatistics
+     */
+    public static PoolStatistics[] getPoolStatistics() {
+        return ObjectPool.getAllStatistics();
+    }
+
+    /**
+     * Notifies all listeners of new frame statistics.
+     */
+    static void notifyFrameStatisticsListeners(FrameStatistics stats) {
+        FrameStatisticsListener[] listeners;
+        synchronized(frameStatisticsListenerSet) {
+            listeners = frameStatisticsListenerSet.toArray(
+                    new FrameStatisticsListener[frameStatisticsListenerSet.size()]);
+        }
+
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].statisticsUpdated(stats);
+            }
+            catch (RuntimeException e) {
+                System.err.println("Exception occurred in FrameStatisticsListener:");
+                e.printStackTrace();
+            }
+            catch (Error e) {
+                System.err.println("Error occurred in FrameStatisticsListener:");
+                e.printStackTrace();
+            }
+        }
+    }
+
 }